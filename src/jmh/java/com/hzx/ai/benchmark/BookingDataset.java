@@ -0,0 +1,107 @@
+package com.hzx.ai.benchmark;
+
+import com.hzx.ai.model.Booking;
+import com.hzx.ai.model.Customer;
+import com.hzx.ai.model.enums.BookingCategoryEnum;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+import com.hzx.ai.repository.BookingRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基准测试使用的预订数据集
+ *
+ * <p>预订号为 {@code D0}、{@code D1}……，客户在固定数量的姓名中轮换，
+ * 航班日期从30天后开始按天分布，保证修改（起飞前24小时外）和取消（起飞前48小时外）都能成功。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+final class BookingDataset {
+
+    /**
+     * 查询目标数，取2的幂便于循环取下标
+     */
+    static final int TARGETS = 1024;
+
+    private static final int CUSTOMERS = 1024;
+
+    private static final List<String> CITIES = List.of("北京", "上海", "广州", "深圳", "成都", "杭州", "西安", "重庆");
+
+    private BookingDataset() {
+    }
+
+    /**
+     * 向仓储写入指定数量的预订
+     *
+     * @param repository 预订仓储
+     * @param size 预订数
+     */
+    static void populate(BookingRepository repository, int size) {
+        List<Customer> customers = new ArrayList<>(CUSTOMERS);
+        for (int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = new Customer();
+            customer.setName(name(i));
+            customers.add(customer);
+        }
+        LocalDate start = LocalDate.now().plusDays(30);
+        BookingCategoryEnum[] categories = BookingCategoryEnum.values();
+        for (int i = 0; i < size; i++) {
+            repository.save(new Booking(
+                    bookingNumber(i),
+                    start.plusDays(i % 300),
+                    customers.get(i % CUSTOMERS),
+                    BookingStatusEnum.CONFIRMED,
+                    CITIES.get(i % CITIES.size()),
+                    CITIES.get((i + 1) % CITIES.size()),
+                    categories[i % categories.length]
+            ));
+        }
+    }
+
+    /**
+     * 随机选取查询目标的序号，避免在计时区内生成随机数
+     *
+     * @param size 预订数
+     * @return int[] 长度为 {@link #TARGETS} 的预订序号
+     */
+    static int[] targets(int size) {
+        int[] targets = new int[TARGETS];
+        for (int i = 0; i < TARGETS; i++) {
+            targets[i] = ThreadLocalRandom.current().nextInt(size);
+        }
+        return targets;
+    }
+
+    /**
+     * 第 i 条预订的预订号
+     */
+    static String bookingNumber(int i) {
+        return "D" + i;
+    }
+
+    /**
+     * 第 i 条预订的客户姓名
+     */
+    static String name(int i) {
+        return "客户" + (i % CUSTOMERS);
+    }
+
+    /**
+     * 修改预订时使用的新日期，均在30天之后
+     *
+     * @return String[] yyyy-MM-dd 格式的日期
+     */
+    static String[] changeDates() {
+        LocalDate start = LocalDate.now().plusDays(30);
+        String[] dates = new String[64];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = start.plusDays(i).toString();
+        }
+        return dates;
+    }
+}
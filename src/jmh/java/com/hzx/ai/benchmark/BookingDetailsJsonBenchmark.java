@@ -0,0 +1,105 @@
+package com.hzx.ai.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预订详情JSON序列化基准测试
+ *
+ * <p>{@link ObjectMapper} 与 Spring Boot 的默认配置一致（日期写为 ISO 字符串）。对比三种方式：</p>
+ * <ul>
+ *   <li>{@code writeList}：一次性序列化整个列表为字节数组</li>
+ *   <li>{@code streamArray}：与 {@code /api/booking/list} 相同，逐条写入输出流，不保留整个响应</li>
+ *   <li>{@code readList}：反序列化整个列表</li>
+ * </ul>
+ *
+ * <p>运行方式：</p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="BookingDetailsJsonBenchmark"
+ * </pre>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingDetailsJsonBenchmark {
+
+    private static final TypeReference<List<BookingDetails>> LIST_TYPE = new TypeReference<>() {
+    };
+
+    @Param({"1", "100", "10000"})
+    private int count;
+
+    private ObjectMapper objectMapper;
+
+    private ObjectWriter rowWriter;
+
+    private List<BookingDetails> rows;
+
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        rowWriter = objectMapper.writerFor(BookingDetails.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        LocalDate start = LocalDate.now().plusDays(30);
+        rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new BookingDetails(BookingDataset.bookingNumber(i), BookingDataset.name(i),
+                    start.plusDays(i % 300), BookingStatusEnum.CONFIRMED, "北京", "上海", "ECONOMY"));
+        }
+        json = objectMapper.writeValueAsBytes(rows);
+    }
+
+    @Benchmark
+    public byte[] writeList() throws IOException {
+        return objectMapper.writeValueAsBytes(rows);
+    }
+
+    @Benchmark
+    public void streamArray() throws IOException {
+        try (SequenceWriter sequence = rowWriter.writeValuesAsArray(OutputStream.nullOutputStream())) {
+            for (BookingDetails row : rows) {
+                sequence.write(row);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<BookingDetails> readList() throws IOException {
+        return objectMapper.readValue(json, LIST_TYPE);
+    }
+}
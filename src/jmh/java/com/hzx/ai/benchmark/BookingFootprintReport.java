@@ -0,0 +1,86 @@
+package com.hzx.ai.benchmark;
+
+import com.hzx.ai.config.BookingStorageProperties.StorageEngine;
+import com.hzx.ai.repository.BookingRepository;
+import com.hzx.ai.repository.ColumnarBookingRepository;
+import com.hzx.ai.repository.InMemoryBookingRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 内存存储引擎堆占用报告
+ *
+ * <p>对每种存储引擎和每个数据规模，在写入 {@link BookingDataset} 前后各做一次完整GC并读取已用堆内存，
+ * 两者之差即为仓储本身的堆占用，输出总占用和每条预订的平均字节数。
+ * 数据规模较大时需要相应调大堆，例如1000万条预订的对象存储约需十余GB。</p>
+ *
+ * <p>运行方式：</p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.jvmArgs="-Xmx24g" \
+ *     -Dbenchmark.main=com.hzx.ai.benchmark.BookingFootprintReport -Dbenchmark.args="1000000 10000000"
+ * </pre>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public final class BookingFootprintReport {
+
+    private BookingFootprintReport() {
+    }
+
+    /**
+     * 报告入口
+     *
+     * @param args 数据规模，可指定多个，默认100万和1000万
+     */
+    public static void main(String[] args) {
+        List<Integer> sizes = new ArrayList<>();
+        for (String arg : args.length > 0 ? args : new String[]{"1000000", "10000000"}) {
+            sizes.add(Integer.parseInt(arg));
+        }
+
+        System.out.printf("%-10s %12s %12s %14s%n", "引擎", "预订数", "堆占用MB", "每条预订B");
+        for (int size : sizes) {
+            for (StorageEngine engine : StorageEngine.values()) {
+                long before = usedHeap();
+                BookingRepository repository = create(engine);
+                BookingDataset.populate(repository, size);
+                long after = usedHeap();
+                System.out.printf("%-10s %12d %12.1f %14.1f%n",
+                        engine, repository.count(), (after - before) / 1024.0 / 1024.0, (after - before) / (double) size);
+            }
+        }
+    }
+
+    private static BookingRepository create(StorageEngine engine) {
+        return switch (engine) {
+            case OBJECT -> new InMemoryBookingRepository();
+            case COLUMNAR -> new ColumnarBookingRepository();
+        };
+    }
+
+    /**
+     * 多次GC直到已用堆内存稳定后读取
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                return now;
+            }
+            used = now;
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return used;
+    }
+}
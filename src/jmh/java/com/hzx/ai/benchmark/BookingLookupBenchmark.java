@@ -0,0 +1,134 @@
+package com.hzx.ai.benchmark;
+
+import com.hzx.ai.model.Booking;
+import com.hzx.ai.model.Customer;
+import com.hzx.ai.model.enums.BookingCategoryEnum;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+import com.hzx.ai.repository.InMemoryBookingRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预订号查询基准测试
+ *
+ * <p>对比原先 {@code findBooking} 的流式全表扫描与哈希索引仓储的查询耗时，
+ * 数据规模分别为 1万、100万、1000万条预订。</p>
+ *
+ * <p>运行方式：</p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="BookingLookupBenchmark"
+ * </pre>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class BookingLookupBenchmark {
+
+    private static final int TARGETS = 1024;
+
+    private static final List<String> NAMES = List.of("徐庶", "诸葛", "百里", "楼兰", "庄周");
+
+    @Param({"10000", "1000000", "10000000"})
+    private int size;
+
+    private List<Booking> bookings;
+
+    private InMemoryBookingRepository repository;
+
+    /**
+     * 预先随机选好的查询目标，避免在计时区内生成随机数
+     */
+    private String[] bookingNumbers;
+
+    private String[] names;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Customer> customers = new ArrayList<>();
+        for (String n : NAMES) {
+            Customer customer = new Customer();
+            customer.setName(n);
+            customers.add(customer);
+        }
+
+        bookings = new ArrayList<>(size);
+        repository = new InMemoryBookingRepository();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < size; i++) {
+            Booking booking = new Booking(
+                    "B" + i,
+                    today.plusDays(i % 365),
+                    customers.get(i % customers.size()),
+                    BookingStatusEnum.CONFIRMED,
+                    "北京",
+                    "上海",
+                    BookingCategoryEnum.ECONOMY
+            );
+            bookings.add(booking);
+            repository.save(booking);
+        }
+
+        // 查询键使用小写，覆盖忽略大小写的匹配路径
+        bookingNumbers = new String[TARGETS];
+        names = new String[TARGETS];
+        for (int i = 0; i < TARGETS; i++) {
+            Booking target = bookings.get(ThreadLocalRandom.current().nextInt(size));
+            bookingNumbers[i] = target.getBookingNumber().toLowerCase();
+            names[i] = target.getCustomer().getName();
+        }
+    }
+
+    /**
+     * 原实现：流式全表扫描 + 两次 equalsIgnoreCase 过滤
+     */
+    @Benchmark
+    public Optional<Booking> streamScan() {
+        int i = nextTarget();
+        String bookingNumber = bookingNumbers[i];
+        String name = names[i];
+        return bookings.stream()
+                .filter(b -> b.getBookingNumber().equalsIgnoreCase(bookingNumber))
+                .filter(b -> b.getCustomer().getName().equalsIgnoreCase(name))
+                .findFirst();
+    }
+
+    /**
+     * 新实现：归一化预订号主索引 + 客户姓名校验
+     */
+    @Benchmark
+    public Optional<Booking> indexedLookup() {
+        int i = nextTarget();
+        return repository.findByBookingNumberAndName(bookingNumbers[i], names[i]);
+    }
+
+    private int nextTarget() {
+        cursor = (cursor + 1) & (TARGETS - 1);
+        return cursor;
+    }
+}
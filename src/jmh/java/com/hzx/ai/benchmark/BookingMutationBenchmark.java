@@ -0,0 +1,106 @@
+package com.hzx.ai.benchmark;
+
+import com.hzx.ai.model.Booking;
+import com.hzx.ai.model.Customer;
+import com.hzx.ai.model.enums.BookingCategoryEnum;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+import com.hzx.ai.repository.InMemoryBookingRepository;
+import com.hzx.ai.repository.StripedBookingLocks;
+import com.hzx.ai.repository.journal.NoopBookingStore;
+import com.hzx.ai.services.FlightBookingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预订修改吞吐量基准测试
+ *
+ * <p>在分段锁保护下，分别以1、8、64个线程对随机预订执行修改（3/4）与查询（1/4），
+ * 观察不相关预订之间是否互相争用。</p>
+ *
+ * <p>运行方式：</p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="BookingMutationBenchmark"
+ * </pre>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingMutationBenchmark {
+
+    private static final int BOOKINGS = 100_000;
+
+    private static final String NAME = "基准";
+
+    private FlightBookingService service;
+
+    private String[] dates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryBookingRepository repository = new InMemoryBookingRepository();
+        service = new FlightBookingService(repository, new StripedBookingLocks(), new NoopBookingStore());
+
+        Customer customer = new Customer();
+        customer.setName(NAME);
+        LocalDate start = LocalDate.now().plusDays(30);
+        for (int i = 0; i < BOOKINGS; i++) {
+            repository.save(new Booking("M" + i, start, customer, BookingStatusEnum.CONFIRMED,
+                    "北京", "上海", BookingCategoryEnum.ECONOMY));
+        }
+
+        dates = new String[64];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = start.plusDays(i).toString();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object mutate_1thread() {
+        return mutate();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object mutate_8threads() {
+        return mutate();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object mutate_64threads() {
+        return mutate();
+    }
+
+    private Object mutate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String bookingNumber = "M" + random.nextInt(BOOKINGS);
+        int op = random.nextInt(4);
+        if (op == 0) {
+            return service.getBookingDetails(bookingNumber, NAME);
+        }
+        service.changeBooking(bookingNumber, NAME, dates[random.nextInt(dates.length)], "北京", "广州");
+        return bookingNumber;
+    }
+}
@@ -0,0 +1,152 @@
+package com.hzx.ai.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.model.request.BookingDetailsRequest;
+import com.hzx.ai.model.request.CancelBookingRequest;
+import com.hzx.ai.model.request.ChangeBookingDatesRequest;
+import com.hzx.ai.repository.InMemoryBookingRepository;
+import com.hzx.ai.repository.StripedBookingLocks;
+import com.hzx.ai.repository.journal.NoopBookingStore;
+import com.hzx.ai.services.FlightBookingService;
+import com.hzx.ai.tool.BookingTools;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * 预订工具函数基准测试
+ *
+ * <p>直接调用 {@link BookingTools} 注册的函数 Bean，覆盖查询、修改、取消的成功路径，
+ * 以及预订不存在时捕获异常并返回空详情的失败路径。{@code toolCallRoundTrip} 还包含大模型函数调用时的
+ * JSON 参数反序列化和结果序列化，与一次真实函数调用的开销相当。函数内的耗时指标记录到
+ * {@link SimpleMeterRegistry}，与线上一样计入开销。不传入工具上下文，没有会话ID，函数调用不去重，每次都实际执行。</p>
+ *
+ * <p>运行方式：</p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="BookingToolsBenchmark"
+ * </pre>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class BookingToolsBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    private BiFunction<BookingDetailsRequest, ToolContext, BookingDetails> getBookingDetails;
+
+    private BiFunction<ChangeBookingDatesRequest, ToolContext, String> changeBooking;
+
+    private BiFunction<CancelBookingRequest, ToolContext, String> cancelBooking;
+
+    private ObjectMapper objectMapper;
+
+    private BookingDetailsRequest[] detailsRequests;
+
+    private BookingDetailsRequest[] missingRequests;
+
+    private ChangeBookingDatesRequest[] changeRequests;
+
+    private CancelBookingRequest[] cancelRequests;
+
+    /**
+     * 大模型给出的函数参数JSON
+     */
+    private String[] detailsArguments;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        InMemoryBookingRepository repository = new InMemoryBookingRepository();
+        FlightBookingService service = new FlightBookingService(repository, new StripedBookingLocks(), new NoopBookingStore());
+        BookingDataset.populate(repository, size);
+
+        BookingTools tools = new BookingTools();
+        ReflectionTestUtils.setField(tools, "flightBookingService", service);
+        ReflectionTestUtils.setField(tools, "meterRegistry", new SimpleMeterRegistry());
+        getBookingDetails = tools.getBookingDetails();
+        changeBooking = tools.changeBooking();
+        cancelBooking = tools.cancelBooking();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        int[] targets = BookingDataset.targets(size);
+        String[] dates = BookingDataset.changeDates();
+        detailsRequests = new BookingDetailsRequest[targets.length];
+        missingRequests = new BookingDetailsRequest[targets.length];
+        changeRequests = new ChangeBookingDatesRequest[targets.length];
+        cancelRequests = new CancelBookingRequest[targets.length];
+        detailsArguments = new String[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            String bookingNumber = BookingDataset.bookingNumber(targets[i]);
+            String name = BookingDataset.name(targets[i]);
+            detailsRequests[i] = new BookingDetailsRequest(bookingNumber, name);
+            missingRequests[i] = new BookingDetailsRequest(bookingNumber, name + "不存在");
+            changeRequests[i] = new ChangeBookingDatesRequest(bookingNumber, name, dates[i & (dates.length - 1)], "北京", "广州");
+            cancelRequests[i] = new CancelBookingRequest(bookingNumber, name);
+            detailsArguments[i] = objectMapper.writeValueAsString(detailsRequests[i]);
+        }
+    }
+
+    @Benchmark
+    public BookingDetails getBookingDetails() {
+        return getBookingDetails.apply(detailsRequests[nextTarget()], null);
+    }
+
+    /**
+     * 预订不存在：服务抛出异常，工具函数捕获后返回只含预订号和姓名的详情
+     */
+    @Benchmark
+    public BookingDetails getBookingDetails_notFound() {
+        return getBookingDetails.apply(missingRequests[nextTarget()], null);
+    }
+
+    @Benchmark
+    public String changeBooking() {
+        return changeBooking.apply(changeRequests[nextTarget()], null);
+    }
+
+    @Benchmark
+    public String cancelBooking() {
+        return cancelBooking.apply(cancelRequests[nextTarget()], null);
+    }
+
+    /**
+     * 一次完整的函数调用：解析参数JSON、执行查询、序列化结果
+     */
+    @Benchmark
+    public String toolCallRoundTrip() throws Exception {
+        BookingDetailsRequest request = objectMapper.readValue(detailsArguments[nextTarget()], BookingDetailsRequest.class);
+        return objectMapper.writeValueAsString(getBookingDetails.apply(request, null));
+    }
+
+    private int nextTarget() {
+        cursor = (cursor + 1) & (BookingDataset.TARGETS - 1);
+        return cursor;
+    }
+}
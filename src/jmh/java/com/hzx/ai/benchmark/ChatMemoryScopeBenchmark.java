@@ -0,0 +1,160 @@
+package com.hzx.ai.benchmark;
+
+import com.hzx.ai.memory.BoundedChatMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.PromptChatMemoryAdvisor;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY;
+import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.DEFAULT_CHAT_MEMORY_CONVERSATION_ID;
+
+/**
+ * 会话记忆隔离基准测试
+ *
+ * <p>以1、16、64个并发用户调用流式对话，对比所有用户共用默认会话（{@code shared}）
+ * 与按会话隔离（{@code session}）时的首token延迟和提示词大小。
+ * 按会话隔离时，每个用户对话 {@value #TURNS_PER_SESSION} 轮后开始新会话。</p>
+ *
+ * <p>桩模型的预填充耗时与提示词字符数成正比，且之后的token立即返回，
+ * 因此单次调用耗时近似于首token延迟；平均提示词字符数在每次迭代结束时打印。</p>
+ *
+ * <p>运行方式：</p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ChatMemoryScopeBenchmark"
+ * </pre>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatMemoryScopeBenchmark {
+
+    private static final int TURNS_PER_SESSION = 10;
+
+    /**
+     * 每个提示词字符模拟的预填充耗时
+     */
+    private static final long PREFILL_NANOS_PER_CHAR = 200;
+
+    private static final String MESSAGE = "你好，我的预订号是101，姓名徐庶，想把航班改到下周五，从北京飞上海。";
+
+    @Param({"shared", "session"})
+    private String scope;
+
+    @Param({"20", "100"})
+    private int retrieveSize;
+
+    private StubChatModel chatModel;
+
+    private BoundedChatMemory chatMemory;
+
+    private ChatClient chatClient;
+
+    private final AtomicInteger users = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        chatModel = new StubChatModel(PREFILL_NANOS_PER_CHAR);
+        chatMemory = new BoundedChatMemory(200, 512L << 20, Duration.ofHours(1));
+        chatClient = ChatClient.builder(chatModel)
+                .defaultSystem("您是\"图灵航空\"公司的客户聊天支持代理。请讲中文。")
+                .defaultAdvisors(new PromptChatMemoryAdvisor(chatMemory, DEFAULT_CHAT_MEMORY_CONVERSATION_ID, retrieveSize))
+                .build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        System.out.printf("%n平均提示词字符数：%.0f，常驻会话数：%d%n",
+                chatModel.drainAveragePromptChars(), chatMemory.conversationCount());
+    }
+
+    /**
+     * 单个并发用户的会话状态
+     */
+    @State(Scope.Thread)
+    public static class User {
+
+        private int id;
+
+        private int session;
+
+        private int turn;
+
+        private String conversationId;
+
+        @Setup(Level.Trial)
+        public void setUp(ChatMemoryScopeBenchmark benchmark) {
+            id = benchmark.users.incrementAndGet();
+            conversationId = nextConversationId(benchmark);
+        }
+
+        /**
+         * 返回本轮使用的会话ID；按会话隔离时，满若干轮后清空旧会话并开始新会话
+         */
+        String conversationId(ChatMemoryScopeBenchmark benchmark) {
+            if (++turn > TURNS_PER_SESSION && "session".equals(benchmark.scope)) {
+                benchmark.chatMemory.clear(conversationId);
+                conversationId = nextConversationId(benchmark);
+                turn = 1;
+            }
+            return conversationId;
+        }
+
+        private String nextConversationId(ChatMemoryScopeBenchmark benchmark) {
+            return "shared".equals(benchmark.scope)
+                    ? DEFAULT_CHAT_MEMORY_CONVERSATION_ID
+                    : "user-" + id + "-" + (++session);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object users_1(User user) {
+        return chat(user);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object users_16(User user) {
+        return chat(user);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object users_64(User user) {
+        return chat(user);
+    }
+
+    private Object chat(User user) {
+        String conversationId = user.conversationId(this);
+        return chatClient.prompt()
+                .advisors(a -> a.param(CHAT_MEMORY_CONVERSATION_ID_KEY, conversationId))
+                .user(MESSAGE)
+                .stream()
+                .content()
+                .blockLast();
+    }
+}
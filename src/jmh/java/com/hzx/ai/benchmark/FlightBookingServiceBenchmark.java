@@ -0,0 +1,164 @@
+package com.hzx.ai.benchmark;
+
+import com.hzx.ai.config.BookingStorageProperties.StorageEngine;
+import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.repository.BookingRepository;
+import com.hzx.ai.repository.ColumnarBookingRepository;
+import com.hzx.ai.repository.InMemoryBookingRepository;
+import com.hzx.ai.repository.StripedBookingLocks;
+import com.hzx.ai.repository.journal.NoopBookingStore;
+import com.hzx.ai.services.FlightBookingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 航班预订服务基准测试
+ *
+ * <p>覆盖 {@link FlightBookingService} 的全量查询、详情查询、按客户/航线/日期的索引查询、修改和取消，
+ * 数据规模分别为 1万、100万、1000万条预订，分别在对象存储和列式存储两种引擎上运行。
+ * 持久化使用 {@link NoopBookingStore}，只测内存中的业务逻辑。
+ * 配合 {@code -prof gc} 可同时得到每次调用的分配字节数（{@code gc.alloc.rate.norm}）。</p>
+ *
+ * <p>运行方式：</p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="FlightBookingServiceBenchmark"
+ * </pre>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class FlightBookingServiceBenchmark {
+
+    /**
+     * 索引查询的返回条数，与REST接口的默认条数一致
+     */
+    private static final int QUERY_LIMIT = 50;
+
+    @Param({"10000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"OBJECT", "COLUMNAR"})
+    private StorageEngine engine;
+
+    private FlightBookingService service;
+
+    private String[] bookingNumbers;
+
+    private String[] names;
+
+    private String[] dates;
+
+    private LocalDate[] departureDates;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BookingRepository repository = switch (engine) {
+            case OBJECT -> new InMemoryBookingRepository();
+            case COLUMNAR -> new ColumnarBookingRepository();
+        };
+        service = new FlightBookingService(repository, new StripedBookingLocks(), new NoopBookingStore());
+        BookingDataset.populate(repository, size);
+
+        int[] targets = BookingDataset.targets(size);
+        bookingNumbers = new String[targets.length];
+        names = new String[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            bookingNumbers[i] = BookingDataset.bookingNumber(targets[i]);
+            names[i] = BookingDataset.name(targets[i]);
+        }
+        dates = BookingDataset.changeDates();
+
+        // 与数据集相同的航班日期分布：30天后起的300天
+        LocalDate start = LocalDate.now().plusDays(30);
+        departureDates = new LocalDate[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            departureDates[i] = start.plusDays(i % 300);
+        }
+    }
+
+    /**
+     * 全量查询：遍历全部预订并逐条转换为预订详情
+     */
+    @Benchmark
+    public List<BookingDetails> getBookings() {
+        return service.getBookings();
+    }
+
+    @Benchmark
+    public BookingDetails getBookingDetails() {
+        int i = nextTarget();
+        return service.getBookingDetails(bookingNumbers[i], names[i]);
+    }
+
+    /**
+     * 客户索引查询：取该客户最早的50个预订
+     */
+    @Benchmark
+    public List<BookingDetails> getCustomerBookings() {
+        int i = nextTarget();
+        return service.getCustomerBookings(names[i], QUERY_LIMIT);
+    }
+
+    /**
+     * 航线索引查询：限定一周的日期范围，取前50个预订
+     */
+    @Benchmark
+    public List<BookingDetails> getRouteBookings() {
+        int i = nextTarget();
+        LocalDate from = departureDates[i];
+        return service.getRouteBookings("上海", "广州", from, from.plusDays(6), QUERY_LIMIT);
+    }
+
+    /**
+     * 日期索引查询：取某一天出发的前50个预订
+     */
+    @Benchmark
+    public List<BookingDetails> getDepartures() {
+        int i = nextTarget();
+        LocalDate date = departureDates[i];
+        return service.getDepartures(date, date, QUERY_LIMIT);
+    }
+
+    @Benchmark
+    public void changeBooking() {
+        int i = nextTarget();
+        service.changeBooking(bookingNumbers[i], names[i], dates[i & (dates.length - 1)], "北京", "广州");
+    }
+
+    /**
+     * 取消预订；已取消的预订再次取消仍走完整的查找、校验和更新路径
+     */
+    @Benchmark
+    public void cancelBooking() {
+        int i = nextTarget();
+        service.cancelBooking(bookingNumbers[i], names[i]);
+    }
+
+    private int nextTarget() {
+        cursor = (cursor + 1) & (BookingDataset.TARGETS - 1);
+        return cursor;
+    }
+}
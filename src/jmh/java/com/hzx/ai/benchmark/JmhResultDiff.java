@@ -0,0 +1,162 @@
+package com.hzx.ai.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 比较两次 JMH JSON 结果
+ *
+ * <p>按“基准方法 + 模式 + 参数”对齐两份 {@code -rf json} 结果，输出主指标和每次调用分配字节数
+ * （{@code -prof gc} 的 {@code gc.alloc.rate.norm}）的变化。主指标变差超过阈值、且超出两次结果误差之和的记为回退，
+ * 存在回退时以退出码1结束，便于在发布流程中检查。</p>
+ *
+ * <p>运行方式：</p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.hzx.ai.benchmark.JmhResultDiff \
+ *     -Dbenchmark.args="jmh-1.0.0.json target/jmh-result.json 5"
+ * </pre>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public final class JmhResultDiff {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    private JmhResultDiff() {
+    }
+
+    /**
+     * 比较入口
+     *
+     * @param args 基线结果文件、本次结果文件、回退阈值百分比（可选，默认5）
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("用法：JmhResultDiff <基线结果.json> <本次结果.json> [回退阈值%]");
+        }
+        Map<String, Score> baseline = read(Path.of(args[0]));
+        Map<String, Score> current = read(Path.of(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 5;
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s %12s %12s %9s%n",
+                "基准", "基线", "本次", "变化", "基线B/op", "本次B/op", "变化");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-70s %14s %14.3f %9s %12s %12.1f %9s%n",
+                        entry.getKey(), "-", now.score(), "新增", "-", now.allocation(), "");
+                continue;
+            }
+            double change = percent(before.score(), now.score());
+            // 平均耗时、采样耗时越小越好，吞吐量越大越好
+            double worse = now.higherIsBetter() ? -change : change;
+            boolean regression = worse > threshold
+                    && Math.abs(now.score() - before.score()) > before.error() + now.error();
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%% %12.1f %12.1f %+8.1f%%%s%n",
+                    entry.getKey(), before.score(), now.score(), change,
+                    before.allocation(), now.allocation(), percent(before.allocation(), now.allocation()),
+                    regression ? "  ← 回退" : "");
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-70s 本次结果中不存在%n", key);
+            }
+        }
+
+        System.out.println();
+        System.out.printf("单位：%s；回退阈值 %.1f%%，共 %d 项回退%n", units(current), threshold, regressions);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 读取结果文件，键为“基准方法 [模式] 参数”
+     */
+    private static Map<String, Score> read(Path file) throws IOException {
+        JsonNode results = new ObjectMapper().readTree(file.toFile());
+        Map<String, Score> scores = new TreeMap<>();
+        for (JsonNode result : results) {
+            StringBuilder key = new StringBuilder(shortName(result.path("benchmark").asText()))
+                    .append(" [").append(result.path("mode").asText()).append(']');
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                params.put(field.getKey(), field.getValue().asText());
+            }
+            params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+
+            JsonNode primary = result.path("primaryMetric");
+            scores.put(key.toString(), new Score(
+                    primary.path("score").asDouble(),
+                    error(primary.path("scoreError").asDouble(0)),
+                    primary.path("scoreUnit").asText(),
+                    "thrpt".equals(result.path("mode").asText()),
+                    allocation(result.path("secondaryMetrics"))
+            ));
+        }
+        return scores;
+    }
+
+    /**
+     * 每次调用分配的字节数；旧版本 JMH 的指标名带有前缀“·”
+     */
+    private static double allocation(JsonNode secondaryMetrics) {
+        Iterator<Map.Entry<String, JsonNode>> metrics = secondaryMetrics.fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            if (metric.getKey().replace("·", "").equals(ALLOCATION_METRIC)) {
+                return metric.getValue().path("score").asDouble();
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * 只有一次迭代时 JMH 输出的误差为 NaN，按0处理
+     */
+    private static double error(double error) {
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static String shortName(String benchmark) {
+        return benchmark.startsWith(JmhResultDiff.class.getPackageName() + ".")
+                ? benchmark.substring(JmhResultDiff.class.getPackageName().length() + 1)
+                : benchmark;
+    }
+
+    private static double percent(double before, double now) {
+        return before == 0 ? 0 : (now - before) / before * 100;
+    }
+
+    private static String units(Map<String, Score> scores) {
+        return scores.values().stream().map(Score::unit).distinct().collect(Collectors.joining("、"));
+    }
+
+    /**
+     * 单项结果
+     *
+     * @param score 主指标
+     * @param error 主指标误差（99.9%置信区间半宽）
+     * @param unit 主指标单位
+     * @param higherIsBetter 是否越大越好（吞吐量模式）
+     * @param allocation 每次调用分配的字节数，未开启 gc 分析时为 NaN
+     */
+    private record Score(double score, double error, String unit, boolean higherIsBetter, double allocation) {
+    }
+}
@@ -0,0 +1,242 @@
+package com.hzx.ai.benchmark;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.hzx.ai.tool.BudgetedRetrievalAdvisor;
+import com.hzx.ai.tool.LoggingAdvisor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY;
+
+/**
+ * 日志记录顾问基准测试
+ *
+ * <p>请求与线上一致：系统提示词、100条会话记忆、约800令牌的RAG上下文和三个预订函数。
+ * 日志以同步追加器写入空输出流，格式化和编码都在调用线程上完成，便于用 {@code gc.alloc.rate.norm} 比较每次请求的分配字节数。
+ * {@code mode} 取值：</p>
+ * <ul>
+ *   <li>{@code legacy}：改造前的做法，每次以INFO级别输出整个 {@link AdvisedRequest}，不记录响应</li>
+ *   <li>{@code sampled}：默认配置，10%的请求记录截断后的请求和响应摘要</li>
+ *   <li>{@code full}：每次请求都记录请求和响应摘要</li>
+ * </ul>
+ *
+ * <p>运行方式：</p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="LoggingAdvisorBenchmark"
+ * </pre>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingAdvisorBenchmark {
+
+    private static final int MEMORY_MESSAGES = 100;
+
+    private static final int STREAM_CHUNKS = 40;
+
+    @Param({"legacy", "sampled", "full"})
+    private String mode;
+
+    private CallAroundAdvisor callAdvisor;
+
+    private StreamAroundAdvisor streamAdvisor;
+
+    private AdvisedRequest request;
+
+    private CallAroundAdvisorChain callChain;
+
+    private StreamAroundAdvisorChain streamChain;
+
+    private OutputStreamAppender<ILoggingEvent> appender;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        attachNullAppender(LoggingAdvisor.class.getName(), LegacyLoggingAdvisor.class.getName());
+
+        switch (mode) {
+            case "legacy" -> {
+                LegacyLoggingAdvisor legacy = new LegacyLoggingAdvisor();
+                callAdvisor = legacy;
+                streamAdvisor = legacy;
+            }
+            case "sampled", "full" -> {
+                LoggingAdvisor advisor = new LoggingAdvisor("full".equals(mode) ? 1.0 : 0.1, 256, true);
+                callAdvisor = advisor;
+                streamAdvisor = advisor;
+            }
+            default -> throw new IllegalArgumentException("未知的模式：" + mode);
+        }
+
+        request = request();
+        String answer = "您好，根据图灵航空的服务条款，经济舱在航班起飞前24小时以上可以免费改签一次，".repeat(4);
+        AdvisedResponse response = new AdvisedResponse(
+                new ChatResponse(List.of(new Generation(answer))), Map.of());
+        callChain = next -> response;
+
+        List<AdvisedResponse> chunks = new ArrayList<>(STREAM_CHUNKS);
+        for (int i = 0; i < STREAM_CHUNKS; i++) {
+            chunks.add(new AdvisedResponse(
+                    new ChatResponse(List.of(new Generation(answer.substring(i % 20, i % 20 + 4)))), Map.of()));
+        }
+        streamChain = next -> Flux.fromIterable(chunks);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        appender.stop();
+    }
+
+    @Benchmark
+    public AdvisedResponse call() {
+        return callAdvisor.aroundCall(request, callChain);
+    }
+
+    @Benchmark
+    public AdvisedResponse stream() {
+        return streamAdvisor.aroundStream(request, streamChain).blockLast();
+    }
+
+    /**
+     * 日志写入空输出流，格式与 Spring Boot 控制台输出相近
+     */
+    private void attachNullAppender(String... loggerNames) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n");
+        encoder.start();
+
+        appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+
+        for (String name : loggerNames) {
+            ch.qos.logback.classic.Logger logger = context.getLogger(name);
+            logger.setLevel(ch.qos.logback.classic.Level.INFO);
+            logger.setAdditive(false);
+            logger.addAppender(appender);
+        }
+    }
+
+    /**
+     * 与线上相同形状的请求：会话记忆注入在系统提示词参数中，RAG上下文注入在用户消息参数中
+     */
+    private static AdvisedRequest request() {
+        StringBuilder memory = new StringBuilder();
+        for (int i = 0; i < MEMORY_MESSAGES; i++) {
+            memory.append(i % 2 == 0 ? "USER: " : "ASSISTANT: ")
+                    .append("第").append(i).append("轮对话，关于预订号").append(100 + i).append("的改签和退票问题。")
+                    .append(System.lineSeparator());
+        }
+        String context = "图灵航空服务条款：经济舱改签需在起飞前24小时办理，每次收取改签费用；取消预订需在起飞前48小时办理。".repeat(20);
+        return AdvisedRequest.builder()
+                .withChatModel(new NoopChatModel())
+                .withSystemText("""
+                        您是"图灵航空"公司的客户聊天支持代理。请以友好、乐于助人且愉快的方式来回复。
+                        在提供有关预订或取消预订的信息之前，您必须始终从用户处获取预订号和客户姓名。
+                        请讲中文。
+
+                        Use the conversation memory from the MEMORY section to provide accurate answers.
+                        ---------------------
+                        MEMORY:
+                        {memory}
+                        ---------------------
+                        """)
+                .withSystemParams(Map.of("memory", memory.toString()))
+                .withUserText("{rag_question}\n\n以下是与问题相关的参考资料：\n{rag_context}")
+                .withUserParams(Map.of(BudgetedRetrievalAdvisor.QUESTION_PARAM, "请问航班改签有什么规定？", "rag_context", context))
+                .withFunctionNames(List.of("getBookingDetails", "changeBooking", "cancelBooking"))
+                .withAdvisorParams(Map.of(CHAT_MEMORY_CONVERSATION_ID_KEY, "benchmark-1"))
+                .build();
+    }
+
+    /**
+     * 改造前的日志记录顾问：以INFO级别输出整个请求
+     */
+    private static final class LegacyLoggingAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+        private static final Logger logger = LoggerFactory.getLogger(LegacyLoggingAdvisor.class);
+
+        @Override
+        public AdvisedResponse aroundCall(AdvisedRequest request, CallAroundAdvisorChain chain) {
+            logger.info("AI聊天请求：{}", request);
+            logger.debug("请求上下文：{}", request.adviseContext());
+            return chain.nextAroundCall(request);
+        }
+
+        @Override
+        public Flux<AdvisedResponse> aroundStream(AdvisedRequest request, StreamAroundAdvisorChain chain) {
+            logger.info("AI聊天请求：{}", request);
+            logger.debug("请求上下文：{}", request.adviseContext());
+            return chain.nextAroundStream(request);
+        }
+
+        @Override
+        public String getName() {
+            return "LegacyLoggingAdvisor";
+        }
+
+        @Override
+        public int getOrder() {
+            return 0;
+        }
+    }
+
+    /**
+     * 只用于构造请求，顾问链由基准测试直接给出响应
+     */
+    private static final class NoopChatModel implements ChatModel {
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.hzx.ai.benchmark;
+
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基准测试使用的桩聊天模型
+ *
+ * <p>不调用真实模型，只模拟首个token之前的预填充耗时：耗时与提示词字符数成正比，
+ * 之后立即返回固定的几个token。同时统计收到的提示词大小。</p>
+ *
+ * <p>开启前缀缓存时模拟模型服务端的KV缓存复用：与上一次调用的提示词相同的前缀不再计入预填充耗时。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class StubChatModel implements ChatModel {
+
+    private static final List<String> TOKENS = List.of("好的，", "已为您", "查询到", "预订", "信息。");
+
+    private final long prefillNanosPerChar;
+
+    private final boolean prefixCache;
+
+    /**
+     * 上一次调用的提示词，开启前缀缓存时使用
+     */
+    private volatile String previousPrompt = "";
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder promptChars = new LongAdder();
+
+    /**
+     * 构造函数
+     *
+     * @param prefillNanosPerChar 每个提示词字符模拟的预填充耗时（纳秒）
+     */
+    public StubChatModel(long prefillNanosPerChar) {
+        this(prefillNanosPerChar, false);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param prefillNanosPerChar 每个提示词字符模拟的预填充耗时（纳秒）
+     * @param prefixCache 是否模拟前缀缓存
+     */
+    public StubChatModel(long prefillNanosPerChar, boolean prefixCache) {
+        this.prefillNanosPerChar = prefillNanosPerChar;
+        this.prefixCache = prefixCache;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        prefill(prompt);
+        return new ChatResponse(List.of(new Generation(String.join("", TOKENS))));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            prefill(prompt);
+            return Flux.fromIterable(TOKENS)
+                    .map(token -> new ChatResponse(List.of(new Generation(token))));
+        });
+    }
+
+    /**
+     * 上次调用本方法以来，平均每次调用的提示词字符数
+     *
+     * @return double 字符数
+     */
+    public double drainAveragePromptChars() {
+        long n = calls.sumThenReset();
+        long chars = promptChars.sumThenReset();
+        return n == 0 ? 0 : (double) chars / n;
+    }
+
+    private void prefill(Prompt prompt) {
+        StringBuilder text = new StringBuilder();
+        for (Message message : prompt.getInstructions()) {
+            String content = message.getContent();
+            text.append(content == null ? "" : content);
+        }
+        long chars = text.length();
+        calls.increment();
+        promptChars.add(chars);
+        long uncached = chars;
+        if (prefixCache) {
+            String current = text.toString();
+            uncached -= commonPrefix(previousPrompt, current);
+            previousPrompt = current;
+        }
+        LockSupport.parkNanos(uncached * prefillNanosPerChar);
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+}
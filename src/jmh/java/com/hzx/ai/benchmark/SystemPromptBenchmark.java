@@ -0,0 +1,139 @@
+package com.hzx.ai.benchmark;
+
+import com.hzx.ai.prompt.CompiledPromptTemplate;
+import com.hzx.ai.prompt.PromptContext;
+import com.hzx.ai.prompt.SystemPromptTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 系统提示词渲染与首token延迟基准测试
+ *
+ * <p>渲染耗时：{@code render_stringTemplate} 每次请求用 Spring AI 的 {@link PromptTemplate} 解析并渲染系统提示词，
+ * 即 {@code .system(s -> s.param(...))} 的做法；{@code render_compiled} 使用启动时编译好的 {@link SystemPromptTemplate}。
+ * 两者使用同一份模板文件。</p>
+ *
+ * <p>首token延迟：桩模型开启前缀缓存，与上一次请求相同的提示词前缀不计入预填充耗时。
+ * 每次请求轮换 {@value #CUSTOMERS} 个客户的信息，{@code ttft_staticPrefix} 使用随应用发布的模板（变量在末尾），
+ * {@code ttft_dynamicPrefix} 把同样的变量移到模板开头，每次请求的提示词从第一行起就不同。</p>
+ *
+ * <p>运行方式：</p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="SystemPromptBenchmark"
+ * </pre>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SystemPromptBenchmark {
+
+    private static final int CUSTOMERS = 16;
+
+    /**
+     * 每个提示词字符模拟的预填充耗时
+     */
+    private static final long PREFILL_NANOS_PER_CHAR = 200;
+
+    private static final String MESSAGE = "你好，我想把航班改到下周五，从北京飞上海。";
+
+    private static final String DYNAMIC_HEADER = "今天的日期是 {current_date}。\n{customer_context}\n请讲{language}。\n\n";
+
+    private String templateText;
+
+    private SystemPromptTemplate staticPrefixTemplate;
+
+    private SystemPromptTemplate dynamicPrefixTemplate;
+
+    private PromptContext[] contexts;
+
+    private ChatClient staticPrefixClient;
+
+    private ChatClient dynamicPrefixClient;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        try (InputStream in = SystemPromptTemplate.class.getResourceAsStream("/prompt/system.txt")) {
+            templateText = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        staticPrefixTemplate = new SystemPromptTemplate(CompiledPromptTemplate.compile(templateText));
+        String rules = templateText.substring(0, templateText.indexOf("请讲{language}"));
+        dynamicPrefixTemplate = new SystemPromptTemplate(CompiledPromptTemplate.compile(DYNAMIC_HEADER + rules));
+
+        contexts = new PromptContext[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++) {
+            contexts[i] = new PromptContext(LocalDate.now(), Locale.SIMPLIFIED_CHINESE,
+                    "预订号 " + (101 + i) + "，客户姓名 客户" + i);
+        }
+        staticPrefixClient = ChatClient.builder(new StubChatModel(PREFILL_NANOS_PER_CHAR, true)).build();
+        dynamicPrefixClient = ChatClient.builder(new StubChatModel(PREFILL_NANOS_PER_CHAR, true)).build();
+    }
+
+    @Benchmark
+    public String render_stringTemplate() {
+        PromptContext context = nextContext();
+        Map<String, Object> params = new HashMap<>();
+        params.put(SystemPromptTemplate.CURRENT_DATE, context.date().toString());
+        params.put(SystemPromptTemplate.LANGUAGE, "中文");
+        params.put(SystemPromptTemplate.CUSTOMER_CONTEXT, context.customerContext());
+        return new PromptTemplate(templateText, params).render();
+    }
+
+    @Benchmark
+    public String render_compiled() {
+        return staticPrefixTemplate.render(nextContext());
+    }
+
+    @Benchmark
+    public String ttft_staticPrefix() {
+        return chat(staticPrefixClient, staticPrefixTemplate);
+    }
+
+    @Benchmark
+    public String ttft_dynamicPrefix() {
+        return chat(dynamicPrefixClient, dynamicPrefixTemplate);
+    }
+
+    private String chat(ChatClient chatClient, SystemPromptTemplate template) {
+        return chatClient.prompt()
+                .system(template.render(nextContext()))
+                .user(MESSAGE)
+                .stream()
+                .content()
+                .blockLast();
+    }
+
+    private PromptContext nextContext() {
+        PromptContext context = contexts[cursor];
+        cursor = (cursor + 1) % CUSTOMERS;
+        return context;
+    }
+}
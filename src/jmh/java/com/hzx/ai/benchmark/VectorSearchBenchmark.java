@@ -0,0 +1,213 @@
+package com.hzx.ai.benchmark;
+
+import com.hzx.ai.rag.HnswVectorStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 向量检索召回率与延迟基准测试
+ *
+ * <p>对比 {@code SimpleVectorStore} 暴力检索与不同 {@code ef-search} 下的
+ * {@link HnswVectorStore}。数据为围绕若干中心聚簇的随机向量，桩嵌入模型直接返回预先生成的向量，
+ * 因此测得的只是检索本身的耗时。每组参数的 recall@10（以精确检索为基准）在准备阶段打印。</p>
+ *
+ * <p>运行方式：</p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="VectorSearchBenchmark"
+ * </pre>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class VectorSearchBenchmark {
+
+    private static final int DIMENSIONS = 128;
+
+    private static final int CLUSTERS = 256;
+
+    private static final int QUERIES = 256;
+
+    private static final int TOP_K = 10;
+
+    private static final String DOC_PREFIX = "doc-";
+
+    private static final String QUERY_PREFIX = "q-";
+
+    @Param({"10000", "100000"})
+    private int size;
+
+    /**
+     * simple：暴力检索；hnsw-ef{N}：HNSW，查询候选集大小为N
+     */
+    @Param({"simple", "hnsw-ef16", "hnsw-ef64", "hnsw-ef256"})
+    private String store;
+
+    private float[][] documents;
+
+    private float[][] queries;
+
+    private VectorStore vectorStore;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        float[][] centroids = new float[CLUSTERS][];
+        for (int c = 0; c < CLUSTERS; c++) {
+            centroids[c] = gaussian(random, 1.0f, null);
+        }
+        documents = new float[size][];
+        for (int i = 0; i < size; i++) {
+            documents[i] = gaussian(random, 0.35f, centroids[random.nextInt(CLUSTERS)]);
+        }
+        queries = new float[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = gaussian(random, 0.35f, centroids[random.nextInt(CLUSTERS)]);
+        }
+
+        EmbeddingModel embeddingModel = new StubEmbeddingModel();
+        vectorStore = store.equals("simple")
+                ? new SimpleVectorStore(embeddingModel)
+                : new HnswVectorStore(embeddingModel, 16, 100, Integer.parseInt(store.substring("hnsw-ef".length())));
+
+        List<Document> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(new Document(String.valueOf(i), DOC_PREFIX + i, Map.of()));
+        }
+        long start = System.nanoTime();
+        vectorStore.add(batch);
+        long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        System.out.printf("%n%s size=%d 构建耗时=%dms recall@%d=%.3f%n",
+                store, size, buildMillis, TOP_K, recall());
+    }
+
+    @Benchmark
+    public List<Document> search() {
+        int q = cursor++ & (QUERIES - 1);
+        return vectorStore.similaritySearch(SearchRequest.query(QUERY_PREFIX + q).withTopK(TOP_K));
+    }
+
+    /**
+     * 以精确的余弦相似度排序为基准计算平均召回率
+     */
+    private double recall() {
+        int hits = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            Set<String> expected = exactTopK(queries[q]);
+            for (Document document : vectorStore.similaritySearch(
+                    SearchRequest.query(QUERY_PREFIX + q).withTopK(TOP_K))) {
+                if (expected.contains(document.getId())) {
+                    hits++;
+                }
+            }
+        }
+        return (double) hits / (QUERIES * TOP_K);
+    }
+
+    private Set<String> exactTopK(float[] query) {
+        int[] best = new int[TOP_K];
+        double[] bestScores = new double[TOP_K];
+        Arrays.fill(bestScores, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < documents.length; i++) {
+            double score = cosine(query, documents[i]);
+            if (score <= bestScores[TOP_K - 1]) {
+                continue;
+            }
+            int j = TOP_K - 1;
+            while (j > 0 && bestScores[j - 1] < score) {
+                bestScores[j] = bestScores[j - 1];
+                best[j] = best[j - 1];
+                j--;
+            }
+            bestScores[j] = score;
+            best[j] = i;
+        }
+        Set<String> ids = new HashSet<>();
+        for (int i : best) {
+            ids.add(String.valueOf(i));
+        }
+        return ids;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double na = 0;
+        double nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+
+    private static float[] gaussian(Random random, float sigma, float[] center) {
+        float[] v = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            v[i] = (float) (random.nextGaussian() * sigma) + (center == null ? 0 : center[i]);
+        }
+        return v;
+    }
+
+    /**
+     * 桩嵌入模型：文本 "doc-i" / "q-i" 直接映射为预先生成的向量
+     */
+    private final class StubEmbeddingModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(vectorOf(text), embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vectorOf(document.getContent());
+        }
+
+        private float[] vectorOf(String text) {
+            return text.startsWith(QUERY_PREFIX)
+                    ? queries[Integer.parseInt(text.substring(QUERY_PREFIX.length()))]
+                    : documents[Integer.parseInt(text.substring(DOC_PREFIX.length()))];
+        }
+    }
+}
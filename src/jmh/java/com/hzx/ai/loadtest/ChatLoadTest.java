@@ -0,0 +1,152 @@
+package com.hzx.ai.loadtest;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 同步聊天接口并发压测：平台线程与虚拟线程对比
+ *
+ * <p>先启动 {@link StubOllamaServer} 代替大模型，再以每种线程模式各启动一次应用，
+ * 用闭环客户端（每个客户端发完一个请求再发下一个，各自使用独立的会话ID）压测
+ * {@code GET /api/ai/chat}。并发数逐级翻倍，直到 p99 延迟超过目标或出现错误为止，
+ * 最后一个达标的并发数即该模式可承载的最大并发对话数。</p>
+ *
+ * <p>参数为 {@code key=value} 形式，均可省略：</p>
+ * <ul>
+ *   <li>{@code modes}：压测的线程模式，默认 {@code platform,virtual}</li>
+ *   <li>{@code p99Ms}：p99 延迟目标（毫秒），默认 1500</li>
+ *   <li>{@code levels}：逐级压测的并发数，默认 {@code 50,100,200,400,800,1600}</li>
+ *   <li>{@code firstTokenMs}、{@code tokensPerSecond}：桩模型的首token延迟（毫秒）和解码速率，默认 300、50</li>
+ *   <li>{@code durationS}、{@code rampS}、{@code warmupS}：每级持续时间、每级开头不计入统计的时间、预热时间，默认 20、3、10</li>
+ * </ul>
+ *
+ * <p>运行方式：</p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.hzx.ai.loadtest.ChatLoadTest -Dbenchmark.args="p99Ms=1500"
+ * </pre>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public final class ChatLoadTest {
+
+    private static final String MESSAGE = "请问航班改签有什么规定？";
+
+    private ChatLoadTest() {
+    }
+
+    /**
+     * 压测入口
+     *
+     * @param args {@code key=value} 形式的压测参数
+     */
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Path workDir = Files.createTempDirectory("chat-load-test");
+        Map<String, Integer> sustained = new LinkedHashMap<>();
+        try (StubOllamaServer llm = StubOllamaServer.builder()
+                .firstTokenLatency(options.firstTokenLatency())
+                .tokensPerSecond(options.tokensPerSecond())
+                .start()) {
+            for (String mode : options.modes()) {
+                sustained.put(mode, run(mode, llm, workDir, options));
+            }
+        }
+
+        System.out.println();
+        System.out.printf("p99 <= %d ms 时可承载的最大并发对话数%n", options.p99().toMillis());
+        sustained.forEach((mode, concurrency) -> System.out.printf("  %-8s %6d%n", mode, concurrency));
+    }
+
+    /**
+     * 以指定线程模式启动应用并逐级压测
+     *
+     * @return int 最大达标并发数，最低一级都未达标时为0
+     */
+    private static int run(String mode, StubOllamaServer llm, Path workDir, Options options) throws Exception {
+        try (ConfigurableApplicationContext app = LoadTestApplication.start(mode, llm, workDir);
+             LoadDriver driver = new LoadDriver()) {
+            String baseUrl = LoadTestApplication.baseUrl(app);
+            String endpoint = baseUrl + "/api/ai/chat?message="
+                    + URLEncoder.encode(MESSAGE, StandardCharsets.UTF_8) + "&conversationId=";
+
+            System.out.println();
+            System.out.printf("== %s 线程模式 ==%n", mode);
+            List<String> warmupIds = driver.conversationIds(baseUrl, options.levels()[0]);
+            driver.run(options.levels()[0], options.warmup(), Duration.ZERO,
+                    i -> LoadDriver.get(endpoint + warmupIds.get(i)));
+
+            System.out.printf("%8s %10s %10s %10s %10s %8s%n", "并发", "吞吐/s", "p50(ms)", "p99(ms)", "max(ms)", "错误");
+            long chatRequests = llm.chatRequests();
+            int best = 0;
+            for (int concurrency : options.levels()) {
+                // 每一级使用新的会话，避免聊天记忆随压测级数增长
+                List<String> ids = driver.conversationIds(baseUrl, concurrency);
+                LoadDriver.Result result = driver.run(concurrency, options.duration(), options.ramp(),
+                        i -> LoadDriver.get(endpoint + ids.get(i)));
+                System.out.printf("%8d %10.1f %10.1f %10.1f %10.1f %8d%n", concurrency, result.throughput(),
+                        result.p50Millis(), result.p99Millis(), result.maxMillis(), result.errors());
+                if (result.errors() > 0 || result.p99Millis() > options.p99().toMillis()) {
+                    break;
+                }
+                best = concurrency;
+            }
+            System.out.printf("模型调用 %d 次%n", llm.chatRequests() - chatRequests);
+            return best;
+        }
+    }
+
+    /**
+     * 压测参数
+     */
+    private record Options(
+            List<String> modes,
+            Duration p99,
+            int[] levels,
+            Duration firstTokenLatency,
+            double tokensPerSecond,
+            Duration duration,
+            Duration ramp,
+            Duration warmup
+    ) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("参数格式应为 key=value：" + arg);
+                }
+                values.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+            List<String> modes = List.of(values.getOrDefault("modes", "platform,virtual").split(","));
+            for (String mode : modes) {
+                if (!"platform".equals(mode) && !"virtual".equals(mode)) {
+                    throw new IllegalArgumentException("线程模式只能是 platform 或 virtual：" + mode);
+                }
+            }
+            return new Options(
+                    modes,
+                    Duration.ofMillis(Long.parseLong(values.getOrDefault("p99Ms", "1500"))),
+                    Arrays.stream(values.getOrDefault("levels", "50,100,200,400,800,1600").split(","))
+                            .mapToInt(Integer::parseInt)
+                            .toArray(),
+                    Duration.ofMillis(Long.parseLong(values.getOrDefault("firstTokenMs", "300"))),
+                    Double.parseDouble(values.getOrDefault("tokensPerSecond", "50")),
+                    Duration.ofSeconds(Long.parseLong(values.getOrDefault("durationS", "20"))),
+                    Duration.ofSeconds(Long.parseLong(values.getOrDefault("rampS", "3"))),
+                    Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmupS", "10")))
+            );
+        }
+    }
+}
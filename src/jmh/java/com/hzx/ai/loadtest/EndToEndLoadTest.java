@@ -0,0 +1,169 @@
+package com.hzx.ai.loadtest;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 端到端压测
+ *
+ * <p>启动 {@link StubOllamaServer} 代替大模型和嵌入模型，再以压测配置启动应用，
+ * 依次以固定并发压测以下场景，输出每个场景的吞吐、p50/p99 延迟和首字节延迟（流式聊天即首token延迟，TTFT）：</p>
+ * <ul>
+ *   <li>{@code chat}：同步聊天，通用问题，经过会话记忆、RAG检索、日志顾问后调用一次模型</li>
+ *   <li>{@code chat-tool}：同步聊天，桩模型按脚本返回 {@code getBookingDetails} 函数调用，执行后再调用一次模型</li>
+ *   <li>{@code stream}：流式聊天，通用问题</li>
+ *   <li>{@code booking-list}：预订列表接口，不经过模型</li>
+ * </ul>
+ *
+ * <p>参数为 {@code key=value} 形式，均可省略：</p>
+ * <ul>
+ *   <li>{@code mode}：线程模式 platform 或 virtual，默认 platform</li>
+ *   <li>{@code scenarios}：压测的场景，默认全部</li>
+ *   <li>{@code concurrency}：每个场景的并发客户端数，默认 64</li>
+ *   <li>{@code durationS}、{@code rampS}、{@code warmupS}：每个场景的持续时间、开头不计入统计的时间、预热时间，默认 20、3、5</li>
+ *   <li>{@code firstTokenMs}、{@code tokensPerSecond}、{@code answerTokens}：桩模型的首token延迟（毫秒）、解码速率和回答长度，默认 300、50、20</li>
+ *   <li>{@code embeddingMs}：桩嵌入模型每次请求的延迟（毫秒），默认 0</li>
+ *   <li>{@code csv}：结果另存为CSV文件的路径，便于不同版本之间比较，默认不保存</li>
+ * </ul>
+ *
+ * <p>运行方式：</p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.hzx.ai.loadtest.EndToEndLoadTest -Dbenchmark.args="concurrency=64 csv=target/e2e.csv"
+ * </pre>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public final class EndToEndLoadTest {
+
+    /**
+     * 全部压测场景
+     */
+    private static final List<String> SCENARIOS = List.of("chat", "chat-tool", "stream", "booking-list");
+
+    private static final String FAQ_MESSAGE = "请问航班改签有什么规定？";
+
+    /**
+     * 演示数据中的预订：101 / 徐庶
+     */
+    private static final String TOOL_MESSAGE = "请查询预订号101，姓名徐庶的预订详情";
+
+    private EndToEndLoadTest() {
+    }
+
+    /**
+     * 压测入口
+     *
+     * @param args {@code key=value} 形式的压测参数
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String mode = options.getOrDefault("mode", "platform");
+        if (!"platform".equals(mode) && !"virtual".equals(mode)) {
+            throw new IllegalArgumentException("线程模式只能是 platform 或 virtual：" + mode);
+        }
+        List<String> scenarios = List.of(options.getOrDefault("scenarios", String.join(",", SCENARIOS)).split(","));
+        for (String scenario : scenarios) {
+            if (!SCENARIOS.contains(scenario)) {
+                throw new IllegalArgumentException("未知的压测场景：" + scenario + "，可选 " + SCENARIOS);
+            }
+        }
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("durationS", "20")));
+        Duration ramp = Duration.ofSeconds(Long.parseLong(options.getOrDefault("rampS", "3")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmupS", "5")));
+
+        Path workDir = Files.createTempDirectory("e2e-load-test");
+        Map<String, LoadDriver.Result> results = new LinkedHashMap<>();
+        try (StubOllamaServer llm = StubOllamaServer.builder()
+                .firstTokenLatency(Duration.ofMillis(Long.parseLong(options.getOrDefault("firstTokenMs", "300"))))
+                .tokensPerSecond(Double.parseDouble(options.getOrDefault("tokensPerSecond", "50")))
+                .answerTokens(Integer.parseInt(options.getOrDefault("answerTokens", "20")))
+                .embeddingLatency(Duration.ofMillis(Long.parseLong(options.getOrDefault("embeddingMs", "0"))))
+                .toolCall("预订号\\s*101", "getBookingDetails", Map.of("bookingNumber", "101", "name", "徐庶"))
+                .start();
+             ConfigurableApplicationContext app = LoadTestApplication.start(mode, llm, workDir);
+             LoadDriver driver = new LoadDriver()) {
+            String baseUrl = LoadTestApplication.baseUrl(app);
+
+            System.out.println();
+            System.out.printf("== %s 线程模式，并发 %d ==%n", mode, concurrency);
+            System.out.printf("%-14s %8s %10s %10s %10s %12s %12s %8s %8s %8s%n", "场景", "请求数", "吞吐/s",
+                    "p50(ms)", "p99(ms)", "首字节p50", "首字节p99", "错误", "模型调用", "函数调用");
+            for (String scenario : scenarios) {
+                List<String> warmupIds = driver.conversationIds(baseUrl, concurrency);
+                driver.run(concurrency, warmup, Duration.ZERO, i -> LoadDriver.get(uri(baseUrl, scenario, warmupIds.get(i))));
+
+                List<String> ids = driver.conversationIds(baseUrl, concurrency);
+                long chatRequests = llm.chatRequests();
+                long toolCalls = llm.toolCalls();
+                LoadDriver.Result result = driver.run(concurrency, duration, ramp,
+                        i -> LoadDriver.get(uri(baseUrl, scenario, ids.get(i))));
+                results.put(scenario, result);
+                System.out.printf("%-14s %8d %10.1f %10.1f %10.1f %12.1f %12.1f %8d %8d %8d%n", scenario,
+                        result.requests(), result.throughput(), result.p50Millis(), result.p99Millis(),
+                        result.firstByteP50Millis(), result.firstByteP99Millis(), result.errors(),
+                        llm.chatRequests() - chatRequests, llm.toolCalls() - toolCalls);
+            }
+        }
+
+        String csv = options.get("csv");
+        if (csv != null) {
+            writeCsv(Path.of(csv), mode, results);
+            System.out.println("结果已保存到 " + csv);
+        }
+    }
+
+    /**
+     * 场景对应的请求地址；聊天场景每个客户端使用服务端签发的独立会话ID
+     */
+    private static String uri(String baseUrl, String scenario, String conversationId) {
+        return switch (scenario) {
+            case "chat" -> baseUrl + "/api/ai/chat?message=" + encode(FAQ_MESSAGE) + "&conversationId=" + conversationId;
+            case "chat-tool" -> baseUrl + "/api/ai/chat?message=" + encode(TOOL_MESSAGE) + "&conversationId=" + conversationId;
+            case "stream" -> baseUrl + "/api/ai/chat/stream?message=" + encode(FAQ_MESSAGE) + "&conversationId=" + conversationId;
+            case "booking-list" -> baseUrl + "/api/booking/list";
+            default -> throw new IllegalArgumentException("未知的压测场景：" + scenario);
+        };
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static void writeCsv(Path file, String mode, Map<String, LoadDriver.Result> results) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("mode,scenario,concurrency,requests,errors,throughput,p50_ms,p99_ms,max_ms,first_byte_p50_ms,first_byte_p99_ms");
+        results.forEach((scenario, r) -> lines.add(String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f",
+                mode, scenario, r.concurrency(), r.requests(), r.errors(), r.throughput(),
+                r.p50Millis(), r.p99Millis(), r.maxMillis(), r.firstByteP50Millis(), r.firstByteP99Millis())));
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("参数格式应为 key=value：" + arg);
+            }
+            values.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,219 @@
+package com.hzx.ai.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * 闭环HTTP压测驱动
+ *
+ * <p>每个客户端是一个虚拟线程，上一个请求的响应读完后立即发出下一个，直到截止时间。
+ * 记录每个请求的总耗时和首字节耗时：流式聊天接口的首字节即首token（TTFT）。
+ * 每轮开头的 {@code ramp} 时间内发出的请求不计入统计，避免所有客户端同时起步造成的尖峰。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public final class LoadDriver implements AutoCloseable {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private final ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(clients)
+            .build();
+
+    /**
+     * 以固定并发数压测一段时间
+     *
+     * @param concurrency 并发客户端数
+     * @param duration 持续时间（含 ramp）
+     * @param ramp 开头不计入统计的时间
+     * @param requests 按客户端序号生成请求，同一客户端始终发送同一个请求
+     * @return Result 压测结果
+     * @throws Exception 客户端线程被中断或异常退出
+     */
+    public Result run(int concurrency, Duration duration, Duration ramp, IntFunction<HttpRequest> requests)
+            throws Exception {
+        long start = System.nanoTime();
+        long measureFrom = start + ramp.toNanos();
+        long deadline = start + duration.toNanos();
+
+        List<Future<Recorder>> futures = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            HttpRequest request = requests.apply(i);
+            futures.add(clients.submit(() -> drive(request, measureFrom, deadline)));
+        }
+
+        Recorder total = new Recorder();
+        for (Future<Recorder> future : futures) {
+            total.merge(future.get());
+        }
+        return total.result(concurrency, (System.nanoTime() - measureFrom) / 1e9);
+    }
+
+    /**
+     * 逐个向应用申请会话ID，供聊天场景的每个客户端各自使用，不计入压测统计
+     *
+     * @param baseUrl 应用地址
+     * @param count 会话ID个数
+     * @return List<String> 服务端签发的会话ID
+     * @throws IOException 请求失败
+     * @throws InterruptedException 等待响应时被中断
+     */
+    public List<String> conversationIds(String baseUrl, int count) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/ai/conversations"))
+                .timeout(REQUEST_TIMEOUT)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("申请会话ID失败，状态码：" + response.statusCode());
+            }
+            ids.add(response.body().trim());
+        }
+        return ids;
+    }
+
+    /**
+     * 构建带超时的GET请求
+     *
+     * @param uri 请求地址
+     * @return HttpRequest 请求
+     */
+    public static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    @Override
+    public void close() {
+        http.close();
+        clients.close();
+    }
+
+    private Recorder drive(HttpRequest request, long measureFrom, long deadline) throws InterruptedException {
+        Recorder recorder = new Recorder();
+        while (System.nanoTime() < deadline) {
+            long sent = System.nanoTime();
+            long firstByte = -1;
+            boolean ok;
+            try {
+                HttpResponse<InputStream> response = http.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream body = response.body()) {
+                    if (body.read() >= 0) {
+                        firstByte = System.nanoTime() - sent;
+                    }
+                    body.transferTo(OutputStream.nullOutputStream());
+                }
+                ok = response.statusCode() == 200;
+            } catch (IOException e) {
+                ok = false;
+            }
+            if (sent >= measureFrom) {
+                recorder.record(ok, System.nanoTime() - sent, firstByte);
+            }
+        }
+        return recorder;
+    }
+
+    /**
+     * 延迟样本
+     */
+    private static final class Recorder {
+
+        private long[] latencies = new long[256];
+
+        private long[] firstBytes = new long[256];
+
+        private int size;
+
+        private int errors;
+
+        void record(boolean ok, long latency, long firstByte) {
+            if (!ok) {
+                errors++;
+                return;
+            }
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+                firstBytes = Arrays.copyOf(firstBytes, size * 2);
+            }
+            latencies[size] = latency;
+            firstBytes[size] = firstByte < 0 ? latency : firstByte;
+            size++;
+        }
+
+        void merge(Recorder other) {
+            int capacity = size + other.size;
+            if (capacity > latencies.length) {
+                latencies = Arrays.copyOf(latencies, capacity);
+                firstBytes = Arrays.copyOf(firstBytes, capacity);
+            }
+            System.arraycopy(other.latencies, 0, latencies, size, other.size);
+            System.arraycopy(other.firstBytes, 0, firstBytes, size, other.size);
+            size = capacity;
+            errors += other.errors;
+        }
+
+        Result result(int concurrency, double seconds) {
+            long[] latency = Arrays.copyOf(latencies, size);
+            long[] firstByte = Arrays.copyOf(firstBytes, size);
+            Arrays.sort(latency);
+            Arrays.sort(firstByte);
+            return new Result(concurrency, size, errors, size / seconds,
+                    percentile(latency, 0.5), percentile(latency, 0.99), percentile(latency, 1.0),
+                    percentile(firstByte, 0.5), percentile(firstByte, 0.99));
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    /**
+     * 一轮压测的结果，延迟单位均为毫秒
+     *
+     * @param concurrency 并发客户端数
+     * @param requests 统计的成功请求数
+     * @param errors 失败请求数
+     * @param throughput 每秒完成的请求数
+     * @param p50Millis 延迟中位数
+     * @param p99Millis p99 延迟
+     * @param maxMillis 最大延迟
+     * @param firstByteP50Millis 首字节延迟中位数，流式聊天即首token延迟
+     * @param firstByteP99Millis 首字节 p99 延迟
+     */
+    public record Result(
+            int concurrency,
+            int requests,
+            int errors,
+            double throughput,
+            double p50Millis,
+            double p99Millis,
+            double maxMillis,
+            double firstByteP50Millis,
+            double firstByteP99Millis
+    ) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.hzx.ai.loadtest;
+
+import com.hzx.ai.FlightBookingApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 以压测配置启动应用
+ *
+ * <p>应用指向 {@link StubOllamaServer}，使用随机端口和纯内存存储，并关闭语义缓存，保证每个聊天请求都调用模型。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+final class LoadTestApplication {
+
+    private LoadTestApplication() {
+    }
+
+    /**
+     * 启动应用
+     *
+     * @param mode 线程模式，platform 或 virtual
+     * @param llm 桩模型服务
+     * @param workDir 临时目录，存放嵌入向量缓存
+     * @return ConfigurableApplicationContext 应用上下文，压测结束后关闭
+     */
+    static ConfigurableApplicationContext start(String mode, StubOllamaServer llm, Path workDir) {
+        // 应用访问模型使用 HttpURLConnection，默认每个目标只保留5个空闲连接；
+        // 高并发下反复建连会让本机端口很快耗尽在 TIME_WAIT 上，压测时放大连接池
+        System.setProperty("http.maxConnections", "10000");
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.threads.virtual.enabled", "virtual".equals(mode));
+        properties.put("spring.ai.ollama.base-url", llm.baseUrl());
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("flight.storage.type", "MEMORY");
+        properties.put("flight.chat.cache.enabled", false);
+        properties.put("flight.rag.embedding-cache-file", workDir.resolve(mode + "-embeddings.dat").toString());
+        properties.put("logging.level.root", "WARN");
+        return new SpringApplicationBuilder(FlightBookingApplication.class)
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * 应用的访问地址
+     *
+     * @param app 应用上下文
+     * @return String 地址，不以斜杠结尾
+     */
+    static String baseUrl(ConfigurableApplicationContext app) {
+        return "http://127.0.0.1:" + app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+}
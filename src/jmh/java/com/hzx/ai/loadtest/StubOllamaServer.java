@@ -0,0 +1,423 @@
+package com.hzx.ai.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * 压测使用的桩 Ollama 服务
+ *
+ * <p>在本机端口上模拟 Ollama 的 {@code /api/chat}、{@code /api/embed} 和 {@code /api/embeddings} 接口，
+ * 不做任何推理，结果完全确定：</p>
+ * <ul>
+ *   <li>聊天请求先等待首token延迟（模拟预填充），再按固定速率逐个输出token（模拟解码），
+ *       非流式请求等待同样的总时长后一次性返回</li>
+ *   <li>最后一条用户消息命中预设的函数调用脚本、且请求声明了该函数时，返回对应的函数调用；
+ *       收到函数结果后再输出最终回答，用于压测包含函数调用的完整链路</li>
+ *   <li>嵌入请求按字符二元组哈希生成向量，相近的文本得到相近的向量，RAG检索仍能命中相关分块</li>
+ * </ul>
+ *
+ * <p>服务端每个请求使用一个虚拟线程，模拟的延迟只是休眠，不会成为压测的瓶颈。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class StubOllamaServer implements AutoCloseable {
+
+    /**
+     * 嵌入向量维度
+     */
+    public static final int EMBEDDING_DIMENSIONS = 384;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static final List<String> TOKENS = List.of(
+            "您好，", "感谢", "您", "联系", "图灵", "航空。", "关于", "您的", "问题，", "根据",
+            "我们的", "服务", "条款，", "预订", "可以", "在", "起飞", "前", "修改。", "祝您旅途愉快！");
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final Duration firstTokenLatency;
+
+    private final Duration interTokenDelay;
+
+    private final int answerTokens;
+
+    private final Duration embeddingLatency;
+
+    private final List<ToolCallScript> scripts;
+
+    private final LongAdder chatRequests = new LongAdder();
+
+    private final LongAdder toolCalls = new LongAdder();
+
+    private final LongAdder embedRequests = new LongAdder();
+
+    private StubOllamaServer(HttpServer server, ExecutorService executor, Builder builder) {
+        this.server = server;
+        this.executor = executor;
+        this.firstTokenLatency = builder.firstTokenLatency;
+        this.interTokenDelay = builder.interTokenDelay;
+        this.answerTokens = builder.answerTokens;
+        this.embeddingLatency = builder.embeddingLatency;
+        this.scripts = List.copyOf(builder.scripts);
+    }
+
+    /**
+     * 创建桩服务构建器
+     *
+     * @return Builder 构建器
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 桩服务地址，用作 {@code spring.ai.ollama.base-url}
+     *
+     * @return String 地址
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * 累计收到的聊天请求数，包括返回函数调用的请求
+     *
+     * @return long 请求数
+     */
+    public long chatRequests() {
+        return chatRequests.sum();
+    }
+
+    /**
+     * 累计返回的函数调用数
+     *
+     * @return long 函数调用数
+     */
+    public long toolCalls() {
+        return toolCalls.sum();
+    }
+
+    /**
+     * 累计收到的嵌入请求数
+     *
+     * @return long 请求数
+     */
+    public long embedRequests() {
+        return embedRequests.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            chatRequests.increment();
+            JsonNode request = JSON.readTree(exchange.getRequestBody());
+            String model = request.path("model").asText("stub");
+            int promptTokens = promptTokens(request.path("messages"));
+            boolean stream = request.path("stream").asBoolean(true);
+
+            sleep(firstTokenLatency);
+            ToolCallScript script = matchScript(request);
+            if (script != null) {
+                // 函数调用只占一个分块，流式和非流式都以结束标记返回
+                toolCalls.increment();
+                Map<String, Object> chunk = chunk(model, "", true, promptTokens, 1);
+                chunk.put("message", Map.of("role", "assistant", "content", "",
+                        "tool_calls", List.of(Map.of("function",
+                                Map.of("name", script.function(), "arguments", script.arguments())))));
+                respond(exchange, stream, List.of(chunk));
+                return;
+            }
+
+            List<String> tokens = answer();
+            if (!stream) {
+                sleep(interTokenDelay.multipliedBy(tokens.size() - 1));
+                respond(exchange, false,
+                        List.of(chunk(model, String.join("", tokens), true, promptTokens, tokens.size())));
+                return;
+            }
+
+            // 流式响应为 NDJSON，每行一个token，最后一行标记结束
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            for (int i = 0; i < tokens.size(); i++) {
+                if (i > 0) {
+                    sleep(interTokenDelay);
+                }
+                writeLine(out, chunk(model, tokens.get(i), false, promptTokens, 0));
+            }
+            writeLine(out, chunk(model, "", true, promptTokens, tokens.size()));
+        }
+    }
+
+    private void embed(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            embedRequests.increment();
+            JsonNode request = JSON.readTree(exchange.getRequestBody());
+            // /api/embed 的输入为 input（字符串或数组），旧接口 /api/embeddings 为 prompt
+            JsonNode input = request.has("input") ? request.get("input") : request.path("prompt");
+            List<float[]> embeddings = new ArrayList<>();
+            if (input.isArray()) {
+                input.forEach(text -> embeddings.add(vector(text.asText())));
+            } else {
+                embeddings.add(vector(input.asText()));
+            }
+            sleep(embeddingLatency);
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("model", request.path("model").asText("stub"));
+            if (exchange.getRequestURI().getPath().endsWith("/embeddings")) {
+                response.put("embedding", embeddings.get(0));
+            } else {
+                response.put("embeddings", embeddings);
+            }
+            byte[] body = JSON.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    /**
+     * 最后一条消息是用户消息时才匹配脚本；已收到函数结果（最后一条为 tool 消息）时正常回答，避免循环调用
+     */
+    private ToolCallScript matchScript(JsonNode request) {
+        JsonNode messages = request.path("messages");
+        if (scripts.isEmpty() || messages.size() == 0) {
+            return null;
+        }
+        JsonNode last = messages.get(messages.size() - 1);
+        if (!"user".equals(last.path("role").asText())) {
+            return null;
+        }
+        String content = last.path("content").asText("");
+        for (ToolCallScript script : scripts) {
+            if (script.trigger().matcher(content).find() && declares(request.path("tools"), script.function())) {
+                return script;
+            }
+        }
+        return null;
+    }
+
+    private static boolean declares(JsonNode tools, String function) {
+        for (JsonNode tool : tools) {
+            if (function.equals(tool.path("function").path("name").asText())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<String> answer() {
+        List<String> tokens = new ArrayList<>(answerTokens);
+        for (int i = 0; i < answerTokens; i++) {
+            tokens.add(TOKENS.get(i % TOKENS.size()));
+        }
+        return tokens;
+    }
+
+    private static void respond(HttpExchange exchange, boolean stream, List<Map<String, Object>> chunks)
+            throws IOException {
+        if (stream) {
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            exchange.sendResponseHeaders(200, 0);
+            for (Map<String, Object> chunk : chunks) {
+                writeLine(exchange.getResponseBody(), chunk);
+            }
+            return;
+        }
+        byte[] body = JSON.writeValueAsBytes(chunks.get(chunks.size() - 1));
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static Map<String, Object> chunk(String model, String content, boolean done, int promptTokens,
+                                             int evalTokens) {
+        Map<String, Object> chunk = new LinkedHashMap<>();
+        chunk.put("model", model);
+        chunk.put("created_at", Instant.now().toString());
+        chunk.put("message", Map.of("role", "assistant", "content", content));
+        chunk.put("done", done);
+        if (done) {
+            chunk.put("done_reason", "stop");
+            chunk.put("prompt_eval_count", promptTokens);
+            chunk.put("eval_count", evalTokens);
+        }
+        return chunk;
+    }
+
+    private static void writeLine(OutputStream out, Map<String, Object> chunk) throws IOException {
+        out.write(JSON.writeValueAsBytes(chunk));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * 粗略估算提示词令牌数：中文约每两个字符一个令牌
+     */
+    private static int promptTokens(JsonNode messages) {
+        int chars = 0;
+        for (JsonNode message : messages) {
+            chars += message.path("content").asText("").length();
+        }
+        return Math.max(1, chars / 2);
+    }
+
+    /**
+     * 字符二元组哈希到固定维度后归一化，相同文本的向量相同，共享二元组越多的文本越相近
+     */
+    static float[] vector(String text) {
+        float[] vector = new float[EMBEDDING_DIMENSIONS];
+        for (int i = 0; i + 1 < text.length(); i++) {
+            int h = (text.charAt(i) * 31 + text.charAt(i + 1)) * 0x9E3779B1;
+            vector[(h >>> 1) % EMBEDDING_DIMENSIONS] += (h & 1) == 0 ? 1 : -1;
+        }
+        double norm = 0;
+        for (float x : vector) {
+            norm += x * x;
+        }
+        if (norm == 0) {
+            vector[0] = 1;
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 函数调用脚本：用户消息匹配 {@code trigger} 时，返回以固定参数调用 {@code function}
+     *
+     * @param trigger 触发的用户消息正则
+     * @param function 函数名
+     * @param arguments 函数参数
+     */
+    public record ToolCallScript(Pattern trigger, String function, Map<String, Object> arguments) {
+    }
+
+    /**
+     * 桩服务构建器
+     */
+    public static final class Builder {
+
+        private Duration firstTokenLatency = Duration.ofMillis(300);
+
+        private Duration interTokenDelay = Duration.ofMillis(20);
+
+        private int answerTokens = TOKENS.size();
+
+        private Duration embeddingLatency = Duration.ZERO;
+
+        private final List<ToolCallScript> scripts = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * 首token延迟，默认300毫秒
+         */
+        public Builder firstTokenLatency(Duration firstTokenLatency) {
+            this.firstTokenLatency = firstTokenLatency;
+            return this;
+        }
+
+        /**
+         * 解码速率（每秒token数），默认50
+         */
+        public Builder tokensPerSecond(double tokensPerSecond) {
+            if (tokensPerSecond <= 0) {
+                throw new IllegalArgumentException("token速率必须大于0");
+            }
+            this.interTokenDelay = Duration.ofNanos((long) (1e9 / tokensPerSecond));
+            return this;
+        }
+
+        /**
+         * 每个回答的token数，默认20
+         */
+        public Builder answerTokens(int answerTokens) {
+            if (answerTokens < 1) {
+                throw new IllegalArgumentException("回答至少包含一个token");
+            }
+            this.answerTokens = answerTokens;
+            return this;
+        }
+
+        /**
+         * 每次嵌入请求的延迟，默认0
+         */
+        public Builder embeddingLatency(Duration embeddingLatency) {
+            this.embeddingLatency = embeddingLatency;
+            return this;
+        }
+
+        /**
+         * 增加一条函数调用脚本，按添加顺序匹配
+         *
+         * @param trigger 触发的用户消息正则
+         * @param function 函数名
+         * @param arguments 函数参数
+         */
+        public Builder toolCall(String trigger, String function, Map<String, Object> arguments) {
+            scripts.add(new ToolCallScript(Pattern.compile(trigger), function, Map.copyOf(arguments)));
+            return this;
+        }
+
+        /**
+         * 在本机随机端口上启动桩服务
+         *
+         * @return StubOllamaServer 已启动的桩服务
+         * @throws IOException 端口绑定失败
+         */
+        public StubOllamaServer start() throws IOException {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+            StubOllamaServer stub = new StubOllamaServer(server, executor, this);
+            server.createContext("/api/chat", stub::chat);
+            server.createContext("/api/embed", stub::embed);
+            server.createContext("/api/embeddings", stub::embed);
+            server.setExecutor(executor);
+            server.start();
+            return stub;
+        }
+    }
+}
@@ -1,20 +1,24 @@
 package com.hzx.ai;
 
+import com.hzx.ai.config.ChatMemoryProperties;
+import com.hzx.ai.memory.BoundedChatMemory;
+import com.hzx.ai.rag.PersistentEmbeddingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.chat.memory.InMemoryChatMemory;
-import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.reader.TextReader;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.io.Resource;
 
+import java.time.Duration;
+
 /**
  * 航班预订系统主应用类
  * 
@@ -34,6 +38,7 @@ import org.springframework.core.io.Resource;
  * @since 2024-01-01
  */
 @SpringBootApplication
+@EnableConfigurationProperties(ChatMemoryProperties.class)
 @Slf4j
 public class FlightBookingApplication {
 
@@ -50,20 +55,28 @@ public class FlightBookingApplication {
      * 初始化向量数据库，将服务条款文档导入向量存储
      * 
      * <p>在实际生产环境中，文档导入通常会在CI服务器或类似环境中单独进行。
-     * 这里为了演示目的，在应用启动时自动导入。</p>
+     * 这里为了演示目的，在应用启动时自动导入。
+     * 文档向量来自本地缓存，只有新增或内容变化的分块才会调用嵌入模型，
+     * 导入耗时记录在 {@code rag.ingest.duration} 指标中。</p>
      * 
-     * @param embeddingModel 嵌入模型，用于生成文档的向量表示
      * @param vectorStore 向量存储，用于存储和检索文档向量
+     * @param embeddingCache 文档嵌入向量缓存
+     * @param meterRegistry 指标注册表
      * @param termsOfServiceDocs 服务条款文档资源
      * @return CommandLineRunner 用于在应用启动后执行初始化任务
      */
     @Bean
     CommandLineRunner ingestTermOfServiceToVectorStore(
-            EmbeddingModel embeddingModel, 
             VectorStore vectorStore,
+            PersistentEmbeddingCache embeddingCache,
+            MeterRegistry meterRegistry,
             @Value("classpath:rag/terms-of-service.txt") Resource termsOfServiceDocs) {
 
         return args -> {
+            long start = System.nanoTime();
+            long hits = embeddingCache.hits();
+            long misses = embeddingCache.misses();
+
             // 1. 读取文档
             var documents = new TextReader(termsOfServiceDocs).read();
             
@@ -73,32 +86,39 @@ public class FlightBookingApplication {
             // 3. 将分割后的文档写入向量存储
             vectorStore.write(splitDocuments);
 
-            log.info("✅ 服务条款文档已成功导入向量数据库");
+            // 4. 清理文档变化后不再使用的旧向量
+            int pruned = embeddingCache.retainAccessed();
+
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            Timer.builder("rag.ingest.duration")
+                    .description("服务条款文档导入向量数据库耗时")
+                    .register(meterRegistry)
+                    .record(elapsed);
+            log.info("✅ 服务条款文档已成功导入向量数据库，共 {} 个分块，复用缓存向量 {} 个，新计算 {} 个，清理 {} 个，耗时 {} ms",
+                    splitDocuments.size(), embeddingCache.hits() - hits, embeddingCache.misses() - misses,
+                    pruned, elapsed.toMillis());
         };
     }
 
     /**
      * 配置聊天内存管理器
      * 
-     * <p>使用内存存储来维护用户对话历史，支持上下文感知的对话。</p>
-     * 
-     * @return ChatMemory 聊天内存实例
-     */
-    @Bean
-    public ChatMemory chatMemory() {
-        return new InMemoryChatMemory();
-    }
-
-    /**
-     * 配置向量存储
-     * 
-     * <p>使用简单的内存向量存储来存储文档的向量表示，支持语义搜索。</p>
+     * <p>使用有界的内存存储来维护用户对话历史，支持上下文感知的对话。
+     * 限制单个会话的消息条数和全部会话的总内存，空闲会话超时过期，
+     * 避免会话记忆随进程运行无限增长。</p>
      * 
-     * @param embeddingModel 嵌入模型，用于生成和查询向量
-     * @return VectorStore 向量存储实例
+     * @param properties 会话记忆配置
+     * @param meterRegistry 指标注册表
+     * @return BoundedChatMemory 聊天内存实例，同时提供摘要压缩所需的接口
      */
     @Bean
-    public VectorStore vectorStore(EmbeddingModel embeddingModel) {
-        return new SimpleVectorStore(embeddingModel);
+    public BoundedChatMemory chatMemory(ChatMemoryProperties properties, MeterRegistry meterRegistry) {
+        BoundedChatMemory chatMemory = new BoundedChatMemory(
+                properties.getMaxMessagesPerConversation(),
+                properties.getMaxTotalSize().toBytes(),
+                properties.getIdleTtl()
+        );
+        chatMemory.bindTo(meterRegistry);
+        return chatMemory;
     }
 }
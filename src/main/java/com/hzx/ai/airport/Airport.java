@@ -0,0 +1,16 @@
+package com.hzx.ai.airport;
+
+/**
+ * 机场
+ *
+ * @param id 机场编号，从0开始连续分配
+ * @param code IATA三字码
+ * @param name 机场名称
+ * @param englishName 机场英文名
+ * @param cityId 所在城市的编号
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public record Airport(int id, String code, String name, String englishName, int cityId) {
+}
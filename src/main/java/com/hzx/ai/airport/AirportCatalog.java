@@ -0,0 +1,402 @@
+package com.hzx.ai.airport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 机场目录
+ *
+ * <p>从随应用发布的目录文件加载机场的IATA三字码、中英文名称及所在城市，
+ * 城市和机场分别编为从0开始的连续编号。每个三字码、城市中英文名、机场中英文名（含去掉“国际机场”等后缀的简称）
+ * 归一化后作为别名放入哈希表，解析为 O(1)。</p>
+ *
+ * <p>大模型给出的地点常带有多余的字词或拼写错误，精确匹配失败时按以下顺序模糊匹配，只接受唯一的结果：</p>
+ * <ol>
+ *   <li>按括号、斜杠、逗号等拆分，如“北京（PEK）”，各部分精确匹配到同一城市</li>
+ *   <li>中文：输入包含某个别名，或是某个别名的一部分，如“飞往上海”、“浦东”</li>
+ *   <li>英文：与别名的编辑距离（相邻字母互换算一次）不超过长度的约四分之一，如“Bejing”、“Shanghia”</li>
+ * </ol>
+ * <p>模糊匹配需要遍历别名，目录只有数百个别名，耗时仍在微秒级。三字码不参与模糊匹配，避免把错误的三字码当成另一个机场。</p>
+ *
+ * <p>目录加载后不可变，可在多线程间共享。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public final class AirportCatalog {
+
+    /**
+     * 随应用发布的目录文件
+     */
+    public static final String DEFAULT_RESOURCE = "/airport/airports.csv";
+
+    /**
+     * 生成简称时去掉的后缀（归一化后），较长的在前
+     */
+    private static final List<String> SUFFIXES = List.of("internationalairport", "airport", "city", "国际机场", "机场", "市");
+
+    /**
+     * 拆分输入的分隔符
+     */
+    private static final Pattern SEPARATORS = Pattern.compile("[()（）\\[\\]【】/／,，、|;；→>]+");
+
+    private static final Pattern IATA_CODE = Pattern.compile("[A-Z]{3}");
+
+    private final List<City> cities;
+
+    private final List<Airport> airports;
+
+    /**
+     * 三字码 → 机场
+     */
+    private final Map<String, Airport> airportsByCode;
+
+    /**
+     * 归一化的城市、机场名称及简称 → 城市，不含三字码
+     */
+    private final Map<String, City> aliases;
+
+    private AirportCatalog(List<City> cities, List<Airport> airports,
+                           Map<String, Airport> airportsByCode, Map<String, City> aliases) {
+        this.cities = cities;
+        this.airports = airports;
+        this.airportsByCode = airportsByCode;
+        this.aliases = aliases;
+    }
+
+    /**
+     * 加载随应用发布的目录
+     *
+     * @return AirportCatalog 机场目录
+     * @throws IllegalStateException 目录文件不存在时抛出异常
+     */
+    public static AirportCatalog defaults() {
+        InputStream in = AirportCatalog.class.getResourceAsStream(DEFAULT_RESOURCE);
+        if (in == null) {
+            throw new IllegalStateException("机场目录文件不存在：" + DEFAULT_RESOURCE);
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取机场目录失败：" + DEFAULT_RESOURCE, e);
+        }
+    }
+
+    /**
+     * 加载目录
+     *
+     * <p>每行一个机场：{@code 三字码,城市,城市英文名,机场名称,机场英文名}，
+     * 空行、{@code #} 开头的注释行和 {@code code,} 开头的表头行跳过。</p>
+     *
+     * @param reader 目录内容
+     * @return AirportCatalog 机场目录
+     * @throws IOException 读取失败时抛出异常
+     * @throws IllegalArgumentException 格式错误、三字码重复或同一别名指向不同城市时抛出异常
+     */
+    public static AirportCatalog load(Reader reader) throws IOException {
+        Map<String, List<String[]>> rowsByCity = new LinkedHashMap<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int number = 0;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("code,")) {
+                continue;
+            }
+            String[] fields = trimmed.split(",", -1);
+            if (fields.length != 5) {
+                throw new IllegalArgumentException(String.format("机场目录第 %d 行应有5列：%s", number, line));
+            }
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = fields[i].strip();
+                if (fields[i].isEmpty()) {
+                    throw new IllegalArgumentException(String.format("机场目录第 %d 行第 %d 列为空：%s", number, i + 1, line));
+                }
+            }
+            if (!IATA_CODE.matcher(fields[0]).matches()) {
+                throw new IllegalArgumentException(String.format("机场目录第 %d 行三字码无效：%s", number, fields[0]));
+            }
+            rowsByCity.computeIfAbsent(fields[1], k -> new ArrayList<>()).add(fields);
+        }
+
+        List<City> cities = new ArrayList<>(rowsByCity.size());
+        List<Airport> airports = new ArrayList<>();
+        Map<String, Airport> airportsByCode = new HashMap<>();
+        Map<String, City> aliases = new HashMap<>();
+        for (Map.Entry<String, List<String[]>> entry : rowsByCity.entrySet()) {
+            int cityId = cities.size();
+            List<Airport> cityAirports = new ArrayList<>();
+            for (String[] fields : entry.getValue()) {
+                Airport airport = new Airport(airports.size(), fields[0], fields[3], fields[4], cityId);
+                if (airportsByCode.putIfAbsent(airport.code(), airport) != null) {
+                    throw new IllegalArgumentException("机场目录中的三字码重复：" + airport.code());
+                }
+                airports.add(airport);
+                cityAirports.add(airport);
+            }
+            String[] first = entry.getValue().get(0);
+            City city = new City(cityId, entry.getKey(), first[2], List.copyOf(cityAirports));
+            cities.add(city);
+
+            addAlias(aliases, city.name(), city);
+            addAlias(aliases, city.englishName(), city);
+            for (Airport airport : cityAirports) {
+                addAlias(aliases, airport.name(), city);
+                addAlias(aliases, airport.englishName(), city);
+            }
+        }
+        return new AirportCatalog(List.copyOf(cities), List.copyOf(airports), Map.copyOf(airportsByCode), Map.copyOf(aliases));
+    }
+
+    private static void addAlias(Map<String, City> aliases, String name, City city) {
+        String key = normalize(name);
+        for (String alias : List.of(key, strip(key))) {
+            City existing = aliases.putIfAbsent(alias, city);
+            if (existing != null && existing != city) {
+                throw new IllegalArgumentException(String.format("机场目录中的别名 %s 同时指向 %s 和 %s",
+                        alias, existing.name(), city.name()));
+            }
+        }
+    }
+
+    /**
+     * 解析地点
+     *
+     * @param text 三字码、城市名、机场名（中英文均可），允许少量多余字词和拼写错误
+     * @return Optional<City> 所在城市，无法唯一确定时为空
+     */
+    public Optional<City> resolve(String text) {
+        if (text == null || text.isBlank()) {
+            return Optional.empty();
+        }
+        String key = normalize(text);
+        City city = lookup(key);
+        if (city == null) {
+            city = fuzzy(text, strip(key));
+        }
+        return Optional.ofNullable(city);
+    }
+
+    /**
+     * 按三字码查找机场
+     *
+     * @param code 三字码（忽略大小写）
+     * @return Optional<Airport> 机场，不存在时为空
+     */
+    public Optional<Airport> findAirport(String code) {
+        if (code == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(airportsByCode.get(code.strip().toUpperCase(Locale.ROOT)));
+    }
+
+    /**
+     * 按编号获取城市
+     *
+     * @param id 城市编号
+     * @return City 城市
+     */
+    public City city(int id) {
+        return cities.get(id);
+    }
+
+    /**
+     * 按编号获取机场
+     *
+     * @param id 机场编号
+     * @return Airport 机场
+     */
+    public Airport airport(int id) {
+        return airports.get(id);
+    }
+
+    /**
+     * 全部城市，按编号排列
+     *
+     * @return List<City> 城市列表
+     */
+    public List<City> cities() {
+        return cities;
+    }
+
+    /**
+     * 全部机场，按编号排列
+     *
+     * @return List<Airport> 机场列表
+     */
+    public List<Airport> airports() {
+        return airports;
+    }
+
+    /**
+     * 精确匹配：三字码、别名、去掉后缀的简称
+     */
+    private City lookup(String key) {
+        if (key.isEmpty()) {
+            return null;
+        }
+        Airport airport = airportsByCode.get(key.toUpperCase(Locale.ROOT));
+        if (airport != null) {
+            return cities.get(airport.cityId());
+        }
+        City city = aliases.get(key);
+        return city != null ? city : aliases.get(strip(key));
+    }
+
+    private City fuzzy(String text, String key) {
+        // 各部分分别精确匹配，如“北京（PEK）”、“Shanghai / 浦东”
+        String[] parts = SEPARATORS.split(text);
+        if (parts.length > 1) {
+            Set<City> matches = new LinkedHashSet<>();
+            for (String part : parts) {
+                City city = lookup(normalize(part));
+                if (city != null) {
+                    matches.add(city);
+                }
+            }
+            if (matches.size() == 1) {
+                return matches.iterator().next();
+            }
+            if (matches.size() > 1) {
+                return null;
+            }
+        }
+        if (key.length() < 2) {
+            return null;
+        }
+        return isAscii(key) ? closest(key) : containing(key);
+    }
+
+    /**
+     * 中文：输入包含别名，或输入是别名的一部分
+     */
+    private City containing(String key) {
+        City match = null;
+        for (Map.Entry<String, City> alias : aliases.entrySet()) {
+            String name = alias.getKey();
+            if (name.length() < 2 || isAscii(name)) {
+                continue;
+            }
+            if (key.contains(name) || name.contains(key)) {
+                if (match != null && match != alias.getValue()) {
+                    return null;
+                }
+                match = alias.getValue();
+            }
+        }
+        return match;
+    }
+
+    /**
+     * 英文：编辑距离最小且唯一的别名
+     */
+    private City closest(String key) {
+        int limit = key.length() <= 4 ? 0 : key.length() <= 8 ? 1 : 2;
+        if (limit == 0) {
+            return null;
+        }
+        City match = null;
+        int best = limit + 1;
+        for (Map.Entry<String, City> alias : aliases.entrySet()) {
+            String name = alias.getKey();
+            if (!isAscii(name) || Math.abs(name.length() - key.length()) > limit) {
+                continue;
+            }
+            int distance = distance(key, name, limit);
+            if (distance < best) {
+                best = distance;
+                match = alias.getValue();
+            } else if (distance == best && match != alias.getValue()) {
+                match = null;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * 编辑距离（相邻字符互换算一次），超过上限时提前返回上限 + 1
+     */
+    private static int distance(String a, String b, int limit) {
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * 归一化：全角转半角、转小写，只保留字母和数字
+     */
+    static String normalize(String text) {
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder key = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * 去掉“国际机场”、“机场”、“市”等后缀，去掉后为空时保留原值
+     */
+    private static String strip(String key) {
+        for (String suffix : SUFFIXES) {
+            if (key.length() > suffix.length() && key.endsWith(suffix)) {
+                return key.substring(0, key.length() - suffix.length());
+            }
+        }
+        return key;
+    }
+
+    private static boolean isAscii(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
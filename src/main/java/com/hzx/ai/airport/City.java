@@ -0,0 +1,20 @@
+package com.hzx.ai.airport;
+
+import java.util.List;
+
+/**
+ * 城市
+ *
+ * <p>航班预订的出发地、目的地以城市为粒度保存，取值为 {@link #name()}，
+ * 同一城市的全部预订共享目录中的同一个字符串实例。</p>
+ *
+ * @param id 城市编号，从0开始连续分配
+ * @param name 城市名称
+ * @param englishName 城市英文名
+ * @param airports 城市的机场，第一个为主机场
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public record City(int id, String name, String englishName, List<Airport> airports) {
+}
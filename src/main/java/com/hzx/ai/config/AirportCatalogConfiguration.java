@@ -0,0 +1,40 @@
+package com.hzx.ai.config;
+
+import com.hzx.ai.airport.AirportCatalog;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 机场目录配置类
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Configuration
+@EnableConfigurationProperties(AirportCatalogProperties.class)
+public class AirportCatalogConfiguration {
+
+    /**
+     * 加载机场目录
+     *
+     * @param properties 机场目录配置
+     * @param resourceLoader 资源加载器
+     * @return AirportCatalog 机场目录
+     * @throws IOException 读取目录文件失败时抛出异常
+     */
+    @Bean
+    public AirportCatalog airportCatalog(AirportCatalogProperties properties, ResourceLoader resourceLoader) throws IOException {
+        try (Reader reader = new InputStreamReader(
+                resourceLoader.getResource(properties.getCatalog()).getInputStream(), StandardCharsets.UTF_8)) {
+            return AirportCatalog.load(reader);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.hzx.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 机场目录配置
+ *
+ * <p>对应配置前缀 {@code flight.airport}。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Data
+@ConfigurationProperties(prefix = "flight.airport")
+public class AirportCatalogProperties {
+
+    /**
+     * 目录文件位置，支持 classpath: 和 file: 前缀
+     */
+    private String catalog = "classpath:airport/airports.csv";
+}
@@ -0,0 +1,66 @@
+package com.hzx.ai.config;
+
+import com.hzx.ai.repository.BookingRepository;
+import com.hzx.ai.repository.StripedBookingLocks;
+import com.hzx.ai.repository.journal.BookingStore;
+import com.hzx.ai.services.BookingCompletionScheduler;
+import com.hzx.ai.services.BookingDetailsCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * 航班预订自动完成配置类
+ *
+ * <p>调度器由 {@link com.hzx.ai.services.FlightBookingService} 在恢复预订数据后启动，
+ * 容器关闭时自动停止。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Configuration
+@EnableConfigurationProperties(BookingCompletionProperties.class)
+public class BookingCompletionConfiguration {
+
+    /**
+     * 配置航班预订自动完成调度器
+     *
+     * @param properties 自动完成配置
+     * @param bookingRepository 航班预订仓储
+     * @param bookingLocks 航班预订分段锁
+     * @param bookingStore 航班预订持久化存储
+     * @param meterRegistry 指标注册表
+     * @param detailsCache 预订详情缓存，转为已完成的预订使其失效；未启用缓存时不存在
+     * @return BookingCompletionScheduler 基于分层时间轮的自动完成调度器
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "flight.booking.completion", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public BookingCompletionScheduler bookingCompletionScheduler(
+            BookingCompletionProperties properties,
+            BookingRepository bookingRepository,
+            StripedBookingLocks bookingLocks,
+            BookingStore bookingStore,
+            MeterRegistry meterRegistry,
+            ObjectProvider<BookingDetailsCache> detailsCache
+    ) {
+        BookingCompletionScheduler scheduler = new BookingCompletionScheduler(
+                bookingRepository,
+                bookingLocks,
+                bookingStore,
+                Clock.systemDefaultZone(),
+                properties.getTick(),
+                properties.getWheelSize(),
+                properties.getCompletionDelay(),
+                properties.getBatchSize(),
+                detailsCache.getIfAvailable()
+        );
+        scheduler.bindTo(meterRegistry);
+        return scheduler;
+    }
+}
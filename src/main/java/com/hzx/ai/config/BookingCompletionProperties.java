@@ -0,0 +1,45 @@
+package com.hzx.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 航班预订自动完成配置
+ *
+ * <p>对应配置前缀 {@code flight.booking.completion}。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Data
+@ConfigurationProperties(prefix = "flight.booking.completion")
+public class BookingCompletionProperties {
+
+    /**
+     * 是否在航班起飞后自动把已确认的预订转为已完成
+     */
+    private boolean enabled = true;
+
+    /**
+     * 时间轮每格的时长，也是后台推进的间隔
+     */
+    private Duration tick = Duration.ofMinutes(1);
+
+    /**
+     * 时间轮每层的槽位数
+     */
+    private int wheelSize = 64;
+
+    /**
+     * 从航班日期零点起，到转为已完成的时长，默认为航班日期次日零点
+     */
+    private Duration completionDelay = Duration.ofDays(1);
+
+    /**
+     * 每批处理的最大预订数，一批合并为一次组提交
+     */
+    private int batchSize = 256;
+}
@@ -0,0 +1,38 @@
+package com.hzx.ai.config;
+
+import com.hzx.ai.services.BookingDetailsCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 预订详情缓存配置类
+ *
+ * <p>{@code flight.booking.details-cache.enabled=false} 时不创建缓存，每次查询都读仓储。
+ * 命中、未命中和淘汰次数通过 {@code /actuator/metrics/cache.gets?tag=cache:booking.details} 等指标查看。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Configuration
+@EnableConfigurationProperties(BookingDetailsCacheProperties.class)
+public class BookingDetailsCacheConfiguration {
+
+    /**
+     * 配置预订详情缓存
+     *
+     * @param properties 预订详情缓存配置
+     * @param meterRegistry 指标注册表
+     * @return BookingDetailsCache 预订详情缓存
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "flight.booking.details-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public BookingDetailsCache bookingDetailsCache(BookingDetailsCacheProperties properties, MeterRegistry meterRegistry) {
+        BookingDetailsCache cache = new BookingDetailsCache(properties.getMaxEntries());
+        cache.bindTo(meterRegistry);
+        return cache;
+    }
+}
@@ -0,0 +1,28 @@
+package com.hzx.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 预订详情缓存配置
+ *
+ * <p>对应配置前缀 {@code flight.booking.details-cache}。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Data
+@ConfigurationProperties(prefix = "flight.booking.details-cache")
+public class BookingDetailsCacheProperties {
+
+    /**
+     * 是否缓存按预订号查询的预订详情
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存的预订详情条数上限
+     */
+    private long maxEntries = 10000;
+}
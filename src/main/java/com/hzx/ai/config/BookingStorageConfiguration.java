@@ -0,0 +1,61 @@
+package com.hzx.ai.config;
+
+import com.hzx.ai.repository.BookingRepository;
+import com.hzx.ai.repository.ColumnarBookingRepository;
+import com.hzx.ai.repository.InMemoryBookingRepository;
+import com.hzx.ai.repository.journal.BookingStore;
+import com.hzx.ai.repository.journal.NoopBookingStore;
+import com.hzx.ai.repository.journal.WalBookingStore;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * 航班预订存储配置类
+ *
+ * <p>根据 {@code flight.storage.type} 选择持久化实现，默认使用本地预写日志，
+ * 无需外部数据库；根据 {@code flight.storage.engine} 选择内存存储引擎。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Configuration
+@EnableConfigurationProperties(BookingStorageProperties.class)
+public class BookingStorageConfiguration {
+
+    /**
+     * 配置航班预订持久化存储
+     *
+     * @param properties 存储配置
+     * @return BookingStore 持久化存储，容器关闭时自动关闭
+     */
+    @Bean
+    public BookingStore bookingStore(BookingStorageProperties properties) {
+        return switch (properties.getType()) {
+            case MEMORY -> new NoopBookingStore();
+            case WAL -> new WalBookingStore(
+                    Path.of(properties.getDirectory()),
+                    properties.getGroupCommitMaxBatch(),
+                    properties.getGroupCommitMaxDelay(),
+                    properties.getSnapshotInterval()
+            );
+        };
+    }
+
+    /**
+     * 配置航班预订仓储
+     *
+     * @param properties 存储配置
+     * @return BookingRepository 内存存储引擎
+     */
+    @Bean
+    public BookingRepository bookingRepository(BookingStorageProperties properties) {
+        return switch (properties.getEngine()) {
+            case OBJECT -> new InMemoryBookingRepository();
+            case COLUMNAR -> new ColumnarBookingRepository();
+        };
+    }
+}
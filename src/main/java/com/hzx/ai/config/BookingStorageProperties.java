@@ -0,0 +1,82 @@
+package com.hzx.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 航班预订存储配置
+ *
+ * <p>对应配置前缀 {@code flight.storage}。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Data
+@ConfigurationProperties(prefix = "flight.storage")
+public class BookingStorageProperties {
+
+    /**
+     * 存储类型：MEMORY 不持久化，WAL 使用本地预写日志
+     */
+    private StorageType type = StorageType.WAL;
+
+    /**
+     * 内存存储引擎：OBJECT 每个预订一个对象并维护二级索引，COLUMNAR 按列存放、内存占用更小
+     */
+    private StorageEngine engine = StorageEngine.OBJECT;
+
+    /**
+     * 数据目录（WAL 模式）
+     */
+    private String directory = "data/bookings";
+
+    /**
+     * 单次组提交的最大记录数
+     */
+    private int groupCommitMaxBatch = 256;
+
+    /**
+     * 组提交前等待更多并发写入的最长时间，只有其他写入已在排队时才等待
+     */
+    private Duration groupCommitMaxDelay = Duration.ofMillis(1);
+
+    /**
+     * 快照间隔，为0表示不做定期快照
+     */
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+
+    /**
+     * 存储类型
+     */
+    public enum StorageType {
+
+        /**
+         * 纯内存，不持久化
+         */
+        MEMORY,
+
+        /**
+         * 本地预写日志 + 快照
+         */
+        WAL
+    }
+
+    /**
+     * 内存存储引擎
+     */
+    public enum StorageEngine {
+
+        /**
+         * 对象存储，带客户、航线、日期二级索引
+         */
+        OBJECT,
+
+        /**
+         * 列式存储，二级查询为列扫描
+         */
+        COLUMNAR
+    }
+}
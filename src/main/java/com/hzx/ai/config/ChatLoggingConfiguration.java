@@ -0,0 +1,33 @@
+package com.hzx.ai.config;
+
+import com.hzx.ai.tool.LoggingAdvisor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 聊天请求日志配置类
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Configuration
+@EnableConfigurationProperties(ChatLoggingProperties.class)
+public class ChatLoggingConfiguration {
+
+    /**
+     * 配置日志记录顾问
+     *
+     * @param properties 聊天请求日志配置
+     * @return LoggingAdvisor 按比例采样、内容截断的日志记录顾问
+     */
+    @Bean
+    public LoggingAdvisor loggingAdvisor(ChatLoggingProperties properties) {
+        return new LoggingAdvisor(
+                properties.getSampleRate(),
+                properties.getMaxPayloadChars(),
+                properties.isLogResponses()
+        );
+    }
+}
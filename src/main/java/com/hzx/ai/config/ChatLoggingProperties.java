@@ -0,0 +1,33 @@
+package com.hzx.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 聊天请求日志配置
+ *
+ * <p>对应配置前缀 {@code flight.chat.logging}。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Data
+@ConfigurationProperties(prefix = "flight.chat.logging")
+public class ChatLoggingProperties {
+
+    /**
+     * 记录请求和响应日志的请求比例，0 到 1；异常不受采样限制，始终记录
+     */
+    private double sampleRate = 0.1;
+
+    /**
+     * 日志中用户消息和回答内容的最大字符数，超出部分截断
+     */
+    private int maxPayloadChars = 256;
+
+    /**
+     * 是否记录响应
+     */
+    private boolean logResponses = true;
+}
@@ -0,0 +1,84 @@
+package com.hzx.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 会话记忆配置
+ *
+ * <p>对应配置前缀 {@code flight.chat.memory}。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Data
+@ConfigurationProperties(prefix = "flight.chat.memory")
+public class ChatMemoryProperties {
+
+    /**
+     * 单个会话最多保留的消息条数
+     */
+    private int maxMessagesPerConversation = 100;
+
+    /**
+     * 每次对话注入提示词的历史消息条数（只取当前会话）
+     */
+    private int retrieveSize = 20;
+
+    /**
+     * 全部会话的估算总内存上限
+     */
+    private DataSize maxTotalSize = DataSize.ofMegabytes(64);
+
+    /**
+     * 会话空闲超时
+     */
+    private Duration idleTtl = Duration.ofMinutes(30);
+
+    /**
+     * 较早消息的摘要压缩
+     */
+    private Summary summary = new Summary();
+
+    /**
+     * 摘要压缩配置，对应配置前缀 {@code flight.chat.memory.summary}
+     */
+    @Data
+    public static class Summary {
+
+        /**
+         * 是否把较早的消息压缩成摘要，同时记录预订号、客户姓名等客户信息
+         */
+        private boolean enabled = true;
+
+        /**
+         * 原样保留的最近对话轮数（每轮一问一答）
+         */
+        private int keepTurns = 4;
+
+        /**
+         * 未压缩的对话超出保留轮数多少轮时触发压缩；保留轮数与此值之和的2倍不应超过 {@code retrieve-size}，
+         * 否则等待压缩的消息不会出现在提示词中
+         */
+        private int compactTurns = 4;
+
+        /**
+         * 摘要的令牌预算
+         */
+        private int maxTokens = 300;
+
+        /**
+         * 执行压缩的线程数
+         */
+        private int threads = 2;
+
+        /**
+         * 等待压缩的会话数上限，超出时本轮跳过压缩，下一轮对话再试
+         */
+        private int queueCapacity = 1000;
+    }
+}
@@ -0,0 +1,37 @@
+package com.hzx.ai.config;
+
+import com.hzx.ai.tool.ChatMetricsAdvisor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 聊天链路监控配置类
+ *
+ * <p>指标通过 {@code /actuator/metrics} 和 {@code /actuator/prometheus} 暴露。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Configuration
+public class ChatMetricsConfiguration {
+
+    /**
+     * 配置聊天链路监控顾问
+     *
+     * @param chatModelName 聊天模型名称，作为指标的 {@code model} 标签
+     * @param meterRegistry 指标注册表
+     * @return ChatMetricsAdvisor 聊天链路监控顾问
+     */
+    @Bean
+    public ChatMetricsAdvisor chatMetricsAdvisor(
+            @Value("${spring.ai.ollama.chat.model:unknown}") String chatModelName,
+            MeterRegistry meterRegistry
+    ) {
+        ChatMetricsAdvisor advisor = new ChatMetricsAdvisor(chatModelName);
+        advisor.bindTo(meterRegistry);
+        return advisor;
+    }
+}
@@ -0,0 +1,78 @@
+package com.hzx.ai.config;
+
+import com.hzx.ai.memory.BoundedChatMemory;
+import com.hzx.ai.memory.ChatMemoryCompactor;
+import com.hzx.ai.tool.ChatSummaryAdvisor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 会话摘要配置类
+ *
+ * <p>{@code flight.chat.memory.summary.enabled=false} 时不创建，会话记忆只保留最近的原始消息。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "flight.chat.memory.summary", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ChatSummaryConfiguration {
+
+    /**
+     * 配置会话记忆压缩器，使用独立的有界线程池，不占用请求线程
+     *
+     * @param chatMemory 会话记忆
+     * @param chatModel 生成摘要的大模型
+     * @param properties 会话记忆配置
+     * @param meterRegistry 指标注册表
+     * @return ChatMemoryCompactor 会话记忆压缩器，容器关闭时关闭线程池
+     */
+    @Bean
+    public ChatMemoryCompactor chatMemoryCompactor(
+            BoundedChatMemory chatMemory,
+            ChatModel chatModel,
+            ChatMemoryProperties properties,
+            MeterRegistry meterRegistry
+    ) {
+        ChatMemoryProperties.Summary summary = properties.getSummary();
+        AtomicInteger threads = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(summary.getThreads(), summary.getThreads(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(summary.getQueueCapacity()), r -> {
+                    Thread thread = new Thread(r, "chat-memory-compactor-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        ChatMemoryCompactor compactor = new ChatMemoryCompactor(
+                chatMemory,
+                chatModel,
+                executor,
+                2 * summary.getKeepTurns(),
+                2 * summary.getCompactTurns(),
+                summary.getMaxTokens(),
+                new JTokkitTokenCountEstimator()
+        );
+        compactor.bindTo(meterRegistry);
+        return compactor;
+    }
+
+    /**
+     * 配置会话摘要顾问
+     *
+     * @param compactor 会话记忆压缩器
+     * @return ChatSummaryAdvisor 会话摘要顾问
+     */
+    @Bean
+    public ChatSummaryAdvisor chatSummaryAdvisor(ChatMemoryCompactor compactor) {
+        return new ChatSummaryAdvisor(compactor);
+    }
+}
@@ -0,0 +1,40 @@
+package com.hzx.ai.config;
+
+import com.hzx.ai.prompt.SystemPromptTemplate;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 提示词模板配置类
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Configuration
+@EnableConfigurationProperties(PromptTemplateProperties.class)
+public class PromptTemplateConfiguration {
+
+    /**
+     * 加载并编译系统提示词模板，模板有误时启动失败
+     *
+     * @param properties 提示词模板配置
+     * @param resourceLoader 资源加载器
+     * @return SystemPromptTemplate 系统提示词模板
+     * @throws IOException 读取模板文件失败时抛出异常
+     */
+    @Bean
+    public SystemPromptTemplate systemPromptTemplate(PromptTemplateProperties properties, ResourceLoader resourceLoader) throws IOException {
+        try (Reader reader = new InputStreamReader(
+                resourceLoader.getResource(properties.getSystemTemplate()).getInputStream(), StandardCharsets.UTF_8)) {
+            return SystemPromptTemplate.load(reader);
+        }
+    }
+}
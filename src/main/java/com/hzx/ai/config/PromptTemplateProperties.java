@@ -0,0 +1,35 @@
+package com.hzx.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Locale;
+
+/**
+ * 提示词模板配置
+ *
+ * <p>对应配置前缀 {@code flight.chat.prompt}。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Data
+@ConfigurationProperties(prefix = "flight.chat.prompt")
+public class PromptTemplateProperties {
+
+    /**
+     * 系统提示词模板文件位置，支持 classpath: 和 file: 前缀
+     */
+    private String systemTemplate = "classpath:prompt/system.txt";
+
+    /**
+     * 回复使用的语言
+     */
+    private Locale locale = Locale.SIMPLIFIED_CHINESE;
+
+    /**
+     * 是否按请求头 Accept-Language 选择回复语言，未携带时使用 {@link #locale}
+     */
+    private boolean followRequestLocale = false;
+}
@@ -0,0 +1,97 @@
+package com.hzx.ai.config;
+
+import com.hzx.ai.rag.CachingEmbeddingModel;
+import com.hzx.ai.rag.HnswVectorStore;
+import com.hzx.ai.rag.PersistentEmbeddingCache;
+import com.hzx.ai.tool.BudgetedRetrievalAdvisor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * 检索增强生成（RAG）配置类
+ *
+ * <p>配置向量存储、文档嵌入向量缓存以及问答时的检索顾问。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Configuration
+@EnableConfigurationProperties(RagProperties.class)
+public class RagConfiguration {
+
+    /**
+     * 配置文档嵌入向量缓存
+     *
+     * @param properties RAG配置
+     * @param meterRegistry 指标注册表
+     * @return PersistentEmbeddingCache 嵌入向量缓存，容器关闭时自动关闭
+     */
+    @Bean
+    public PersistentEmbeddingCache embeddingCache(RagProperties properties, MeterRegistry meterRegistry) {
+        PersistentEmbeddingCache cache = PersistentEmbeddingCache.open(Path.of(properties.getEmbeddingCacheFile()));
+        cache.bindTo(meterRegistry);
+        return cache;
+    }
+
+    /**
+     * 配置向量存储
+     *
+     * <p>根据 {@code flight.rag.vector-store} 选择实现：默认使用 HNSW 近似最近邻索引，
+     * 也可切换回简单的内存暴力检索。文档向量经由本地缓存计算，内容未变化的分块直接复用上次的向量。</p>
+     *
+     * @param properties RAG配置
+     * @param embeddingModel 嵌入模型，用于生成和查询向量
+     * @param embeddingCache 文档嵌入向量缓存
+     * @param embeddingModelName 嵌入模型名称
+     * @return VectorStore 向量存储实例
+     */
+    @Bean
+    public VectorStore vectorStore(
+            RagProperties properties,
+            EmbeddingModel embeddingModel,
+            PersistentEmbeddingCache embeddingCache,
+            @Value("${spring.ai.ollama.embedding.model:default}") String embeddingModelName
+    ) {
+        EmbeddingModel cachingModel = new CachingEmbeddingModel(embeddingModel, embeddingCache, embeddingModelName);
+        RagProperties.Hnsw hnsw = properties.getHnsw();
+        return switch (properties.getVectorStore()) {
+            case SIMPLE -> new SimpleVectorStore(cachingModel);
+            case HNSW -> new HnswVectorStore(cachingModel, hnsw.getM(), hnsw.getEfConstruction(), hnsw.getEfSearch());
+        };
+    }
+
+    /**
+     * 配置RAG检索顾问
+     *
+     * <p>按用户问题检索，注入相似度达标且不超过令牌预算的分块。</p>
+     *
+     * @param properties RAG配置
+     * @param vectorStore 向量存储
+     * @param meterRegistry 指标注册表
+     * @return BudgetedRetrievalAdvisor RAG检索顾问
+     */
+    @Bean
+    public BudgetedRetrievalAdvisor retrievalAdvisor(
+            RagProperties properties,
+            VectorStore vectorStore,
+            MeterRegistry meterRegistry
+    ) {
+        BudgetedRetrievalAdvisor advisor = new BudgetedRetrievalAdvisor(
+                vectorStore,
+                properties.getTopK(),
+                properties.getSimilarityThreshold(),
+                properties.getMaxContextTokens()
+        );
+        advisor.bindTo(meterRegistry);
+        return advisor;
+    }
+}
@@ -0,0 +1,86 @@
+package com.hzx.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 检索增强生成（RAG）配置
+ *
+ * <p>对应配置前缀 {@code flight.rag}。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Data
+@ConfigurationProperties(prefix = "flight.rag")
+public class RagProperties {
+
+    /**
+     * 文档嵌入向量缓存文件，文档未变化时重启无需重新调用嵌入模型
+     */
+    private String embeddingCacheFile = "data/rag/embeddings.dat";
+
+    /**
+     * 每次问答最多检索的分块数
+     */
+    private int topK = 4;
+
+    /**
+     * 分块的最低余弦相似度，低于该值的分块不注入提示词
+     */
+    private double similarityThreshold = 0.5;
+
+    /**
+     * 每次问答注入的上下文令牌预算
+     */
+    private int maxContextTokens = 800;
+
+    /**
+     * 向量存储类型：SIMPLE 暴力检索，HNSW 近似最近邻索引
+     */
+    private VectorStoreType vectorStore = VectorStoreType.HNSW;
+
+    /**
+     * HNSW 索引参数
+     */
+    private Hnsw hnsw = new Hnsw();
+
+    /**
+     * 向量存储类型
+     */
+    public enum VectorStoreType {
+
+        /**
+         * Spring AI 的 SimpleVectorStore，逐一计算相似度
+         */
+        SIMPLE,
+
+        /**
+         * HNSW 近似最近邻索引
+         */
+        HNSW
+    }
+
+    /**
+     * HNSW 索引参数，越大召回越高，内存和耗时也越多
+     */
+    @Data
+    public static class Hnsw {
+
+        /**
+         * 每个节点在上层的最大邻居数，第0层为其2倍
+         */
+        private int m = 16;
+
+        /**
+         * 插入时的候选集大小
+         */
+        private int efConstruction = 200;
+
+        /**
+         * 查询时的候选集大小
+         */
+        private int efSearch = 64;
+    }
+}
@@ -0,0 +1,74 @@
+package com.hzx.ai.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * 响应式航班预订配置类
+ *
+ * <p>流式聊天时，Spring AI 在大模型响应流的回调中同步执行函数调用，
+ * 回调默认运行在 WebClient 的事件循环线程上，一次函数调用会卡住该线程上所有的流。
+ * 这里为 WebClient 增加过滤器，把流式响应（NDJSON、SSE）转到 {@code bookingScheduler} 上处理，
+ * 函数调用和之后的响应写出都不再占用事件循环线程，函数可以直接执行阻塞的预订操作。
+ * 过滤器始终生效：函数调用会阻塞，不能运行在事件循环线程上。</p>
+ *
+ * <p>{@code bookingScheduler} 是有界弹性调度器，并发数和排队数都有上限；
+ * 除流式聊天外，{@code ReactiveFlightBookingService} 也在其上执行阻塞的预订操作（如 {@code /api/booking/stream} 导出）。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Configuration
+@EnableConfigurationProperties(ReactiveBookingProperties.class)
+public class ReactiveBookingConfiguration {
+
+    private static final List<MediaType> STREAMING_TYPES = List.of(MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM);
+
+    /**
+     * 配置执行预订操作的有界弹性调度器
+     *
+     * @param properties 响应式航班预订配置
+     * @return Scheduler 调度器，容器关闭时释放
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler bookingScheduler(ReactiveBookingProperties properties) {
+        return Schedulers.newBoundedElastic(properties.getThreadCap(), properties.getQueuedTaskCap(), "booking");
+    }
+
+    /**
+     * 把流式响应转到有界弹性调度器处理
+     *
+     * @param bookingScheduler 执行阻塞预订操作的有界弹性调度器
+     * @return WebClientCustomizer 为自动配置的 WebClient.Builder 增加过滤器，大模型客户端由其构建
+     */
+    @Bean
+    public WebClientCustomizer chatStreamOffloadCustomizer(Scheduler bookingScheduler) {
+        return builder -> builder.filter((request, next) -> next.exchange(request)
+                .map(response -> offloadIfStreaming(response, bookingScheduler)));
+    }
+
+    private static ClientResponse offloadIfStreaming(ClientResponse response, Scheduler scheduler) {
+        boolean streaming = response.headers().contentType()
+                .map(type -> STREAMING_TYPES.stream().anyMatch(type::isCompatibleWith))
+                .orElse(false);
+        if (!streaming) {
+            return response;
+        }
+        // 取消订阅时 publishOn 队列中尚未消费的缓冲区需要释放
+        return response.mutate()
+                .body(body -> body.publishOn(scheduler)
+                        .doOnDiscard(DataBuffer.class, DataBufferUtils::release))
+                .build();
+    }
+}
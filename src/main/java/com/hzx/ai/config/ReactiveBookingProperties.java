@@ -0,0 +1,28 @@
+package com.hzx.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 响应式航班预订配置
+ *
+ * <p>对应配置前缀 {@code flight.booking.reactive}。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Data
+@ConfigurationProperties(prefix = "flight.booking.reactive")
+public class ReactiveBookingProperties {
+
+    /**
+     * 执行预订操作的最大线程数，默认为CPU核数的10倍
+     */
+    private int threadCap = 10 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 线程全忙时最多排队的操作数，超出后操作直接失败
+     */
+    private int queuedTaskCap = 10_000;
+}
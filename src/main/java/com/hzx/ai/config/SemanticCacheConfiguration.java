@@ -0,0 +1,49 @@
+package com.hzx.ai.config;
+
+import com.hzx.ai.tool.SemanticCacheAdvisor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 语义响应缓存配置类
+ *
+ * <p>{@code flight.chat.cache.enabled=false} 时不创建缓存顾问，所有问题都直接调用大模型。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Configuration
+@EnableConfigurationProperties(SemanticCacheProperties.class)
+public class SemanticCacheConfiguration {
+
+    /**
+     * 配置语义缓存顾问
+     *
+     * @param properties 语义缓存配置
+     * @param embeddingModel 嵌入模型，用于计算问题的向量
+     * @param meterRegistry 指标注册表
+     * @return SemanticCacheAdvisor 语义缓存顾问
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "flight.chat.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public SemanticCacheAdvisor semanticCacheAdvisor(
+            SemanticCacheProperties properties,
+            EmbeddingModel embeddingModel,
+            MeterRegistry meterRegistry
+    ) {
+        SemanticCacheAdvisor advisor = new SemanticCacheAdvisor(
+                embeddingModel,
+                properties.getSimilarityThreshold(),
+                properties.getTtl(),
+                properties.getMaxEntries(),
+                properties.getBypassPatterns()
+        );
+        advisor.bindTo(meterRegistry);
+        return advisor;
+    }
+}
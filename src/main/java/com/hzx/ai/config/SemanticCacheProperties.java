@@ -0,0 +1,51 @@
+package com.hzx.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 语义响应缓存配置
+ *
+ * <p>对应配置前缀 {@code flight.chat.cache}。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Data
+@ConfigurationProperties(prefix = "flight.chat.cache")
+public class SemanticCacheProperties {
+
+    /**
+     * 是否启用语义缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 复用缓存回答的最低余弦相似度
+     */
+    private double similarityThreshold = 0.92;
+
+    /**
+     * 缓存条目的存活时间
+     */
+    private Duration ttl = Duration.ofHours(1);
+
+    /**
+     * 缓存条目上限
+     */
+    private long maxEntries = 1000;
+
+    /**
+     * 绕过缓存的问题正则：涉及个人预订数据或需要函数调用的问题不能复用他人的回答
+     */
+    private List<String> bypassPatterns = new ArrayList<>(List.of(
+            "\\d{3,}",
+            "预订号|订单号|姓名|我叫|我是|身份证|手机",
+            "帮我|替我|给我|我要|我想|我的"
+    ));
+}
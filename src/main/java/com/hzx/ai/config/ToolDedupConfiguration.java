@@ -0,0 +1,41 @@
+package com.hzx.ai.config;
+
+import com.hzx.ai.tool.ToolCallDeduplicator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 函数调用去重配置类
+ *
+ * <p>{@code flight.chat.tools.dedup.enabled=false} 时不创建去重器，每次函数调用都实际执行。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Configuration
+@EnableConfigurationProperties(ToolDedupProperties.class)
+public class ToolDedupConfiguration {
+
+    /**
+     * 配置函数调用去重器
+     *
+     * @param properties 函数调用去重配置
+     * @param meterRegistry 指标注册表
+     * @return ToolCallDeduplicator 函数调用去重器
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "flight.chat.tools.dedup", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public ToolCallDeduplicator toolCallDeduplicator(ToolDedupProperties properties, MeterRegistry meterRegistry) {
+        ToolCallDeduplicator deduplicator = new ToolCallDeduplicator(
+                properties.getReadTtl(),
+                properties.getWriteTtl(),
+                properties.getMaxEntries()
+        );
+        deduplicator.bindTo(meterRegistry);
+        return deduplicator;
+    }
+}
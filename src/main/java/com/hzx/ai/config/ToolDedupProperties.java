@@ -0,0 +1,40 @@
+package com.hzx.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 函数调用去重配置
+ *
+ * <p>对应配置前缀 {@code flight.chat.tools.dedup}。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Data
+@ConfigurationProperties(prefix = "flight.chat.tools.dedup")
+public class ToolDedupProperties {
+
+    /**
+     * 是否合并同一会话中重复的函数调用
+     */
+    private boolean enabled = true;
+
+    /**
+     * 查询结果的存活时间
+     */
+    private Duration readTtl = Duration.ofSeconds(10);
+
+    /**
+     * 修改、取消结果的存活时间，在此期间相同的修改、取消不会再次执行
+     */
+    private Duration writeTtl = Duration.ofMinutes(2);
+
+    /**
+     * 查询结果和修改、取消结果各自的条目上限
+     */
+    private long maxEntries = 10000;
+}
@@ -1,27 +1,47 @@
 package com.hzx.ai.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.model.dto.BookingPage;
+import com.hzx.ai.model.request.BookingQuery;
 import com.hzx.ai.services.FlightBookingService;
+import com.hzx.ai.services.ReactiveFlightBookingService;
 import jakarta.annotation.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
+import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * 航班预订管理控制器
- * 
+ *
  * <p>提供航班预订相关的REST API接口，包括查询预订信息等功能。
  * 支持跨域访问，便于前端应用集成。</p>
- * 
+ *
  * <p>主要功能：</p>
  * <ul>
- *   <li>查询所有航班预订信息</li>
+ *   <li>查询所有航班预订信息（流式输出JSON数组）</li>
+ *   <li>游标分页查询</li>
+ *   <li>NDJSON流式导出</li>
+ *   <li>按状态、舱位、航线、日期范围过滤</li>
+ *   <li>按客户、航线、出发日期范围的索引查询</li>
  *   <li>支持跨域访问</li>
  * </ul>
- * 
+ *
  * @author xushu
  * @version 1.0.0
  * @since 2024-01-01
@@ -31,21 +51,165 @@ import java.util.List;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class BookingController {
 
+    /**
+     * NDJSON 媒体类型
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    /**
+     * 分页默认条数
+     */
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * 分页最大条数
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+
     @Resource
     private FlightBookingService flightBookingService;
 
+    @Resource
+    private ReactiveFlightBookingService reactiveBookingService;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
     /**
      * 获取所有航班预订信息
-     * 
-     * <p>返回系统中所有已确认的航班预订详情，包括预订号、客户姓名、
-     * 航班日期、出发地、目的地、预订状态和舱位等级等信息。</p>
-     * 
-     * @return List<BookingDetails> 预订详情列表
-     * 
-     * @apiNote 该接口返回所有预订信息，在生产环境中应考虑分页和权限控制
+     *
+     * <p>返回系统中满足条件的航班预订详情，包括预订号、客户姓名、
+     * 航班日期、出发地、目的地、预订状态和舱位等级等信息。
+     * 响应仍是JSON数组，但逐条序列化写出，堆内存占用与预订总数无关。</p>
+     *
+     * @param query 过滤条件（status、bookingClass、from、to、dateFrom、dateTo）
+     * @return ResponseEntity<StreamingResponseBody> 预订详情JSON数组
      */
     @GetMapping("/list")
-    public List<BookingDetails> getBookings() {
-        return flightBookingService.getBookings();
+    public ResponseEntity<StreamingResponseBody> getBookings(BookingQuery query) {
+        ObjectWriter writer = rowWriter();
+        StreamingResponseBody body = out -> {
+            try (Stream<BookingDetails> rows = flightBookingService.streamBookings(query, null);
+                 SequenceWriter sequence = writer.writeValuesAsArray(out)) {
+                Iterator<BookingDetails> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    sequence.write(iterator.next());
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * 游标分页查询航班预订
+     *
+     * <p>按预订号升序返回，首页不传 {@code cursor}，
+     * 之后将响应中的 {@code nextCursor} 作为下一次请求的 {@code cursor}。</p>
+     *
+     * @param query 过滤条件
+     * @param cursor 游标
+     * @param limit 每页条数，默认50，最大1000
+     * @return BookingPage 分页结果
+     */
+    @GetMapping("/page")
+    public BookingPage getBookingPage(
+            BookingQuery query,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit
+    ) {
+        return flightBookingService.getBookingPage(query, cursor, pageSize(limit));
+    }
+
+    /**
+     * 以NDJSON格式流式导出航班预订
+     *
+     * <p>每行一个预订详情JSON对象，适合大批量导出，可配合 {@code cursor} 从指定位置续传。
+     * 遍历由 {@link ReactiveFlightBookingService} 在有界弹性调度器上执行，不占用请求线程；
+     * 写出一条后才读取下一条，慢速客户端的背压一直传到仓储遍历，断开连接时遍历随之关闭。</p>
+     *
+     * @param query 过滤条件
+     * @param cursor 游标，仅导出位于其后的预订
+     * @return Flux<BookingDetails> 预订详情流
+     */
+    @GetMapping(value = "/stream", produces = APPLICATION_NDJSON_VALUE)
+    public Flux<BookingDetails> streamBookings(
+            BookingQuery query,
+            @RequestParam(value = "cursor", required = false) String cursor
+    ) {
+        return reactiveBookingService.streamBookings(query, cursor);
+    }
+
+    /**
+     * 查询客户的航班预订
+     *
+     * <p>按航班日期升序返回，走客户索引。</p>
+     *
+     * @param name 客户姓名
+     * @param limit 最多返回的条数，默认50，最大1000
+     * @return List<BookingDetails> 预订详情列表
+     */
+    @GetMapping("/customer")
+    public List<BookingDetails> getCustomerBookings(
+            @RequestParam("name") String name,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit
+    ) {
+        return flightBookingService.getCustomerBookings(name, pageSize(limit));
+    }
+
+    /**
+     * 查询航线上的航班预订
+     *
+     * <p>按航班日期升序返回，走航线索引，可限定航班日期范围。</p>
+     *
+     * @param from 出发地
+     * @param to 目的地
+     * @param dateFrom 航班日期下限（含），格式yyyy-MM-dd
+     * @param dateTo 航班日期上限（含），格式yyyy-MM-dd
+     * @param limit 最多返回的条数，默认50，最大1000
+     * @return List<BookingDetails> 预订详情列表
+     */
+    @GetMapping("/route")
+    public List<BookingDetails> getRouteBookings(
+            @RequestParam("from") String from,
+            @RequestParam("to") String to,
+            @RequestParam(value = "dateFrom", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+            @RequestParam(value = "dateTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit
+    ) {
+        return flightBookingService.getRouteBookings(from, to, dateFrom, dateTo, pageSize(limit));
+    }
+
+    /**
+     * 查询出发日期在指定范围内的航班预订
+     *
+     * <p>按航班日期升序返回，走日期索引，{@code dateFrom} 缺省为当天。</p>
+     *
+     * @param dateFrom 航班日期下限（含），格式yyyy-MM-dd
+     * @param dateTo 航班日期上限（含），格式yyyy-MM-dd
+     * @param limit 最多返回的条数，默认50，最大1000
+     * @return List<BookingDetails> 预订详情列表
+     */
+    @GetMapping("/departures")
+    public List<BookingDetails> getDepartures(
+            @RequestParam(value = "dateFrom", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+            @RequestParam(value = "dateTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit
+    ) {
+        LocalDate from = dateFrom != null ? dateFrom : LocalDate.now();
+        return flightBookingService.getDepartures(from, dateTo, pageSize(limit));
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * 逐条写出使用的序列化器，关闭每条记录后的强制刷新
+     */
+    private ObjectWriter rowWriter() {
+        return objectMapper.writerFor(BookingDetails.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 }
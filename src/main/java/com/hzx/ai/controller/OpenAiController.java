@@ -1,20 +1,42 @@
 package com.hzx.ai.controller;
 
+import com.hzx.ai.config.ChatMemoryProperties;
+import com.hzx.ai.config.PromptTemplateProperties;
+import com.hzx.ai.memory.ChatMemoryCompactor;
+import com.hzx.ai.memory.ConversationIds;
+import com.hzx.ai.prompt.PromptContext;
+import com.hzx.ai.prompt.SystemPromptTemplate;
+import com.hzx.ai.tool.BookingTools;
+import com.hzx.ai.tool.BudgetedRetrievalAdvisor;
+import com.hzx.ai.tool.ChatMetricsAdvisor;
+import com.hzx.ai.tool.ChatSummaryAdvisor;
 import com.hzx.ai.tool.LoggingAdvisor;
+import com.hzx.ai.tool.SemanticCacheAdvisor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.PromptChatMemoryAdvisor;
-import org.springframework.ai.chat.client.advisor.QuestionAnswerAdvisor;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
 import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.WebUtils;
 import reactor.core.publisher.Flux;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.CHAT_MEMORY_RETRIEVE_SIZE_KEY;
+import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY;
+import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.DEFAULT_CHAT_MEMORY_CONVERSATION_ID;
 
 /**
  * AI智能客服控制器
@@ -27,61 +49,104 @@ import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvis
  * <ul>
  *   <li>智能客服对话，支持中文交互</li>
  *   <li>流式响应，实时显示AI回复</li>
- *   <li>聊天记忆，保持对话上下文</li>
- *   <li>RAG检索，基于知识库回答问题</li>
- *   <li>函数调用，支持航班预订操作</li>
+ *   <li>聊天记忆，按服务端签发的会话ID隔离，保持对话上下文；较早的对话在后台压缩成摘要，预订号和客户姓名单独记录</li>
+ *   <li>RAG检索，按用户问题检索知识库，注入上下文受令牌预算限制</li>
+ *   <li>语义缓存，高频通用问题直接回放已有回答</li>
+ *   <li>函数调用，支持航班预订操作，同一会话中重复的函数调用合并执行</li>
+ *   <li>链路监控，各顾问阶段、模型调用、首token延迟和令牌数通过 Micrometer 暴露</li>
  * </ul>
  * 
+ * <p>系统提示词由启动时编译的 {@link SystemPromptTemplate} 按请求渲染，当天日期和回复语言每次请求注入，
+ * 客服规则作为固定前缀在各请求间保持不变，便于模型服务端复用前缀的KV缓存。</p>
+ * 
  * @author xushu
  * @version 1.0.0
  * @since 2024-01-01
  */
 @RestController
 @RequestMapping("/api/ai")
-@CrossOrigin(origins = "*", maxAge = 3600)
+@CrossOrigin(origins = "*", maxAge = 3600, exposedHeaders = OpenAiController.CONVERSATION_ID_HEADER)
 @Slf4j
 public class OpenAiController {
 
+    /**
+     * 会话ID请求头，响应中同样返回本次使用的会话ID
+     */
+    public static final String CONVERSATION_ID_HEADER = "X-Conversation-Id";
+
+    /**
+     * HTTP会话中保存本会话默认会话ID的属性名
+     */
+    private static final String SESSION_CONVERSATION_ID = OpenAiController.class.getName() + ".conversationId";
+
     private final ChatClient chatClient;
 
+    private final ConversationIds conversationIds;
+
+    private final SystemPromptTemplate systemPromptTemplate;
+
+    private final PromptTemplateProperties promptProperties;
+
+    /**
+     * 会话记忆压缩器，未启用摘要时为null
+     */
+    private final ChatMemoryCompactor memoryCompactor;
+
     /**
      * 构造函数，初始化AI聊天客户端
-     * <p>配置AI聊天机器人的系统提示词、顾问组件和函数调用能力。
-     * 支持聊天记忆、RAG检索和日志记录等功能。</p>
+     * <p>配置AI聊天机器人的顾问组件和函数调用能力，系统提示词按请求渲染。
+     * 支持聊天记忆、语义缓存、RAG检索和日志记录等功能。</p>
      * @param chatClientBuilder 聊天客户端构建器
-     * @param vectorStore       向量存储，用于RAG检索
+     * @param retrievalAdvisor  RAG检索顾问
      * @param chatMemory        聊天记忆管理器
+     * @param memoryProperties  会话记忆配置，提供每次注入提示词的历史消息条数
+     * @param semanticCache     语义缓存顾问，未启用时不存在
+     * @param chatMetrics       聊天链路监控顾问，同时统计其他顾问的自身耗时
+     * @param loggingAdvisor    日志记录顾问，按比例采样记录请求和响应摘要
+     * @param systemPromptTemplate 系统提示词模板
+     * @param promptProperties  提示词模板配置，提供回复语言
+     * @param memoryCompactor   会话记忆压缩器，未启用摘要时不存在
+     * @param summaryAdvisor    会话摘要顾问，未启用摘要时不存在
+     * @param conversationIds   会话ID的签发与校验
      */
     public OpenAiController(
             ChatClient.Builder chatClientBuilder,
-            VectorStore vectorStore,
-            ChatMemory chatMemory
+            BudgetedRetrievalAdvisor retrievalAdvisor,
+            ChatMemory chatMemory,
+            ChatMemoryProperties memoryProperties,
+            ObjectProvider<SemanticCacheAdvisor> semanticCache,
+            ChatMetricsAdvisor chatMetrics,
+            LoggingAdvisor loggingAdvisor,
+            SystemPromptTemplate systemPromptTemplate,
+            PromptTemplateProperties promptProperties,
+            ObjectProvider<ChatMemoryCompactor> memoryCompactor,
+            ObjectProvider<ChatSummaryAdvisor> summaryAdvisor,
+            ConversationIds conversationIds
     ) {
+        this.conversationIds = conversationIds;
+        this.systemPromptTemplate = systemPromptTemplate;
+        this.promptProperties = promptProperties;
+        this.memoryCompactor = memoryCompactor.getIfAvailable();
+        List<Advisor> advisors = new ArrayList<>();
+        // 会话摘要顾问，排在聊天记忆之前，注入较早对话的摘要并在请求结束后触发压缩
+        summaryAdvisor.ifAvailable(summary -> advisors.add(chatMetrics.timed(summary, "summary")));
+        // 聊天记忆顾问，只检索当前会话最近的若干条消息
+        advisors.add(chatMetrics.timed(new PromptChatMemoryAdvisor(chatMemory, DEFAULT_CHAT_MEMORY_CONVERSATION_ID,
+                memoryProperties.getRetrieveSize()), "memory"));
+        // 语义缓存顾问，排在聊天记忆之后、RAG检索之前
+        semanticCache.ifAvailable(cache -> advisors.add(chatMetrics.timed(cache, "cache")));
+        // RAG检索顾问，以本次问题检索
+        advisors.add(chatMetrics.timed(retrievalAdvisor, "retrieval"));
+        // 日志记录顾问
+        advisors.add(chatMetrics.timed(loggingAdvisor, "logging"));
+        // 链路监控顾问，紧挨模型调用，统计模型耗时、首token延迟和令牌数
+        advisors.add(chatMetrics);
+
         this.chatClient = chatClientBuilder
-                .defaultSystem("""
-                        您是"图灵航空"公司的客户聊天支持代理。请以友好、乐于助人且愉快的方式来回复。
-                        您正在通过在线聊天系统与客户互动。
-                        
-                        在提供有关预订或取消预订的信息之前，您必须始终从用户处获取以下信息：
-                        - 预订号
-                        - 客户姓名
-                        
-                        在询问用户之前，请检查消息历史记录以获取此信息。
-                        在更改或退订之前，请先获取预订信息并且告知条款，待用户回复确定之后才进行更改或退订的function-call。
-                        
-                        请讲中文。
-                        今天的日期是 %s。
-                        """.formatted(LocalDateTime.now()))
-                .defaultAdvisors(
-                        // 聊天记忆顾问
-                        new PromptChatMemoryAdvisor(chatMemory),
-                        // RAG检索顾问
-                        new QuestionAnswerAdvisor(vectorStore, SearchRequest.query("预定航班")),
-                        // 日志记录顾问
-                        new LoggingAdvisor()
-                )
+                .defaultAdvisors(advisors)
                 // 函数调用
-                .defaultFunctions("getBookingDetails", "changeBooking", "cancelBooking")
+                .defaultFunctions("getBookingDetails", "changeBooking", "cancelBooking",
+                        "getBookingDetailsBatch", "changeBookingBatch", "cancelBookingBatch")
                 .build();
         log.info("AI客服已创建！");
     }
@@ -90,19 +155,37 @@ public class OpenAiController {
      * 流式AI对话接口
      * <p>提供实时流式响应的AI对话功能，支持字符级别的流式输出。
      * 使用text/plain响应类型确保流式传输正常工作。</p>
+     * <p>聊天记忆按会话隔离，会话ID的取值见 {@link #resolveConversationId}。</p>
+     * <p>大模型的流式响应及其中触发的函数调用在有界弹性线程上处理，不占用HTTP客户端的事件循环线程，
+     * 见 {@link com.hzx.ai.config.ReactiveBookingConfiguration}；Spring MVC 每写出一段再向上游请求下一段，客户端读得慢时大模型响应不会在服务端堆积。</p>
      * @param message 用户输入的消息内容
+     * @param headerConversationId 请求头中的会话ID
+     * @param paramConversationId 请求参数中的会话ID
+     * @param request HTTP请求
+     * @param response HTTP响应
      * @return Flux<String> 流式响应内容
      * @apiNote 响应格式为text/plain，支持实时流式显示
      */
     @GetMapping(value = "/chat/stream", produces = "text/plain;charset=utf-8")
     public Flux<String> generateStreamAsString(
-            @RequestParam(value = "message", defaultValue = "你好，请介绍一下图灵航空") String message
+            @RequestParam(value = "message", defaultValue = "你好，请介绍一下图灵航空") String message,
+            @RequestHeader(value = CONVERSATION_ID_HEADER, required = false) String headerConversationId,
+            @RequestParam(value = "conversationId", required = false) String paramConversationId,
+            HttpServletRequest request,
+            HttpServletResponse response
     ) {
+        String conversationId = resolveConversationId(headerConversationId, paramConversationId, request, response);
+        String customerContext = customerContext(conversationId, message);
+        AtomicBoolean toolCalled = new AtomicBoolean();
 
         // 获取流式响应
         Flux<String> content = chatClient.prompt()
-                .system(s -> s.param("current_date", LocalDate.now().toString()))
-                .advisors(a -> a.param(CHAT_MEMORY_RETRIEVE_SIZE_KEY, 100))
+                .system(systemPrompt(request, customerContext))
+                .advisors(a -> a.param(CHAT_MEMORY_CONVERSATION_ID_KEY, conversationId)
+                        .param(SemanticCacheAdvisor.CUSTOMER_CONTEXT_KEY, customerContext != null)
+                        .param(BookingTools.TOOL_CALLED, toolCalled))
+                // 函数调用按会话去重；调用过函数的回答不写入语义缓存
+                .toolContext(Map.of(BookingTools.CONVERSATION_ID, conversationId, BookingTools.TOOL_CALLED, toolCalled))
                 .user(message)
                 .stream()
                 .content();
@@ -123,19 +206,132 @@ public class OpenAiController {
      * 适用于不需要实时显示的场景。</p>
      *
      * @param message 用户输入的消息内容
+     * @param headerConversationId 请求头中的会话ID
+     * @param paramConversationId 请求参数中的会话ID
+     * @param request HTTP请求
+     * @param response HTTP响应
      * @return String AI的完整回复内容
      *
      * @apiNote 该接口会等待AI完整回复后返回，响应时间可能较长
      */
     @GetMapping("/chat")
     public String chat(
-            @RequestParam(value = "message", defaultValue = "你好，请介绍一下图灵航空") String message
+            @RequestParam(value = "message", defaultValue = "你好，请介绍一下图灵航空") String message,
+            @RequestHeader(value = CONVERSATION_ID_HEADER, required = false) String headerConversationId,
+            @RequestParam(value = "conversationId", required = false) String paramConversationId,
+            HttpServletRequest request,
+            HttpServletResponse response
     ) {
+        String conversationId = resolveConversationId(headerConversationId, paramConversationId, request, response);
+        String customerContext = customerContext(conversationId, message);
+        AtomicBoolean toolCalled = new AtomicBoolean();
 
         return chatClient.prompt()
-                .system(s -> s.param("current_date", LocalDate.now().toString()))
+                .system(systemPrompt(request, customerContext))
+                .advisors(a -> a.param(CHAT_MEMORY_CONVERSATION_ID_KEY, conversationId)
+                        .param(SemanticCacheAdvisor.CUSTOMER_CONTEXT_KEY, customerContext != null)
+                        .param(BookingTools.TOOL_CALLED, toolCalled))
+                // 函数调用按会话去重；调用过函数的回答不写入语义缓存
+                .toolContext(Map.of(BookingTools.CONVERSATION_ID, conversationId, BookingTools.TOOL_CALLED, toolCalled))
                 .user(message)
                 .call()
                 .content();
     }
+
+    /**
+     * 签发新的会话ID
+     *
+     * <p>不经过HTTP会话的客户端（如脚本、压测）先调用本接口获取会话ID，
+     * 之后在聊天请求中通过请求头或请求参数携带。会话ID同时写入响应头和响应体。</p>
+     *
+     * @param response HTTP响应
+     * @return String 会话ID
+     */
+    @PostMapping(value = "/conversations", produces = "text/plain;charset=utf-8")
+    public String createConversation(HttpServletResponse response) {
+        String conversationId = conversationIds.issue();
+        response.setHeader(CONVERSATION_ID_HEADER, conversationId);
+        return conversationId;
+    }
+
+    /**
+     * 渲染本次请求的系统提示词
+     *
+     * <p>回复语言默认取配置值；开启按请求选择语言且请求携带 {@code Accept-Language} 时取请求的语言。
+     * 会话中已知的客户信息一并注入。</p>
+     *
+     * @param request HTTP请求
+     * @param customerContext 会话中已知的客户信息，没有时为null
+     * @return String 系统提示词
+     */
+    private String systemPrompt(HttpServletRequest request, String customerContext) {
+        Locale locale = promptProperties.isFollowRequestLocale() && request.getHeader("Accept-Language") != null
+                ? request.getLocale()
+                : promptProperties.getLocale();
+        return systemPromptTemplate.render(new PromptContext(LocalDate.now(), locale, customerContext));
+    }
+
+    /**
+     * 启用摘要时，先记录本次消息中的预订号、客户姓名，再返回会话中已知的客户信息
+     *
+     * @param conversationId 会话ID
+     * @param message 用户输入的消息内容
+     * @return String 客户信息，未启用摘要或没有已知信息时为null
+     */
+    private String customerContext(String conversationId, String message) {
+        return memoryCompactor == null ? null : memoryCompactor.customerContext(conversationId, message);
+    }
+
+    /**
+     * 解析本次请求的会话ID
+     *
+     * <p>会话ID只由服务端签发（见 {@link ConversationIds}），客户端不能自选。
+     * 优先使用请求头 {@value #CONVERSATION_ID_HEADER}，其次是请求参数 {@code conversationId}，
+     * 携带的会话ID必须是本服务签发的；都未提供时使用绑定在HTTP会话上的会话ID，首次请求时签发。
+     * 由于会话ID无法猜测或伪造，不同客户的聊天记忆互不可见。解析结果写回响应头，客户端可在后续请求中携带。</p>
+     *
+     * @param headerConversationId 请求头中的会话ID
+     * @param paramConversationId 请求参数中的会话ID
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @return String 会话ID
+     * @throws ResponseStatusException 会话ID不是本服务签发的，返回400
+     */
+    private String resolveConversationId(
+            String headerConversationId,
+            String paramConversationId,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) {
+        String conversationId;
+        if (StringUtils.hasText(headerConversationId)) {
+            conversationId = headerConversationId.trim();
+        } else if (StringUtils.hasText(paramConversationId)) {
+            conversationId = paramConversationId.trim();
+        } else {
+            conversationId = sessionConversationId(request.getSession(true));
+        }
+        if (!conversationIds.isValid(conversationId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "会话ID无效，请省略会话ID或通过 POST /api/ai/conversations 获取");
+        }
+        response.setHeader(CONVERSATION_ID_HEADER, conversationId);
+        return conversationId;
+    }
+
+    /**
+     * 获取绑定在HTTP会话上的会话ID，首次调用时签发
+     *
+     * @param session HTTP会话
+     * @return String 会话ID
+     */
+    private String sessionConversationId(HttpSession session) {
+        synchronized (WebUtils.getSessionMutex(session)) {
+            String conversationId = (String) session.getAttribute(SESSION_CONVERSATION_ID);
+            if (conversationId == null) {
+                conversationId = conversationIds.issue();
+                session.setAttribute(SESSION_CONVERSATION_ID, conversationId);
+            }
+            return conversationId;
+        }
+    }
 }
@@ -0,0 +1,238 @@
+package com.hzx.ai.memory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 有界、可淘汰的会话记忆
+ *
+ * <p>替代 Spring AI 的 {@code InMemoryChatMemory}（只增不减，进程生命周期内持续增长），
+ * 对会话记忆施加三层约束：</p>
+ * <ul>
+ *   <li>单个会话最多保留的消息条数，超出时丢弃最早的消息</li>
+ *   <li>全部会话的估算总字节数上限，超出时按 W-TinyLFU 策略淘汰整个会话</li>
+ *   <li>会话空闲超时，超过空闲时间未读写的会话自动过期</li>
+ * </ul>
+ *
+ * <p>每个会话的消息列表是不可变快照，追加时整体替换，读操作无需加锁。
+ * 通过 Micrometer 暴露命中率、淘汰次数和常驻字节数等指标。</p>
+ *
+ * <p>会话还可以保存较早消息的摘要和已知的客户信息（{@link ConversationFacts}），
+ * 与消息一起计入内存上限、一起淘汰和过期，由 {@link ChatMemoryCompactor} 维护。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class BoundedChatMemory implements ChatMemory {
+
+    /**
+     * 单条消息的固定开销估算（对象头、元数据、列表槽位等）
+     */
+    private static final int MESSAGE_OVERHEAD_BYTES = 96;
+
+    private final Cache<String, Conversation> conversations;
+
+    private final int maxMessagesPerConversation;
+
+    /**
+     * 构造函数
+     *
+     * @param maxMessagesPerConversation 单个会话最多保留的消息条数
+     * @param maxTotalBytes 全部会话的估算总字节数上限
+     * @param idleTtl 会话空闲超时
+     */
+    public BoundedChatMemory(int maxMessagesPerConversation, long maxTotalBytes, Duration idleTtl) {
+        this(maxMessagesPerConversation, maxTotalBytes, idleTtl, Ticker.systemTicker());
+    }
+
+    /**
+     * 构造函数，可指定时钟，便于测试空闲超时
+     */
+    BoundedChatMemory(int maxMessagesPerConversation, long maxTotalBytes, Duration idleTtl, Ticker ticker) {
+        if (maxMessagesPerConversation <= 0) {
+            throw new IllegalArgumentException("单个会话的消息上限必须大于0");
+        }
+        this.maxMessagesPerConversation = maxMessagesPerConversation;
+        this.conversations = Caffeine.newBuilder()
+                .maximumWeight(maxTotalBytes)
+                .weigher((String id, Conversation c) -> (int) Math.min(Integer.MAX_VALUE, c.bytes()))
+                .expireAfterAccess(idleTtl)
+                .ticker(ticker)
+                // 淘汰维护在调用线程上完成，避免占用公共线程池
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        conversations.asMap().compute(conversationId, (id, current) -> {
+            List<Message> merged = new ArrayList<>(
+                    (current == null ? 0 : current.messages().size()) + messages.size());
+            if (current != null) {
+                merged.addAll(current.messages());
+            }
+            merged.addAll(messages);
+            int from = Math.max(0, merged.size() - maxMessagesPerConversation);
+            return current == null
+                    ? Conversation.of(merged.subList(from, merged.size()), null, ConversationFacts.EMPTY)
+                    : Conversation.of(merged.subList(from, merged.size()), current.summary(), current.facts());
+        });
+    }
+
+    @Override
+    public List<Message> get(String conversationId, int lastN) {
+        Conversation conversation = conversations.getIfPresent(conversationId);
+        if (conversation == null || lastN <= 0) {
+            return List.of();
+        }
+        List<Message> messages = conversation.messages();
+        return messages.subList(Math.max(0, messages.size() - lastN), messages.size());
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        conversations.invalidate(conversationId);
+    }
+
+    /**
+     * 较早消息的摘要
+     *
+     * @param conversationId 会话ID
+     * @return String 摘要，没有时为null
+     */
+    public String summary(String conversationId) {
+        Conversation conversation = conversations.getIfPresent(conversationId);
+        return conversation == null ? null : conversation.summary();
+    }
+
+    /**
+     * 会话中已知的客户信息
+     *
+     * @param conversationId 会话ID
+     * @return ConversationFacts 客户信息，没有时为 {@link ConversationFacts#EMPTY}
+     */
+    public ConversationFacts facts(String conversationId) {
+        Conversation conversation = conversations.getIfPresent(conversationId);
+        return conversation == null ? ConversationFacts.EMPTY : conversation.facts();
+    }
+
+    /**
+     * 合并新提取的客户信息，会话不存在时创建
+     *
+     * @param conversationId 会话ID
+     * @param facts 新提取的客户信息
+     * @return ConversationFacts 合并后的客户信息
+     */
+    public ConversationFacts recordFacts(String conversationId, ConversationFacts facts) {
+        if (facts.isEmpty()) {
+            return facts(conversationId);
+        }
+        return conversations.asMap().compute(conversationId, (id, current) -> current == null
+                ? Conversation.of(List.of(), null, facts)
+                : Conversation.of(current.messages(), current.summary(), current.facts().merge(facts))
+        ).facts();
+    }
+
+    /**
+     * 用摘要替换已压缩的消息
+     *
+     * <p>删除从最早的消息直到 {@code lastFolded}（含）的消息，并保存新的摘要。压缩期间追加的消息不受影响；
+     * {@code lastFolded} 已因条数上限被丢弃时不删除消息，只更新摘要。会话已被淘汰时不做任何操作。</p>
+     *
+     * @param conversationId 会话ID
+     * @param lastFolded 已压缩进摘要的最后一条消息
+     * @param summary 新的摘要
+     * @return boolean 会话存在时为true
+     */
+    public boolean compact(String conversationId, Message lastFolded, String summary) {
+        return conversations.asMap().computeIfPresent(conversationId, (id, current) -> {
+            List<Message> messages = current.messages();
+            int folded = 0;
+            for (int i = 0; i < messages.size(); i++) {
+                if (messages.get(i) == lastFolded) {
+                    folded = i + 1;
+                    break;
+                }
+            }
+            return Conversation.of(messages.subList(folded, messages.size()), summary, current.facts());
+        }) != null;
+    }
+
+    /**
+     * 当前常驻的会话数量（估算值）
+     *
+     * @return long 会话数量
+     */
+    public long conversationCount() {
+        return conversations.estimatedSize();
+    }
+
+    /**
+     * 当前常驻的估算字节数
+     *
+     * @return long 字节数
+     */
+    public long residentBytes() {
+        return conversations.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    /**
+     * 注册监控指标：chat.memory 缓存统计（命中、未命中、淘汰）、命中率和常驻字节数
+     *
+     * @param registry 指标注册表
+     */
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, conversations, "chat.memory");
+        Gauge.builder("chat.memory.hit.ratio", conversations, c -> c.stats().hitRate())
+                .description("会话记忆读取命中率")
+                .register(registry);
+        Gauge.builder("chat.memory.resident.bytes", this, BoundedChatMemory::residentBytes)
+                .description("会话记忆常驻估算字节数")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * 执行挂起的淘汰等维护工作
+     */
+    void cleanUp() {
+        conversations.cleanUp();
+    }
+
+    /**
+     * 单个会话的不可变快照
+     *
+     * @param messages 消息列表
+     * @param summary 较早消息的摘要
+     * @param facts 已知的客户信息
+     * @param bytes 估算字节数
+     */
+    private record Conversation(List<Message> messages, String summary, ConversationFacts facts, long bytes) {
+
+        static Conversation of(List<Message> messages, String summary, ConversationFacts facts) {
+            long bytes = summary == null ? 0 : MESSAGE_OVERHEAD_BYTES + 2L * summary.length();
+            for (Message message : messages) {
+                String content = message.getContent();
+                bytes += MESSAGE_OVERHEAD_BYTES + (content == null ? 0 : 2L * content.length());
+            }
+            return new Conversation(List.copyOf(messages), summary, facts, bytes);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.hzx.ai.memory;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 会话记忆压缩器
+ *
+ * <p>会话中最近的 {@code keepMessages} 条消息原样保留；未压缩的消息再多出 {@code compactMessages} 条时，
+ * 在后台线程上调用大模型，把多出的较早消息与已有摘要合并成新的摘要，随后从会话记忆中删除这些消息。
+ * 注入提示词的历史因此由“摘要 + 最近若干轮原文”组成，长度不再随对话轮数增长。
+ * 压缩不在请求路径上执行，同一会话同时最多一个压缩任务；任务排队已满或失败时保留原消息，下一轮对话再试。</p>
+ *
+ * <p>摘要长度受令牌预算限制：提示大模型控制长度，超出预算时再按令牌数截断。</p>
+ *
+ * <p>预订号和客户姓名在每条用户消息到达时提取，作为 {@link ConversationFacts} 单独保存，不参与摘要，
+ * 较早的消息被压缩后客服仍然知道这些信息。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class ChatMemoryCompactor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMemoryCompactor.class);
+
+    private static final String INSTRUCTIONS = """
+            你负责压缩航空客服对话的历史记录。请把“已有摘要”和“新增对话”合并成一份新的摘要：
+            - 保留客户的诉求、查询到的预订信息、已执行或待客户确认的操作及其结果
+            - 省略寒暄和重复的内容
+            - 以第三人称叙述，不超过%d个汉字
+            只输出摘要本身，不要添加任何说明。
+            """;
+
+    private final BoundedChatMemory chatMemory;
+
+    private final ChatModel chatModel;
+
+    private final Executor executor;
+
+    private final int keepMessages;
+
+    private final int compactMessages;
+
+    private final int maxSummaryTokens;
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    /**
+     * 正在压缩的会话
+     */
+    private final Set<String> compacting = ConcurrentHashMap.newKeySet();
+
+    private Timer successTimer;
+
+    private Timer errorTimer;
+
+    private DistributionSummary summaryTokens;
+
+    /**
+     * 构造函数
+     *
+     * @param chatMemory 会话记忆
+     * @param chatModel 生成摘要的大模型
+     * @param executor 执行压缩的线程池，为 {@link ExecutorService} 时随压缩器关闭
+     * @param keepMessages 原样保留的最近消息条数
+     * @param compactMessages 未压缩的消息超出保留条数多少条时触发压缩
+     * @param maxSummaryTokens 摘要的令牌预算
+     * @param tokenCountEstimator 令牌计数
+     */
+    public ChatMemoryCompactor(
+            BoundedChatMemory chatMemory,
+            ChatModel chatModel,
+            Executor executor,
+            int keepMessages,
+            int compactMessages,
+            int maxSummaryTokens,
+            TokenCountEstimator tokenCountEstimator
+    ) {
+        if (keepMessages < 0 || compactMessages <= 0 || maxSummaryTokens <= 0) {
+            throw new IllegalArgumentException("保留条数不能小于0，触发压缩的条数和摘要令牌预算必须大于0");
+        }
+        this.chatMemory = chatMemory;
+        this.chatModel = chatModel;
+        this.executor = executor;
+        this.keepMessages = keepMessages;
+        this.compactMessages = compactMessages;
+        this.maxSummaryTokens = maxSummaryTokens;
+        this.tokenCountEstimator = tokenCountEstimator;
+    }
+
+    /**
+     * 记录用户消息中的客户信息，返回注入系统提示词的文本
+     *
+     * @param conversationId 会话ID
+     * @param userText 本次用户消息
+     * @return String 已知客户信息的说明，没有时为null
+     */
+    public String customerContext(String conversationId, String userText) {
+        return chatMemory.recordFacts(conversationId, ConversationFacts.extract(userText)).toPromptText();
+    }
+
+    /**
+     * 较早消息的摘要
+     *
+     * @param conversationId 会话ID
+     * @return String 摘要，没有时为null
+     */
+    public String summary(String conversationId) {
+        return chatMemory.summary(conversationId);
+    }
+
+    /**
+     * 未压缩的消息足够多时，提交后台压缩任务
+     *
+     * @param conversationId 会话ID
+     */
+    public void compactIfNeeded(String conversationId) {
+        if (chatMemory.get(conversationId, Integer.MAX_VALUE).size() < keepMessages + compactMessages
+                || !compacting.add(conversationId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    compact(conversationId);
+                } finally {
+                    compacting.remove(conversationId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            compacting.remove(conversationId);
+            logger.debug("压缩任务排队已满，会话={}，下一轮对话再试", conversationId);
+        }
+    }
+
+    /**
+     * 压缩会话，在调用线程上执行
+     *
+     * @param conversationId 会话ID
+     * @return boolean 生成了新的摘要时为true
+     */
+    boolean compact(String conversationId) {
+        List<Message> messages = chatMemory.get(conversationId, Integer.MAX_VALUE);
+        int fold = messages.size() - keepMessages;
+        if (fold < compactMessages) {
+            return false;
+        }
+        List<Message> folded = messages.subList(0, fold);
+        long start = System.nanoTime();
+        try {
+            String summary = fit(summarize(chatMemory.summary(conversationId), folded));
+            chatMemory.compact(conversationId, folded.get(folded.size() - 1), summary);
+            record(successTimer, start);
+            if (summaryTokens != null) {
+                summaryTokens.record(tokenCountEstimator.estimate(summary));
+            }
+            logger.debug("会话记忆已压缩：会话={}，压缩{}条消息，摘要{}个字符", conversationId, fold, summary.length());
+            return true;
+        } catch (RuntimeException e) {
+            record(errorTimer, start);
+            logger.warn("会话记忆压缩失败：会话={}，{}", conversationId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 注册监控指标：chat.memory.compaction（压缩耗时，按 outcome 区分）、chat.memory.summary.tokens（摘要令牌数）
+     *
+     * @param registry 指标注册表
+     */
+    public void bindTo(MeterRegistry registry) {
+        successTimer = compactionTimer(registry, "success");
+        errorTimer = compactionTimer(registry, "error");
+        summaryTokens = DistributionSummary.builder("chat.memory.summary.tokens")
+                .description("会话摘要令牌数")
+                .register(registry);
+    }
+
+    /**
+     * 关闭线程池，排队中的压缩任务不再执行
+     */
+    @Override
+    public void close() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    private String summarize(String previous, List<Message> folded) {
+        StringBuilder dialogue = new StringBuilder("已有摘要：\n")
+                .append(previous == null ? "（无）" : previous)
+                .append("\n\n新增对话：\n");
+        for (Message message : folded) {
+            String role = message.getMessageType() == MessageType.USER ? "客户" : "客服";
+            dialogue.append(role).append("：").append(message.getContent()).append('\n');
+        }
+        Prompt prompt = new Prompt(List.of(
+                new SystemMessage(INSTRUCTIONS.formatted(maxSummaryTokens)),
+                new UserMessage(dialogue.toString())));
+        ChatResponse response = chatModel.call(prompt);
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null
+                || response.getResult().getOutput().getContent() == null) {
+            throw new IllegalStateException("大模型没有返回摘要");
+        }
+        return response.getResult().getOutput().getContent().strip();
+    }
+
+    /**
+     * 超出令牌预算时按比例截断，直到不超过预算
+     */
+    private String fit(String summary) {
+        int tokens = tokenCountEstimator.estimate(summary);
+        while (tokens > maxSummaryTokens && !summary.isEmpty()) {
+            int length = (int) ((long) summary.length() * maxSummaryTokens / tokens);
+            summary = summary.substring(0, Math.min(length, summary.length() - 1));
+            tokens = tokenCountEstimator.estimate(summary);
+        }
+        return summary;
+    }
+
+    private static Timer compactionTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("chat.memory.compaction")
+                .description("会话记忆压缩耗时")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static void record(Timer timer, long start) {
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.hzx.ai.memory;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 会话中已知的客户信息
+ *
+ * <p>从用户消息中提取预订号和客户姓名，作为结构化信息随会话保存，不随历史消息压缩成摘要而丢失，
+ * 每次请求注入系统提示词，客服无需再次询问。</p>
+ *
+ * <p>提取规则偏保守：姓名只接受紧跟“姓名”、“名字”、“我叫”之后、以标点或非汉字结束的2至4个汉字，
+ * 宁可漏提取，也不把“我叫徐庶想改签”中的“徐庶想改”当成姓名。</p>
+ *
+ * @param bookingNumber 预订号，未知时为null
+ * @param name 客户姓名，未知时为null
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public record ConversationFacts(String bookingNumber, String name) {
+
+    /**
+     * 没有任何已知信息
+     */
+    public static final ConversationFacts EMPTY = new ConversationFacts(null, null);
+
+    private static final Pattern BOOKING_NUMBER = Pattern.compile(
+            "(?:预订号|订单号|预订编号)\\s*(?:是|为|:|：)?\\s*([A-Za-z0-9][A-Za-z0-9-]{0,19})");
+
+    private static final Pattern NAME = Pattern.compile(
+            "(?:姓名|名字|我叫)\\s*(?:是|为|:|：)?\\s*([\\p{IsHan}·]{2,4})(?![\\p{IsHan}])");
+
+    /**
+     * 从一条用户消息中提取客户信息
+     *
+     * @param text 用户消息
+     * @return ConversationFacts 提取到的信息，没有时为 {@link #EMPTY}
+     */
+    public static ConversationFacts extract(String text) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY;
+        }
+        String bookingNumber = group(BOOKING_NUMBER.matcher(text));
+        String name = group(NAME.matcher(text));
+        return bookingNumber == null && name == null ? EMPTY : new ConversationFacts(bookingNumber, name);
+    }
+
+    /**
+     * 合并较新的信息，较新的非空值覆盖原值
+     *
+     * @param newer 较新的信息
+     * @return ConversationFacts 合并结果
+     */
+    public ConversationFacts merge(ConversationFacts newer) {
+        if (newer.isEmpty()) {
+            return this;
+        }
+        return new ConversationFacts(
+                newer.bookingNumber != null ? newer.bookingNumber : bookingNumber,
+                newer.name != null ? newer.name : name);
+    }
+
+    /**
+     * 是否没有任何已知信息
+     *
+     * @return boolean 预订号和姓名均未知时为true
+     */
+    public boolean isEmpty() {
+        return bookingNumber == null && name == null;
+    }
+
+    /**
+     * 注入系统提示词的文本
+     *
+     * @return String 已知信息的说明，没有时为null
+     */
+    public String toPromptText() {
+        if (isEmpty()) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder("客户在本次对话中已提供：");
+        if (bookingNumber != null) {
+            text.append("预订号 ").append(bookingNumber);
+        }
+        if (name != null) {
+            text.append(bookingNumber != null ? "，" : "").append("客户姓名 ").append(name);
+        }
+        return text.append("。无需再次询问，除非客户表示要查询其他预订。").toString();
+    }
+
+    private static String group(Matcher matcher) {
+        String value = null;
+        // 同一条消息中出现多次时取最后一次
+        while (matcher.find()) {
+            value = matcher.group(1);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,107 @@
+package com.hzx.ai.memory;
+
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 会话ID的签发与校验
+ *
+ * <p>会话ID只由服务端签发，格式为 {@code <随机部分>.<签名>}：随机部分为16字节安全随机数，
+ * 签名为随机部分的 HMAC-SHA256（截取前16字节），均使用不带填充的 Base64URL 编码。
+ * 客户端无法自行构造有效的会话ID，也无法通过猜测读取其他客户的聊天记忆。</p>
+ *
+ * <p>签名密钥在启动时随机生成，不落盘；聊天记忆本身只保存在内存中，重启后旧会话ID失效不影响功能。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Component
+public class ConversationIds {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final int RANDOM_BYTES = 16;
+
+    private static final int SIGNATURE_BYTES = 16;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final SecretKeySpec key;
+
+    /**
+     * 构造函数，使用随机生成的签名密钥
+     */
+    public ConversationIds() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param secret 签名密钥
+     */
+    public ConversationIds(byte[] secret) {
+        this.key = new SecretKeySpec(secret.clone(), ALGORITHM);
+    }
+
+    /**
+     * 签发一个新的会话ID
+     *
+     * @return String 会话ID
+     */
+    public String issue() {
+        byte[] nonce = new byte[RANDOM_BYTES];
+        random.nextBytes(nonce);
+        String body = ENCODER.encodeToString(nonce);
+        return body + '.' + ENCODER.encodeToString(sign(body));
+    }
+
+    /**
+     * 校验会话ID是否由本服务签发
+     *
+     * @param conversationId 会话ID
+     * @return boolean 格式正确且签名有效时返回true
+     */
+    public boolean isValid(String conversationId) {
+        if (conversationId == null || conversationId.length() > 64) {
+            return false;
+        }
+        int dot = conversationId.indexOf('.');
+        if (dot <= 0 || dot != conversationId.lastIndexOf('.')) {
+            return false;
+        }
+        byte[] signature;
+        try {
+            signature = DECODER.decode(conversationId.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // 常量时间比较，避免通过响应时间逐字节猜出签名
+        return MessageDigest.isEqual(sign(conversationId.substring(0, dot)), signature);
+    }
+
+    private byte[] sign(String body) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return Arrays.copyOf(mac.doFinal(body.getBytes(StandardCharsets.US_ASCII)), SIGNATURE_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("会话ID签名失败", e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.hzx.ai.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 批量操作中单个预订的处理结果
+ *
+ * <p>成功时 {@code details} 为操作后的预订详情；失败时 {@code error} 为失败原因。</p>
+ *
+ * @author zexiao.huang
+ * @since 2026/10/16 14:25
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookingBatchItem(
+
+        // 预订号
+        String bookingNumber,
+
+        // 客户姓名
+        String name,
+
+        // 是否成功
+        boolean success,
+
+        // 操作后的预订详情
+        BookingDetails details,
+
+        // 失败原因
+        String error
+) {
+
+    /**
+     * 成功结果
+     */
+    public static BookingBatchItem succeeded(BookingDetails details) {
+        return new BookingBatchItem(details.bookingNumber(), details.name(), true, details, null);
+    }
+
+    /**
+     * 失败结果
+     */
+    public static BookingBatchItem failed(String bookingNumber, String name, String error) {
+        return new BookingBatchItem(bookingNumber, name, false, null, error);
+    }
+}
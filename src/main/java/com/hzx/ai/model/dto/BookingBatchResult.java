@@ -0,0 +1,40 @@
+package com.hzx.ai.model.dto;
+
+import java.util.List;
+
+/**
+ * 批量操作的处理结果
+ *
+ * <p>各项按请求顺序排列，部分失败不影响其他项。</p>
+ *
+ * @author zexiao.huang
+ * @since 2026/10/16 14:25
+ */
+public record BookingBatchResult(
+
+        // 成功项数
+        int succeeded,
+
+        // 失败项数
+        int failed,
+
+        // 每项的处理结果
+        List<BookingBatchItem> items
+) {
+
+    /**
+     * 根据每项结果汇总
+     *
+     * @param items 每项的处理结果
+     * @return BookingBatchResult 批量处理结果
+     */
+    public static BookingBatchResult of(List<BookingBatchItem> items) {
+        int succeeded = 0;
+        for (BookingBatchItem item : items) {
+            if (item.success()) {
+                succeeded++;
+            }
+        }
+        return new BookingBatchResult(succeeded, items.size() - succeeded, items);
+    }
+}
@@ -0,0 +1,25 @@
+package com.hzx.ai.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * 预订列表分页响应数据
+ *
+ * <p>采用键集（游标）分页：将 {@code nextCursor} 原样作为下一次请求的 {@code cursor} 参数，
+ * 为空表示已经没有更多数据。</p>
+ *
+ * @author zexiao.huang
+ * @since 2026/10/16 10:15
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookingPage(
+
+        // 当前页预订详情
+        List<BookingDetails> items,
+
+        // 下一页游标
+        String nextCursor
+) {
+}
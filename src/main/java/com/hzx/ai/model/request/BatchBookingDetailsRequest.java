@@ -0,0 +1,17 @@
+package com.hzx.ai.model.request;
+
+import java.util.List;
+
+/**
+ * 批量查询预订详情的请求参数
+ *
+ * @author zexiao.huang
+ * @since 2026/10/16 14:20
+ */
+public record BatchBookingDetailsRequest(
+
+        // 待查询的预订，每项包含预订号和客户姓名
+        List<BookingDetailsRequest> bookings
+
+) {
+}
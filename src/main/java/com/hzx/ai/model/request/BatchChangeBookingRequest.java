@@ -0,0 +1,17 @@
+package com.hzx.ai.model.request;
+
+import java.util.List;
+
+/**
+ * 批量修改预订信息的请求参数
+ *
+ * @author zexiao.huang
+ * @since 2026/10/16 14:20
+ */
+public record BatchChangeBookingRequest(
+
+        // 待修改的预订，每项包含预订号、客户姓名、新日期、出发地和目的地
+        List<ChangeBookingDatesRequest> changes
+
+) {
+}
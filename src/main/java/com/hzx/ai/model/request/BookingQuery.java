@@ -0,0 +1,68 @@
+package com.hzx.ai.model.request;
+
+import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.model.enums.BookingCategoryEnum;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * 预订列表查询条件，所有条件均可为空，为空表示不过滤
+ *
+ * @author zexiao.huang
+ * @since 2026/10/16 10:12
+ */
+public record BookingQuery(
+
+        // 预订状态
+        BookingStatusEnum status,
+
+        // 舱位等级
+        BookingCategoryEnum bookingClass,
+
+        // 出发地
+        String from,
+
+        // 目的地
+        String to,
+
+        // 航班日期下限（含）
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        LocalDate dateFrom,
+
+        // 航班日期上限（含）
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        LocalDate dateTo
+) {
+
+    /**
+     * 不带任何过滤条件的查询
+     */
+    public static final BookingQuery ALL = new BookingQuery(null, null, null, null, null, null);
+
+    /**
+     * 判断预订详情是否满足查询条件
+     *
+     * @param details 预订详情
+     * @return boolean 是否满足
+     */
+    public boolean matches(BookingDetails details) {
+        if (status != null && status != details.bookingStatus()) {
+            return false;
+        }
+        if (bookingClass != null && !bookingClass.name().equals(details.bookingClass())) {
+            return false;
+        }
+        if (from != null && !from.equalsIgnoreCase(details.from())) {
+            return false;
+        }
+        if (to != null && !to.equalsIgnoreCase(details.to())) {
+            return false;
+        }
+        if (dateFrom != null && details.date().isBefore(dateFrom)) {
+            return false;
+        }
+        return dateTo == null || !details.date().isAfter(dateTo);
+    }
+}
@@ -0,0 +1,157 @@
+package com.hzx.ai.prompt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 预编译的提示词模板
+ *
+ * <p>模板中的 {@code {name}} 为变量，名称由字母、数字和下划线组成且不以数字开头。
+ * 模板在加载时解析一次，拆成交替排列的固定文本和变量，渲染时只按顺序拼接，
+ * 不再解析模板，耗时与输出长度成正比。</p>
+ *
+ * <p>第一个变量之前的文本即为 {@link #staticPrefix() 固定前缀}，每次渲染的输出都以完全相同的前缀开头，
+ * 模型服务端可以复用这段前缀的预填充结果（KV缓存）。因此随请求变化的变量应尽量放在模板末尾。</p>
+ *
+ * <p>渲染结果还会作为 Spring AI 的提示词模板再渲染一次（聊天记忆等顾问会追加模板参数），
+ * 其中的花括号会被当作占位符，因此模板的固定文本中不允许出现变量以外的花括号，
+ * 变量的值在渲染时去掉花括号。</p>
+ *
+ * <p>编译后不可变，可在多线程间共享。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public final class CompiledPromptTemplate {
+
+    /**
+     * 固定文本，比变量多一个：literals[i] 之后是 variables[i]
+     */
+    private final String[] literals;
+
+    private final String[] variables;
+
+    /**
+     * 固定文本的总长度，用于预估输出长度
+     */
+    private final int literalLength;
+
+    private CompiledPromptTemplate(String[] literals, String[] variables) {
+        this.literals = literals;
+        this.variables = variables;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param text 模板文本
+     * @return CompiledPromptTemplate 编译后的模板
+     * @throws IllegalArgumentException 花括号不成对或变量名无效时抛出异常
+     */
+    public static CompiledPromptTemplate compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '}') {
+                throw new IllegalArgumentException(String.format("提示词模板第 %d 个字符处的 } 没有对应的 {", i + 1));
+            }
+            if (c != '{') {
+                continue;
+            }
+            int end = text.indexOf('}', i + 1);
+            if (end < 0) {
+                throw new IllegalArgumentException(String.format("提示词模板第 %d 个字符处的 { 没有对应的 }", i + 1));
+            }
+            String name = text.substring(i + 1, end);
+            if (!isVariableName(name)) {
+                throw new IllegalArgumentException(String.format("提示词模板第 %d 个字符处的变量名无效：{%s}", i + 1, name));
+            }
+            literals.add(text.substring(start, i));
+            variables.add(name);
+            start = end + 1;
+            i = end;
+        }
+        literals.add(text.substring(start));
+        return new CompiledPromptTemplate(literals.toArray(String[]::new), variables.toArray(String[]::new));
+    }
+
+    /**
+     * 渲染模板
+     *
+     * @param values 变量值，值为null时按空字符串处理
+     * @return String 渲染结果
+     * @throws IllegalArgumentException 缺少变量时抛出异常
+     */
+    public String render(Map<String, String> values) {
+        StringBuilder text = new StringBuilder(literalLength + 64 * variables.length);
+        for (int i = 0; i < variables.length; i++) {
+            text.append(literals[i]);
+            if (!values.containsKey(variables[i])) {
+                throw new IllegalArgumentException("提示词模板缺少变量：" + variables[i]);
+            }
+            appendValue(text, values.get(variables[i]));
+        }
+        return text.append(literals[variables.length]).toString();
+    }
+
+    /**
+     * 第一个变量之前的固定文本，每次渲染都完全相同
+     *
+     * @return String 固定前缀，模板没有变量时为整个模板
+     */
+    public String staticPrefix() {
+        return literals[0];
+    }
+
+    /**
+     * 模板中的变量，按首次出现的顺序排列
+     *
+     * @return Set<String> 变量名
+     */
+    public Set<String> variables() {
+        return new LinkedHashSet<>(List.of(variables));
+    }
+
+    /**
+     * 追加变量值，去掉其中的花括号
+     */
+    private static void appendValue(StringBuilder text, String value) {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf('{') < 0 && value.indexOf('}') < 0) {
+            text.append(value);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '{' && c != '}') {
+                text.append(c);
+            }
+        }
+    }
+
+    private static boolean isVariableName(String name) {
+        if (name.isEmpty() || Character.isDigit(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(c == '_' || (c < 0x80 && Character.isLetterOrDigit(c)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,17 @@
+package com.hzx.ai.prompt;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * 渲染系统提示词时随请求变化的信息
+ *
+ * @param date 当前日期
+ * @param locale 回复使用的语言
+ * @param customerContext 已知的客户信息（如预订号、姓名），没有时为null
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public record PromptContext(LocalDate date, Locale locale, String customerContext) {
+}
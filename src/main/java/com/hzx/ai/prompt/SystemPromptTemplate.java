@@ -0,0 +1,98 @@
+package com.hzx.ai.prompt;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 客服系统提示词模板
+ *
+ * <p>在 {@link CompiledPromptTemplate} 之上按 {@link PromptContext} 填充以下变量：</p>
+ * <ul>
+ *   <li>{@value #CURRENT_DATE}：当前日期和星期，如“2024-01-01（星期一）”</li>
+ *   <li>{@value #LANGUAGE}：回复使用的语言，如“中文”、“英语”</li>
+ *   <li>{@value #CUSTOMER_CONTEXT}：已知的客户信息，没有时为空</li>
+ * </ul>
+ * <p>这些变量放在模板末尾，前面的客服规则作为固定前缀，不同请求、不同日期之间保持逐字节相同。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public final class SystemPromptTemplate {
+
+    public static final String CURRENT_DATE = "current_date";
+
+    public static final String LANGUAGE = "language";
+
+    public static final String CUSTOMER_CONTEXT = "customer_context";
+
+    private static final Set<String> VARIABLES = Set.of(CURRENT_DATE, LANGUAGE, CUSTOMER_CONTEXT);
+
+    private final CompiledPromptTemplate template;
+
+    /**
+     * 构造函数
+     *
+     * @param template 编译后的模板
+     * @throws IllegalArgumentException 模板包含不支持的变量时抛出异常
+     */
+    public SystemPromptTemplate(CompiledPromptTemplate template) {
+        Set<String> unknown = new HashSet<>(template.variables());
+        unknown.removeAll(VARIABLES);
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("系统提示词模板包含不支持的变量：" + unknown + "，可用变量为：" + VARIABLES);
+        }
+        this.template = template;
+    }
+
+    /**
+     * 加载并编译模板
+     *
+     * @param reader 模板内容
+     * @return SystemPromptTemplate 系统提示词模板
+     * @throws IOException 读取失败时抛出异常
+     */
+    public static SystemPromptTemplate load(Reader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[4096];
+        int read;
+        while ((read = reader.read(buffer)) >= 0) {
+            text.append(buffer, 0, read);
+        }
+        return new SystemPromptTemplate(CompiledPromptTemplate.compile(text.toString()));
+    }
+
+    /**
+     * 渲染系统提示词
+     *
+     * @param context 本次请求的日期、语言和客户信息
+     * @return String 系统提示词
+     */
+    public String render(PromptContext context) {
+        Map<String, String> values = new HashMap<>(4);
+        values.put(CURRENT_DATE, date(context.date()));
+        values.put(LANGUAGE, context.locale().getDisplayLanguage(Locale.SIMPLIFIED_CHINESE));
+        values.put(CUSTOMER_CONTEXT, context.customerContext());
+        return template.render(values);
+    }
+
+    /**
+     * 每次渲染都相同的固定前缀
+     *
+     * @return String 固定前缀
+     */
+    public String staticPrefix() {
+        return template.staticPrefix();
+    }
+
+    private static String date(LocalDate date) {
+        return date + "（" + date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.SIMPLIFIED_CHINESE) + "）";
+    }
+}
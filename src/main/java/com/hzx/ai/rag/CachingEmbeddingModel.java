@@ -0,0 +1,61 @@
+package com.hzx.ai.rag;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * 带本地缓存的嵌入模型
+ *
+ * <p>包装真实的嵌入模型：文档嵌入先按内容哈希查 {@link PersistentEmbeddingCache}，
+ * 未命中才调用模型并写回缓存。用户查询等非文档嵌入直接透传，不落盘。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    private final PersistentEmbeddingCache cache;
+
+    private final String modelName;
+
+    /**
+     * 构造函数
+     *
+     * @param delegate 真实的嵌入模型
+     * @param cache 嵌入向量缓存
+     * @param modelName 嵌入模型名称，参与缓存键计算
+     */
+    public CachingEmbeddingModel(EmbeddingModel delegate, PersistentEmbeddingCache cache, String modelName) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.modelName = modelName;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        // 与模型实际嵌入的文本保持一致（含参与嵌入的元数据）
+        String key = PersistentEmbeddingCache.key(modelName, document.getFormattedContent(MetadataMode.EMBED));
+        float[] vector = cache.get(key);
+        if (vector == null) {
+            vector = delegate.embed(document);
+            cache.put(key, vector);
+        }
+        return vector;
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
@@ -0,0 +1,577 @@
+package com.hzx.ai.rag;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于 HNSW（分层可导航小世界图）的近似最近邻索引
+ *
+ * <p>向量在插入时归一化，相似度即余弦相似度（点积）。所有向量连续存放在一个
+ * {@code float[]} 中，第0层邻接表连续存放在一个 {@code int[]} 中，上层邻接表按节点存放，
+ * 不为每个向量或邻居创建对象。</p>
+ *
+ * <p>调优参数：</p>
+ * <ul>
+ *   <li>{@code m}：每个节点在上层的最大邻居数，第0层为 2m；越大召回越高、内存越多</li>
+ *   <li>{@code efConstruction}：插入时的候选集大小；越大图质量越好、插入越慢</li>
+ *   <li>{@code ef}：查询时的候选集大小；越大召回越高、查询越慢</li>
+ * </ul>
+ *
+ * <p>支持增量插入和逻辑删除：插入持有写锁，查询持有读锁，可并发执行；
+ * 已删除的节点仍参与图导航，但不会出现在结果中。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public final class HnswIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int MAX_LEVEL = 16;
+
+    private final int dimensions;
+
+    private final int m;
+
+    private final int maxM0;
+
+    private final int efConstruction;
+
+    private final double levelMultiplier;
+
+    private final SplittableRandom random;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    /**
+     * 全部向量，节点 i 占 [i * dimensions, (i + 1) * dimensions)
+     */
+    private float[] vectors;
+
+    /**
+     * 节点所在的最高层
+     */
+    private int[] levels;
+
+    /**
+     * 第0层邻接表，节点 i 占 (maxM0 + 1) 个槽位：邻居数 + 邻居
+     */
+    private int[] layer0;
+
+    /**
+     * 上层邻接表，节点 i 的第 l 层（l ≥ 1）占 (m + 1) 个槽位，起始于 (l - 1) * (m + 1)
+     */
+    private int[][] upperLayers;
+
+    private final BitSet deleted = new BitSet();
+
+    private int count;
+
+    private int deletedCount;
+
+    private int entryPoint = -1;
+
+    private int maxLevel = -1;
+
+    /**
+     * 构造函数
+     *
+     * @param dimensions 向量维度
+     * @param m 每个节点在上层的最大邻居数
+     * @param efConstruction 插入时的候选集大小
+     * @param seed 层级随机数种子
+     */
+    public HnswIndex(int dimensions, int m, int efConstruction, long seed) {
+        if (dimensions <= 0 || m < 2 || efConstruction < 1) {
+            throw new IllegalArgumentException("HNSW参数不合法：dimensions=" + dimensions
+                    + ", m=" + m + ", efConstruction=" + efConstruction);
+        }
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new SplittableRandom(seed);
+        this.vectors = new float[INITIAL_CAPACITY * dimensions];
+        this.levels = new int[INITIAL_CAPACITY];
+        this.layer0 = new int[INITIAL_CAPACITY * (maxM0 + 1)];
+        this.upperLayers = new int[INITIAL_CAPACITY][];
+    }
+
+    /**
+     * 插入向量
+     *
+     * @param vector 向量，长度必须等于索引维度
+     * @return int 节点编号
+     */
+    public int add(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("向量维度不一致：期望 " + dimensions + "，实际 " + vector.length);
+        }
+        float[] query = normalize(vector);
+
+        lock.writeLock().lock();
+        try {
+            int node = count;
+            ensureCapacity(node + 1);
+            System.arraycopy(query, 0, vectors, node * dimensions, dimensions);
+            int level = randomLevel();
+            levels[node] = level;
+            if (level > 0) {
+                upperLayers[node] = new int[level * (m + 1)];
+            }
+            count++;
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return node;
+            }
+
+            // 1. 在高于新节点层级的各层贪心下降
+            int ep = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                ep = greedyClosest(query, ep, l);
+            }
+
+            // 2. 在新节点所在的各层搜索候选并双向连接
+            Visited marks = visited.get();
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                ScoreHeap results = searchLayer(query, ep, efConstruction, l, marks);
+                int size = results.size();
+                int[] candidates = new int[size];
+                float[] scores = new float[size];
+                // 最小堆依次弹出的是最差的结果，倒序放置得到降序
+                for (int i = size - 1; i >= 0; i--) {
+                    scores[i] = results.peekScore();
+                    candidates[i] = results.pop();
+                }
+                int[] selected = selectNeighbors(candidates, scores, size, m);
+                setNeighbors(node, l, selected, selected.length);
+                int maxConnections = l == 0 ? maxM0 : m;
+                for (int neighbor : selected) {
+                    connect(neighbor, node, l, maxConnections);
+                }
+                ep = candidates[0];
+            }
+
+            if (level > maxLevel) {
+                entryPoint = node;
+                maxLevel = level;
+            }
+            return node;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 逻辑删除节点
+     *
+     * @param node 节点编号
+     */
+    public void remove(int node) {
+        lock.writeLock().lock();
+        try {
+            if (node >= 0 && node < count && !deleted.get(node)) {
+                deleted.set(node);
+                deletedCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询最相似的k个节点
+     *
+     * @param vector 查询向量
+     * @param k 返回数量
+     * @param ef 查询时的候选集大小，小于k时按k处理
+     * @return Result 按相似度降序排列的节点和相似度
+     */
+    public Result search(float[] vector, int k, int ef) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("向量维度不一致：期望 " + dimensions + "，实际 " + vector.length);
+        }
+        float[] query = normalize(vector);
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return new Result(new int[0], new float[0]);
+            }
+            int ep = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                ep = greedyClosest(query, ep, l);
+            }
+            ScoreHeap results = searchLayer(query, ep, Math.max(ef, k), 0, visited.get());
+
+            int size = results.size();
+            int[] nodes = new int[size];
+            float[] scores = new float[size];
+            for (int i = size - 1; i >= 0; i--) {
+                scores[i] = results.peekScore();
+                nodes[i] = results.pop();
+            }
+            int[] topNodes = new int[Math.min(k, size)];
+            float[] topScores = new float[topNodes.length];
+            int found = 0;
+            for (int i = 0; i < size && found < topNodes.length; i++) {
+                if (!deleted.get(nodes[i])) {
+                    topNodes[found] = nodes[i];
+                    topScores[found] = scores[i];
+                    found++;
+                }
+            }
+            return new Result(Arrays.copyOf(topNodes, found), Arrays.copyOf(topScores, found));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 未删除的节点数量
+     *
+     * @return int 节点数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 向量维度
+     *
+     * @return int 维度
+     */
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * 在指定层上搜索，返回最多ef个最相似节点的最小堆（堆顶为其中最差的）
+     */
+    private ScoreHeap searchLayer(float[] query, int entry, int ef, int level, Visited marks) {
+        marks.reset(count);
+        ScoreHeap candidates = new ScoreHeap(ef + 1);
+        ScoreHeap results = new ScoreHeap(ef + 1);
+
+        float entryScore = dot(query, entry);
+        marks.visit(entry);
+        // 候选集需要最相似者优先，以相反数存入最小堆
+        candidates.push(entry, -entryScore);
+        results.push(entry, entryScore);
+
+        while (candidates.size() > 0) {
+            float candidateScore = -candidates.peekScore();
+            int candidate = candidates.pop();
+            if (results.size() >= ef && candidateScore < results.peekScore()) {
+                break;
+            }
+            int[] adjacency = adjacency(candidate, level);
+            int offset = offset(candidate, level);
+            int degree = adjacency[offset];
+            for (int i = 1; i <= degree; i++) {
+                int neighbor = adjacency[offset + i];
+                if (!marks.visit(neighbor)) {
+                    continue;
+                }
+                float score = dot(query, neighbor);
+                if (results.size() < ef || score > results.peekScore()) {
+                    candidates.push(neighbor, -score);
+                    results.push(neighbor, score);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private int greedyClosest(float[] query, int entry, int level) {
+        int current = entry;
+        float best = dot(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] adjacency = adjacency(current, level);
+            int offset = offset(current, level);
+            int degree = adjacency[offset];
+            for (int i = 1; i <= degree; i++) {
+                int neighbor = adjacency[offset + i];
+                float score = dot(query, neighbor);
+                if (score > best) {
+                    best = score;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 启发式邻居选择：候选按相似度降序，若候选与已选邻居的相似度高于与目标的相似度则跳过，
+     * 使邻居分布在不同方向上；不足limit个时用被跳过的候选补齐
+     */
+    private int[] selectNeighbors(int[] candidates, float[] scores, int size, int limit) {
+        if (size <= limit) {
+            return Arrays.copyOf(candidates, size);
+        }
+        int[] selected = new int[limit];
+        int[] skipped = new int[size];
+        int selectedCount = 0;
+        int skippedCount = 0;
+        for (int i = 0; i < size && selectedCount < limit; i++) {
+            int candidate = candidates[i];
+            boolean diverse = true;
+            for (int j = 0; j < selectedCount; j++) {
+                if (dot(candidate, selected[j]) > scores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[selectedCount++] = candidate;
+            } else {
+                skipped[skippedCount++] = candidate;
+            }
+        }
+        for (int i = 0; i < skippedCount && selectedCount < limit; i++) {
+            selected[selectedCount++] = skipped[i];
+        }
+        return selectedCount == limit ? selected : Arrays.copyOf(selected, selectedCount);
+    }
+
+    /**
+     * 把node加入neighbor在第level层的邻接表，超出上限时重新选择邻居
+     */
+    private void connect(int neighbor, int node, int level, int maxConnections) {
+        int[] adjacency = adjacency(neighbor, level);
+        int offset = offset(neighbor, level);
+        int degree = adjacency[offset];
+        if (degree < maxConnections) {
+            adjacency[offset + 1 + degree] = node;
+            adjacency[offset] = degree + 1;
+            return;
+        }
+
+        int size = degree + 1;
+        int[] candidates = new int[size];
+        float[] scores = new float[size];
+        for (int i = 0; i < degree; i++) {
+            candidates[i] = adjacency[offset + 1 + i];
+        }
+        candidates[degree] = node;
+        for (int i = 0; i < size; i++) {
+            scores[i] = dot(neighbor, candidates[i]);
+        }
+        sortDescending(candidates, scores, size);
+        int[] selected = selectNeighbors(candidates, scores, size, maxConnections);
+        setNeighbors(neighbor, level, selected, selected.length);
+    }
+
+    private void setNeighbors(int node, int level, int[] neighbors, int size) {
+        int[] adjacency = adjacency(node, level);
+        int offset = offset(node, level);
+        adjacency[offset] = size;
+        System.arraycopy(neighbors, 0, adjacency, offset + 1, size);
+    }
+
+    private int[] adjacency(int node, int level) {
+        return level == 0 ? layer0 : upperLayers[node];
+    }
+
+    private int offset(int node, int level) {
+        return level == 0 ? node * (maxM0 + 1) : (level - 1) * (m + 1);
+    }
+
+    private float dot(float[] query, int node) {
+        float[] v = vectors;
+        int base = node * dimensions;
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += query[i] * v[base + i];
+        }
+        return sum;
+    }
+
+    private float dot(int a, int b) {
+        float[] v = vectors;
+        int baseA = a * dimensions;
+        int baseB = b * dimensions;
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += v[baseA + i] * v[baseB + i];
+        }
+        return sum;
+    }
+
+    private int randomLevel() {
+        double r = random.nextDouble();
+        return Math.min(MAX_LEVEL, (int) (-Math.log(1 - r) * levelMultiplier));
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= levels.length) {
+            return;
+        }
+        int capacity = Math.max(required, levels.length * 2);
+        vectors = Arrays.copyOf(vectors, capacity * dimensions);
+        levels = Arrays.copyOf(levels, capacity);
+        layer0 = Arrays.copyOf(layer0, capacity * (maxM0 + 1));
+        upperLayers = Arrays.copyOf(upperLayers, capacity);
+    }
+
+    private float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float x : vector) {
+            norm += x * x;
+        }
+        float[] normalized = vector.clone();
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < normalized.length; i++) {
+                normalized[i] *= scale;
+            }
+        }
+        return normalized;
+    }
+
+    private static void sortDescending(int[] nodes, float[] scores, int size) {
+        // 邻居数很小，插入排序即可
+        for (int i = 1; i < size; i++) {
+            int node = nodes[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                nodes[j + 1] = nodes[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * 查询结果
+     *
+     * @param nodes 节点编号，按相似度降序
+     * @param scores 对应的余弦相似度
+     */
+    public record Result(int[] nodes, float[] scores) {
+    }
+
+    /**
+     * 按分数排序的最小堆，节点和分数分别存放在基本类型数组中
+     */
+    private static final class ScoreHeap {
+
+        private int[] nodes;
+
+        private float[] scores;
+
+        private int size;
+
+        ScoreHeap(int capacity) {
+            nodes = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        float peekScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && scores[child + 1] < scores[child]) {
+                    child++;
+                }
+                if (lastScore <= scores[child]) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+            return top;
+        }
+    }
+
+    /**
+     * 每个线程复用的访问标记，以轮次号代替每次清零
+     */
+    private static final class Visited {
+
+        private int[] marks = new int[0];
+
+        private int epoch;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                epoch = 0;
+            }
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * 标记为已访问
+         *
+         * @return boolean 此前未访问过返回true
+         */
+        boolean visit(int node) {
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.hzx.ai.rag;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 HNSW 近似最近邻索引的向量存储
+ *
+ * <p>替代 {@code SimpleVectorStore} 对全部文档逐一计算余弦相似度的暴力检索，
+ * 查询耗时随文档数近似对数增长。向量保存在 {@link HnswIndex} 的基本类型数组中，
+ * 文档对象本身不再持有向量。支持增量写入；以相同ID重复写入时旧向量被逻辑删除。</p>
+ *
+ * <p>与 {@code SimpleVectorStore} 一致，不支持元数据过滤表达式，
+ * 返回的文档在元数据 {@code distance} 中给出 1 - 余弦相似度。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class HnswVectorStore implements VectorStore {
+
+    private final EmbeddingModel embeddingModel;
+
+    private final int m;
+
+    private final int efConstruction;
+
+    private final int efSearch;
+
+    /**
+     * 索引在第一次写入时按向量维度创建
+     */
+    private volatile HnswIndex index;
+
+    private final Map<String, Integer> nodesById = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Document> documentsByNode = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param embeddingModel 嵌入模型
+     * @param m 每个节点在上层的最大邻居数
+     * @param efConstruction 插入时的候选集大小
+     * @param efSearch 查询时的候选集大小
+     */
+    public HnswVectorStore(EmbeddingModel embeddingModel, int m, int efConstruction, int efSearch) {
+        this.embeddingModel = embeddingModel;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        for (Document document : documents) {
+            // 嵌入计算在锁外进行，只有写索引需要串行
+            float[] vector = embeddingModel.embed(document);
+            synchronized (this) {
+                int node = index(vector.length).add(vector);
+                documentsByNode.put(node, document);
+                Integer previous = nodesById.put(document.getId(), node);
+                if (previous != null) {
+                    index.remove(previous);
+                    documentsByNode.remove(previous);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized Optional<Boolean> delete(List<String> idList) {
+        boolean allRemoved = true;
+        for (String id : idList) {
+            Integer node = nodesById.remove(id);
+            if (node == null) {
+                allRemoved = false;
+                continue;
+            }
+            index.remove(node);
+            documentsByNode.remove(node);
+        }
+        return Optional.of(allRemoved);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (request.getFilterExpression() != null) {
+            throw new UnsupportedOperationException("HnswVectorStore 不支持元数据过滤");
+        }
+        HnswIndex current = index;
+        if (current == null) {
+            return List.of();
+        }
+
+        float[] query = embeddingModel.embed(request.getQuery());
+        HnswIndex.Result result = current.search(query, request.getTopK(), efSearch);
+
+        List<Document> documents = new ArrayList<>(result.nodes().length);
+        for (int i = 0; i < result.nodes().length; i++) {
+            float similarity = result.scores()[i];
+            if (similarity < request.getSimilarityThreshold()) {
+                // 结果按相似度降序，后面的只会更低
+                break;
+            }
+            Document document = documentsByNode.get(result.nodes()[i]);
+            if (document == null) {
+                continue;
+            }
+            Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+            metadata.put("distance", 1 - similarity);
+            documents.add(new Document(document.getId(), document.getContent(), metadata));
+        }
+        return documents;
+    }
+
+    /**
+     * 当前文档数量
+     *
+     * @return int 文档数量
+     */
+    public int size() {
+        return nodesById.size();
+    }
+
+    private HnswIndex index(int dimensions) {
+        if (index == null) {
+            index = new HnswIndex(dimensions, m, efConstruction, 42);
+        }
+        return index;
+    }
+}
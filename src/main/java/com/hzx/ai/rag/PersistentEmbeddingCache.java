@@ -0,0 +1,404 @@
+package com.hzx.ai.rag;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * 按内容哈希索引的本地嵌入向量缓存
+ *
+ * <p>文档分块的向量以 SHA-256(嵌入模型名 + 分块文本) 为键追加写入单个文件。
+ * 启动时内存映射整个文件并建立 键 → 偏移量 索引，命中的向量直接从映射区读取，
+ * 只有新增或内容变化的分块才需要调用嵌入模型。</p>
+ *
+ * <p>文件格式：8字节魔数之后是连续的记录：</p>
+ * <pre>
+ * | 32字节哈希 | int 维度 | int CRC32C | 维度 × float |
+ * </pre>
+ * <p>校验和覆盖哈希和向量。加载时遇到残缺或损坏的记录即停止并截断，
+ * 崩溃时写了一半的记录不会影响之后的追加。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Slf4j
+public class PersistentEmbeddingCache implements AutoCloseable {
+
+    static final String MAGIC = "FBEMB001";
+
+    private static final int MAGIC_BYTES = 8;
+
+    private static final int HASH_BYTES = 32;
+
+    private static final int ENTRY_HEADER_BYTES = HASH_BYTES + 2 * Integer.BYTES;
+
+    /**
+     * 向量维度上限，超过即视为损坏
+     */
+    private static final int MAX_DIMENSIONS = 1 << 16;
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path file;
+
+    /**
+     * 启动时从文件加载的记录：键 → 映射区中的位置
+     */
+    private volatile Map<String, MappedEntry> mappedIndex = Map.of();
+
+    private volatile MappedByteBuffer mapped;
+
+    /**
+     * 本次运行新写入的向量
+     */
+    private final Map<String, float[]> appended = new ConcurrentHashMap<>();
+
+    /**
+     * 本次运行读写过的键，用于清理不再使用的向量
+     */
+    private final Set<String> accessed = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private FileChannel channel;
+
+    private PersistentEmbeddingCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * 打开（不存在时创建）缓存文件
+     *
+     * @param file 缓存文件
+     * @return PersistentEmbeddingCache 缓存实例
+     */
+    public static PersistentEmbeddingCache open(Path file) {
+        PersistentEmbeddingCache cache = new PersistentEmbeddingCache(file);
+        try {
+            cache.load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开嵌入向量缓存失败：" + file, e);
+        }
+        return cache;
+    }
+
+    /**
+     * 计算缓存键
+     *
+     * @param model 嵌入模型名称，换模型后向量不可复用
+     * @param content 待嵌入的文本
+     * @return String 十六进制的 SHA-256 摘要
+     */
+    public static String key(String model, String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(content.getBytes(StandardCharsets.UTF_8));
+            return HEX.formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前JVM不支持SHA-256", e);
+        }
+    }
+
+    /**
+     * 查询缓存的向量
+     *
+     * @param key 缓存键
+     * @return float[] 向量副本；未命中时返回null
+     */
+    public float[] get(String key) {
+        float[] vector = appended.get(key);
+        if (vector != null) {
+            // 与映射文件的读取一致返回副本，调用方原地归一化等修改不会污染缓存
+            vector = vector.clone();
+        } else {
+            vector = readMapped(key);
+        }
+        if (vector == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        accessed.add(key);
+        return vector;
+    }
+
+    /**
+     * 写入向量并刷盘
+     *
+     * @param key 缓存键
+     * @param vector 向量
+     */
+    public synchronized void put(String key, float[] vector) {
+        if (vector.length == 0 || vector.length > MAX_DIMENSIONS) {
+            throw new IllegalArgumentException("向量维度不合法：" + vector.length);
+        }
+        try {
+            ByteBuffer entry = encode(HEX.parseHex(key), vector);
+            while (entry.hasRemaining()) {
+                channel.write(entry);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            // 缓存写失败不影响本次启动，只是下次需要重新计算
+            log.warn("⚠️ 写入嵌入向量缓存失败：{}", e.getMessage());
+        }
+        appended.put(key, vector.clone());
+        accessed.add(key);
+    }
+
+    /**
+     * 重写缓存文件，只保留本次运行读写过的向量
+     *
+     * <p>文档内容变化后旧分块的向量不会再被使用，在导入完成后调用可避免文件无限增长。
+     * 新文件替换成功并重新加载后才关闭原文件通道；任一步失败都删除临时文件并继续使用原通道，之后的写入不受影响。</p>
+     *
+     * @return int 清理的向量数量
+     */
+    public synchronized int retainAccessed() {
+        int stale = size() - accessed.size();
+        if (stale <= 0) {
+            return 0;
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        FileChannel previous = channel;
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                out.write(ByteBuffer.wrap(magicBytes()));
+                for (String key : accessed) {
+                    float[] vector = appended.containsKey(key) ? appended.get(key) : readMapped(key);
+                    ByteBuffer entry = encode(HEX.parseHex(key), vector);
+                    while (entry.hasRemaining()) {
+                        out.write(entry);
+                    }
+                }
+                out.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            load();
+        } catch (IOException e) {
+            log.warn("⚠️ 压缩嵌入向量缓存失败：{}", e.getMessage());
+            deleteQuietly(tmp);
+            return 0;
+        }
+        try {
+            previous.close();
+        } catch (IOException e) {
+            log.warn("⚠️ 关闭压缩前的嵌入向量缓存文件失败：{}", e.getMessage());
+        }
+        log.info("✅ 嵌入向量缓存已压缩，清理 {} 个不再使用的向量", stale);
+        return stale;
+    }
+
+    /**
+     * 缓存的向量数量
+     *
+     * @return int 向量数量
+     */
+    public int size() {
+        int size = mappedIndex.size();
+        for (String key : appended.keySet()) {
+            if (!mappedIndex.containsKey(key)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 累计命中次数
+     *
+     * @return long 命中次数
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * 累计未命中次数
+     *
+     * @return long 未命中次数
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * 注册监控指标：命中次数、未命中次数和缓存的向量数量
+     *
+     * @param registry 指标注册表
+     */
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("rag.embedding.cache.hits", this, PersistentEmbeddingCache::hits)
+                .description("嵌入向量缓存命中次数")
+                .register(registry);
+        FunctionCounter.builder("rag.embedding.cache.misses", this, PersistentEmbeddingCache::misses)
+                .description("嵌入向量缓存未命中次数")
+                .register(registry);
+        Gauge.builder("rag.embedding.cache.entries", this, PersistentEmbeddingCache::size)
+                .description("嵌入向量缓存的向量数量")
+                .register(registry);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("⚠️ 关闭嵌入向量缓存失败", e);
+        }
+    }
+
+    /**
+     * 映射并索引缓存文件，截断尾部残缺记录，之后的写入追加在有效记录之后
+     *
+     * <p>加载成功后才替换当前的文件通道和索引，失败时关闭新打开的通道，原有状态保持不变。</p>
+     */
+    private synchronized void load() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            load(channel);
+        } catch (IOException | RuntimeException e) {
+            try {
+                channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    private void load(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("嵌入向量缓存文件过大：" + size);
+        }
+
+        Map<String, MappedEntry> index = new HashMap<>();
+        long end = 0;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (size >= MAGIC_BYTES && Arrays.equals(readMagic(buffer), magicBytes())) {
+            end = MAGIC_BYTES;
+            byte[] hash = new byte[HASH_BYTES];
+            while (buffer.remaining() >= ENTRY_HEADER_BYTES) {
+                int start = buffer.position();
+                buffer.get(hash);
+                int dimensions = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (dimensions <= 0 || dimensions > MAX_DIMENSIONS || buffer.remaining() < dimensions * Float.BYTES) {
+                    break;
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(hash);
+                crc.update(buffer.slice(buffer.position(), dimensions * Float.BYTES));
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                buffer.position(buffer.position() + dimensions * Float.BYTES);
+                index.put(HEX.formatHex(hash), new MappedEntry(start + ENTRY_HEADER_BYTES, dimensions));
+                end = buffer.position();
+            }
+        }
+
+        if (end == 0) {
+            if (size > 0) {
+                log.warn("⚠️ 嵌入向量缓存文件 {} 头部无效，重新创建", file);
+            }
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(magicBytes()), 0);
+            end = MAGIC_BYTES;
+        } else if (end < size) {
+            log.warn("⚠️ 嵌入向量缓存文件 {} 尾部存在残缺记录，截断到 {} 字节", file, end);
+            channel.truncate(end);
+        }
+        channel.position(end);
+
+        this.channel = channel;
+        mapped = buffer;
+        mappedIndex = index;
+        appended.clear();
+        log.info("✅ 嵌入向量缓存已加载：{}，共 {} 个向量", file, index.size());
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("⚠️ 删除临时文件 {} 失败：{}", path, e.getMessage());
+        }
+    }
+
+    private static byte[] magicBytes() {
+        return MAGIC.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] readMagic(ByteBuffer buffer) {
+        byte[] magic = new byte[MAGIC_BYTES];
+        buffer.get(magic);
+        return magic;
+    }
+
+    private float[] readMapped(String key) {
+        MappedEntry entry = mappedIndex.get(key);
+        if (entry == null) {
+            return null;
+        }
+        float[] vector = new float[entry.dimensions()];
+        mapped.slice(entry.offset(), entry.dimensions() * Float.BYTES).asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    private static ByteBuffer encode(byte[] hash, float[] vector) {
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_HEADER_BYTES + vector.length * Float.BYTES);
+        entry.put(hash);
+        entry.putInt(vector.length);
+        entry.putInt(0);
+        entry.asFloatBuffer().put(vector);
+        CRC32C crc = new CRC32C();
+        crc.update(entry.array(), 0, HASH_BYTES);
+        crc.update(entry.array(), ENTRY_HEADER_BYTES, vector.length * Float.BYTES);
+        entry.putInt(HASH_BYTES + Integer.BYTES, (int) crc.getValue());
+        entry.position(0);
+        return entry;
+    }
+
+    /**
+     * 映射区中的一条向量
+     *
+     * @param offset 向量数据的起始偏移量
+     * @param dimensions 维度
+     */
+    private record MappedEntry(int offset, int dimensions) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.hzx.ai.repository;
+
+import com.hzx.ai.model.Booking;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 航班预订仓储接口
+ *
+ * <p>屏蔽底层存储结构，为业务服务提供按预订号的快速访问能力。
+ * 预订号在仓储内部统一做大小写归一化，保持与原先
+ * {@code equalsIgnoreCase} 查询一致的语义。</p>
+ *
+ * <p>按客户、航线、日期的查询提供全表扫描的默认实现，实现类可以用二级索引覆盖。
+ * 这些查询返回的是候选预订：调用方应在对应分段锁内读取并再次校验条件，
+ * 以排除查询期间被并发修改的预订。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public interface BookingRepository {
+
+    /**
+     * 保存航班预订，预订号相同（忽略大小写）时覆盖原记录
+     *
+     * @param booking 航班预订
+     */
+    void save(Booking booking);
+
+    /**
+     * 批量保存航班预订
+     *
+     * @param bookings 航班预订集合
+     */
+    default void saveAll(Collection<Booking> bookings) {
+        bookings.forEach(this::save);
+    }
+
+    /**
+     * 修改航班预订
+     *
+     * <p>所有对已保存预订的修改都必须经由此方法，以便仓储实现维护索引等派生数据。
+     * 调用方负责在 {@link StripedBookingLocks} 对应分段锁内调用。</p>
+     *
+     * @param booking 已保存的航班预订
+     * @param mutation 修改操作
+     */
+    default void update(Booking booking, Consumer<Booking> mutation) {
+        mutation.accept(booking);
+    }
+
+    /**
+     * 按预订号查找航班预订（忽略大小写）
+     *
+     * @param bookingNumber 预订号
+     * @return Optional<Booking> 航班预订
+     */
+    Optional<Booking> findByBookingNumber(String bookingNumber);
+
+    /**
+     * 按预订号和客户姓名查找航班预订（均忽略大小写）
+     *
+     * @param bookingNumber 预订号
+     * @param name 客户姓名
+     * @return Optional<Booking> 航班预订
+     */
+    default Optional<Booking> findByBookingNumberAndName(String bookingNumber, String name) {
+        return findByBookingNumber(bookingNumber)
+                .filter(b -> b.getCustomer().getName().equalsIgnoreCase(name));
+    }
+
+    /**
+     * 获取全部航班预订，按归一化预订号升序返回
+     *
+     * @return Collection<Booking> 航班预订集合
+     */
+    Collection<Booking> findAll();
+
+    /**
+     * 键集分页遍历：按归一化预订号升序，返回严格位于游标之后的预订
+     *
+     * <p>返回的流是惰性的，不会一次性物化全部数据。</p>
+     *
+     * @param afterBookingNumber 游标预订号，为null时从头开始
+     * @return Stream<Booking> 航班预订流
+     */
+    Stream<Booking> scanAfter(String afterBookingNumber);
+
+    /**
+     * 按客户姓名查找航班预订（忽略大小写），按航班日期、预订号升序返回
+     *
+     * @param name 客户姓名
+     * @return Stream<Booking> 航班预订流
+     */
+    default Stream<Booking> findByCustomerName(String name) {
+        String key = normalize(name);
+        return scanAfter(null)
+                .filter(b -> b.getCustomer() != null && normalize(b.getCustomer().getName()).equals(key))
+                .sorted(BY_DATE);
+    }
+
+    /**
+     * 按航线查找航班预订（出发地、目的地均忽略大小写），按航班日期、预订号升序返回
+     *
+     * @param from 出发地
+     * @param to 目的地
+     * @param dateFrom 航班日期下限（含），为null时不限
+     * @param dateTo 航班日期上限（含），为null时不限
+     * @return Stream<Booking> 航班预订流
+     */
+    default Stream<Booking> findByRoute(String from, String to, LocalDate dateFrom, LocalDate dateTo) {
+        String fromKey = normalize(from);
+        String toKey = normalize(to);
+        return scanAfter(null)
+                .filter(b -> fromKey.equals(normalize(b.getFrom())) && toKey.equals(normalize(b.getTo())))
+                .filter(b -> isWithin(b.getDate(), dateFrom, dateTo))
+                .sorted(BY_DATE);
+    }
+
+    /**
+     * 按航班日期范围查找航班预订，按航班日期、预订号升序返回
+     *
+     * @param dateFrom 航班日期下限（含），为null时不限
+     * @param dateTo 航班日期上限（含），为null时不限
+     * @return Stream<Booking> 航班预订流
+     */
+    default Stream<Booking> findByDateBetween(LocalDate dateFrom, LocalDate dateTo) {
+        return scanAfter(null)
+                .filter(b -> isWithin(b.getDate(), dateFrom, dateTo))
+                .sorted(BY_DATE);
+    }
+
+    /**
+     * 获取航班预订总数
+     *
+     * @return long 预订数量
+     */
+    long count();
+
+    /**
+     * 归一化预订号，作为索引键使用
+     *
+     * @param bookingNumber 预订号
+     * @return String 归一化后的预订号，入参为null时返回null
+     */
+    static String normalize(String bookingNumber) {
+        return bookingNumber == null ? null : bookingNumber.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * 按航班日期、归一化预订号排序
+     */
+    Comparator<Booking> BY_DATE = Comparator
+            .comparing(Booking::getDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(b -> normalize(b.getBookingNumber()));
+
+    /**
+     * 判断日期是否在闭区间内，区间端点为null表示不限
+     *
+     * @param date 日期
+     * @param dateFrom 下限（含）
+     * @param dateTo 上限（含）
+     * @return boolean 是否在区间内
+     */
+    static boolean isWithin(LocalDate date, LocalDate dateFrom, LocalDate dateTo) {
+        if (date == null) {
+            return dateFrom == null && dateTo == null;
+        }
+        return (dateFrom == null || !date.isBefore(dateFrom)) && (dateTo == null || !date.isAfter(dateTo));
+    }
+}
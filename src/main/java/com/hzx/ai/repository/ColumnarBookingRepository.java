@@ -0,0 +1,641 @@
+package com.hzx.ai.repository;
+
+import com.hzx.ai.model.Booking;
+import com.hzx.ai.model.Customer;
+import com.hzx.ai.model.enums.BookingCategoryEnum;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+/**
+ * 列式内存航班预订仓储
+ *
+ * <p>不为每个预订保存对象，而是每个字段一列原始类型数组，行号即数组下标：</p>
+ * <ul>
+ *   <li>预订号：归一化后的字符连续存放在一个 {@code char[]} 中，按行记录结束偏移；
+ *       原始写法与归一化结果不同时另存一份</li>
+ *   <li>航班日期：epoch day，{@code int}</li>
+ *   <li>出发地、目的地：{@link StringDictionary} 字典编码，{@code short}</li>
+ *   <li>预订状态、舱位等级：各占半个字节，合并为一个 {@code byte}</li>
+ *   <li>客户：客户姓名字典编码，{@code int}</li>
+ * </ul>
+ *
+ * <p>按预订号查询走开放寻址的 {@code int[]} 哈希表，有序遍历使用按预订号排序的行号数组，
+ * 新增预订后在下次遍历时把新行归并进去。不保存未使用的预留字段 {@code bookingTo}。
+ * 除字典中每个不同取值的一份字符串外，没有按预订分配的对象，堆占用只取决于列数组的大小。</p>
+ *
+ * <p>读取返回的 {@link Booking} 是某一行的视图：getter 在调用时才读列、解码，
+ * 调用方在分段锁内读取即可得到一致的数据；setter 直接写列，只应在 {@link #update} 的修改操作中调用。
+ * 新增、覆盖整行和写列串行化执行，扩容时发布新的列数组，读操作无锁完成；
+ * {@link #update} 本身不加锁，同一预订的修改由调用方的分段锁串行化。</p>
+ *
+ * <p>按客户、航线、日期的查询顺序扫描相应的列，不维护二级索引，以查询耗时换取内存占用。
+ * 与 {@link InMemoryBookingRepository} 一样，返回的是候选预订，由调用方在锁内复核。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class ColumnarBookingRepository implements BookingRepository {
+
+    /**
+     * 航班日期为null时的取值，排在所有日期之前
+     */
+    private static final int NULL_DATE = Integer.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final BookingStatusEnum[] STATUSES = BookingStatusEnum.values();
+
+    private static final BookingCategoryEnum[] CLASSES = BookingCategoryEnum.values();
+
+    /**
+     * 城市字典，编号存放在 {@code short} 列中，按无符号数解释
+     */
+    private final StringDictionary cities = new StringDictionary(0xFFFF);
+
+    private final StringDictionary customerNames = new StringDictionary(Integer.MAX_VALUE - 1);
+
+    /**
+     * 客户姓名编号 → 客户对象，同名客户共享同一实例，由 {@code this} 保护写入
+     */
+    private volatile Customer[] customers = new Customer[16];
+
+    /**
+     * 行号 → 原始预订号，仅保存与归一化结果不同的预订号
+     */
+    private final Map<Integer, String> originalNumbers = new ConcurrentHashMap<>();
+
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY, INITIAL_CAPACITY * 8);
+
+    /**
+     * 预订号哈希表：槽位存放行号 + 1，0 表示空槽，负载不超过一半
+     */
+    private volatile int[] hashTable = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * 已写入的行数，行数据先于行数发布
+     */
+    private volatile int size;
+
+    /**
+     * 按归一化预订号排序的行号，长度小于行数时需要归并新行
+     */
+    private volatile int[] sortedRows = new int[0];
+
+    @Override
+    public synchronized void save(Booking booking) {
+        String number = booking.getBookingNumber();
+        if (number == null) {
+            throw new IllegalArgumentException("预订号不能为空");
+        }
+        String key = BookingRepository.normalize(number);
+        // 先分配城市编号，字典已满时在改动任何列之前失败
+        short from = (short) cities.intern(booking.getFrom());
+        short to = (short) cities.intern(booking.getTo());
+        int row = rowOf(key);
+        boolean added = row < 0;
+        if (added) {
+            row = append(key);
+        }
+        if (key.equals(number)) {
+            originalNumbers.remove(row);
+        } else {
+            originalNumbers.put(row, number);
+        }
+        write(row, booking, from, to);
+        if (added) {
+            size = row + 1;
+        }
+    }
+
+    /**
+     * 修改航班预订
+     *
+     * <p>本仓储返回的视图在修改时直接写列；其他 {@link Booking} 对象修改后按预订号整行覆盖。</p>
+     */
+    @Override
+    public void update(Booking booking, Consumer<Booking> mutation) {
+        mutation.accept(booking);
+        if (!(booking instanceof BookingView view) || view.owner() != this) {
+            save(booking);
+        }
+    }
+
+    @Override
+    public Optional<Booking> findByBookingNumber(String bookingNumber) {
+        int row = rowOf(BookingRepository.normalize(bookingNumber));
+        return row < 0 ? Optional.empty() : Optional.of(new BookingView(row));
+    }
+
+    @Override
+    public Collection<Booking> findAll() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Booking> iterator() {
+                return scanAfter(null).iterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Stream<Booking> scanAfter(String afterBookingNumber) {
+        int[] sorted = sortedRows();
+        Columns c = columns;
+        int from = 0;
+        if (afterBookingNumber != null) {
+            // 第一个严格大于游标的位置
+            String key = BookingRepository.normalize(afterBookingNumber);
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareKey(c, sorted[mid], key) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            from = low;
+        }
+        return Arrays.stream(sorted, from, sorted.length).mapToObj(BookingView::new);
+    }
+
+    @Override
+    public Stream<Booking> findByCustomerName(String name) {
+        BitSet ids = customerNames.matching(BookingRepository.normalize(name));
+        if (ids.isEmpty()) {
+            return Stream.empty();
+        }
+        Columns c = columns;
+        return select(c, row -> ids.get(c.customers()[row]), null, null);
+    }
+
+    @Override
+    public Stream<Booking> findByRoute(String from, String to, LocalDate dateFrom, LocalDate dateTo) {
+        BitSet fromIds = cities.matching(BookingRepository.normalize(from));
+        BitSet toIds = cities.matching(BookingRepository.normalize(to));
+        if (fromIds.isEmpty() || toIds.isEmpty()) {
+            return Stream.empty();
+        }
+        Columns c = columns;
+        return select(c, row -> fromIds.get(Short.toUnsignedInt(c.from()[row]))
+                && toIds.get(Short.toUnsignedInt(c.to()[row])), dateFrom, dateTo);
+    }
+
+    @Override
+    public Stream<Booking> findByDateBetween(LocalDate dateFrom, LocalDate dateTo) {
+        return select(columns, row -> true, dateFrom, dateTo);
+    }
+
+    @Override
+    public long count() {
+        return size;
+    }
+
+    /**
+     * 扫描日期列和条件列，按航班日期、预订号排序后返回
+     */
+    private Stream<Booking> select(Columns c, IntPredicate match, LocalDate dateFrom, LocalDate dateTo) {
+        int n = size;
+        boolean bounded = dateFrom != null || dateTo != null;
+        int low = dateFrom == null ? NULL_DATE + 1 : epochDay(dateFrom);
+        int high = dateTo == null ? Integer.MAX_VALUE : epochDay(dateTo);
+        int[] dates = c.dates();
+        int[] rows = new int[16];
+        int count = 0;
+        for (int row = 0; row < n; row++) {
+            int date = dates[row];
+            boolean within = date == NULL_DATE ? !bounded : date >= low && date <= high;
+            if (within && match.test(row)) {
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                rows[count++] = row;
+            }
+        }
+        sort(rows, 0, count, (a, b) -> {
+            int cmp = Integer.compare(dates[a], dates[b]);
+            return cmp != 0 ? cmp : compareKeys(c, a, b);
+        });
+        return Arrays.stream(rows, 0, count).mapToObj(BookingView::new);
+    }
+
+    /**
+     * 按归一化预订号查找行号，不存在时返回-1
+     */
+    private int rowOf(String key) {
+        if (key == null) {
+            return -1;
+        }
+        // 先读行数再读列和哈希表，保证行号小于行数的行在读到的数组中已写完
+        int n = size;
+        Columns c = columns;
+        int[] table = hashTable;
+        int mask = table.length - 1;
+        for (int i = spread(key.hashCode()) & mask; ; i = (i + 1) & mask) {
+            int slot = table[i];
+            if (slot == 0) {
+                return -1;
+            }
+            int row = slot - 1;
+            if (row < n && compareKey(c, row, key) == 0) {
+                return row;
+            }
+        }
+    }
+
+    /**
+     * 追加一行并写入预订号，行数在整行写完后由调用方发布
+     */
+    private int append(String key) {
+        int row = size;
+        Columns c = columns;
+        int start = c.keyEnds()[row];
+        if (row + 1 >= c.capacity() || start + key.length() > c.keyChars().length) {
+            c = c.grow(Math.max(c.capacity() * 2, row + 2), Math.max(c.keyChars().length * 2, start + key.length()));
+            columns = c;
+        }
+        key.getChars(0, key.length(), c.keyChars(), start);
+        c.keyEnds()[row + 1] = start + key.length();
+
+        int[] table = hashTable;
+        if ((row + 1) * 2 > table.length) {
+            table = new int[table.length * 2];
+            for (int r = 0; r < row; r++) {
+                insert(table, hashOf(c, r), r);
+            }
+        }
+        insert(table, key.hashCode(), row);
+        hashTable = table;
+        return row;
+    }
+
+    private static void insert(int[] table, int hash, int row) {
+        int mask = table.length - 1;
+        int i = spread(hash) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = row + 1;
+    }
+
+    private void write(int row, Booking booking, short from, short to) {
+        Columns c = columns;
+        c.dates()[row] = booking.getDate() == null ? NULL_DATE : epochDay(booking.getDate());
+        c.from()[row] = from;
+        c.to()[row] = to;
+        c.states()[row] = pack(booking.getBookingStatus(), booking.getBookingClass());
+        c.customers()[row] = customerId(booking.getCustomer());
+    }
+
+    private synchronized void writeDate(int row, LocalDate date) {
+        columns.dates()[row] = date == null ? NULL_DATE : epochDay(date);
+    }
+
+    private synchronized void writeFrom(int row, String from) {
+        columns.from()[row] = (short) cities.intern(from);
+    }
+
+    private synchronized void writeTo(int row, String to) {
+        columns.to()[row] = (short) cities.intern(to);
+    }
+
+    private synchronized void writeStatus(int row, BookingStatusEnum status) {
+        byte state = columns.states()[row];
+        columns.states()[row] = pack(status, classOf(state));
+    }
+
+    private synchronized void writeClass(int row, BookingCategoryEnum bookingClass) {
+        byte state = columns.states()[row];
+        columns.states()[row] = pack(statusOf(state), bookingClass);
+    }
+
+    private synchronized void writeCustomer(int row, Customer customer) {
+        columns.customers()[row] = customerId(customer);
+    }
+
+    /**
+     * 客户姓名编号，首次出现的姓名同时创建共享的客户对象
+     */
+    private int customerId(Customer customer) {
+        String name = customer == null ? null : customer.getName();
+        int id = customerNames.intern(name);
+        Customer[] current = customers;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, Math.max(current.length * 2, id + 1));
+        }
+        if (id != 0 && current[id] == null) {
+            current[id] = new Customer(name, new ArrayList<>());
+        }
+        customers = current;
+        return id;
+    }
+
+    private String bookingNumberOf(int row) {
+        String original = originalNumbers.get(row);
+        if (original != null) {
+            return original;
+        }
+        Columns c = columns;
+        int start = c.keyEnds()[row];
+        return new String(c.keyChars(), start, c.keyEnds()[row + 1] - start);
+    }
+
+    private static byte pack(BookingStatusEnum status, BookingCategoryEnum bookingClass) {
+        int high = status == null ? 0 : status.ordinal() + 1;
+        int low = bookingClass == null ? 0 : bookingClass.ordinal() + 1;
+        return (byte) (high << 4 | low);
+    }
+
+    private static BookingStatusEnum statusOf(byte state) {
+        int ordinal = (state >> 4 & 0x0F) - 1;
+        return ordinal < 0 ? null : STATUSES[ordinal];
+    }
+
+    private static BookingCategoryEnum classOf(byte state) {
+        int ordinal = (state & 0x0F) - 1;
+        return ordinal < 0 ? null : CLASSES[ordinal];
+    }
+
+    private static int epochDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 与 {@link String#hashCode()} 相同的算法，扩容时无需重建字符串
+     */
+    private static int hashOf(Columns c, int row) {
+        int h = 0;
+        char[] chars = c.keyChars();
+        for (int i = c.keyEnds()[row], end = c.keyEnds()[row + 1]; i < end; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h;
+    }
+
+    /**
+     * 行的预订号与给定预订号比较，与 {@link String#compareTo} 的顺序一致
+     */
+    private static int compareKey(Columns c, int row, String key) {
+        char[] chars = c.keyChars();
+        int start = c.keyEnds()[row];
+        int length = c.keyEnds()[row + 1] - start;
+        int limit = Math.min(length, key.length());
+        for (int i = 0; i < limit; i++) {
+            int cmp = Character.compare(chars[start + i], key.charAt(i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length());
+    }
+
+    private static int compareKeys(Columns c, int a, int b) {
+        char[] chars = c.keyChars();
+        int startA = c.keyEnds()[a];
+        int lengthA = c.keyEnds()[a + 1] - startA;
+        int startB = c.keyEnds()[b];
+        int lengthB = c.keyEnds()[b + 1] - startB;
+        int limit = Math.min(lengthA, lengthB);
+        for (int i = 0; i < limit; i++) {
+            int cmp = Character.compare(chars[startA + i], chars[startB + i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(lengthA, lengthB);
+    }
+
+    /**
+     * 获取按预订号排序的行号，先排序新增的行，再与已排序的部分归并
+     */
+    private int[] sortedRows() {
+        int[] sorted = sortedRows;
+        if (sorted.length == size) {
+            return sorted;
+        }
+        synchronized (this) {
+            sorted = sortedRows;
+            int n = size;
+            if (sorted.length == n) {
+                return sorted;
+            }
+            Columns c = columns;
+            IntBinaryOperator byKey = (a, b) -> compareKeys(c, a, b);
+            int[] added = new int[n - sorted.length];
+            for (int i = 0; i < added.length; i++) {
+                added[i] = sorted.length + i;
+            }
+            sort(added, 0, added.length, byKey);
+            int[] merged = new int[n];
+            merge(sorted, 0, sorted.length, added, 0, added.length, merged, 0, byKey);
+            sortedRows = merged;
+            return merged;
+        }
+    }
+
+    /**
+     * 行号数组的归并排序（稳定），避免装箱
+     */
+    private static void sort(int[] rows, int from, int to, IntBinaryOperator comparator) {
+        if (to - from < 2) {
+            return;
+        }
+        mergeSort(rows.clone(), rows, from, to, comparator);
+    }
+
+    /**
+     * 两个数组在 {@code [from, to)} 内容相同，排序结果写入 {@code target}，{@code source} 作为辅助空间
+     */
+    private static void mergeSort(int[] source, int[] target, int from, int to, IntBinaryOperator comparator) {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; i++) {
+                int row = target[i];
+                int j = i;
+                while (j > from && comparator.applyAsInt(target[j - 1], row) > 0) {
+                    target[j] = target[j - 1];
+                    j--;
+                }
+                target[j] = row;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        // 交替使用两个数组，子区间在 source 中排好序后归并到 target
+        mergeSort(target, source, from, mid, comparator);
+        mergeSort(target, source, mid, to, comparator);
+        merge(source, from, mid, source, mid, to, target, from, comparator);
+    }
+
+    private static void merge(int[] left, int leftFrom, int leftTo, int[] right, int rightFrom, int rightTo,
+                              int[] target, int targetFrom, IntBinaryOperator comparator) {
+        int i = leftFrom;
+        int j = rightFrom;
+        int k = targetFrom;
+        while (i < leftTo && j < rightTo) {
+            target[k++] = comparator.applyAsInt(left[i], right[j]) <= 0 ? left[i++] : right[j++];
+        }
+        while (i < leftTo) {
+            target[k++] = left[i++];
+        }
+        while (j < rightTo) {
+            target[k++] = right[j++];
+        }
+    }
+
+    /**
+     * 列数组，扩容时整体复制后发布
+     *
+     * @param keyEnds 第 i 行预订号的结束偏移存放在下标 i + 1，下标0为0
+     * @param keyChars 归一化预订号的字符
+     * @param dates 航班日期（epoch day）
+     * @param from 出发地编号
+     * @param to 目的地编号
+     * @param states 高4位为预订状态，低4位为舱位等级，均为序号 + 1，0 表示null
+     * @param customers 客户姓名编号
+     */
+    private record Columns(int[] keyEnds, char[] keyChars, int[] dates, short[] from, short[] to,
+                           byte[] states, int[] customers) {
+
+        Columns(int rows, int chars) {
+            this(new int[rows + 1], new char[chars], new int[rows], new short[rows], new short[rows],
+                    new byte[rows], new int[rows]);
+        }
+
+        int capacity() {
+            return dates.length;
+        }
+
+        Columns grow(int rows, int chars) {
+            return new Columns(
+                    Arrays.copyOf(keyEnds, rows + 1),
+                    Arrays.copyOf(keyChars, chars),
+                    Arrays.copyOf(dates, rows),
+                    Arrays.copyOf(from, rows),
+                    Arrays.copyOf(to, rows),
+                    Arrays.copyOf(states, rows),
+                    Arrays.copyOf(customers, rows)
+            );
+        }
+    }
+
+    /**
+     * 某一行的预订视图，读写都直接作用于列
+     */
+    private final class BookingView extends Booking {
+
+        private final int row;
+
+        BookingView(int row) {
+            this.row = row;
+        }
+
+        ColumnarBookingRepository owner() {
+            return ColumnarBookingRepository.this;
+        }
+
+        @Override
+        public String getBookingNumber() {
+            return bookingNumberOf(row);
+        }
+
+        @Override
+        public LocalDate getDate() {
+            int date = columns.dates()[row];
+            return date == NULL_DATE ? null : LocalDate.ofEpochDay(date);
+        }
+
+        @Override
+        public LocalDate getBookingTo() {
+            return null;
+        }
+
+        @Override
+        public Customer getCustomer() {
+            return customers[columns.customers()[row]];
+        }
+
+        @Override
+        public String getFrom() {
+            return cities.value(Short.toUnsignedInt(columns.from()[row]));
+        }
+
+        @Override
+        public String getTo() {
+            return cities.value(Short.toUnsignedInt(columns.to()[row]));
+        }
+
+        @Override
+        public BookingStatusEnum getBookingStatus() {
+            return statusOf(columns.states()[row]);
+        }
+
+        @Override
+        public BookingCategoryEnum getBookingClass() {
+            return classOf(columns.states()[row]);
+        }
+
+        @Override
+        public void setBookingNumber(String bookingNumber) {
+            throw new UnsupportedOperationException("预订号是行的主键，不能修改");
+        }
+
+        @Override
+        public void setDate(LocalDate date) {
+            writeDate(row, date);
+        }
+
+        @Override
+        public void setBookingTo(LocalDate bookingTo) {
+            throw new UnsupportedOperationException("列式存储不保存预留字段 bookingTo");
+        }
+
+        @Override
+        public void setCustomer(Customer customer) {
+            writeCustomer(row, customer);
+        }
+
+        @Override
+        public void setFrom(String from) {
+            writeFrom(row, from);
+        }
+
+        @Override
+        public void setTo(String to) {
+            writeTo(row, to);
+        }
+
+        @Override
+        public void setBookingStatus(BookingStatusEnum bookingStatus) {
+            writeStatus(row, bookingStatus);
+        }
+
+        @Override
+        public void setBookingClass(BookingCategoryEnum bookingClass) {
+            writeClass(row, bookingClass);
+        }
+    }
+}
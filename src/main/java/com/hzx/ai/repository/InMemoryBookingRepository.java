@@ -0,0 +1,271 @@
+package com.hzx.ai.repository;
+
+import com.hzx.ai.model.Booking;
+import com.hzx.ai.model.BookingData;
+import com.hzx.ai.model.Customer;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 基于哈希索引的内存航班预订仓储
+ *
+ * <p>在 {@link BookingData} 的列表存储之上维护一个以归一化预订号为键的主索引，
+ * 使按预订号查询从全表扫描的 O(n) 降为 O(1)。另维护一个按预订号有序的跳表索引，
+ * 支撑全量遍历和键集分页，遍历过程中允许并发写入。</p>
+ *
+ * <p>另外维护三个二级索引，均为以 {@link IndexKey} 排序的跳表，查询为 O(log n + k)：</p>
+ * <ul>
+ *   <li>客户索引：(客户姓名, 航班日期, 预订号)</li>
+ *   <li>航线索引：(出发地, 目的地, 航班日期, 预订号)，同时支持航线内的日期范围</li>
+ *   <li>日期索引：(航班日期, 预订号)，支持任意日期范围</li>
+ * </ul>
+ *
+ * <p>{@link #save} 串行化执行，同时维护 {@link BookingData} 的列表。{@link #update} 不加仓储锁：
+ * 同一预订的修改由调用方的分段锁串行化，不同预订的索引键都包含各自的预订号、互不冲突，可以并发调整。
+ * 修改日期、出发地、目的地时同步调整二级索引，先写入新键再删除旧键，并发查询在任何时刻都不会漏掉已完成修改的预订，可能多出的旧条目由调用方在锁内复核时排除。
+ * 读操作通过 {@link ConcurrentHashMap} 和 {@link ConcurrentSkipListMap} 无锁完成。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class InMemoryBookingRepository implements BookingRepository {
+
+    private final BookingData db;
+
+    /**
+     * 主索引：归一化预订号 → 航班预订
+     */
+    private final Map<String, Booking> bookingIndex = new ConcurrentHashMap<>();
+
+    /**
+     * 有序索引：归一化预订号 → 航班预订，用于遍历和键集分页
+     */
+    private final NavigableMap<String, Booking> orderedIndex = new ConcurrentSkipListMap<>();
+
+    /**
+     * 客户索引：(归一化客户姓名, 航班日期, 归一化预订号) → 航班预订
+     */
+    private final ConcurrentSkipListMap<IndexKey, Booking> customerIndex = new ConcurrentSkipListMap<>(IndexKey.ORDER);
+
+    /**
+     * 航线索引：(归一化出发地, 归一化目的地, 航班日期, 归一化预订号) → 航班预订
+     */
+    private final ConcurrentSkipListMap<IndexKey, Booking> routeIndex = new ConcurrentSkipListMap<>(IndexKey.ORDER);
+
+    /**
+     * 日期索引：(航班日期, 归一化预订号) → 航班预订
+     */
+    private final ConcurrentSkipListMap<IndexKey, Booking> dateIndex = new ConcurrentSkipListMap<>(IndexKey.ORDER);
+
+    /**
+     * 已登记的客户（按对象标识去重，避免触发Lombok的级联hashCode）
+     */
+    private final Set<Customer> knownCustomers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * 构造函数，创建空的内存仓储
+     */
+    public InMemoryBookingRepository() {
+        this(new BookingData());
+    }
+
+    /**
+     * 构造函数，基于已有的数据存储建立索引
+     *
+     * @param db 内存数据存储
+     */
+    public InMemoryBookingRepository(BookingData db) {
+        this.db = db;
+        db.getBookings().forEach(b -> {
+            String key = BookingRepository.normalize(b.getBookingNumber());
+            bookingIndex.put(key, b);
+            orderedIndex.put(key, b);
+            index(b);
+        });
+        knownCustomers.addAll(db.getCustomers());
+    }
+
+    @Override
+    public synchronized void save(Booking booking) {
+        String key = BookingRepository.normalize(booking.getBookingNumber());
+        Booking previous = bookingIndex.put(key, booking);
+        orderedIndex.put(key, booking);
+        if (previous != null) {
+            unindex(previous);
+            db.getBookings().removeIf(b -> b == previous);
+        }
+        index(booking);
+        db.getBookings().add(booking);
+
+        Customer customer = booking.getCustomer();
+        if (customer != null && knownCustomers.add(customer)) {
+            db.getCustomers().add(customer);
+        }
+    }
+
+    /**
+     * 修改航班预订，并按修改前后的日期、出发地、目的地调整二级索引
+     */
+    @Override
+    public void update(Booking booking, Consumer<Booking> mutation) {
+        IndexKey customerBefore = IndexKey.customer(booking);
+        IndexKey routeBefore = IndexKey.route(booking);
+        IndexKey dateBefore = IndexKey.date(booking);
+        mutation.accept(booking);
+        move(customerIndex, customerBefore, IndexKey.customer(booking), booking);
+        move(routeIndex, routeBefore, IndexKey.route(booking), booking);
+        move(dateIndex, dateBefore, IndexKey.date(booking), booking);
+    }
+
+    @Override
+    public Optional<Booking> findByBookingNumber(String bookingNumber) {
+        if (bookingNumber == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(bookingIndex.get(BookingRepository.normalize(bookingNumber)));
+    }
+
+    @Override
+    public Collection<Booking> findAll() {
+        return Collections.unmodifiableCollection(orderedIndex.values());
+    }
+
+    @Override
+    public Stream<Booking> scanAfter(String afterBookingNumber) {
+        NavigableMap<String, Booking> view = afterBookingNumber == null
+                ? orderedIndex
+                : orderedIndex.tailMap(BookingRepository.normalize(afterBookingNumber), false);
+        return view.values().stream();
+    }
+
+    @Override
+    public Stream<Booking> findByCustomerName(String name) {
+        return range(customerIndex, BookingRepository.normalize(name), null, null, null);
+    }
+
+    @Override
+    public Stream<Booking> findByRoute(String from, String to, LocalDate dateFrom, LocalDate dateTo) {
+        return range(routeIndex, BookingRepository.normalize(from), BookingRepository.normalize(to), dateFrom, dateTo);
+    }
+
+    @Override
+    public Stream<Booking> findByDateBetween(LocalDate dateFrom, LocalDate dateTo) {
+        return range(dateIndex, null, null, dateFrom, dateTo);
+    }
+
+    @Override
+    public long count() {
+        return bookingIndex.size();
+    }
+
+    private void index(Booking booking) {
+        customerIndex.put(IndexKey.customer(booking), booking);
+        routeIndex.put(IndexKey.route(booking), booking);
+        dateIndex.put(IndexKey.date(booking), booking);
+    }
+
+    private void unindex(Booking booking) {
+        customerIndex.remove(IndexKey.customer(booking), booking);
+        routeIndex.remove(IndexKey.route(booking), booking);
+        dateIndex.remove(IndexKey.date(booking), booking);
+    }
+
+    /**
+     * 键发生变化时先写入新键、再删除旧键
+     */
+    private static void move(ConcurrentSkipListMap<IndexKey, Booking> index, IndexKey before, IndexKey after, Booking booking) {
+        if (before.equals(after)) {
+            return;
+        }
+        index.put(after, booking);
+        index.remove(before, booking);
+    }
+
+    /**
+     * 查询同一分组键下、日期在闭区间内的条目
+     *
+     * @param index 二级索引
+     * @param first 第一分组键，为null时不分组
+     * @param second 第二分组键，为null时只按第一分组键
+     * @param dateFrom 航班日期下限（含），为null时不限
+     * @param dateTo 航班日期上限（含），为null时不限
+     * @return Stream<Booking> 按日期、预订号升序的航班预订流
+     */
+    private static Stream<Booking> range(
+            ConcurrentSkipListMap<IndexKey, Booking> index,
+            String first,
+            String second,
+            LocalDate dateFrom,
+            LocalDate dateTo
+    ) {
+        IndexKey low = new IndexKey(first, second, dateFrom, null);
+        IndexKey high = dateTo != null && dateTo.isBefore(LocalDate.MAX)
+                ? new IndexKey(first, second, dateTo.plusDays(1), null)
+                : IndexKey.groupEnd(first, second);
+        NavigableMap<IndexKey, Booking> view = high == null
+                ? index.tailMap(low, true)
+                : index.subMap(low, true, high, false);
+        return view.values().stream();
+    }
+
+    /**
+     * 二级索引键
+     *
+     * <p>依次按两个分组键、航班日期、归一化预订号排序，null 排在最前，
+     * 因此预订号为 null 的键可以作为范围查询的下界。</p>
+     *
+     * @param first 第一分组键（客户姓名或出发地），日期索引为null
+     * @param second 第二分组键（目的地），客户索引和日期索引为null
+     * @param date 航班日期
+     * @param bookingKey 归一化预订号
+     */
+    record IndexKey(String first, String second, LocalDate date, String bookingKey) {
+
+        static final Comparator<IndexKey> ORDER = Comparator
+                .comparing(IndexKey::first, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(IndexKey::second, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(IndexKey::date, Comparator.nullsFirst(Comparator.<LocalDate>naturalOrder()))
+                .thenComparing(IndexKey::bookingKey, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
+        static IndexKey customer(Booking booking) {
+            String name = booking.getCustomer() == null ? null : booking.getCustomer().getName();
+            return new IndexKey(BookingRepository.normalize(name), null, booking.getDate(),
+                    BookingRepository.normalize(booking.getBookingNumber()));
+        }
+
+        static IndexKey route(Booking booking) {
+            return new IndexKey(BookingRepository.normalize(booking.getFrom()), BookingRepository.normalize(booking.getTo()),
+                    booking.getDate(), BookingRepository.normalize(booking.getBookingNumber()));
+        }
+
+        static IndexKey date(Booking booking) {
+            return new IndexKey(null, null, booking.getDate(), BookingRepository.normalize(booking.getBookingNumber()));
+        }
+
+        /**
+         * 分组的上界（不含）：在最后一个非null分组键后追加最小字符，为其紧邻的后继；两个分组键都为null时无上界
+         */
+        static IndexKey groupEnd(String first, String second) {
+            if (second != null) {
+                return new IndexKey(first, second + '\0', null, null);
+            }
+            if (first != null) {
+                return new IndexKey(first + '\0', null, null, null);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.hzx.ai.repository;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 字符串字典
+ *
+ * <p>把取值有限、重复度高的字符串（城市、客户姓名）编码为从1开始的整数编号，0 表示null。
+ * 列式存储只保存编号，每个不同的取值只保存一份。编号一经分配不再回收。</p>
+ *
+ * <p>按编号解码无锁完成；分配编号串行执行。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+final class StringDictionary {
+
+    private final int maxId;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * 编号 → 取值，下标0固定为null
+     */
+    private volatile String[] values = new String[16];
+
+    private volatile int size = 1;
+
+    /**
+     * 构造函数
+     *
+     * @param maxId 允许分配的最大编号，由存放编号的列类型决定
+     */
+    StringDictionary(int maxId) {
+        this.maxId = maxId;
+    }
+
+    /**
+     * 获取取值的编号，不存在时分配新编号
+     *
+     * @param value 取值
+     * @return int 编号，null 为0
+     * @throws IllegalStateException 不同取值的个数超出列类型的上限时抛出异常
+     */
+    int intern(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Integer id = ids.get(value);
+        return id != null ? id : add(value);
+    }
+
+    private synchronized int add(String value) {
+        Integer existing = ids.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        if (id > maxId) {
+            throw new IllegalStateException("字典取值个数超出上限 " + maxId);
+        }
+        String[] current = values;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = value;
+        values = current;
+        ids.put(value, id);
+        size = id + 1;
+        return id;
+    }
+
+    /**
+     * 按编号解码
+     *
+     * @param id 编号
+     * @return String 取值，编号为0时返回null
+     */
+    String value(int id) {
+        return values[id];
+    }
+
+    /**
+     * 归一化后等于给定值的全部编号
+     *
+     * @param normalized 归一化后的取值
+     * @return BitSet 编号集合，入参为null时为空
+     */
+    BitSet matching(String normalized) {
+        BitSet matches = new BitSet();
+        if (normalized == null) {
+            return matches;
+        }
+        int n = size;
+        String[] current = values;
+        for (int id = 1; id < n; id++) {
+            if (normalized.equals(BookingRepository.normalize(current[id]))) {
+                matches.set(id);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 已分配的编号数（不含null）
+     *
+     * @return int 编号数
+     */
+    int size() {
+        return size - 1;
+    }
+}
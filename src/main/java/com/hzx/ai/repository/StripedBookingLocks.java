@@ -0,0 +1,140 @@
+package com.hzx.ai.repository;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 航班预订分段锁
+ *
+ * <p>按归一化预订号的哈希值将预订映射到固定数量的锁分段上，
+ * 同一预订的读写在同一把锁内串行执行（线性一致），不同预订大概率落在不同分段，
+ * 互不争用。分段数固定为2的幂，定位分段只需一次位运算。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Component
+public class StripedBookingLocks {
+
+    /**
+     * 默认分段数
+     */
+    public static final int DEFAULT_STRIPES = 1024;
+
+    private final ReentrantLock[] stripes;
+
+    private final int mask;
+
+    /**
+     * 构造函数，使用默认分段数
+     */
+    public StripedBookingLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param stripes 期望的分段数，会向上取整到2的幂
+     */
+    public StripedBookingLocks(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("锁分段数必须大于0");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * 在预订对应的分段锁内执行操作并返回结果
+     *
+     * @param bookingNumber 预订号（忽略大小写）
+     * @param action 需要互斥执行的操作
+     * @return T 操作结果
+     */
+    public <T> T withLock(String bookingNumber, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeOf(bookingNumber)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 在预订对应的分段锁内执行操作
+     *
+     * @param bookingNumber 预订号（忽略大小写）
+     * @param action 需要互斥执行的操作
+     */
+    public void withLock(String bookingNumber, Runnable action) {
+        ReentrantLock lock = stripes[stripeOf(bookingNumber)];
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 同时持有多个预订对应的分段锁执行操作并返回结果
+     *
+     * <p>按分段下标升序加锁、逆序释放，同一分段只加一次锁。所有多锁操作按相同顺序加锁，
+     * 单个预订的操作只持有一把锁，因此不会死锁。</p>
+     *
+     * @param bookingNumbers 预订号（忽略大小写）
+     * @param action 需要互斥执行的操作
+     * @return T 操作结果
+     */
+    public <T> T withLocks(Collection<String> bookingNumbers, Supplier<T> action) {
+        int[] indexes = bookingNumbers.stream().mapToInt(this::stripeOf).sorted().distinct().toArray();
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * 计算预订所属的分段下标
+     *
+     * @param bookingNumber 预订号（忽略大小写）
+     * @return int 分段下标
+     */
+    public int stripeOf(String bookingNumber) {
+        String key = BookingRepository.normalize(bookingNumber);
+        int h = key == null ? 0 : key.hashCode();
+        // 扰动高位，避免相近预订号集中在少数分段
+        h ^= (h >>> 16);
+        return h & mask;
+    }
+
+    /**
+     * 获取分段数
+     *
+     * @return int 分段数
+     */
+    public int stripeCount() {
+        return stripes.length;
+    }
+}
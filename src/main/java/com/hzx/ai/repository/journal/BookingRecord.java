@@ -0,0 +1,87 @@
+package com.hzx.ai.repository.journal;
+
+import com.hzx.ai.model.Booking;
+import com.hzx.ai.model.Customer;
+import com.hzx.ai.model.enums.BookingCategoryEnum;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+
+import java.time.LocalDate;
+import java.util.function.Function;
+
+/**
+ * 航班预订的持久化镜像
+ *
+ * <p>日志和快照中都只记录预订的完整最新状态（后像），回放时按顺序覆盖即可，
+ * 重复回放同一条记录不会产生副作用。</p>
+ *
+ * @author zexiao.huang
+ * @since 2026/10/16 14:05
+ */
+public record BookingRecord(
+
+        // 预订号
+        String bookingNumber,
+
+        // 客户姓名
+        String customerName,
+
+        // 航班日期
+        LocalDate date,
+
+        // 出发地
+        String from,
+
+        // 目的地
+        String to,
+
+        // 预订状态
+        BookingStatusEnum bookingStatus,
+
+        // 舱位等级
+        BookingCategoryEnum bookingClass
+) {
+
+    /**
+     * 从航班预订生成持久化镜像，调用方需持有该预订的分段锁
+     *
+     * @param booking 航班预订
+     * @return BookingRecord 持久化镜像
+     */
+    public static BookingRecord of(Booking booking) {
+        return new BookingRecord(
+                booking.getBookingNumber(),
+                booking.getCustomer() == null ? null : booking.getCustomer().getName(),
+                booking.getDate(),
+                booking.getFrom(),
+                booking.getTo(),
+                booking.getBookingStatus(),
+                booking.getBookingClass()
+        );
+    }
+
+    /**
+     * 将镜像中的可变字段覆盖到已有的航班预订上，用于回放同一预订的后续记录
+     *
+     * @param booking 已有的航班预订
+     */
+    public void applyTo(Booking booking) {
+        booking.setDate(date);
+        booking.setFrom(from);
+        booking.setTo(to);
+        booking.setBookingStatus(bookingStatus);
+        booking.setBookingClass(bookingClass);
+    }
+
+    /**
+     * 还原为航班预订对象
+     *
+     * @param customerResolver 按客户姓名获取（或创建）客户对象，保证同名客户共享同一实例
+     * @return Booking 航班预订
+     */
+    public Booking toBooking(Function<String, Customer> customerResolver) {
+        Customer customer = customerResolver.apply(customerName);
+        Booking booking = new Booking(bookingNumber, date, customer, bookingStatus, from, to, bookingClass);
+        customer.getBookings().add(booking);
+        return booking;
+    }
+}
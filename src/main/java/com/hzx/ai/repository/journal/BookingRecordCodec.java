@@ -0,0 +1,178 @@
+package com.hzx.ai.repository.journal;
+
+import com.hzx.ai.model.enums.BookingCategoryEnum;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32C;
+
+/**
+ * 预订记录的二进制编解码
+ *
+ * <p>每条记录编码为一个帧：</p>
+ * <pre>
+ * | int 负载长度 | int CRC32C | 负载 |
+ * </pre>
+ * <p>负载依次为：格式版本、预订号、客户姓名、航班日期（epoch day）、出发地、目的地、
+ * 预订状态序号、舱位等级序号。字符串编码为 int 长度（-1表示null）+ UTF-8 字节。
+ * 读取时长度越界或校验和不一致即视为残缺帧（通常是崩溃时写了一半），停止读取。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+final class BookingRecordCodec {
+
+    /**
+     * 帧头长度：负载长度 + 校验和
+     */
+    static final int FRAME_HEADER_BYTES = 8;
+
+    /**
+     * 单条记录负载的长度上限，超过即视为损坏
+     */
+    static final int MAX_PAYLOAD_BYTES = 64 * 1024;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final long NULL_DATE = Long.MIN_VALUE;
+
+    private BookingRecordCodec() {
+    }
+
+    /**
+     * 将记录编码为完整的帧
+     *
+     * @param record 预订记录
+     * @return byte[] 帧字节
+     */
+    static byte[] encode(BookingRecord record) {
+        byte[] bookingNumber = bytes(record.bookingNumber());
+        byte[] customerName = bytes(record.customerName());
+        byte[] from = bytes(record.from());
+        byte[] to = bytes(record.to());
+
+        int payloadLength = 1
+                + stringSize(bookingNumber) + stringSize(customerName)
+                + Long.BYTES
+                + stringSize(from) + stringSize(to)
+                + 2;
+
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + payloadLength);
+        frame.putInt(payloadLength);
+        frame.putInt(0);
+        frame.put(FORMAT_VERSION);
+        putString(frame, bookingNumber);
+        putString(frame, customerName);
+        frame.putLong(record.date() == null ? NULL_DATE : record.date().toEpochDay());
+        putString(frame, from);
+        putString(frame, to);
+        frame.put(record.bookingStatus() == null ? -1 : (byte) record.bookingStatus().ordinal());
+        frame.put(record.bookingClass() == null ? -1 : (byte) record.bookingClass().ordinal());
+
+        CRC32C crc = new CRC32C();
+        crc.update(frame.array(), FRAME_HEADER_BYTES, payloadLength);
+        frame.putInt(Integer.BYTES, (int) crc.getValue());
+        return frame.array();
+    }
+
+    /**
+     * 从缓冲区当前位置解码一帧
+     *
+     * <p>解码成功时缓冲区位置前移到下一帧；剩余字节不足一帧时返回null且位置不变；
+     * 帧损坏时抛出 {@link CorruptRecordException}。</p>
+     *
+     * @param buffer 缓冲区
+     * @return BookingRecord 预订记录，剩余字节不足一帧时为null
+     */
+    static BookingRecord decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < FRAME_HEADER_BYTES) {
+            return null;
+        }
+        int payloadLength = buffer.getInt(start);
+        if (payloadLength <= 0 || payloadLength > MAX_PAYLOAD_BYTES) {
+            throw new CorruptRecordException("非法的记录长度：" + payloadLength);
+        }
+        if (buffer.remaining() < FRAME_HEADER_BYTES + payloadLength) {
+            return null;
+        }
+
+        int expectedCrc = buffer.getInt(start + Integer.BYTES);
+        ByteBuffer payload = buffer.slice(start + FRAME_HEADER_BYTES, payloadLength);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new CorruptRecordException("记录校验和不匹配");
+        }
+
+        try {
+            byte version = payload.get();
+            if (version != FORMAT_VERSION) {
+                throw new CorruptRecordException("不支持的记录格式版本：" + version);
+            }
+            String bookingNumber = getString(payload);
+            String customerName = getString(payload);
+            long epochDay = payload.getLong();
+            String from = getString(payload);
+            String to = getString(payload);
+            byte status = payload.get();
+            byte bookingClass = payload.get();
+
+            buffer.position(start + FRAME_HEADER_BYTES + payloadLength);
+            return new BookingRecord(
+                    bookingNumber,
+                    customerName,
+                    epochDay == NULL_DATE ? null : LocalDate.ofEpochDay(epochDay),
+                    from,
+                    to,
+                    status < 0 ? null : BookingStatusEnum.values()[status],
+                    bookingClass < 0 ? null : BookingCategoryEnum.values()[bookingClass]
+            );
+        } catch (RuntimeException e) {
+            if (e instanceof CorruptRecordException) {
+                throw e;
+            }
+            throw new CorruptRecordException("记录内容无法解析：" + e.getMessage());
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(byte[] value) {
+        return Integer.BYTES + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(value.length);
+        buffer.put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 残缺或损坏的记录
+     */
+    static class CorruptRecordException extends RuntimeException {
+
+        CorruptRecordException(String message) {
+            super(message);
+        }
+    }
+}
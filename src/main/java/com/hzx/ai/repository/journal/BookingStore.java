@@ -0,0 +1,57 @@
+package com.hzx.ai.repository.journal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 航班预订持久化存储接口
+ *
+ * <p>内存仓储负责读写和索引，本接口只负责把每次变更后的预订状态持久化，
+ * 并在启动时把已持久化的状态回放给内存仓储。实现可以是纯内存（不持久化）
+ * 或基于预写日志（WAL）的本地文件存储。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public interface BookingStore extends AutoCloseable {
+
+    /**
+     * 启动时回放已持久化的预订记录
+     *
+     * <p>同一预订可能出现多条记录，按出现顺序覆盖，最后一条为最新状态。</p>
+     *
+     * @param consumer 记录消费者
+     * @return long 回放的记录条数
+     */
+    long replay(Consumer<BookingRecord> consumer);
+
+    /**
+     * 追加一条预订记录
+     *
+     * <p>调用方应在持有该预订分段锁时追加，以保证日志顺序与内存中的修改顺序一致。
+     * 在锁内等待返回的Future完成时，落盘之前其他会话读不到这次修改，失败时可以安全还原；
+     * 不同预订的并发写入仍然合并为一次刷盘。</p>
+     *
+     * @param record 预订的最新状态
+     * @return CompletableFuture<Void> 记录落盘后完成
+     */
+    CompletableFuture<Void> append(BookingRecord record);
+
+    /**
+     * 开始后台维护（如定期快照），在回放完成后调用
+     *
+     * @param snapshotSource 提供当前全部预订状态的数据源，每次调用返回一个新的流
+     */
+    default void start(Supplier<Stream<BookingRecord>> snapshotSource) {
+    }
+
+    /**
+     * 关闭存储，等待已提交的记录落盘
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,101 @@
+package com.hzx.ai.repository.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * 基于内存映射的记录文件读取器
+ *
+ * <p>按固定大小的窗口映射文件，逐帧解码，跨窗口边界的帧会从帧起点重新映射，
+ * 因此可以读取超过2GB的文件。遇到残缺或损坏的帧即停止，返回最后一个完整帧的结束位置，
+ * 由调用方决定是否截断。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Slf4j
+final class MappedRecordReader {
+
+    /**
+     * 文件头魔数长度
+     */
+    static final int MAGIC_BYTES = 8;
+
+    /**
+     * 单次映射窗口大小
+     */
+    private static final long WINDOW_BYTES = 256L * 1024 * 1024;
+
+    private MappedRecordReader() {
+    }
+
+    /**
+     * 读取文件中的全部完整记录
+     *
+     * @param file 记录文件
+     * @param magic 期望的文件头魔数
+     * @param consumer 记录消费者
+     * @return long 最后一个完整帧的结束位置（文件偏移量）；文件头不合法时返回-1
+     * @throws IOException 读取文件失败
+     */
+    static long read(Path file, String magic, Consumer<BookingRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < MAGIC_BYTES) {
+                return -1;
+            }
+            ByteBuffer header = ByteBuffer.allocate(MAGIC_BYTES);
+            channel.read(header, 0);
+            if (!Arrays.equals(header.array(), magicBytes(magic))) {
+                return -1;
+            }
+
+            long position = MAGIC_BYTES;
+            while (position < size) {
+                long length = Math.min(WINDOW_BYTES, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int consumed = 0;
+                try {
+                    BookingRecord record;
+                    while ((record = BookingRecordCodec.decode(window)) != null) {
+                        consumer.accept(record);
+                        consumed = window.position();
+                    }
+                } catch (BookingRecordCodec.CorruptRecordException e) {
+                    log.warn("⚠️ 文件 {} 在偏移量 {} 处存在损坏记录：{}", file, position + consumed, e.getMessage());
+                    return position + consumed;
+                }
+                if (consumed == 0) {
+                    // 窗口内连一帧都放不下：要么是文件尾部的残缺帧，要么已读到末尾
+                    return position;
+                }
+                position += consumed;
+            }
+            return position;
+        }
+    }
+
+    /**
+     * 魔数字符串转为定长字节
+     *
+     * @param magic 魔数字符串，长度必须为8个ASCII字符
+     * @return byte[] 魔数字节
+     */
+    static byte[] magicBytes(String magic) {
+        byte[] bytes = magic.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length != MAGIC_BYTES) {
+            throw new IllegalArgumentException("魔数必须为8个字节：" + magic);
+        }
+        return bytes;
+    }
+}
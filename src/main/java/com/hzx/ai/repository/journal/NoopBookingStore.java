@@ -0,0 +1,29 @@
+package com.hzx.ai.repository.journal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * 不做持久化的存储实现
+ *
+ * <p>数据只保存在内存仓储中，重启后丢失，每次启动重新生成演示数据。
+ * 适用于单元测试、基准测试和纯演示环境。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class NoopBookingStore implements BookingStore {
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    @Override
+    public long replay(Consumer<BookingRecord> consumer) {
+        return 0;
+    }
+
+    @Override
+    public CompletableFuture<Void> append(BookingRecord record) {
+        return DONE;
+    }
+}
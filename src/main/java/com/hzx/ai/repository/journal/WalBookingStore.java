@@ -0,0 +1,568 @@
+package com.hzx.ai.repository.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 基于预写日志（WAL）和快照的本地文件存储
+ *
+ * <p>目录结构：</p>
+ * <ul>
+ *   <li>{@code wal-<代>.log}：追加写的变更日志，每条记录是预订的最新状态</li>
+ *   <li>{@code snapshot-<代>.dat}：压缩后的全量快照，包含该代日志开始之前的全部状态</li>
+ * </ul>
+ *
+ * <p>写入采用组提交：所有追加请求进入队列，由单个写线程批量写入并只做一次 {@code fsync}，
+ * 同时到达的多个工具调用共享一次刷盘。定期快照时先切换到新一代日志，再写出快照，
+ * 快照通过临时文件 + 原子重命名发布，之后删除更早的日志和快照。</p>
+ *
+ * <p>启动时用内存映射读取最新的有效快照，再按代号顺序回放不早于该快照的日志。
+ * 快照必须完整读到文件末尾才算有效：快照损坏时，只有更早的快照及其之后的日志都还在才改用更早的快照，
+ * 否则启动失败，不会在只恢复了部分预订的情况下继续运行。只有最新一代日志尾部因崩溃产生的残缺记录会被截断；
+ * 更早的日志中出现损坏记录时之后还有已确认的记录，截断会丢失它们，同样启动失败。</p>
+ *
+ * <p>写入或刷盘失败后存储进入失败停止状态：尽力把日志截断回最后一次成功提交的位置，
+ * 此后的追加和日志切换都直接失败，避免残缺记录之后再写入已确认的记录（回放会在残缺处截断而丢失它们）。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Slf4j
+public class WalBookingStore implements BookingStore {
+
+    static final String WAL_MAGIC = "FBWAL001";
+
+    static final String SNAPSHOT_MAGIC = "FBSNAP01";
+
+    private static final String WAL_PREFIX = "wal-";
+
+    private static final String WAL_SUFFIX = ".log";
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String SNAPSHOT_SUFFIX = ".dat";
+
+    private final Path directory;
+
+    private final int maxBatch;
+
+    private final long maxDelayNanos;
+
+    private final Duration snapshotInterval;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * 自上次快照以来追加的记录数，为0时跳过快照
+     */
+    private final AtomicLong appendedSinceSnapshot = new AtomicLong();
+
+    private volatile boolean running;
+
+    private volatile long generation;
+
+    /**
+     * 首次写入失败的原因，非null时存储已失败停止
+     */
+    private volatile IOException failure;
+
+    private FileChannel channel;
+
+    private Thread writer;
+
+    private ScheduledExecutorService snapshotScheduler;
+
+    /**
+     * 构造函数
+     *
+     * @param directory 数据目录
+     * @param maxBatch 单次组提交的最大记录数
+     * @param maxDelay 已有并发写入排队时，组提交前等待更多写入的最长时间，为0表示不等待
+     * @param snapshotInterval 快照间隔
+     */
+    public WalBookingStore(Path directory, int maxBatch, Duration maxDelay, Duration snapshotInterval) {
+        this.directory = directory;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @Override
+    public synchronized long replay(Consumer<BookingRecord> consumer) {
+        if (running) {
+            throw new IllegalStateException("存储已启动，不能重复回放");
+        }
+        try {
+            Files.createDirectories(directory);
+            TreeSet<Long> snapshots = generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            TreeSet<Long> wals = generations(WAL_PREFIX, WAL_SUFFIX);
+            long[] count = {0};
+            Consumer<BookingRecord> counting = record -> {
+                count[0]++;
+                consumer.accept(record);
+            };
+
+            // 1. 选出回放基准并加载，没有快照时从空状态开始
+            long base = baseSnapshot(snapshots, wals);
+            if (base > 0) {
+                MappedRecordReader.read(snapshotFile(base), SNAPSHOT_MAGIC, counting);
+            }
+
+            // 2. 按顺序回放不早于快照的日志，只截断最新一代日志尾部的残缺记录
+            Long newest = wals.isEmpty() ? null : wals.last();
+            for (Long wal : wals.tailSet(base, true)) {
+                Path file = walFile(wal);
+                long end = MappedRecordReader.read(file, WAL_MAGIC, counting);
+                long size = Files.size(file);
+                if (end == size) {
+                    continue;
+                }
+                if (!wal.equals(newest)) {
+                    throw new IOException("日志文件 " + file + " 在偏移量 " + Math.max(end, 0)
+                            + " 处损坏，之后还有更新的日志，无法安全恢复");
+                }
+                if (end < 0) {
+                    // 创建日志时崩溃，文件头不完整：重写文件头，保持代号连续
+                    log.warn("⚠️ 日志文件 {} 头部不完整，已重写文件头", file);
+                    end = 0;
+                }
+                log.warn("⚠️ 日志文件 {} 尾部存在残缺记录，截断到 {} 字节", file, end);
+                try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    ch.truncate(end);
+                    if (end == 0) {
+                        ch.write(ByteBuffer.wrap(MappedRecordReader.magicBytes(WAL_MAGIC)), 0);
+                    }
+                    ch.force(true);
+                }
+            }
+
+            // 3. 新写入总是进入新一代日志，已有文件保持只读
+            long last = Math.max(snapshots.isEmpty() ? 0 : snapshots.last(), wals.isEmpty() ? 0 : wals.last());
+            openSegment(last + 1);
+
+            running = true;
+            writer = new Thread(this::writeLoop, "booking-wal-writer");
+            writer.setDaemon(true);
+            writer.start();
+
+            log.info("✅ 预订存储回放完成，目录：{}，快照代号：{}，共回放 {} 条记录", directory, base, count[0]);
+            return count[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException("回放预订存储失败：" + directory, e);
+        }
+    }
+
+    /**
+     * 选出回放基准快照
+     *
+     * <p>优先使用最新的快照；它损坏时，更早的快照只有在从其代号到最新快照之间的日志都还在时才能代替它
+     * （快照发布后这些日志就会被删除）。没有快照时从空状态回放全部日志。</p>
+     *
+     * @param snapshots 全部快照代号
+     * @param wals 全部日志代号
+     * @return long 基准快照代号，为0表示从空状态开始
+     * @throws IOException 快照损坏且无法用更早的快照恢复
+     */
+    private long baseSnapshot(TreeSet<Long> snapshots, TreeSet<Long> wals) throws IOException {
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        long latest = snapshots.last();
+        for (Long snapshot : snapshots.descendingSet()) {
+            if (snapshot != latest && !coveredByLogs(wals, snapshot, latest)) {
+                break;
+            }
+            Path file = snapshotFile(snapshot);
+            long end = MappedRecordReader.read(file, SNAPSHOT_MAGIC, record -> { });
+            if (end == Files.size(file)) {
+                return snapshot;
+            }
+            log.error("❌ 快照文件 {} 已损坏（有效数据截至偏移量 {}），尝试更早的快照", file, end);
+        }
+        if (coveredByLogs(wals, 1, latest)) {
+            log.warn("⚠️ 快照均已损坏，从全部日志恢复");
+            return 0;
+        }
+        throw new IOException("快照文件 " + snapshotFile(latest) + " 已损坏，且更早的快照缺少对应的日志，无法恢复");
+    }
+
+    /**
+     * 代号 [from, to) 的日志是否都还在
+     */
+    private static boolean coveredByLogs(TreeSet<Long> wals, long from, long to) {
+        for (long gen = from; gen < to; gen++) {
+            if (!wals.contains(gen)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Void> append(BookingRecord record) {
+        CompletableFuture<Void> future = enqueue(BookingRecordCodec.encode(record));
+        appendedSinceSnapshot.incrementAndGet();
+        return future;
+    }
+
+    /**
+     * 将记录放入写队列；存储已关闭或已失败时直接返回失败的Future
+     *
+     * <p>入队后再次检查 {@code running}：若 {@link #close()} 在检查与入队之间完成了清空队列，
+     * 这条记录不会再被任何线程处理，由调用方自行移出并失败，避免等待者永久阻塞。
+     * 若移出失败，说明写线程或 {@link #close()} 已经取走并会负责完成它。</p>
+     *
+     * @param frame 编码后的记录，为null表示日志切换标记
+     * @return CompletableFuture<Void> 记录落盘（或日志切换）后完成
+     */
+    private CompletableFuture<Void> enqueue(byte[] frame) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        IOException failed = failure;
+        if (failed != null) {
+            future.completeExceptionally(failed);
+            return future;
+        }
+        if (!running) {
+            future.completeExceptionally(new IllegalStateException("预订存储未启动或已关闭"));
+            return future;
+        }
+        Pending pending = new Pending(frame, future);
+        queue.add(pending);
+        if (!running && queue.remove(pending)) {
+            future.completeExceptionally(new IllegalStateException("预订存储已关闭"));
+        }
+        return future;
+    }
+
+    @Override
+    public synchronized void start(Supplier<Stream<BookingRecord>> snapshotSource) {
+        if (snapshotScheduler != null || snapshotInterval.isZero() || snapshotInterval.isNegative()) {
+            return;
+        }
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "booking-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = snapshotInterval.toMillis();
+        snapshotScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint(snapshotSource);
+            } catch (Exception e) {
+                log.error("❌ 预订快照失败", e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 生成一次快照并清理更早的日志
+     *
+     * <p>先切换到新一代日志，此后的变更都会落在新日志中；快照在切换之后读取，
+     * 至少包含旧日志中的全部变更，因此“快照 + 新日志”即可完整恢复。</p>
+     *
+     * @param snapshotSource 当前全部预订状态
+     * @throws IOException 写快照失败
+     */
+    void checkpoint(Supplier<Stream<BookingRecord>> snapshotSource) throws IOException {
+        if (appendedSinceSnapshot.getAndSet(0) == 0) {
+            return;
+        }
+
+        // 1. 由写线程切换日志，保证切换点之前的记录都已落盘
+        try {
+            enqueue(null).join();
+        } catch (CompletionException e) {
+            // 存储已关闭或已失败停止，本次不生成快照
+            appendedSinceSnapshot.incrementAndGet();
+            throw e;
+        }
+        long snapshotGeneration = generation;
+
+        // 2. 写临时文件，刷盘后原子重命名发布
+        Path tmp = directory.resolve(SNAPSHOT_PREFIX + format(snapshotGeneration) + ".tmp");
+        long records = 0;
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+                 Stream<BookingRecord> source = snapshotSource.get()) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 20);
+                out.write(MappedRecordReader.magicBytes(SNAPSHOT_MAGIC));
+                Iterator<BookingRecord> iterator = source.iterator();
+                while (iterator.hasNext()) {
+                    out.write(BookingRecordCodec.encode(iterator.next()));
+                    records++;
+                }
+                out.flush();
+                ch.force(true);
+            }
+            Files.move(tmp, snapshotFile(snapshotGeneration), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            // 写到一半的临时文件不会被回放，但会一直占用磁盘
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        syncDirectory();
+
+        // 3. 清理被快照覆盖的旧文件
+        for (Long old : generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).headSet(snapshotGeneration, false)) {
+            Files.deleteIfExists(snapshotFile(old));
+        }
+        for (Long old : generations(WAL_PREFIX, WAL_SUFFIX).headSet(snapshotGeneration, false)) {
+            Files.deleteIfExists(walFile(old));
+        }
+        log.info("✅ 预订快照完成，代号：{}，共 {} 条记录", snapshotGeneration, records);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 关闭过程中进入队列但未被写线程处理的记录
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future().completeExceptionally(new IllegalStateException("预订存储已关闭"));
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("⚠️ 关闭日志文件失败", e);
+        }
+        log.info("✅ 预订存储已关闭");
+    }
+
+    /**
+     * 写线程主循环：取出一批记录，一次写入、一次刷盘
+     */
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            Pending first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            int waiting = queue.size();
+            if (maxDelayNanos > 0 && waiting > 0 && waiting < maxBatch - 1) {
+                // 已有其他写入在排队，说明存在并发，给后续写入者一点时间加入本批次；
+                // 只有一个写入者时立即刷盘，不为等不到的写入多付延迟
+                LockSupport.parkNanos(maxDelayNanos);
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * 写出一批记录；遇到日志切换标记时先提交之前的记录再切换
+     */
+    private void flush(List<Pending> batch) {
+        if (failure != null) {
+            batch.forEach(p -> p.future().completeExceptionally(failure));
+            return;
+        }
+        List<Pending> group = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            if (pending.frame() != null) {
+                group.add(pending);
+                continue;
+            }
+            commit(group);
+            group.clear();
+            if (failure != null) {
+                pending.future().completeExceptionally(failure);
+                continue;
+            }
+            try {
+                openSegment(generation + 1);
+                pending.future().complete(null);
+            } catch (IOException e) {
+                log.error("❌ 切换预订日志失败", e);
+                pending.future().completeExceptionally(e);
+            }
+        }
+        commit(group);
+    }
+
+    /**
+     * 组提交：聚合写入后只做一次 fsync，再统一通知等待者
+     *
+     * <p>写入或刷盘失败时进入失败停止状态，见 {@link #fail(IOException, long)}。</p>
+     */
+    private void commit(List<Pending> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        if (failure != null) {
+            group.forEach(p -> p.future().completeExceptionally(failure));
+            return;
+        }
+        ByteBuffer[] buffers = new ByteBuffer[group.size()];
+        long remaining = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(group.get(i).frame());
+            remaining += buffers[i].remaining();
+        }
+        long committed = -1;
+        try {
+            committed = channel.position();
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+            channel.force(false);
+            group.forEach(p -> p.future().complete(null));
+        } catch (IOException e) {
+            log.error("❌ 写入预订日志失败，{} 条记录未持久化，预订存储停止写入", group.size(), e);
+            fail(e, committed);
+            group.forEach(p -> p.future().completeExceptionally(e));
+        }
+    }
+
+    /**
+     * 失败停止：记录失败原因，尽力截断本次写入的残缺数据，并使队列中等待的记录全部失败
+     *
+     * <p>失败的批次可能只写入了一部分，且未必已刷盘；保留它会让回放在此处截断，
+     * 丢失之后写入的记录，因此失败后不再接受任何追加。</p>
+     *
+     * @param cause 写入失败的原因
+     * @param committed 本次写入前的日志位置，未知时为-1
+     */
+    private void fail(IOException cause, long committed) {
+        failure = cause;
+        if (committed >= 0) {
+            try {
+                channel.truncate(committed);
+                channel.force(true);
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+                log.error("❌ 截断预订日志失败，重启回放时将在残缺记录处截断", e);
+            }
+        }
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future().completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * 关闭当前日志并创建新一代日志
+     */
+    private void openSegment(long next) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        Path file = walFile(next);
+        FileChannel ch = openChannel(file);
+        ch.write(ByteBuffer.wrap(MappedRecordReader.magicBytes(WAL_MAGIC)));
+        ch.force(true);
+        syncDirectory();
+        channel = ch;
+        generation = next;
+    }
+
+    /**
+     * 创建日志文件的写入通道，测试中可替换以模拟磁盘故障
+     *
+     * @param file 日志文件
+     * @return FileChannel 写入通道
+     * @throws IOException 创建失败
+     */
+    FileChannel openChannel(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * 刷新目录元数据，保证新建和重命名的文件在崩溃后可见（尽力而为，部分平台不支持）
+     */
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("目录元数据刷盘不受支持：{}", e.getMessage());
+        }
+    }
+
+    private TreeSet<Long> generations(String prefix, String suffix) throws IOException {
+        TreeSet<Long> result = new TreeSet<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .forEach(name -> {
+                        try {
+                            result.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                        } catch (NumberFormatException e) {
+                            log.warn("⚠️ 忽略无法识别的文件：{}", name);
+                        }
+                    });
+        }
+        return result;
+    }
+
+    private Path walFile(long gen) {
+        return directory.resolve(WAL_PREFIX + format(gen) + WAL_SUFFIX);
+    }
+
+    private Path snapshotFile(long gen) {
+        return directory.resolve(SNAPSHOT_PREFIX + format(gen) + SNAPSHOT_SUFFIX);
+    }
+
+    private static String format(long gen) {
+        return String.format("%016d", gen);
+    }
+
+    /**
+     * 待写入的记录；frame为null表示日志切换标记
+     */
+    private record Pending(byte[] frame, CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,368 @@
+package com.hzx.ai.services;
+
+import com.hzx.ai.model.Booking;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+import com.hzx.ai.repository.BookingRepository;
+import com.hzx.ai.repository.StripedBookingLocks;
+import com.hzx.ai.repository.journal.BookingRecord;
+import com.hzx.ai.repository.journal.BookingStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 航班预订自动完成调度器
+ *
+ * <p>按 {@link BookingStatusEnum} 的约定，已确认的预订在航班起飞后自动转为已完成。
+ * 每个已确认预订按“航班日期零点 + 完成延迟”放入 {@link TimingWheel}，
+ * 后台线程每格推进一次时钟，只取出当前槽位到期的预订，不再定期扫描全部预订。</p>
+ *
+ * <p>到期的预订按批处理：每项在各自的分段锁内复核仍为已确认且已到期，转为已完成并追加持久化记录，
+ * 整批处理完后再统一等待落盘，多项合并为一次组提交；转为已完成的预订同时使其 {@link BookingDetailsCache} 条目失效。期间被取消、或航班日期被改到更晚的预订会被跳过，
+ * 改期时 {@link FlightBookingService} 会按新日期重新登记。</p>
+ *
+ * <p>调度信息只保存在内存中，启动时从已恢复的仓储扫描一次全部已确认预订重建；
+ * 停机期间已到期的预订在启动后的第一次推进时补做。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Slf4j
+public class BookingCompletionScheduler implements AutoCloseable {
+
+    private final BookingRepository bookingRepository;
+
+    private final StripedBookingLocks bookingLocks;
+
+    private final BookingStore bookingStore;
+
+    private final Clock clock;
+
+    private final Duration tick;
+
+    private final Duration completionDelay;
+
+    private final int batchSize;
+
+    private final BookingDetailsCache detailsCache;
+
+    /**
+     * 登记的预订号，由 {@code this} 保护
+     */
+    private final TimingWheel<String> wheel;
+
+    /**
+     * 登记时已经到期的预订号，下一次推进时处理，由 {@code this} 保护
+     */
+    private List<String> overdue = new ArrayList<>();
+
+    private ScheduledExecutorService executor;
+
+    private Counter transitions;
+
+    private Counter failures;
+
+    private Timer lag;
+
+    /**
+     * 构造函数，不使预订详情缓存失效
+     *
+     * @param bookingRepository 航班预订仓储
+     * @param bookingLocks 航班预订分段锁
+     * @param bookingStore 航班预订持久化存储
+     * @param clock 时钟，航班日期按其时区换算
+     * @param tick 时间轮每格的时长，也是后台推进的间隔
+     * @param wheelSize 时间轮每层的槽位数
+     * @param completionDelay 从航班日期零点起，到转为已完成的时长
+     * @param batchSize 每批处理的最大预订数
+     */
+    public BookingCompletionScheduler(BookingRepository bookingRepository,
+                                      StripedBookingLocks bookingLocks,
+                                      BookingStore bookingStore,
+                                      Clock clock,
+                                      Duration tick,
+                                      int wheelSize,
+                                      Duration completionDelay,
+                                      int batchSize) {
+        this(bookingRepository, bookingLocks, bookingStore, clock, tick, wheelSize, completionDelay, batchSize, null);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param bookingRepository 航班预订仓储
+     * @param bookingLocks 航班预订分段锁
+     * @param bookingStore 航班预订持久化存储
+     * @param clock 时钟，航班日期按其时区换算
+     * @param tick 时间轮每格的时长，也是后台推进的间隔
+     * @param wheelSize 时间轮每层的槽位数
+     * @param completionDelay 从航班日期零点起，到转为已完成的时长
+     * @param batchSize 每批处理的最大预订数
+     * @param detailsCache 预订详情缓存，为null时不缓存预订详情
+     */
+    public BookingCompletionScheduler(BookingRepository bookingRepository,
+                                      StripedBookingLocks bookingLocks,
+                                      BookingStore bookingStore,
+                                      Clock clock,
+                                      Duration tick,
+                                      int wheelSize,
+                                      Duration completionDelay,
+                                      int batchSize,
+                                      @Nullable BookingDetailsCache detailsCache) {
+        if (tick.isZero() || tick.isNegative()) {
+            throw new IllegalArgumentException("调度间隔必须大于0：" + tick);
+        }
+        if (completionDelay.isNegative()) {
+            throw new IllegalArgumentException("完成延迟不能为负：" + completionDelay);
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("每批处理的预订数必须大于0：" + batchSize);
+        }
+        this.bookingRepository = bookingRepository;
+        this.bookingLocks = bookingLocks;
+        this.bookingStore = bookingStore;
+        this.clock = clock;
+        this.tick = tick;
+        this.completionDelay = completionDelay;
+        this.batchSize = batchSize;
+        this.detailsCache = detailsCache;
+        this.wheel = new TimingWheel<>(tick.toMillis(), wheelSize, clock.millis());
+    }
+
+    /**
+     * 从仓储重建调度信息并启动后台推进，在仓储恢复完成后调用
+     *
+     * @return int 登记的已确认预订数
+     */
+    public int start() {
+        int scheduled = rebuild();
+        synchronized (this) {
+            if (executor == null) {
+                executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "booking-completion");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                long period = tick.toMillis();
+                executor.scheduleWithFixedDelay(() -> {
+                    try {
+                        advance();
+                    } catch (Exception e) {
+                        log.error("❌ 预订自动完成失败", e);
+                    }
+                }, 0, period, TimeUnit.MILLISECONDS);
+            }
+        }
+        log.info("✅ 预订自动完成调度已启动，登记 {} 个已确认预订", scheduled);
+        return scheduled;
+    }
+
+    /**
+     * 扫描仓储，登记全部已确认预订
+     *
+     * @return int 登记的预订数
+     */
+    int rebuild() {
+        int scheduled = 0;
+        try (Stream<Booking> bookings = bookingRepository.scanAfter(null)) {
+            for (Booking booking : (Iterable<Booking>) bookings::iterator) {
+                LocalDate date = bookingLocks.withLock(booking.getBookingNumber(),
+                        () -> booking.getBookingStatus() == BookingStatusEnum.CONFIRMED ? booking.getDate() : null);
+                if (date != null) {
+                    schedule(booking.getBookingNumber(), date);
+                    scheduled++;
+                }
+            }
+        }
+        return scheduled;
+    }
+
+    /**
+     * 登记预订的完成时刻
+     *
+     * <p>同一预订可以多次登记（如改期），到期时以预订的最新状态为准，多余的登记会被跳过。</p>
+     *
+     * @param bookingNumber 预订号
+     * @param date 航班日期
+     */
+    public synchronized void schedule(String bookingNumber, LocalDate date) {
+        if (date == null) {
+            return;
+        }
+        if (!wheel.add(bookingNumber, deadlineOf(date))) {
+            overdue.add(bookingNumber);
+        }
+    }
+
+    /**
+     * 推进时钟，把到期的已确认预订转为已完成
+     *
+     * @return int 本次转为已完成的预订数
+     */
+    int advance() {
+        List<String> due;
+        synchronized (this) {
+            due = overdue;
+            overdue = new ArrayList<>();
+            wheel.advance(clock.millis(), due::add);
+        }
+        int completed = 0;
+        for (int from = 0; from < due.size(); from += batchSize) {
+            completed += complete(due.subList(from, Math.min(from + batchSize, due.size())));
+        }
+        if (completed > 0) {
+            log.info("✅ 已有 {} 个航班预订自动转为已完成", completed);
+        }
+        return completed;
+    }
+
+    /**
+     * 处理一批到期的预订，整批追加完成后统一等待落盘
+     */
+    private int complete(List<String> bookingNumbers) {
+        long now = clock.millis();
+        List<CompletableFuture<Void>> commits = new ArrayList<>(bookingNumbers.size());
+        List<String> completed = new ArrayList<>(bookingNumbers.size());
+        for (String bookingNumber : bookingNumbers) {
+            CompletableFuture<Void> commit = bookingLocks.withLock(bookingNumber, () -> {
+                Booking booking = bookingRepository.findByBookingNumber(bookingNumber).orElse(null);
+                // 已取消、已完成或改到更晚日期的预订不处理
+                if (booking == null
+                        || booking.getBookingStatus() != BookingStatusEnum.CONFIRMED
+                        || booking.getDate() == null
+                        || deadlineOf(booking.getDate()) > now) {
+                    return null;
+                }
+                bookingRepository.update(booking, b -> b.setBookingStatus(BookingStatusEnum.COMPLETED));
+                if (detailsCache != null) {
+                    detailsCache.invalidate(bookingNumber);
+                }
+                if (lag != null) {
+                    lag.record(now - deadlineOf(booking.getDate()), TimeUnit.MILLISECONDS);
+                }
+                return bookingStore.append(BookingRecord.of(booking));
+            });
+            if (commit != null) {
+                commits.add(commit);
+                completed.add(bookingNumber);
+            }
+        }
+        for (int i = 0; i < commits.size(); i++) {
+            try {
+                commits.get(i).join();
+            } catch (RuntimeException e) {
+                // 还原为已确认，与存储保持一致；存储恢复（重启）后重建时会再次完成
+                log.warn("⚠️ 预订 {} 自动完成的持久化失败：{}", completed.get(i), e.getMessage());
+                revert(completed.get(i));
+                completed.set(i, null);
+                increment(failures);
+            }
+        }
+        completed.removeIf(Objects::isNull);
+        if (transitions != null) {
+            transitions.increment(completed.size());
+        }
+        return completed.size();
+    }
+
+    /**
+     * 自动完成落盘失败时还原为已确认
+     *
+     * <p>已完成的预订航班日期已过，不能再修改或取消，因此仍为已完成时即是本次写入的状态。</p>
+     */
+    private void revert(String bookingNumber) {
+        bookingLocks.withLock(bookingNumber, () -> bookingRepository.findByBookingNumber(bookingNumber)
+                .filter(booking -> booking.getBookingStatus() == BookingStatusEnum.COMPLETED)
+                .ifPresent(booking -> {
+                    bookingRepository.update(booking, b -> b.setBookingStatus(BookingStatusEnum.CONFIRMED));
+                    if (detailsCache != null) {
+                        detailsCache.invalidate(bookingNumber);
+                    }
+                }));
+    }
+
+    /**
+     * 预订转为已完成的时刻：航班日期零点加上完成延迟
+     *
+     * @param date 航班日期
+     * @return long 时刻（毫秒）
+     */
+    long deadlineOf(LocalDate date) {
+        ZoneId zone = clock.getZone();
+        return date.atStartOfDay(zone).toInstant().plus(completionDelay).toEpochMilli();
+    }
+
+    /**
+     * 时间轮和待处理列表中登记的预订数（含已失效的登记）
+     *
+     * @return int 登记数
+     */
+    public synchronized int pending() {
+        return wheel.size() + overdue.size();
+    }
+
+    /**
+     * 注册监控指标：转为已完成的预订数、持久化失败数、完成延迟和登记数
+     *
+     * @param registry 指标注册表
+     */
+    public void bindTo(MeterRegistry registry) {
+        transitions = Counter.builder("booking.completion.transitions")
+                .description("自动转为已完成的预订数")
+                .register(registry);
+        failures = Counter.builder("booking.completion.failures")
+                .description("自动完成后持久化失败的预订数")
+                .register(registry);
+        lag = Timer.builder("booking.completion.lag")
+                .description("预订实际转为已完成的时刻与应完成时刻之差")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        Gauge.builder("booking.completion.pending", this, BookingCompletionScheduler::pending)
+                .description("等待自动完成的登记数")
+                .register(registry);
+    }
+
+    /**
+     * 停止后台推进，等待正在处理的一批完成
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = executor;
+            executor = null;
+        }
+        if (running == null) {
+            return;
+        }
+        running.shutdownNow();
+        try {
+            running.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
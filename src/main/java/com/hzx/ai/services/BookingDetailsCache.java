@@ -0,0 +1,112 @@
+package com.hzx.ai.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.repository.BookingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * 预订详情缓存
+ *
+ * <p>按归一化的预订号缓存 {@link BookingDetails}，未命中时调用加载函数读取并写入缓存，
+ * 命中时不加锁、不查仓储、不分配新的详情对象。条目数有上限，超出时按 W-TinyLFU 策略淘汰。</p>
+ *
+ * <p>预订被修改、取消或自动完成后，调用方在持有该预订的分段锁期间调用 {@link #invalidate}。
+ * 每个预订号对应一个版本号（按哈希分段，内存占用固定），失效时先递增版本再删除条目；
+ * 加载完成后只在版本未变时写入缓存，复核与写入在同一个原子操作中完成，
+ * 加载期间发生过失效时只返回给本次调用方、不写入缓存。
+ * 因此修改返回之后的查询不会读到修改之前的快照。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class BookingDetailsCache {
+
+    /**
+     * 版本号分段数，必须是2的幂
+     */
+    private static final int VERSION_STRIPES = 1024;
+
+    private final Cache<String, BookingDetails> details;
+
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    /**
+     * 构造函数
+     *
+     * @param maxEntries 缓存的预订详情条数上限
+     */
+    public BookingDetailsCache(long maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("预订详情缓存的条目上限必须大于0");
+        }
+        this.details = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                // 淘汰维护在调用线程上完成，避免占用公共线程池
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 读取预订详情，未命中时加载并写入缓存
+     *
+     * @param bookingNumber 预订号
+     * @param loader 加载预订详情，预订不存在时抛出异常，异常不缓存
+     * @return BookingDetails 预订详情
+     */
+    public BookingDetails get(String bookingNumber, Supplier<BookingDetails> loader) {
+        String key = BookingRepository.normalize(bookingNumber);
+        BookingDetails cached = details.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        int stripe = stripe(key);
+        long version = versions.get(stripe);
+        BookingDetails loaded = loader.get();
+        // 加载期间预订被修改时加载到的可能是旧快照，保留现有条目；
+        // 失效先递增版本再删除条目，删除与此处的写入按键互斥，不会留下旧快照
+        details.asMap().compute(key, (k, current) -> versions.get(stripe) == version ? loaded : current);
+        return loaded;
+    }
+
+    /**
+     * 预订变更后使其缓存失效
+     *
+     * @param bookingNumber 预订号
+     */
+    public void invalidate(String bookingNumber) {
+        String key = BookingRepository.normalize(bookingNumber);
+        versions.incrementAndGet(stripe(key));
+        details.invalidate(key);
+    }
+
+    /**
+     * 当前缓存的条目数（估算值）
+     *
+     * @return long 条目数
+     */
+    public long size() {
+        return details.estimatedSize();
+    }
+
+    /**
+     * 注册监控指标，缓存名为 {@code booking.details}：命中、未命中、淘汰次数和条目数
+     *
+     * @param registry 指标注册表
+     */
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, details, "booking.details");
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+}
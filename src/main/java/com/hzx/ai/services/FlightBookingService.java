@@ -1,31 +1,67 @@
 package com.hzx.ai.services;
 
+import com.hzx.ai.airport.AirportCatalog;
+import com.hzx.ai.airport.City;
 import com.hzx.ai.model.Booking;
-import com.hzx.ai.model.BookingData;
 import com.hzx.ai.model.Customer;
+import com.hzx.ai.model.dto.BookingBatchItem;
+import com.hzx.ai.model.dto.BookingBatchResult;
 import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.model.dto.BookingPage;
 import com.hzx.ai.model.enums.BookingCategoryEnum;
 import com.hzx.ai.model.enums.BookingStatusEnum;
+import com.hzx.ai.model.request.BookingDetailsRequest;
+import com.hzx.ai.model.request.BookingQuery;
+import com.hzx.ai.model.request.CancelBookingRequest;
+import com.hzx.ai.model.request.ChangeBookingDatesRequest;
+import com.hzx.ai.repository.BookingRepository;
+import com.hzx.ai.repository.StripedBookingLocks;
+import com.hzx.ai.repository.journal.BookingRecord;
+import com.hzx.ai.repository.journal.BookingStore;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * 航班预订服务类
  * 
  * <p>提供航班预订的核心业务逻辑，包括预订查询、修改、取消等功能。
- * 使用内存数据存储演示数据，支持基本的航班预订管理操作。</p>
+ * 数据访问通过 {@link BookingRepository} 完成，按预订号的查询走哈希索引。
+ * 对单个预订的读写都在 {@link StripedBookingLocks} 对应分段锁内完成，
+ * 并发会话之间的修改与取消线性一致，不会出现日期/出发地/目的地被部分覆盖。
+ * 每次变更后的预订状态写入 {@link BookingStore}，在分段锁内等待落盘后才向调用方返回成功，
+ * 落盘失败时在锁内把预订还原为变更前的状态，其他会话读不到未持久化的变更；
+ * 重启时从存储回放，不再丢失修改和取消。</p>
+ * 
+ * <p>按预订号查询详情时先读 {@link BookingDetailsCache}，命中时不加锁；
+ * 修改、取消在分段锁内使对应预订的缓存失效。</p>
  * 
  * <p>主要功能：</p>
  * <ul>
- *   <li>航班预订信息查询</li>
- *   <li>航班预订信息修改</li>
+ *   <li>航班预订信息查询（支持条件过滤、游标分页和流式遍历）</li>
+ *   <li>按客户、航线、出发日期范围查询，走仓储的二级索引</li>
+ *   <li>航班预订信息修改，出发地、目的地经 {@link AirportCatalog} 校验并统一为城市名</li>
  *   <li>航班预订取消</li>
- *   <li>演示数据初始化</li>
+ *   <li>批量查询、修改、取消，逐项报告结果，变更一次等待落盘</li>
+ *   <li>启动时回放持久化数据，存储为空时初始化演示数据</li>
+ *   <li>航班起飞后由 {@link BookingCompletionScheduler} 自动转为已完成</li>
  * </ul>
  * 
  * <p>业务规则：</p>
@@ -42,33 +78,158 @@ import java.util.Random;
 @Slf4j
 public class FlightBookingService {
 
-    private final BookingData db;
+    /**
+     * 单次批量操作最多处理的预订数
+     */
+    public static final int MAX_BATCH_SIZE = 100;
+
+    private final BookingRepository bookingRepository;
+
+    private final StripedBookingLocks bookingLocks;
+
+    private final BookingStore bookingStore;
+
+    private final AirportCatalog airportCatalog;
+
+    private final BookingCompletionScheduler completionScheduler;
+
+    private final BookingDetailsCache detailsCache;
+
+    /**
+     * 构造函数，使用随应用发布的机场目录，不启用自动完成
+     *
+     * @param bookingRepository 航班预订仓储
+     * @param bookingLocks 航班预订分段锁
+     * @param bookingStore 航班预订持久化存储
+     */
+    public FlightBookingService(BookingRepository bookingRepository,
+                                StripedBookingLocks bookingLocks,
+                                BookingStore bookingStore) {
+        this(bookingRepository, bookingLocks, bookingStore, AirportCatalog.defaults());
+    }
+
+    /**
+     * 构造函数，不启用自动完成
+     *
+     * @param bookingRepository 航班预订仓储
+     * @param bookingLocks 航班预订分段锁
+     * @param bookingStore 航班预订持久化存储
+     * @param airportCatalog 机场目录
+     */
+    public FlightBookingService(BookingRepository bookingRepository,
+                                StripedBookingLocks bookingLocks,
+                                BookingStore bookingStore,
+                                AirportCatalog airportCatalog) {
+        this(bookingRepository, bookingLocks, bookingStore, airportCatalog, null);
+    }
+
+    /**
+     * 构造函数，不缓存预订详情
+     *
+     * @param bookingRepository 航班预订仓储
+     * @param bookingLocks 航班预订分段锁
+     * @param bookingStore 航班预订持久化存储
+     * @param airportCatalog 机场目录
+     * @param completionScheduler 自动完成调度器，为null时不自动完成
+     */
+    public FlightBookingService(BookingRepository bookingRepository,
+                                StripedBookingLocks bookingLocks,
+                                BookingStore bookingStore,
+                                AirportCatalog airportCatalog,
+                                @Nullable BookingCompletionScheduler completionScheduler) {
+        this(bookingRepository, bookingLocks, bookingStore, airportCatalog, completionScheduler, null);
+    }
+
+    /**
+     * 构造函数，回放持久化数据，存储为空时初始化演示数据，随后启动自动完成调度
+     *
+     * @param bookingRepository 航班预订仓储
+     * @param bookingLocks 航班预订分段锁
+     * @param bookingStore 航班预订持久化存储
+     * @param airportCatalog 机场目录
+     * @param completionScheduler 自动完成调度器，为null时不自动完成
+     * @param detailsCache 预订详情缓存，为null时每次查询都读仓储
+     */
+    @Autowired
+    public FlightBookingService(BookingRepository bookingRepository,
+                                StripedBookingLocks bookingLocks,
+                                BookingStore bookingStore,
+                                AirportCatalog airportCatalog,
+                                @Nullable BookingCompletionScheduler completionScheduler,
+                                @Nullable BookingDetailsCache detailsCache) {
+        this.bookingRepository = bookingRepository;
+        this.bookingLocks = bookingLocks;
+        this.bookingStore = bookingStore;
+        this.airportCatalog = airportCatalog;
+        this.completionScheduler = completionScheduler;
+        this.detailsCache = detailsCache;
+        if (restore() == 0) {
+            initDemoData();
+        }
+        bookingStore.start(this::snapshot);
+        if (completionScheduler != null) {
+            completionScheduler.start();
+        }
+    }
+
+    /**
+     * 从持久化存储回放预订数据
+     *
+     * <p>同一预订的多条记录按顺序覆盖，同名客户共享同一个客户对象。</p>
+     *
+     * @return long 回放的记录条数
+     */
+    private long restore() {
+        Map<String, Customer> customers = new HashMap<>();
+        long records = bookingStore.replay(record -> bookingRepository.findByBookingNumber(record.bookingNumber())
+                .ifPresentOrElse(
+                        existing -> bookingRepository.update(existing, record::applyTo),
+                        () -> bookingRepository.save(record.toBooking(
+                                name -> customers.computeIfAbsent(name, n -> new Customer(n, new ArrayList<>()))))
+                ));
+        if (records > 0) {
+            log.info("✅ 已从持久化存储恢复 {} 个客户，{} 个航班预订", customers.size(), bookingRepository.count());
+        }
+        return records;
+    }
+
+    /**
+     * 生成快照数据源，每条记录在各自的分段锁内读取
+     *
+     * @return Stream<BookingRecord> 全部预订的当前状态
+     */
+    private Stream<BookingRecord> snapshot() {
+        return bookingRepository.scanAfter(null)
+                .map(booking -> bookingLocks.withLock(booking.getBookingNumber(), () -> BookingRecord.of(booking)));
+    }
 
     /**
-     * 构造函数，初始化演示数据
+     * 等待预订记录落盘
+     *
+     * @param commit 追加记录返回的Future
+     * @throws IllegalStateException 持久化失败时抛出异常
      */
-    public FlightBookingService() {
-        this.db = new BookingData();
-        initDemoData();
+    private void awaitDurable(CompletableFuture<Void> commit) {
+        try {
+            commit.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("预订变更持久化失败，请稍后重试", e.getCause());
+        }
     }
 
     /**
      * 初始化演示数据
      * 
      * <p>创建示例客户和航班预订数据，用于演示系统功能。
-     * 包含5个客户的航班预订信息。</p>
+     * 包含5个客户的航班预订信息，出发地和目的地从机场目录的城市中随机选取。</p>
      */
     private void initDemoData() {
         // 示例客户姓名
         List<String> names = List.of(
                 "徐庶", "诸葛", "百里", "楼兰", "庄周"
         );
-        
-        // 示例机场代码
-        List<String> airportCodes = List.of(
-            "北京", "上海", "广州", "深圳", "杭州", "南京", 
-            "青岛", "成都", "武汉", "西安", "重庆", "大连", "天津"
-        );
+
+        List<City> cities = airportCatalog.cities();
         
         Random random = new Random();
         List<Customer> customers = new ArrayList<>();
@@ -77,8 +238,11 @@ public class FlightBookingService {
         // 为每个客户创建航班预订
         for (int i = 0; i < 5; i++) {
             String name = names.get(i);
-            String from = airportCodes.get(random.nextInt(airportCodes.size()));
-            String to = airportCodes.get(random.nextInt(airportCodes.size()));
+            int fromIndex = random.nextInt(cities.size());
+            // 目的地与出发地不同
+            int toIndex = (fromIndex + 1 + random.nextInt(cities.size() - 1)) % cities.size();
+            String from = cities.get(fromIndex).name();
+            String to = cities.get(toIndex).name();
             BookingCategoryEnum bookingClass = BookingCategoryEnum.values()[random.nextInt(BookingCategoryEnum.values().length)];
             
             // 创建客户
@@ -105,9 +269,12 @@ public class FlightBookingService {
             bookings.add(booking);
         }
 
-        // 重置数据库数据
-        db.setCustomers(customers);
-        db.setBookings(bookings);
+        // 写入仓储并建立索引，同时持久化
+        bookingRepository.saveAll(bookings);
+        bookings.stream()
+                .map(booking -> bookingStore.append(BookingRecord.of(booking)))
+                .toList()
+                .forEach(this::awaitDurable);
 
         log.info("✅ 演示数据初始化完成，共创建 {} 个客户，{} 个航班预订", customers.size(), bookings.size());
     }
@@ -118,22 +285,195 @@ public class FlightBookingService {
      * @return List<BookingDetails> 预订详情列表
      */
     public List<BookingDetails> getBookings() {
-        return db.getBookings().stream()
-                .map(booking ->
-                        new BookingDetails(
-                                booking.getBookingNumber(),           // 预订号
-                                booking.getCustomer().getName(),      // 客户姓名
-                                booking.getDate(),                    // 航班日期
-                                booking.getBookingStatus(),           // 预订状态
-                                booking.getFrom(),                    // 出发地
-                                booking.getTo(),                      // 目的地
-                                booking.getBookingClass().toString()  // 舱位等级
-                        ))
-                .toList();
+        return streamBookings(BookingQuery.ALL, null).toList();
+    }
+
+    /**
+     * 按条件惰性遍历航班预订
+     *
+     * <p>按预订号升序逐条读取并转换，不会一次性物化全部数据，
+     * 适合流式输出。每条记录在各自的分段锁内读取，保证单条数据一致。
+     * 出发地和目的地可以是城市名、机场名或三字码，先统一为目录中的城市名再过滤。</p>
+     *
+     * @param query 查询条件
+     * @param cursor 游标预订号，仅返回位于其后的预订；为null时从头开始
+     * @return Stream<BookingDetails> 预订详情流
+     */
+    public Stream<BookingDetails> streamBookings(BookingQuery query, String cursor) {
+        BookingQuery resolved = withCityNames(query);
+        return bookingRepository.scanAfter(cursor)
+                .map(booking -> bookingLocks.withLock(booking.getBookingNumber(), () -> toDetails(booking)))
+                .filter(resolved::matches);
+    }
+
+    /**
+     * 按条件分页查询航班预订（键集分页）
+     *
+     * @param query 查询条件
+     * @param cursor 上一页返回的游标，首页传null
+     * @param limit 每页条数
+     * @return BookingPage 分页结果
+     */
+    public BookingPage getBookingPage(BookingQuery query, String cursor, int limit) {
+        List<BookingDetails> items = new ArrayList<>(limit);
+        Iterator<BookingDetails> iterator = streamBookings(query, cursor).iterator();
+        while (items.size() < limit && iterator.hasNext()) {
+            items.add(iterator.next());
+        }
+        // 仍有满足条件的数据时，以本页最后一条的预订号作为下一页游标
+        String nextCursor = !items.isEmpty() && iterator.hasNext()
+                ? items.get(items.size() - 1).bookingNumber()
+                : null;
+        return new BookingPage(items, nextCursor);
+    }
+
+    /**
+     * 查询客户的航班预订
+     *
+     * <p>走客户索引，按航班日期升序返回，不扫描全部预订。</p>
+     *
+     * @param name 客户姓名（忽略大小写）
+     * @param limit 最多返回的条数
+     * @return List<BookingDetails> 预订详情列表
+     * @throws IllegalArgumentException 客户姓名为空时抛出异常
+     */
+    public List<BookingDetails> getCustomerBookings(String name, int limit) {
+        requireText(name, "客户姓名不能为空");
+        return collectIndexed(bookingRepository.findByCustomerName(name),
+                details -> name.equalsIgnoreCase(details.name()), limit);
+    }
+
+    /**
+     * 查询航线上的航班预订
+     *
+     * <p>走航线索引，可同时限定航班日期范围，按航班日期升序返回。</p>
+     *
+     * @param from 出发地，可以是城市名、机场名或三字码
+     * @param to 目的地，可以是城市名、机场名或三字码
+     * @param dateFrom 航班日期下限（含），为null时不限
+     * @param dateTo 航班日期上限（含），为null时不限
+     * @param limit 最多返回的条数
+     * @return List<BookingDetails> 预订详情列表
+     * @throws IllegalArgumentException 出发地或目的地为空、日期范围颠倒时抛出异常
+     */
+    public List<BookingDetails> getRouteBookings(String from, String to, LocalDate dateFrom, LocalDate dateTo, int limit) {
+        requireText(from, "出发地不能为空");
+        requireText(to, "目的地不能为空");
+        checkDateRange(dateFrom, dateTo);
+        String fromCity = cityNameOrSelf(from);
+        String toCity = cityNameOrSelf(to);
+        BookingQuery query = new BookingQuery(null, null, fromCity, toCity, dateFrom, dateTo);
+        return collectIndexed(bookingRepository.findByRoute(fromCity, toCity, dateFrom, dateTo), query::matches, limit);
+    }
+
+    /**
+     * 查询出发日期在指定范围内的航班预订
+     *
+     * <p>走日期索引，按航班日期升序返回。</p>
+     *
+     * @param dateFrom 航班日期下限（含）
+     * @param dateTo 航班日期上限（含），为null时不限
+     * @param limit 最多返回的条数
+     * @return List<BookingDetails> 预订详情列表
+     * @throws IllegalArgumentException 日期下限为空或日期范围颠倒时抛出异常
+     */
+    public List<BookingDetails> getDepartures(LocalDate dateFrom, LocalDate dateTo, int limit) {
+        if (dateFrom == null) {
+            throw new IllegalArgumentException("航班日期下限不能为空");
+        }
+        checkDateRange(dateFrom, dateTo);
+        BookingQuery query = new BookingQuery(null, null, null, null, dateFrom, dateTo);
+        return collectIndexed(bookingRepository.findByDateBetween(dateFrom, dateTo), query::matches, limit);
+    }
+
+    /**
+     * 在各自的分段锁内读取索引给出的候选预订，并按条件复核
+     *
+     * <p>索引在修改期间可能短暂同时包含新旧两个条目，复核排除已不满足条件的预订，按对象去重避免重复返回。</p>
+     *
+     * @param candidates 索引给出的候选预订
+     * @param predicate 查询条件
+     * @param limit 最多返回的条数
+     * @return List<BookingDetails> 预订详情列表
+     */
+    private List<BookingDetails> collectIndexed(Stream<Booking> candidates, Predicate<BookingDetails> predicate, int limit) {
+        Set<Booking> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        try (candidates) {
+            return candidates
+                    .filter(seen::add)
+                    .map(booking -> bookingLocks.withLock(booking.getBookingNumber(), () -> toDetails(booking)))
+                    .filter(predicate)
+                    .limit(limit)
+                    .toList();
+        }
+    }
+
+    /**
+     * 查询条件中的地点统一为目录中的城市名，目录中没有的地点（如历史数据）按原值查询
+     */
+    private String cityNameOrSelf(String place) {
+        return airportCatalog.resolve(place).map(City::name).orElse(place);
+    }
+
+    /**
+     * 把查询条件中的出发地和目的地统一为目录中的城市名，与存储的地点一致
+     */
+    private BookingQuery withCityNames(BookingQuery query) {
+        if (query.from() == null && query.to() == null) {
+            return query;
+        }
+        return new BookingQuery(query.status(), query.bookingClass(), cityNameOrSelf(query.from()),
+                cityNameOrSelf(query.to()), query.dateFrom(), query.dateTo());
+    }
+
+    /**
+     * 校验修改后的地点，统一为目录中的城市名
+     *
+     * @param place 三字码、城市名或机场名
+     * @param role 出发地或目的地，用于错误信息
+     * @return City 城市
+     * @throws IllegalArgumentException 目录中找不到唯一匹配的城市时抛出异常
+     */
+    private City requireCity(String place, String role) {
+        requireText(place, role + "不能为空");
+        return airportCatalog.resolve(place).orElseThrow(() -> new IllegalArgumentException(
+                String.format("无法识别的%s：%s，请提供城市名、机场名或机场三字码", role, place)));
+    }
+
+    private static void requireText(String value, String message) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private static void checkDateRange(LocalDate dateFrom, LocalDate dateTo) {
+        if (dateFrom != null && dateTo != null && dateFrom.isAfter(dateTo)) {
+            throw new IllegalArgumentException("航班日期下限不能晚于上限");
+        }
+    }
+
+    /**
+     * 将航班预订转换为预订详情，调用方需持有该预订的分段锁
+     *
+     * @param booking 航班预订
+     * @return BookingDetails 预订详情
+     */
+    private BookingDetails toDetails(Booking booking) {
+        return new BookingDetails(
+                booking.getBookingNumber(),           // 预订号
+                booking.getCustomer().getName(),      // 客户姓名
+                booking.getDate(),                    // 航班日期
+                booking.getBookingStatus(),           // 预订状态
+                booking.getFrom(),                    // 出发地
+                booking.getTo(),                      // 目的地
+                booking.getBookingClass().toString()  // 舱位等级
+        );
     }
 
     /**
      * 根据预订号和客户姓名查找航班预订
+     *
+     * <p>先通过预订号主索引定位，再校验客户姓名，二者均忽略大小写。</p>
      * 
      * @param bookingNumber 预订号
      * @param name 客户姓名
@@ -141,42 +481,54 @@ public class FlightBookingService {
      * @throws IllegalArgumentException 当预订不存在时抛出异常
      */
     private Booking findBooking(String bookingNumber, String name) {
-        return db.getBookings()
-                .stream()
-                .filter(b -> b.getBookingNumber().equalsIgnoreCase(bookingNumber))
-                .filter(b -> b.getCustomer().getName().equalsIgnoreCase(name))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException(
-                    String.format("未找到预订号为 %s，客户姓名为 %s 的航班预订", bookingNumber, name)
-                ));
+        return bookingRepository.findByBookingNumberAndName(bookingNumber, name)
+                .orElseThrow(() -> bookingNotFound(bookingNumber, name));
+    }
+
+    private static IllegalArgumentException bookingNotFound(String bookingNumber, String name) {
+        return new IllegalArgumentException(
+                String.format("未找到预订号为 %s，客户姓名为 %s 的航班预订", bookingNumber, name));
     }
 
     /**
      * 查询航班预订详情
      * 
+     * <p>启用缓存时按预订号读取缓存，未命中时在分段锁内读取并写入缓存，客户姓名在缓存的详情上校验。</p>
+     * 
      * @param bookingNumber 预订号
      * @param name 客户姓名
      * @return BookingDetails 预订详情
      * @throws IllegalArgumentException 当预订不存在时抛出异常
      */
     public BookingDetails getBookingDetails(String bookingNumber, String name) {
-        Booking booking = findBooking(bookingNumber, name);
-        return new BookingDetails(
-                booking.getBookingNumber(),           // 预订号
-                booking.getCustomer().getName(),      // 客户姓名
-                booking.getDate(),                    // 航班日期
-                booking.getBookingStatus(),           // 预订状态
-                booking.getFrom(),                    // 出发地
-                booking.getTo(),                      // 目的地
-                booking.getBookingClass().toString()  // 舱位等级
-        );
+        if (detailsCache == null || bookingNumber == null) {
+            return bookingLocks.withLock(bookingNumber, () -> toDetails(findBooking(bookingNumber, name)));
+        }
+        BookingDetails details = detailsCache.get(bookingNumber, () -> bookingLocks.withLock(bookingNumber,
+                () -> toDetails(bookingRepository.findByBookingNumber(bookingNumber)
+                        .orElseThrow(() -> bookingNotFound(bookingNumber, name)))));
+        // 与 BookingRepository#findByBookingNumberAndName 一致，姓名忽略大小写
+        if (!details.name().equalsIgnoreCase(name)) {
+            throw bookingNotFound(bookingNumber, name);
+        }
+        return details;
+    }
+
+    /**
+     * 预订变更后使其详情缓存失效，调用方需持有该预订的分段锁
+     */
+    private void invalidateDetails(Booking booking) {
+        if (detailsCache != null) {
+            detailsCache.invalidate(booking.getBookingNumber());
+        }
     }
 
     /**
      * 修改航班预订信息
      * 
      * <p>支持修改航班日期、出发地和目的地。根据业务规则，
-     * 航班起飞前24小时内不允许修改。</p>
+     * 航班起飞前24小时内不允许修改。出发地和目的地可以是城市名、机场名或三字码，
+     * 经机场目录解析后保存为城市名，无法识别或二者为同一城市时拒绝修改。</p>
      * 
      * @param bookingNumber 预订号
      * @param name 客户姓名
@@ -186,19 +538,45 @@ public class FlightBookingService {
      * @throws IllegalArgumentException 当不满足修改条件时抛出异常
      */
     public void changeBooking(String bookingNumber, String name, String newDate, String from, String to) {
+        // 在锁内等待落盘；不同预订的并发修改仍然合并为一次组提交
+        BookingDetails details = bookingLocks.withLock(bookingNumber,
+                () -> commit(applyChange(bookingNumber, name, newDate, from, to)));
+
+        log.info("✅ 预订 {} 修改成功，新日期：{}，出发地：{}，目的地：{}",
+                bookingNumber, newDate, details.from(), details.to());
+    }
+
+    /**
+     * 校验并修改预订，追加持久化记录但不等待落盘，调用方需持有该预订的分段锁
+     *
+     * @throws IllegalArgumentException 当不满足修改条件时抛出异常
+     */
+    private PendingChange applyChange(String bookingNumber, String name, String newDate, String from, String to) {
+        City fromCity = requireCity(from, "出发地");
+        City toCity = requireCity(to, "目的地");
+        if (fromCity == toCity) {
+            throw new IllegalArgumentException("出发地和目的地不能是同一城市：" + fromCity.name());
+        }
         var booking = findBooking(bookingNumber, name);
-        
+
         // 检查是否可以修改（航班起飞前24小时内不允许修改）
         if (booking.getDate().isBefore(LocalDate.now().plusDays(1))) {
             throw new IllegalArgumentException("航班起飞前24小时内不允许修改预订信息");
         }
-        
-        // 更新预订信息
-        booking.setDate(LocalDate.parse(newDate));
-        booking.setFrom(from);
-        booking.setTo(to);
 
-        log.info("✅ 预订 {} 修改成功，新日期：{}，出发地：{}，目的地：{}", bookingNumber, newDate, from, to);
+        // 更新预订信息
+        LocalDate date = LocalDate.parse(newDate);
+        BookingRecord before = BookingRecord.of(booking);
+        bookingRepository.update(booking, b -> {
+            b.setDate(date);
+            b.setFrom(fromCity.name());
+            b.setTo(toCity.name());
+        });
+        invalidateDetails(booking);
+        if (completionScheduler != null) {
+            completionScheduler.schedule(booking.getBookingNumber(), date);
+        }
+        return new PendingChange(booking, before, toDetails(booking), bookingStore.append(BookingRecord.of(booking)));
     }
 
     /**
@@ -211,18 +589,220 @@ public class FlightBookingService {
      * @throws IllegalArgumentException 当不满足取消条件时抛出异常
      */
     public void cancelBooking(String bookingNumber, String name) {
+        bookingLocks.withLock(bookingNumber, () -> commit(applyCancel(bookingNumber, name)));
+
+        log.info("✅ 预订 {} 取消成功", bookingNumber);
+
+    }
+
+    /**
+     * 校验并取消预订，追加持久化记录但不等待落盘，调用方需持有该预订的分段锁
+     *
+     * @throws IllegalArgumentException 当不满足取消条件时抛出异常
+     */
+    private PendingChange applyCancel(String bookingNumber, String name) {
         var booking = findBooking(bookingNumber, name);
-        
+
         // 检查是否可以取消（航班起飞前48小时内不允许取消）
         if (booking.getDate().isBefore(LocalDate.now().plusDays(2))) {
             throw new IllegalArgumentException("航班起飞前48小时内不允许取消预订");
         }
-        
+
         // 更新预订状态为已取消
-        booking.setBookingStatus(BookingStatusEnum.CANCELLED);
+        BookingRecord before = BookingRecord.of(booking);
+        bookingRepository.update(booking, b -> b.setBookingStatus(BookingStatusEnum.CANCELLED));
+        invalidateDetails(booking);
+        return new PendingChange(booking, before, toDetails(booking), bookingStore.append(BookingRecord.of(booking)));
+    }
 
-        log.info("✅ 预订 {} 取消成功", bookingNumber);
+    /**
+     * 等待变更落盘，失败时还原预订，调用方需持有该预订的分段锁
+     *
+     * <p>在锁内等待，落盘之前其他会话读不到这次变更，还原时也不会覆盖其他会话的修改。</p>
+     *
+     * @param change 已在内存中生效的变更
+     * @return BookingDetails 变更后的预订详情
+     * @throws IllegalStateException 持久化失败时抛出异常
+     */
+    private BookingDetails commit(PendingChange change) {
+        try {
+            awaitDurable(change.commit());
+            return change.details();
+        } catch (IllegalStateException e) {
+            revert(change);
+            throw e;
+        }
+    }
+
+    /**
+     * 把落盘失败的变更还原为变更前的状态，调用方需持有该预订的分段锁
+     *
+     * <p>改期前登记的完成时刻仍在调度器中，无需重新登记。</p>
+     */
+    private void revert(PendingChange change) {
+        Booking booking = change.booking();
+        bookingRepository.update(booking, change.before()::applyTo);
+        invalidateDetails(booking);
+        log.warn("⚠️ 预订 {} 变更持久化失败，已还原", booking.getBookingNumber());
+    }
 
+    /**
+     * 批量查询航班预订详情
+     *
+     * <p>逐项查询，某项不存在或为空时只记为该项失败，不影响其他项。</p>
+     *
+     * @param requests 待查询的预订
+     * @return BookingBatchResult 每项的查询结果，顺序与请求一致
+     * @throws IllegalArgumentException 请求为空或超过 {@value #MAX_BATCH_SIZE} 项时抛出异常
+     */
+    public BookingBatchResult getBookingDetails(List<BookingDetailsRequest> requests) {
+        checkBatchSize(requests);
+        List<BookingBatchItem> items = new ArrayList<>(requests.size());
+        for (BookingDetailsRequest request : requests) {
+            if (request == null) {
+                items.add(emptyItem());
+                continue;
+            }
+            try {
+                items.add(BookingBatchItem.succeeded(getBookingDetails(request.bookingNumber(), request.name())));
+            } catch (RuntimeException e) {
+                items.add(BookingBatchItem.failed(request.bookingNumber(), request.name(), e.getMessage()));
+            }
+        }
+        return BookingBatchResult.of(items);
+    }
+
+    /**
+     * 批量修改航班预订信息
+     *
+     * <p>同时持有各项的分段锁，逐项校验和修改，规则与 {@link #changeBooking} 相同；
+     * 全部处理完后再统一等待落盘，多项修改合并为一次组提交。
+     * 批量操作不是原子的：为空、不满足修改条件或落盘失败的项记为失败（落盘失败的项被还原），其余项照常生效。</p>
+     *
+     * @param requests 待修改的预订
+     * @return BookingBatchResult 每项的修改结果，顺序与请求一致
+     * @throws IllegalArgumentException 请求为空或超过 {@value #MAX_BATCH_SIZE} 项时抛出异常
+     */
+    public BookingBatchResult changeBookings(List<ChangeBookingDatesRequest> requests) {
+        checkBatchSize(requests);
+        List<String> bookingNumbers = requests.stream().filter(Objects::nonNull)
+                .map(ChangeBookingDatesRequest::bookingNumber).toList();
+        BookingBatchResult result = bookingLocks.withLocks(bookingNumbers, () -> {
+            List<PendingChange> pending = new ArrayList<>(requests.size());
+            List<BookingBatchItem> items = new ArrayList<>(requests.size());
+            for (ChangeBookingDatesRequest request : requests) {
+                if (request == null) {
+                    pending.add(null);
+                    items.add(emptyItem());
+                    continue;
+                }
+                try {
+                    pending.add(applyChange(request.bookingNumber(), request.name(), request.date(), request.from(), request.to()));
+                    items.add(null);
+                } catch (RuntimeException e) {
+                    pending.add(null);
+                    items.add(BookingBatchItem.failed(request.bookingNumber(), request.name(), e.getMessage()));
+                }
+            }
+            return awaitBatch(pending, items);
+        });
+        log.info("✅ 批量修改预订完成，成功 {} 项，失败 {} 项", result.succeeded(), result.failed());
+        return result;
+    }
+
+    /**
+     * 批量取消航班预订
+     *
+     * <p>同时持有各项的分段锁，每项规则与 {@link #cancelBooking} 相同，全部处理完后统一等待落盘；
+     * 为空、不满足取消条件或落盘失败的项记为失败（落盘失败的项被还原），其余项照常生效。</p>
+     *
+     * @param requests 待取消的预订
+     * @return BookingBatchResult 每项的取消结果，顺序与请求一致
+     * @throws IllegalArgumentException 请求为空或超过 {@value #MAX_BATCH_SIZE} 项时抛出异常
+     */
+    public BookingBatchResult cancelBookings(List<CancelBookingRequest> requests) {
+        checkBatchSize(requests);
+        List<String> bookingNumbers = requests.stream().filter(Objects::nonNull)
+                .map(CancelBookingRequest::bookingNumber).toList();
+        BookingBatchResult result = bookingLocks.withLocks(bookingNumbers, () -> {
+            List<PendingChange> pending = new ArrayList<>(requests.size());
+            List<BookingBatchItem> items = new ArrayList<>(requests.size());
+            for (CancelBookingRequest request : requests) {
+                if (request == null) {
+                    pending.add(null);
+                    items.add(emptyItem());
+                    continue;
+                }
+                try {
+                    pending.add(applyCancel(request.bookingNumber(), request.name()));
+                    items.add(null);
+                } catch (RuntimeException e) {
+                    pending.add(null);
+                    items.add(BookingBatchItem.failed(request.bookingNumber(), request.name(), e.getMessage()));
+                }
+            }
+            return awaitBatch(pending, items);
+        });
+        log.info("✅ 批量取消预订完成，成功 {} 项，失败 {} 项", result.succeeded(), result.failed());
+        return result;
+    }
+
+    /**
+     * 等待已生效的各项落盘，补全其处理结果，调用方需持有各项的分段锁
+     *
+     * <p>落盘失败的项按逆序还原，同一预订在批量中出现多次时逐步回到批量之前的状态。</p>
+     *
+     * @param pending 每项待落盘的变更，校验失败的项为null
+     * @param items 每项的处理结果，待落盘的项为null
+     * @return BookingBatchResult 批量处理结果
+     */
+    private BookingBatchResult awaitBatch(List<PendingChange> pending, List<BookingBatchItem> items) {
+        List<PendingChange> failed = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i++) {
+            PendingChange change = pending.get(i);
+            if (change == null) {
+                continue;
+            }
+            try {
+                awaitDurable(change.commit());
+                items.set(i, BookingBatchItem.succeeded(change.details()));
+            } catch (IllegalStateException e) {
+                failed.add(change);
+                items.set(i, BookingBatchItem.failed(change.details().bookingNumber(), change.details().name(), e.getMessage()));
+            }
+        }
+        for (int i = failed.size() - 1; i >= 0; i--) {
+            revert(failed.get(i));
+        }
+        return BookingBatchResult.of(items);
+    }
+
+    /**
+     * 批量请求中为null的项（如大模型生成的参数中多出的空元素），记为失败项
+     */
+    private static BookingBatchItem emptyItem() {
+        return BookingBatchItem.failed(null, null, "批量操作中的预订不能为空");
+    }
+
+    private static void checkBatchSize(List<?> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("批量操作至少需要一个预订");
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("单次批量操作最多 " + MAX_BATCH_SIZE + " 个预订，本次为 " + requests.size() + " 个");
+        }
+    }
+
+    /**
+     * 已在内存中生效、等待落盘的变更
+     *
+     * @param booking 被变更的预订
+     * @param before 变更前的状态，落盘失败时用于还原
+     * @param details 变更后的预订详情
+     * @param commit 持久化记录的落盘结果
+     */
+    private record PendingChange(Booking booking, BookingRecord before, BookingDetails details,
+                                 CompletableFuture<Void> commit) {
     }
 
 }
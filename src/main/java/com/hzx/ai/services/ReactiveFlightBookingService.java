@@ -0,0 +1,131 @@
+package com.hzx.ai.services;
+
+import com.hzx.ai.model.dto.BookingBatchResult;
+import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.model.request.BookingDetailsRequest;
+import com.hzx.ai.model.request.BookingQuery;
+import com.hzx.ai.model.request.CancelBookingRequest;
+import com.hzx.ai.model.request.ChangeBookingDatesRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+
+/**
+ * 响应式航班预订服务
+ *
+ * <p>以 {@link Mono}/{@link Flux} 形式提供 {@link FlightBookingService} 的查询、修改、取消和批量操作。
+ * 业务逻辑仍然是阻塞的（分段锁、等待落盘），每次操作在订阅时提交到有界弹性调度器执行，
+ * 调用方线程（包括事件循环线程）不会被阻塞。调度器的线程数和排队任务数都有上限，
+ * 排队已满时操作以 {@link java.util.concurrent.RejectedExecutionException} 失败，不会无限堆积。</p>
+ *
+ * <p>流式遍历按下游请求的数量逐条读取，慢速的消费者不会导致预订在内存中堆积；取消订阅时关闭底层遍历。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+@Service
+public class ReactiveFlightBookingService {
+
+    private final FlightBookingService flightBookingService;
+
+    private final Scheduler scheduler;
+
+    /**
+     * 构造函数
+     *
+     * @param flightBookingService 航班预订服务
+     * @param bookingScheduler 执行阻塞业务逻辑的有界弹性调度器
+     */
+    public ReactiveFlightBookingService(FlightBookingService flightBookingService, Scheduler bookingScheduler) {
+        this.flightBookingService = flightBookingService;
+        this.scheduler = bookingScheduler;
+    }
+
+    /**
+     * 查询航班预订详情
+     *
+     * @param bookingNumber 预订号
+     * @param name 客户姓名
+     * @return Mono<BookingDetails> 预订详情，预订不存在时以 {@link IllegalArgumentException} 结束
+     */
+    public Mono<BookingDetails> getBookingDetails(String bookingNumber, String name) {
+        return Mono.fromCallable(() -> flightBookingService.getBookingDetails(bookingNumber, name))
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * 修改航班预订信息，落盘后完成
+     *
+     * @param bookingNumber 预订号
+     * @param name 客户姓名
+     * @param newDate 新的航班日期（格式：yyyy-MM-dd）
+     * @param from 新的出发地
+     * @param to 新的目的地
+     * @return Mono<Void> 不满足修改条件时以 {@link IllegalArgumentException} 结束
+     */
+    public Mono<Void> changeBooking(String bookingNumber, String name, String newDate, String from, String to) {
+        return Mono.<Void>fromRunnable(() -> flightBookingService.changeBooking(bookingNumber, name, newDate, from, to))
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * 取消航班预订，落盘后完成
+     *
+     * @param bookingNumber 预订号
+     * @param name 客户姓名
+     * @return Mono<Void> 不满足取消条件时以 {@link IllegalArgumentException} 结束
+     */
+    public Mono<Void> cancelBooking(String bookingNumber, String name) {
+        return Mono.<Void>fromRunnable(() -> flightBookingService.cancelBooking(bookingNumber, name))
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * 批量查询航班预订详情
+     *
+     * @param requests 待查询的预订
+     * @return Mono<BookingBatchResult> 每项的查询结果
+     */
+    public Mono<BookingBatchResult> getBookingDetails(List<BookingDetailsRequest> requests) {
+        return Mono.fromCallable(() -> flightBookingService.getBookingDetails(requests))
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * 批量修改航班预订信息
+     *
+     * @param requests 待修改的预订
+     * @return Mono<BookingBatchResult> 每项的修改结果
+     */
+    public Mono<BookingBatchResult> changeBookings(List<ChangeBookingDatesRequest> requests) {
+        return Mono.fromCallable(() -> flightBookingService.changeBookings(requests))
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * 批量取消航班预订
+     *
+     * @param requests 待取消的预订
+     * @return Mono<BookingBatchResult> 每项的取消结果
+     */
+    public Mono<BookingBatchResult> cancelBookings(List<CancelBookingRequest> requests) {
+        return Mono.fromCallable(() -> flightBookingService.cancelBookings(requests))
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * 按条件遍历航班预订，按下游请求逐条读取
+     *
+     * @param query 查询条件
+     * @param cursor 游标预订号，为null时从头开始
+     * @return Flux<BookingDetails> 预订详情流
+     */
+    public Flux<BookingDetails> streamBookings(BookingQuery query, String cursor) {
+        return Flux.fromStream(() -> flightBookingService.streamBookings(query, cursor))
+                .subscribeOn(scheduler);
+    }
+}
@@ -0,0 +1,178 @@
+package com.hzx.ai.services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮
+ *
+ * <p>第 {@code l} 层每个槽位的跨度为 {@code tick × wheelSize^l}，到期时刻越远的条目放在越高的层。
+ * 时钟每前进一格，先把高层当前槽位的条目下沉到低层，再取出第0层当前槽位的全部条目作为到期条目。
+ * 到期时刻向上取整到格，条目不会早于到期时刻取出，至多晚一格。
+ * 添加和到期都是 O(1)，每个条目至多下沉 {@code 层数} 次，推进时钟只访问当前槽位，与条目总数无关。
+ * 层数按需增加，任意远的到期时刻都能放入。</p>
+ *
+ * <p>时间轮不支持取消条目，也不是线程安全的，由调用方加锁；
+ * 条目到期后由调用方复核是否仍需处理（惰性删除）。</p>
+ *
+ * @param <T> 条目类型
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+final class TimingWheel<T> {
+
+    private final long tickMillis;
+
+    private final int wheelSize;
+
+    /**
+     * 各层，第 {@code l} 层槽位的跨度为 {@code wheelSize^l} 格
+     */
+    private final List<Level<T>> levels = new ArrayList<>();
+
+    /**
+     * 当前时刻（格），此前的槽位都已取出
+     */
+    private long currentTick;
+
+    private int size;
+
+    /**
+     * 构造函数
+     *
+     * @param tickMillis 每格的毫秒数
+     * @param wheelSize 每层的槽位数
+     * @param startMillis 起始时刻（毫秒）
+     */
+    TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("时间轮每格的时长必须大于0：" + tickMillis);
+        }
+        if (wheelSize < 2) {
+            throw new IllegalArgumentException("时间轮每层的槽位数不能小于2：" + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+        levels.add(new Level<>(1, wheelSize));
+    }
+
+    /**
+     * 添加条目
+     *
+     * @param value 条目
+     * @param deadlineMillis 到期时刻（毫秒）
+     * @return boolean 已放入时间轮返回true；已经到期时返回false，由调用方立即处理
+     */
+    boolean add(T value, long deadlineMillis) {
+        // 向上取整到格，条目只会晚于到期时刻取出（至多一格），不会提前
+        long tick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        if (tick <= currentTick) {
+            return false;
+        }
+        place(new Entry<>(value, tick));
+        size++;
+        return true;
+    }
+
+    /**
+     * 推进时钟，依次取出到期的条目
+     *
+     * @param nowMillis 当前时刻（毫秒）
+     * @param expired 到期条目的消费者，按到期格的先后调用
+     * @return int 取出的条目数
+     */
+    int advance(long nowMillis, Consumer<T> expired) {
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        int count = 0;
+        while (currentTick < target) {
+            currentTick++;
+            cascade();
+            ArrayDeque<Entry<T>> bucket = levels.get(0).bucket(currentTick);
+            Entry<T> entry;
+            while ((entry = bucket.poll()) != null) {
+                expired.accept(entry.value());
+                count++;
+            }
+        }
+        size -= count;
+        return count;
+    }
+
+    /**
+     * 时间轮中的条目数
+     *
+     * @return int 条目数
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 时钟进入高层槽位的起点时，把该槽位的条目重新放入更低的层
+     */
+    private void cascade() {
+        // 从高到低下沉，高层下沉的条目可能再落到中间层的当前槽位，随后一并下沉
+        for (int l = levels.size() - 1; l >= 1; l--) {
+            Level<T> level = levels.get(l);
+            if (currentTick % level.span() != 0) {
+                continue;
+            }
+            ArrayDeque<Entry<T>> bucket = level.bucket(currentTick);
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            List<Entry<T>> entries = new ArrayList<>(bucket);
+            bucket.clear();
+            entries.forEach(this::place);
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        long delta = entry.tick() - currentTick;
+        int l = 0;
+        long range = wheelSize;
+        // 放入能在一圈内到达的最低层
+        while (delta >= range && range <= Long.MAX_VALUE / wheelSize) {
+            l++;
+            range *= wheelSize;
+        }
+        while (levels.size() <= l) {
+            levels.add(new Level<>(levels.get(levels.size() - 1).span() * wheelSize, wheelSize));
+        }
+        levels.get(l).bucket(entry.tick()).add(entry);
+    }
+
+    /**
+     * 时间轮中的条目
+     *
+     * @param value 条目
+     * @param tick 到期格
+     */
+    private record Entry<T>(T value, long tick) {
+    }
+
+    /**
+     * 时间轮的一层
+     *
+     * @param span 每个槽位的跨度（格）
+     * @param buckets 槽位
+     */
+    private record Level<T>(long span, ArrayDeque<Entry<T>>[] buckets) {
+
+        @SuppressWarnings("unchecked")
+        Level(long span, int wheelSize) {
+            this(span, new ArrayDeque[wheelSize]);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new ArrayDeque<>();
+            }
+        }
+
+        ArrayDeque<Entry<T>> bucket(long tick) {
+            return buckets[(int) Math.floorMod(tick / span, (long) buckets.length)];
+        }
+    }
+}
@@ -1,19 +1,38 @@
 package com.hzx.ai.tool;
 
+import com.hzx.ai.model.dto.BookingBatchItem;
+import com.hzx.ai.model.dto.BookingBatchResult;
 import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.model.request.BatchBookingDetailsRequest;
+import com.hzx.ai.model.request.BatchCancelBookingRequest;
+import com.hzx.ai.model.request.BatchChangeBookingRequest;
 import com.hzx.ai.model.request.BookingDetailsRequest;
 import com.hzx.ai.model.request.CancelBookingRequest;
 import com.hzx.ai.model.request.ChangeBookingDatesRequest;
+import com.hzx.ai.repository.BookingRepository;
 import com.hzx.ai.services.FlightBookingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ToolContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Description;
 import org.springframework.core.NestedExceptionUtils;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 航班预订工具配置类
@@ -26,9 +45,18 @@ import java.util.function.Function;
  *   <li>查询航班预订详情</li>
  *   <li>修改航班预订信息</li>
  *   <li>取消航班预订</li>
+ *   <li>批量查询、修改、取消，一次函数调用处理多个预订，逐项返回结果</li>
  * </ul>
  * 
- * <p>这些函数可以被AI聊天机器人调用，实现智能化的航班预订服务。</p>
+ * <p>这些函数可以被AI聊天机器人调用，实现智能化的航班预订服务。
+ * 每个函数的耗时记录为 {@code chat.tool.duration} 指标，按 {@code function} 和 {@code outcome}（success/error）区分。</p>
+ * 
+ * <p>Spring AI 的函数调用是同步的，函数在调用线程上直接执行预订操作：同步聊天时是Web容器的请求线程，
+ * 流式聊天时是 {@code ReactiveBookingConfiguration} 转入的有界弹性调度器线程，都可以阻塞，
+ * 不会占用HTTP客户端的事件循环，也不必再切换一次线程。</p>
+ * 
+ * <p>调用方通过工具上下文的 {@value #CONVERSATION_ID} 传入会话ID，同一会话中重复的函数调用由
+ * {@link ToolCallDeduplicator} 合并：重复查询直接返回结果，重复的修改、取消不会再次执行。未启用去重或没有会话ID时每次都执行。</p>
  * 
  * @author xushu
  * @version 1.0.0
@@ -37,27 +65,52 @@ import java.util.function.Function;
 @Configuration
 public class BookingTools {
 
+    /**
+     * 工具上下文中的会话ID
+     */
+    public static final String CONVERSATION_ID = "conversationId";
+
+    /**
+     * 工具上下文中的函数调用标记（{@link AtomicBoolean}），任一函数被调用时置为true；
+     * 调用方把同一对象作为同名请求参数传给 {@link SemanticCacheAdvisor}，调用过函数的回答不写入语义缓存
+     */
+    public static final String TOOL_CALLED = "toolCalled";
+
     private static final Logger logger = LoggerFactory.getLogger(BookingTools.class);
 
     @Autowired
     private FlightBookingService flightBookingService;
 
+    @Autowired(required = false)
+    private ToolCallDeduplicator toolCallDeduplicator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     /**
      * 获取机票预订详细信息的函数
      * 
      * <p>AI聊天机器人可以通过调用此函数来查询指定客户的航班预订详情。
      * 如果查询失败，会返回包含错误信息的响应。</p>
      * 
-     * @return Function<BookingDetailsRequest, BookingDetails> 查询预订详情的函数
+     * @return BiFunction<BookingDetailsRequest, ToolContext, BookingDetails> 查询预订详情的函数
      */
     @Bean
     @Description("获取机票预订详细信息，需要提供预订号和客户姓名")
-    public Function<BookingDetailsRequest, BookingDetails> getBookingDetails() {
-        return request -> {
+    public BiFunction<BookingDetailsRequest, ToolContext, BookingDetails> getBookingDetails() {
+        ToolTimers timers = toolTimers("getBookingDetails");
+        return (request, toolContext) -> {
+            long start = System.nanoTime();
             try {
                 logger.info("查询预订详情：预订号={}, 客户姓名={}", request.bookingNumber(), request.name());
-                return flightBookingService.getBookingDetails(request.bookingNumber(), request.name());
+                BookingDetails details = read(toolContext, "getBookingDetails",
+                        Arrays.asList(request.bookingNumber(), request.name()),
+                        bookingNumbers(Stream.of(request.bookingNumber())),
+                        () -> flightBookingService.getBookingDetails(request.bookingNumber(), request.name()));
+                timers.recordSuccess(start);
+                return details;
             } catch (Exception e) {
+                timers.recordError(start);
                 String errorMessage = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
                 logger.warn("查询预订详情失败：{}", errorMessage);
                 return new BookingDetails(
@@ -79,26 +132,34 @@ public class BookingTools {
      * <p>AI聊天机器人可以通过调用此函数来修改客户的航班预订信息，
      * 包括航班日期、出发地和目的地。</p>
      * 
-     * @return Function<ChangeBookingDatesRequest, String> 修改预订信息的函数
+     * @return BiFunction<ChangeBookingDatesRequest, ToolContext, String> 修改预订信息的函数
      */
     @Bean
-    @Description("修改机票预订信息，包括日期、出发地和目的地")
-    public Function<ChangeBookingDatesRequest, String> changeBooking() {
-        return request -> {
+    @Description("修改机票预订信息，包括日期、出发地和目的地，出发地和目的地可以是城市名、机场名或机场三字码")
+    public BiFunction<ChangeBookingDatesRequest, ToolContext, String> changeBooking() {
+        ToolTimers timers = toolTimers("changeBooking");
+        return (request, toolContext) -> {
+            long start = System.nanoTime();
             try {
                 logger.info("修改预订信息：预订号={}, 客户姓名={}, 新日期={}, 出发地={}, 目的地={}", 
                     request.bookingNumber(), request.name(), request.date(), request.from(), request.to());
                 
-                flightBookingService.changeBooking(
-                    request.bookingNumber(), 
-                    request.name(), 
-                    request.date(), 
-                    request.from(),
-                    request.to()
-                );
+                String result = write(toolContext, "changeBooking", changeArguments(Stream.of(request)),
+                        bookingNumbers(Stream.of(request.bookingNumber())), () -> {
+                    flightBookingService.changeBooking(
+                        request.bookingNumber(), 
+                        request.name(), 
+                        request.date(), 
+                        request.from(),
+                        request.to()
+                    );
+                    return "预订信息修改成功";
+                });
                 
-                return "预订信息修改成功";
+                timers.recordSuccess(start);
+                return result;
             } catch (Exception e) {
+                timers.recordError(start);
                 String errorMessage = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
                 logger.error("修改预订信息失败：{}", errorMessage);
                 return "修改失败：" + errorMessage;
@@ -112,23 +173,247 @@ public class BookingTools {
      * <p>AI聊天机器人可以通过调用此函数来取消客户的航班预订。
      * 根据业务规则，航班起飞前48小时内不允许取消。</p>
      * 
-     * @return Function<CancelBookingRequest, String> 取消预订的函数
+     * @return BiFunction<CancelBookingRequest, ToolContext, String> 取消预订的函数
      */
     @Bean
     @Description("取消机票预订，需要提供预订号和客户姓名")
-    public Function<CancelBookingRequest, String> cancelBooking() {
-        return request -> {
+    public BiFunction<CancelBookingRequest, ToolContext, String> cancelBooking() {
+        ToolTimers timers = toolTimers("cancelBooking");
+        return (request, toolContext) -> {
+            long start = System.nanoTime();
             try {
                 logger.info("取消预订：预订号={}, 客户姓名={}", request.bookingNumber(), request.name());
                 
-                flightBookingService.cancelBooking(request.bookingNumber(), request.name());
+                String result = write(toolContext, "cancelBooking",
+                        Arrays.asList(request.bookingNumber(), request.name()),
+                        bookingNumbers(Stream.of(request.bookingNumber())), () -> {
+                    flightBookingService.cancelBooking(request.bookingNumber(), request.name());
+                    return "预订取消成功";
+                });
                 
-                return "预订取消成功";
+                timers.recordSuccess(start);
+                return result;
             } catch (Exception e) {
+                timers.recordError(start);
                 String errorMessage = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
                 logger.error("取消预订失败：{}", errorMessage);
                 return "取消失败：" + errorMessage;
             }
         };
     }
+
+    /**
+     * 批量获取机票预订详细信息的函数
+     *
+     * <p>团体预订等需要查询多个预订时，一次函数调用完成，不必逐个往返大模型。
+     * 某个预订不存在时只记为该项失败。</p>
+     *
+     * @return BiFunction<BatchBookingDetailsRequest, ToolContext, BookingBatchResult> 批量查询预订详情的函数
+     */
+    @Bean
+    @Description("批量获取多个机票预订的详细信息，每项需要提供预订号和客户姓名，逐项返回结果")
+    public BiFunction<BatchBookingDetailsRequest, ToolContext, BookingBatchResult> getBookingDetailsBatch() {
+        ToolTimers timers = toolTimers("getBookingDetailsBatch");
+        return (request, toolContext) -> {
+            long start = System.nanoTime();
+            try {
+                logger.info("批量查询预订详情：{}项", size(request.bookings()));
+                BookingBatchResult result = read(toolContext, "getBookingDetailsBatch",
+                        pairArguments(stream(request.bookings()), BookingDetailsRequest::bookingNumber, BookingDetailsRequest::name),
+                        bookingNumbers(stream(request.bookings()).filter(Objects::nonNull).map(BookingDetailsRequest::bookingNumber)),
+                        () -> flightBookingService.getBookingDetails(request.bookings()));
+                timers.recordSuccess(start);
+                return result;
+            } catch (Exception e) {
+                timers.recordError(start);
+                String errorMessage = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                logger.warn("批量查询预订详情失败：{}", errorMessage);
+                return rejected(request.bookings(), BookingDetailsRequest::bookingNumber, BookingDetailsRequest::name, errorMessage);
+            }
+        };
+    }
+
+    /**
+     * 批量修改机票预订信息的函数
+     *
+     * <p>每项的修改规则与 {@link #changeBooking()} 相同，不满足条件的项记为失败，其余项照常修改。</p>
+     *
+     * @return BiFunction<BatchChangeBookingRequest, ToolContext, BookingBatchResult> 批量修改预订信息的函数
+     */
+    @Bean
+    @Description("批量修改多个机票预订的日期、出发地和目的地，每项需要提供预订号、客户姓名、新日期、出发地和目的地（城市名、机场名或机场三字码），逐项返回结果，部分失败不影响其他项")
+    public BiFunction<BatchChangeBookingRequest, ToolContext, BookingBatchResult> changeBookingBatch() {
+        ToolTimers timers = toolTimers("changeBookingBatch");
+        return (request, toolContext) -> {
+            long start = System.nanoTime();
+            try {
+                logger.info("批量修改预订信息：{}项", size(request.changes()));
+                BookingBatchResult result = write(toolContext, "changeBookingBatch",
+                        changeArguments(stream(request.changes())),
+                        bookingNumbers(stream(request.changes()).filter(Objects::nonNull).map(ChangeBookingDatesRequest::bookingNumber)),
+                        () -> flightBookingService.changeBookings(request.changes()));
+                timers.recordSuccess(start);
+                return result;
+            } catch (Exception e) {
+                timers.recordError(start);
+                String errorMessage = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                logger.error("批量修改预订信息失败：{}", errorMessage);
+                return rejected(request.changes(), ChangeBookingDatesRequest::bookingNumber, ChangeBookingDatesRequest::name, errorMessage);
+            }
+        };
+    }
+
+    /**
+     * 批量取消机票预订的函数
+     *
+     * <p>每项的取消规则与 {@link #cancelBooking()} 相同，不满足条件的项记为失败，其余项照常取消。</p>
+     *
+     * @return BiFunction<BatchCancelBookingRequest, ToolContext, BookingBatchResult> 批量取消预订的函数
+     */
+    @Bean
+    @Description("批量取消多个机票预订，每项需要提供预订号和客户姓名，逐项返回结果，部分失败不影响其他项")
+    public BiFunction<BatchCancelBookingRequest, ToolContext, BookingBatchResult> cancelBookingBatch() {
+        ToolTimers timers = toolTimers("cancelBookingBatch");
+        return (request, toolContext) -> {
+            long start = System.nanoTime();
+            try {
+                logger.info("批量取消预订：{}项", size(request.bookings()));
+                BookingBatchResult result = write(toolContext, "cancelBookingBatch",
+                        pairArguments(stream(request.bookings()), CancelBookingRequest::bookingNumber, CancelBookingRequest::name),
+                        bookingNumbers(stream(request.bookings()).filter(Objects::nonNull).map(CancelBookingRequest::bookingNumber)),
+                        () -> flightBookingService.cancelBookings(request.bookings()));
+                timers.recordSuccess(start);
+                return result;
+            } catch (Exception e) {
+                timers.recordError(start);
+                String errorMessage = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                logger.error("批量取消预订失败：{}", errorMessage);
+                return rejected(request.bookings(), CancelBookingRequest::bookingNumber, CancelBookingRequest::name, errorMessage);
+            }
+        };
+    }
+
+    private static int size(List<?> requests) {
+        return requests == null ? 0 : requests.size();
+    }
+
+    /**
+     * 执行查询，启用去重时相同的查询在存活时间内只执行一次
+     */
+    private <T> T read(ToolContext toolContext, String function, List<String> arguments,
+                       Set<String> bookingNumbers, Supplier<T> call) {
+        markCalled(toolContext);
+        if (toolCallDeduplicator == null) {
+            return call.get();
+        }
+        return toolCallDeduplicator.read(conversationId(toolContext), function, arguments, bookingNumbers, call);
+    }
+
+    /**
+     * 执行修改、取消，启用去重时相同的调用在存活时间内只执行一次
+     */
+    private <T> T write(ToolContext toolContext, String function, List<String> arguments,
+                        Set<String> bookingNumbers, Supplier<T> call) {
+        markCalled(toolContext);
+        if (toolCallDeduplicator == null) {
+            return call.get();
+        }
+        return toolCallDeduplicator.write(conversationId(toolContext), function, arguments, bookingNumbers, call);
+    }
+
+    private static void markCalled(ToolContext toolContext) {
+        if (toolContext != null && toolContext.getContext() != null
+                && toolContext.getContext().get(TOOL_CALLED) instanceof AtomicBoolean called) {
+            called.set(true);
+        }
+    }
+
+    private static String conversationId(ToolContext toolContext) {
+        if (toolContext == null || toolContext.getContext() == null) {
+            return null;
+        }
+        Object conversationId = toolContext.getContext().get(CONVERSATION_ID);
+        return conversationId == null ? null : conversationId.toString();
+    }
+
+    private static <T> Stream<T> stream(List<T> requests) {
+        return requests == null ? Stream.empty() : requests.stream();
+    }
+
+    /**
+     * 涉及的预订号，去掉首尾空白并按仓储的规则归一化，大小写不同的预订号视为同一预订
+     */
+    private static Set<String> bookingNumbers(Stream<String> bookingNumbers) {
+        return bookingNumbers.filter(Objects::nonNull)
+                .map(bookingNumber -> BookingRepository.normalize(bookingNumber.strip()))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 查询、取消的去重参数：依次为每项的预订号和客户姓名，为空的项记为一个null
+     */
+    private static <T> List<String> pairArguments(Stream<T> requests, Function<T, String> bookingNumber, Function<T, String> name) {
+        return requests.flatMap(request -> request == null
+                ? Stream.of((String) null)
+                : Stream.of(bookingNumber.apply(request), name.apply(request))).toList();
+    }
+
+    /**
+     * 修改的去重参数：依次为每项的预订号、客户姓名、新日期、出发地和目的地，为空的项记为一个null
+     */
+    private static List<String> changeArguments(Stream<ChangeBookingDatesRequest> requests) {
+        return requests.flatMap(request -> request == null
+                ? Stream.of((String) null)
+                : Stream.of(request.bookingNumber(), request.name(), request.date(), request.from(), request.to())).toList();
+    }
+
+    /**
+     * 整批被拒绝（如超过数量上限）时，每项都以同一原因记为失败；没有任何项时返回一个只含原因的失败项
+     */
+    private static <T> BookingBatchResult rejected(
+            List<T> requests,
+            Function<T, String> bookingNumber,
+            Function<T, String> name,
+            String error
+    ) {
+        if (requests == null || requests.isEmpty()) {
+            return BookingBatchResult.of(List.of(BookingBatchItem.failed(null, null, error)));
+        }
+        List<BookingBatchItem> items = requests.stream()
+                .map(request -> request == null
+                        ? BookingBatchItem.failed(null, null, error)
+                        : BookingBatchItem.failed(bookingNumber.apply(request), name.apply(request), error))
+                .toList();
+        return BookingBatchResult.of(items);
+    }
+
+    /**
+     * 创建函数的耗时指标
+     */
+    private ToolTimers toolTimers(String function) {
+        return new ToolTimers(toolTimer(function, "success"), toolTimer(function, "error"));
+    }
+
+    private Timer toolTimer(String function, String outcome) {
+        return Timer.builder("chat.tool.duration")
+                .description("预订工具函数耗时")
+                .tag("function", function)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 单个函数成功和失败的耗时指标
+     */
+    private record ToolTimers(Timer success, Timer error) {
+
+        void recordSuccess(long start) {
+            success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        void recordError(long start) {
+            error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
 }
@@ -0,0 +1,234 @@
+package com.hzx.ai.tool;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY;
+
+/**
+ * 按问题检索、按令牌预算注入上下文的RAG顾问
+ *
+ * <p>替代固定查询词的 {@code QuestionAnswerAdvisor}：以用户本次的问题检索知识库，
+ * 只保留相似度不低于阈值的前 topK 个分块，并按相似度从高到低累加，
+ * 注入的上下文不超过令牌预算；没有相关分块时不注入任何内容。</p>
+ *
+ * <p>每次请求生成一份 {@link RetrievalReport}（检索耗时、检索与采用的分块数、注入的令牌数），
+ * 写入顾问上下文并记录日志，同时汇总到 {@code rag.retrieval.*} 指标。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class BudgetedRetrievalAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+    private static final Logger logger = LoggerFactory.getLogger(BudgetedRetrievalAdvisor.class);
+
+    /**
+     * 顾问上下文中的检索报告
+     */
+    public static final String RETRIEVAL_REPORT_KEY = "rag_retrieval_report";
+
+    /**
+     * 顾问上下文中本次采用的分块，与 {@code QuestionAnswerAdvisor} 使用相同的键
+     */
+    public static final String RETRIEVED_DOCUMENTS_KEY = "qa_retrieved_documents";
+
+    /**
+     * 注入上下文后，用户消息模板中的原始问题参数
+     */
+    public static final String QUESTION_PARAM = "rag_question";
+
+    private static final String CONTEXT_PARAM = "rag_context";
+
+    /**
+     * 注入上下文后的用户消息模板；问题和资料都作为模板参数传入，其中的花括号不会被当作占位符
+     */
+    private static final String USER_TEXT_TEMPLATE = """
+            {rag_question}
+
+            以下是与问题相关的参考资料，请优先依据这些资料回答；资料中没有的信息请如实说明。
+            ---------------------
+            {rag_context}
+            ---------------------
+            """;
+
+    private final VectorStore vectorStore;
+
+    private final int topK;
+
+    private final double similarityThreshold;
+
+    private final int maxContextTokens;
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    private Timer latency;
+
+    private DistributionSummary contextTokens;
+
+    /**
+     * 构造函数
+     *
+     * @param vectorStore 向量存储
+     * @param topK 最多检索的分块数
+     * @param similarityThreshold 分块的最低相似度
+     * @param maxContextTokens 注入上下文的令牌预算
+     */
+    public BudgetedRetrievalAdvisor(VectorStore vectorStore, int topK, double similarityThreshold, int maxContextTokens) {
+        this(vectorStore, topK, similarityThreshold, maxContextTokens, new JTokkitTokenCountEstimator());
+    }
+
+    /**
+     * 构造函数，可指定令牌计数方式
+     */
+    BudgetedRetrievalAdvisor(
+            VectorStore vectorStore,
+            int topK,
+            double similarityThreshold,
+            int maxContextTokens,
+            TokenCountEstimator tokenCountEstimator
+    ) {
+        this.vectorStore = vectorStore;
+        this.topK = topK;
+        this.similarityThreshold = similarityThreshold;
+        this.maxContextTokens = maxContextTokens;
+        this.tokenCountEstimator = tokenCountEstimator;
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest request, CallAroundAdvisorChain chain) {
+        return chain.nextAroundCall(augment(request));
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest request, StreamAroundAdvisorChain chain) {
+        return Flux.defer(() -> chain.nextAroundStream(augment(request)));
+    }
+
+    @Override
+    public String getName() {
+        return "BudgetedRetrievalAdvisor";
+    }
+
+    /**
+     * 排在语义缓存顾问之后：缓存命中时无需检索
+     */
+    @Override
+    public int getOrder() {
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 200;
+    }
+
+    /**
+     * 注册监控指标：检索耗时和注入的令牌数分布
+     *
+     * @param registry 指标注册表
+     */
+    public void bindTo(MeterRegistry registry) {
+        latency = Timer.builder("rag.retrieval.latency")
+                .description("RAG检索耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        contextTokens = DistributionSummary.builder("rag.retrieval.context.tokens")
+                .description("每次请求注入的上下文令牌数")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    /**
+     * 检索并把预算内的分块注入用户消息
+     */
+    private AdvisedRequest augment(AdvisedRequest request) {
+        String question = request.userText();
+        if (question == null || question.isBlank()) {
+            return request;
+        }
+
+        long start = System.nanoTime();
+        List<Document> candidates = vectorStore.similaritySearch(SearchRequest.query(question)
+                .withTopK(topK)
+                .withSimilarityThreshold(similarityThreshold));
+        long elapsed = System.nanoTime() - start;
+
+        // 按相似度从高到低累加，超出预算的分块跳过，继续尝试更短的分块
+        List<Document> used = new ArrayList<>();
+        StringBuilder context = new StringBuilder();
+        int tokens = 0;
+        for (Document document : candidates) {
+            int documentTokens = tokenCountEstimator.estimate(document.getContent());
+            if (tokens + documentTokens > maxContextTokens) {
+                continue;
+            }
+            if (!context.isEmpty()) {
+                context.append(System.lineSeparator());
+            }
+            context.append(document.getContent());
+            tokens += documentTokens;
+            used.add(document);
+        }
+
+        RetrievalReport report = new RetrievalReport(candidates.size(), used.size(), tokens,
+                TimeUnit.NANOSECONDS.toMicros(elapsed));
+        record(request, report);
+
+        Map<String, Object> adviseContext = new HashMap<>(request.adviseContext());
+        adviseContext.put(RETRIEVAL_REPORT_KEY, report);
+        adviseContext.put(RETRIEVED_DOCUMENTS_KEY, used);
+        if (used.isEmpty()) {
+            return AdvisedRequest.from(request)
+                    .withAdviseContext(adviseContext)
+                    .build();
+        }
+
+        Map<String, Object> userParams = new HashMap<>(request.userParams());
+        userParams.put(QUESTION_PARAM, question);
+        userParams.put(CONTEXT_PARAM, context.toString());
+        return AdvisedRequest.from(request)
+                .withUserText(USER_TEXT_TEMPLATE)
+                .withUserParams(userParams)
+                .withAdviseContext(adviseContext)
+                .build();
+    }
+
+    private void record(AdvisedRequest request, RetrievalReport report) {
+        if (latency != null) {
+            latency.record(report.latencyMicros(), TimeUnit.MICROSECONDS);
+            contextTokens.record(report.contextTokens());
+        }
+        logger.info("RAG检索：会话={}，耗时={}μs，检索到{}个分块，采用{}个，注入{}个令牌",
+                request.advisorParams().get(CHAT_MEMORY_CONVERSATION_ID_KEY),
+                report.latencyMicros(), report.retrieved(), report.used(), report.contextTokens());
+    }
+
+    /**
+     * 单次请求的检索报告
+     *
+     * @param retrieved 相似度达标的分块数
+     * @param used 预算内实际注入的分块数
+     * @param contextTokens 注入的令牌数
+     * @param latencyMicros 检索耗时（微秒）
+     */
+    public record RetrievalReport(int retrieved, int used, int contextTokens, long latencyMicros) {
+    }
+}
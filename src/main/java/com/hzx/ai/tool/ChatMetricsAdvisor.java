@@ -0,0 +1,290 @@
+package com.hzx.ai.tool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.core.Ordered;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天链路监控顾问
+ *
+ * <p>排在所有顾问之后、紧挨模型调用，统计以下指标，均带 {@code model} 标签：</p>
+ * <ul>
+ *   <li>{@code chat.model.duration}：模型调用耗时（含模型发起的函数调用），按 {@code mode}（call/stream）和 {@code outcome} 区分</li>
+ *   <li>{@code chat.stream.ttft}：流式调用从发出请求到收到第一段内容的耗时</li>
+ *   <li>{@code chat.stream.tokens.per.second}：流式调用首段内容之后的解码速率</li>
+ *   <li>{@code chat.tokens}：提示词和生成内容的令牌数，按 {@code type}（prompt/completion）区分</li>
+ * </ul>
+ *
+ * <p>令牌数取模型返回的用量；流式响应没有返回生成令牌数时，按收到的内容段数估算（Ollama 每段一个令牌）。
+ * 语义缓存命中的请求不会到达本顾问，不计入模型指标。其他顾问的自身耗时由 {@link #timed} 包装后统计为
+ * {@code chat.advisor.duration}。模型名取响应元数据中的模型，缺失时使用配置的模型名。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class ChatMetricsAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+    private final String defaultModel;
+
+    private final Map<String, ModelMeters> meters = new ConcurrentHashMap<>();
+
+    private MeterRegistry registry;
+
+    /**
+     * 构造函数
+     *
+     * @param defaultModel 配置的聊天模型名，响应中没有模型名时使用
+     */
+    public ChatMetricsAdvisor(String defaultModel) {
+        this.defaultModel = StringUtils.hasText(defaultModel) ? defaultModel : "unknown";
+    }
+
+    /**
+     * 注册监控指标
+     *
+     * @param registry 指标注册表
+     */
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 包装顾问，统计其自身耗时 {@code chat.advisor.duration}
+     *
+     * @param advisor 被包装的顾问
+     * @param stage 阶段名，作为 {@code stage} 标签，如 memory、cache、retrieval、logging
+     * @return CallAroundAdvisor 包装后的顾问；未注册指标时返回原顾问
+     */
+    public CallAroundAdvisor timed(CallAroundAdvisor advisor, String stage) {
+        if (registry == null) {
+            return advisor;
+        }
+        return new TimedAdvisor(advisor, stageTimer(stage, "call"), stageTimer(stage, "stream"));
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest request, CallAroundAdvisorChain chain) {
+        if (registry == null) {
+            return chain.nextAroundCall(request);
+        }
+        long start = System.nanoTime();
+        AdvisedResponse advisedResponse;
+        try {
+            advisedResponse = chain.nextAroundCall(request);
+        } catch (RuntimeException e) {
+            meters(null).callError.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        ChatResponse response = advisedResponse.response();
+        ModelMeters modelMeters = meters(response);
+        modelMeters.callSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (response != null && response.getMetadata() != null) {
+            Usage usage = response.getMetadata().getUsage();
+            modelMeters.recordTokens(tokens(usage.getPromptTokens()), tokens(usage.getGenerationTokens()));
+        }
+        return advisedResponse;
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest request, StreamAroundAdvisorChain chain) {
+        if (registry == null) {
+            return chain.nextAroundStream(request);
+        }
+        return Flux.defer(() -> {
+            StreamStats stats = new StreamStats(System.nanoTime());
+            return chain.nextAroundStream(request)
+                    .doOnNext(stats::onChunk)
+                    .doOnComplete(stats::onComplete)
+                    .doOnError(error -> stats.onError());
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "ChatMetricsAdvisor";
+    }
+
+    /**
+     * 排在最后，紧挨实际的模型调用
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+
+    private Timer stageTimer(String stage, String mode) {
+        return Timer.builder("chat.advisor.duration")
+                .description("顾问自身耗时，不含其后的顾问和模型调用")
+                .tag("stage", stage)
+                .tag("mode", mode)
+                .tag("model", defaultModel)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    private ModelMeters meters(ChatResponse response) {
+        String model = null;
+        if (response != null && response.getMetadata() != null) {
+            model = response.getMetadata().getModel();
+        }
+        return meters.computeIfAbsent(StringUtils.hasText(model) ? model : defaultModel, this::createMeters);
+    }
+
+    private ModelMeters createMeters(String model) {
+        return new ModelMeters(
+                modelTimer(model, "call", "success"),
+                modelTimer(model, "call", "error"),
+                modelTimer(model, "stream", "success"),
+                modelTimer(model, "stream", "error"),
+                Timer.builder("chat.stream.ttft")
+                        .description("流式调用首段内容耗时")
+                        .tag("model", model)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(registry),
+                DistributionSummary.builder("chat.stream.tokens.per.second")
+                        .description("流式调用首段内容之后的解码速率")
+                        .baseUnit("tokens")
+                        .tag("model", model)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(registry),
+                Counter.builder("chat.tokens")
+                        .description("提示词令牌数")
+                        .baseUnit("tokens")
+                        .tag("model", model)
+                        .tag("type", "prompt")
+                        .register(registry),
+                Counter.builder("chat.tokens")
+                        .description("生成内容令牌数")
+                        .baseUnit("tokens")
+                        .tag("model", model)
+                        .tag("type", "completion")
+                        .register(registry)
+        );
+    }
+
+    private Timer modelTimer(String model, String mode, String outcome) {
+        return Timer.builder("chat.model.duration")
+                .description("模型调用耗时，含模型发起的函数调用")
+                .tag("model", model)
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    private static long tokens(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private static boolean hasContent(ChatResponse response) {
+        return response != null
+                && response.getResult() != null
+                && response.getResult().getOutput() != null
+                && StringUtils.hasLength(response.getResult().getOutput().getContent());
+    }
+
+    /**
+     * 单个模型的指标
+     */
+    private record ModelMeters(
+            Timer callSuccess,
+            Timer callError,
+            Timer streamSuccess,
+            Timer streamError,
+            Timer ttft,
+            DistributionSummary tokensPerSecond,
+            Counter promptTokens,
+            Counter completionTokens
+    ) {
+
+        void recordTokens(long prompt, long completion) {
+            if (prompt > 0) {
+                promptTokens.increment(prompt);
+            }
+            if (completion > 0) {
+                completionTokens.increment(completion);
+            }
+        }
+    }
+
+    /**
+     * 单次流式调用的统计，响应流的回调按顺序执行，无需同步
+     */
+    private final class StreamStats {
+
+        private final long start;
+
+        private long firstContent;
+
+        private long lastContent;
+
+        private long contentChunks;
+
+        private ChatResponse last;
+
+        private long promptTokens;
+
+        private long completionTokens;
+
+        StreamStats(long start) {
+            this.start = start;
+        }
+
+        void onChunk(AdvisedResponse advisedResponse) {
+            ChatResponse response = advisedResponse.response();
+            if (response == null) {
+                return;
+            }
+            last = response;
+            if (response.getMetadata() != null) {
+                Usage usage = response.getMetadata().getUsage();
+                // 用量通常只在最后一段返回，取各段的最大值
+                promptTokens = Math.max(promptTokens, tokens(usage.getPromptTokens()));
+                completionTokens = Math.max(completionTokens, tokens(usage.getGenerationTokens()));
+            }
+            if (!hasContent(response)) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (contentChunks == 0) {
+                firstContent = now;
+                meters(response).ttft.record(now - start, TimeUnit.NANOSECONDS);
+            }
+            lastContent = now;
+            contentChunks++;
+        }
+
+        void onComplete() {
+            ModelMeters modelMeters = meters(last);
+            modelMeters.streamSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            long completion = completionTokens > 0 ? completionTokens : contentChunks;
+            modelMeters.recordTokens(promptTokens, completion);
+            // 首段内容之后生成的令牌数除以对应的时长
+            long decodeNanos = lastContent - firstContent;
+            if (completion > 1 && decodeNanos > 0) {
+                modelMeters.tokensPerSecond.record((completion - 1) * 1e9 / decodeNanos);
+            }
+        }
+
+        void onError() {
+            meters(last).streamError.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
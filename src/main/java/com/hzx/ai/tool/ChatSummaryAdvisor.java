@@ -0,0 +1,102 @@
+package com.hzx.ai.tool;
+
+import com.hzx.ai.memory.ChatMemoryCompactor;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import reactor.core.publisher.Flux;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY;
+import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.DEFAULT_CHAT_MEMORY_CONVERSATION_ID;
+
+/**
+ * 会话摘要顾问
+ *
+ * <p>请求前把当前会话较早消息的摘要追加到系统提示词，请求结束后检查是否需要压缩会话记忆，
+ * 压缩在 {@link ChatMemoryCompactor} 的后台线程上进行，不增加本次请求的耗时。</p>
+ *
+ * <p>顾问排在会话记忆顾问之前：系统提示词中摘要在前、最近若干轮原文在后；
+ * 请求结束时会话记忆顾问已写入本轮问答，压缩时能看到本轮消息。
+ * 摘要作为模板参数传入，其中的花括号不会被当作占位符。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class ChatSummaryAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+    /**
+     * 注入摘要的系统提示词参数，存在时说明会话已有较早的对话
+     */
+    static final String SUMMARY_PARAM = "memory_summary";
+
+    private static final String SUMMARY_TEMPLATE = """
+
+
+            以下是与客户较早对话的摘要，最近的对话见后文：
+            ---------------------
+            {memory_summary}
+            ---------------------
+            """;
+
+    private final ChatMemoryCompactor compactor;
+
+    /**
+     * 构造函数
+     *
+     * @param compactor 会话记忆压缩器
+     */
+    public ChatSummaryAdvisor(ChatMemoryCompactor compactor) {
+        this.compactor = compactor;
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest request, CallAroundAdvisorChain chain) {
+        AdvisedResponse response = chain.nextAroundCall(augment(request));
+        compactor.compactIfNeeded(conversationId(request));
+        return response;
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest request, StreamAroundAdvisorChain chain) {
+        return Flux.defer(() -> chain.nextAroundStream(augment(request)))
+                .doOnComplete(() -> compactor.compactIfNeeded(conversationId(request)));
+    }
+
+    @Override
+    public String getName() {
+        return "ChatSummaryAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER - 1;
+    }
+
+    private AdvisedRequest augment(AdvisedRequest request) {
+        String summary = compactor.summary(conversationId(request));
+        if (summary == null || summary.isEmpty()) {
+            return request;
+        }
+        Map<String, Object> systemParams = new HashMap<>(request.systemParams());
+        systemParams.put(SUMMARY_PARAM, summary);
+        String systemText = request.systemText() == null ? "" : request.systemText();
+        return AdvisedRequest.from(request)
+                .withSystemText(systemText + SUMMARY_TEMPLATE)
+                .withSystemParams(systemParams)
+                .build();
+    }
+
+    private static String conversationId(AdvisedRequest request) {
+        Object conversationId = request.advisorParams().get(CHAT_MEMORY_CONVERSATION_ID_KEY);
+        // 与会话记忆顾问一致，未指定时使用默认会话
+        return conversationId == null ? DEFAULT_CHAT_MEMORY_CONVERSATION_ID : conversationId.toString();
+    }
+}
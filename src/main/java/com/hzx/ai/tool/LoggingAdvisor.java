@@ -1,60 +1,248 @@
 package com.hzx.ai.tool;
 
-import org.springframework.ai.chat.client.RequestResponseAdvisor;
-import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
-import java.util.Map;
+import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY;
 
 /**
  * 日志记录顾问类
- * 
- * <p>实现Spring AI的RequestResponseAdvisor接口，用于记录AI聊天请求和响应的日志信息。
- * 帮助开发者和运维人员监控AI系统的运行状态和性能。</p>
- * 
+ *
+ * <p>按采样比例记录AI聊天请求和响应的摘要日志，帮助开发者和运维人员监控AI系统的运行状态。
+ * 不再输出整个 {@link AdvisedRequest}（其中包含系统提示词、会话记忆和RAG上下文），
+ * 只记录会话ID、截断后的用户问题和回答、提示词长度、耗时和令牌数，高并发下日志的分配和写入量保持稳定。</p>
+ *
  * <p>主要功能：</p>
  * <ul>
- *   <li>记录AI聊天请求的详细信息</li>
- *   <li>支持日志级别配置</li>
- *   <li>便于问题排查和性能分析</li>
+ *   <li>按比例采样，未采样的请求不做任何格式化</li>
+ *   <li>用户问题和回答按字符数上限截断，换行转义为 {@code \n}，每条日志一行</li>
+ *   <li>同步和流式响应都记录回答摘要，流式回答只缓存上限内的字符</li>
+ *   <li>模型调用异常不受采样限制，始终以WARN级别记录</li>
  * </ul>
- * 
+ *
+ * <p>日志经 {@code logback-spring.xml} 中的异步追加器写出，请求线程不等待日志I/O。</p>
+ *
  * @author xushu
  * @version 1.0.0
  * @since 2024-01-01
  */
-public class LoggingAdvisor implements RequestResponseAdvisor {
+public class LoggingAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
 
     private static final Logger logger = LoggerFactory.getLogger(LoggingAdvisor.class);
 
+    private final double sampleRate;
+
+    private final int maxPayloadChars;
+
+    private final boolean logResponses;
+
     /**
-     * 处理请求前的日志记录
-     * 
-     * <p>在AI聊天请求执行前记录请求信息，包括请求内容和上下文信息。
-     * 返回原始请求对象，不进行修改。</p>
-     * 
-     * @param request 建议的请求对象
-     * @param context 请求上下文信息
-     * @return AdvisedRequest 原始请求对象
+     * 构造函数
+     *
+     * @param sampleRate 记录日志的请求比例，0 到 1
+     * @param maxPayloadChars 用户问题和回答的最大字符数
+     * @param logResponses 是否记录响应
      */
+    public LoggingAdvisor(double sampleRate, int maxPayloadChars, boolean logResponses) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("日志采样比例应在0到1之间：" + sampleRate);
+        }
+        if (maxPayloadChars <= 0) {
+            throw new IllegalArgumentException("日志内容的最大字符数必须大于0：" + maxPayloadChars);
+        }
+        this.sampleRate = sampleRate;
+        this.maxPayloadChars = maxPayloadChars;
+        this.logResponses = logResponses;
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest request, CallAroundAdvisorChain chain) {
+        boolean sampled = sampled();
+        if (sampled) {
+            logRequest(request);
+        }
+        long start = System.nanoTime();
+        AdvisedResponse response;
+        try {
+            response = chain.nextAroundCall(request);
+        } catch (RuntimeException e) {
+            logError(request, start, e);
+            throw e;
+        }
+        if (sampled && logResponses) {
+            ChatResponse chatResponse = response.response();
+            String content = content(chatResponse);
+            logResponse(request, start, chatResponse, content == null ? 0 : content.length(), content);
+        }
+        return response;
+    }
+
     @Override
-    public AdvisedRequest adviseRequest(AdvisedRequest request, Map<String, Object> context) {
-        logger.info("AI聊天请求：{}", request);
-        logger.debug("请求上下文：{}", context);
-        return request;
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest request, StreamAroundAdvisorChain chain) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            Flux<AdvisedResponse> responses = chain.nextAroundStream(request)
+                    .doOnError(error -> logError(request, start, error));
+            if (!sampled()) {
+                return responses;
+            }
+            logRequest(request);
+            if (!logResponses) {
+                return responses;
+            }
+            StreamedAnswer answer = new StreamedAnswer();
+            return responses
+                    .doOnNext(answer::append)
+                    .doOnComplete(() -> logResponse(request, start, answer.last, answer.totalChars, answer.head));
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "LoggingAdvisor";
     }
 
     /**
      * 获取顾问的执行顺序
-     * 
-     * <p>返回0表示该顾问具有最高优先级，会在其他顾问之前执行。
-     * 这确保了日志记录在请求处理的最早期进行。</p>
-     * 
+     *
+     * <p>排在会话记忆、语义缓存和RAG检索之后，记录的是实际发给模型的请求。</p>
+     *
      * @return int 执行顺序，数值越小优先级越高
      */
     @Override
     public int getOrder() {
         return 0;
     }
-}
\ No newline at end of file
+
+    /**
+     * 本次请求是否记录日志；INFO级别关闭时一律不记录
+     */
+    private boolean sampled() {
+        if (sampleRate <= 0 || !logger.isInfoEnabled()) {
+            return false;
+        }
+        return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private void logRequest(AdvisedRequest request) {
+        // RAG顾问注入上下文后，用户消息变为模板，原始问题在模板参数中
+        Object question = request.userParams().get(BudgetedRetrievalAdvisor.QUESTION_PARAM);
+        String systemText = request.systemText();
+        logger.info("AI聊天请求：会话={}，问题={}，系统提示词={}字符，历史消息={}条，函数={}",
+                conversationId(request),
+                abbreviate(question != null ? question.toString() : request.userText()),
+                systemText == null ? 0 : systemText.length(),
+                request.messages().size(),
+                request.functionNames());
+    }
+
+    private void logResponse(AdvisedRequest request, long start, ChatResponse response, int contentChars, CharSequence content) {
+        String finishReason = null;
+        long promptTokens = 0;
+        long completionTokens = 0;
+        if (response != null) {
+            Generation result = response.getResult();
+            if (result != null && result.getMetadata() != null) {
+                finishReason = result.getMetadata().getFinishReason();
+            }
+            if (response.getMetadata() != null) {
+                Usage usage = response.getMetadata().getUsage();
+                promptTokens = usage.getPromptTokens() == null ? 0 : usage.getPromptTokens();
+                completionTokens = usage.getGenerationTokens() == null ? 0 : usage.getGenerationTokens();
+            }
+        }
+        logger.info("AI聊天响应：会话={}，耗时={}ms，结束原因={}，令牌={}/{}，回答={}字符：{}",
+                conversationId(request),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                finishReason,
+                promptTokens,
+                completionTokens,
+                contentChars,
+                abbreviate(content));
+    }
+
+    private void logError(AdvisedRequest request, long start, Throwable error) {
+        logger.warn("AI聊天失败：会话={}，耗时={}ms，异常={}：{}",
+                conversationId(request),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                error.getClass().getSimpleName(),
+                error.getMessage());
+    }
+
+    private static Object conversationId(AdvisedRequest request) {
+        return request.advisorParams().get(CHAT_MEMORY_CONVERSATION_ID_KEY);
+    }
+
+    private static String content(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return null;
+        }
+        return response.getResult().getOutput().getContent();
+    }
+
+    /**
+     * 截断到最大字符数，并把换行转义，保证每条日志一行
+     */
+    private String abbreviate(CharSequence text) {
+        if (text == null) {
+            return "";
+        }
+        int length = Math.min(text.length(), maxPayloadChars);
+        StringBuilder builder = new StringBuilder(length + 8);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                default -> builder.append(c);
+            }
+        }
+        if (text.length() > maxPayloadChars) {
+            builder.append('…');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 流式回答的摘要：只保留上限内的开头部分，其余只计字符数
+     */
+    private final class StreamedAnswer {
+
+        private final StringBuilder head = new StringBuilder();
+
+        private int totalChars;
+
+        private ChatResponse last;
+
+        void append(AdvisedResponse advisedResponse) {
+            ChatResponse response = advisedResponse.response();
+            if (response == null) {
+                return;
+            }
+            last = response;
+            String content = content(response);
+            if (content == null) {
+                return;
+            }
+            totalChars += content.length();
+            // 多保留一个字符，截断时据此加上省略号
+            int room = maxPayloadChars + 1 - head.length();
+            if (room > 0) {
+                head.append(content, 0, Math.min(room, content.length()));
+            }
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.hzx.ai.tool;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.embedding.EmbeddingModel;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 语义响应缓存顾问
+ *
+ * <p>对退改规则、行李规定等高频通用问题，把问题的嵌入向量与回答一起缓存；
+ * 之后的问题与某个已缓存问题的余弦相似度不低于阈值时，直接回放缓存的回答，不再调用大模型。
+ * 流式接口按小段回放，与模型输出的形式一致。</p>
+ *
+ * <p>涉及个人预订数据或需要函数调用（查询、修改、取消预订）的回答不能给其他客户复用：</p>
+ * <ul>
+ *   <li>问题命中任一绕过规则（如包含预订号、姓名、“帮我”“我的”等）时既不查缓存也不写缓存；</li>
+ *   <li>会话已有历史消息、摘要或客户信息时既不查缓存也不写缓存，同一句“可以改成明天吗？”
+ *       在不同会话中含义不同，回答可能基于该会话的历史和函数结果；</li>
+ *   <li>生成回答的过程中调用过预订函数时不写缓存。函数调用标记由调用方通过请求参数
+ *       {@value BookingTools#TOOL_CALLED} 传入，并放入工具上下文供函数置位；没有标记时无法判断，同样不写缓存。</li>
+ * </ul>
+ *
+ * <p>顾问排在会话记忆顾问之后：缓存命中时问答仍会写入会话记忆；排在RAG检索顾问之前：
+ * 命中时省去向量检索，缓存键也不受检索内容影响。缓存条目有存活时间和数量上限，
+ * 命中、未命中、绕过次数通过 Micrometer 暴露。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class SemanticCacheAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SemanticCacheAdvisor.class);
+
+    /**
+     * 响应上下文中标记本次回答来自缓存
+     */
+    public static final String CACHE_HIT_KEY = "semantic_cache_hit";
+
+    /**
+     * 请求参数：系统提示词中已注入该会话的客户信息（预订号、姓名）时为true
+     */
+    public static final String CUSTOMER_CONTEXT_KEY = "semantic_cache_customer_context";
+
+    /**
+     * 回放时每段的字符数
+     */
+    private static final int REPLAY_CHUNK_CHARS = 8;
+
+    /**
+     * 会话记忆顾问注入历史消息的系统提示词参数
+     */
+    private static final String MEMORY_PARAM = "memory";
+
+    private final EmbeddingModel embeddingModel;
+
+    private final double similarityThreshold;
+
+    private final List<Pattern> bypassPatterns;
+
+    private final Cache<Long, Entry> entries;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private Counter hits;
+
+    private Counter misses;
+
+    private Counter bypasses;
+
+    /**
+     * 构造函数
+     *
+     * @param embeddingModel 嵌入模型，用于计算问题的向量
+     * @param similarityThreshold 复用缓存回答的最低余弦相似度
+     * @param ttl 缓存条目的存活时间
+     * @param maxEntries 缓存条目上限
+     * @param bypassPatterns 绕过缓存的问题正则
+     */
+    public SemanticCacheAdvisor(
+            EmbeddingModel embeddingModel,
+            double similarityThreshold,
+            Duration ttl,
+            long maxEntries,
+            List<String> bypassPatterns
+    ) {
+        this.embeddingModel = embeddingModel;
+        this.similarityThreshold = similarityThreshold;
+        this.bypassPatterns = bypassPatterns.stream().map(Pattern::compile).toList();
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest request, CallAroundAdvisorChain chain) {
+        if (bypass(request)) {
+            return chain.nextAroundCall(request);
+        }
+        float[] vector = embed(request.userText());
+        Entry cached = lookup(vector);
+        if (cached != null) {
+            return replayed(request, cached.answer());
+        }
+
+        AdvisedResponse response = chain.nextAroundCall(request);
+        if (!toolCalled(request)) {
+            store(request.userText(), vector, text(response.response()));
+        }
+        return response;
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest request, StreamAroundAdvisorChain chain) {
+        if (bypass(request)) {
+            return chain.nextAroundStream(request);
+        }
+        return Flux.defer(() -> {
+            float[] vector = embed(request.userText());
+            Entry cached = lookup(vector);
+            if (cached != null) {
+                return Flux.fromIterable(chunks(cached.answer()))
+                        .map(chunk -> replayed(request, chunk));
+            }
+
+            // 只有完整结束且未调用函数的流才写入缓存，出错或被取消的不缓存
+            StringBuilder answer = new StringBuilder();
+            return chain.nextAroundStream(request)
+                    .doOnNext(response -> answer.append(text(response.response())))
+                    .doOnComplete(() -> {
+                        if (!toolCalled(request)) {
+                            store(request.userText(), vector, answer.toString());
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "SemanticCacheAdvisor";
+    }
+
+    /**
+     * 排在会话记忆顾问之后、RAG检索顾问之前
+     */
+    @Override
+    public int getOrder() {
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 100;
+    }
+
+    /**
+     * 注册监控指标：请求结果计数（命中、未命中、绕过）、命中率、条目数和淘汰次数
+     *
+     * @param registry 指标注册表
+     */
+    public void bindTo(MeterRegistry registry) {
+        hits = counter(registry, "hit");
+        misses = counter(registry, "miss");
+        bypasses = counter(registry, "bypass");
+        Gauge.builder("chat.semantic.cache.hit.ratio", this, SemanticCacheAdvisor::hitRatio)
+                .description("语义缓存命中率（不含绕过的请求）")
+                .register(registry);
+        CaffeineCacheMetrics.monitor(registry, entries, "chat.semantic.cache");
+    }
+
+    /**
+     * 语义缓存命中率，不含绕过的请求
+     *
+     * @return double 命中率
+     */
+    public double hitRatio() {
+        if (hits == null) {
+            return 0;
+        }
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private boolean bypass(AdvisedRequest request) {
+        String question = request.userText();
+        boolean bypass = question == null || question.isBlank()
+                || hasConversationContext(request)
+                || bypassPatterns.stream().anyMatch(p -> p.matcher(question).find());
+        if (bypass) {
+            increment(bypasses);
+        }
+        return bypass;
+    }
+
+    /**
+     * 会话是否已有历史消息、摘要或客户信息，有则回答可能依赖该会话，不能与其他会话共享
+     */
+    private static boolean hasConversationContext(AdvisedRequest request) {
+        Object memory = request.systemParams().get(MEMORY_PARAM);
+        return (memory != null && !memory.toString().isBlank())
+                || request.systemParams().containsKey(ChatSummaryAdvisor.SUMMARY_PARAM)
+                || Boolean.TRUE.equals(request.advisorParams().get(CUSTOMER_CONTEXT_KEY));
+    }
+
+    /**
+     * 生成回答的过程中是否调用过函数；调用方未传入标记时无法判断，按调用过处理
+     */
+    private static boolean toolCalled(AdvisedRequest request) {
+        return !(request.advisorParams().get(BookingTools.TOOL_CALLED) instanceof AtomicBoolean called) || called.get();
+    }
+
+    private float[] embed(String question) {
+        return normalize(embeddingModel.embed(question));
+    }
+
+    /**
+     * 在未过期的条目中查找相似度最高且不低于阈值的问题；条目数有上限，逐一比较即可
+     */
+    private Entry lookup(float[] vector) {
+        Entry best = null;
+        double bestScore = similarityThreshold;
+        for (Entry entry : entries.asMap().values()) {
+            if (entry.vector().length != vector.length) {
+                continue;
+            }
+            double score = dot(vector, entry.vector());
+            if (score >= bestScore) {
+                best = entry;
+                bestScore = score;
+            }
+        }
+        if (best == null) {
+            increment(misses);
+            return null;
+        }
+        increment(hits);
+        logger.debug("语义缓存命中：相似度={}，缓存问题={}", bestScore, best.question());
+        return best;
+    }
+
+    private void store(String question, float[] vector, String answer) {
+        if (answer == null || answer.isBlank()) {
+            return;
+        }
+        entries.put(sequence.incrementAndGet(), new Entry(question, vector, answer));
+    }
+
+    private AdvisedResponse replayed(AdvisedRequest request, String text) {
+        Map<String, Object> context = new HashMap<>(request.adviseContext());
+        context.put(CACHE_HIT_KEY, true);
+        return new AdvisedResponse(new ChatResponse(List.of(new Generation(text))), context);
+    }
+
+    private static List<String> chunks(String answer) {
+        List<String> chunks = new ArrayList<>(answer.length() / REPLAY_CHUNK_CHARS + 1);
+        for (int i = 0; i < answer.length(); i += REPLAY_CHUNK_CHARS) {
+            chunks.add(answer.substring(i, Math.min(answer.length(), i + REPLAY_CHUNK_CHARS)));
+        }
+        return chunks;
+    }
+
+    private static String text(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return "";
+        }
+        String content = response.getResult().getOutput().getContent();
+        return content == null ? "" : content;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float x : vector) {
+            norm += x * x;
+        }
+        float[] normalized = vector.clone();
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < normalized.length; i++) {
+                normalized[i] *= scale;
+            }
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("chat.semantic.cache.requests")
+                .description("语义缓存请求数")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * 缓存条目
+     *
+     * @param question 原始问题
+     * @param vector 问题的归一化向量
+     * @param answer 回答
+     */
+    private record Entry(String question, float[] vector, String answer) {
+    }
+}
@@ -0,0 +1,102 @@
+package com.hzx.ai.tool;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统计单个顾问自身耗时的包装顾问
+ *
+ * <p>名称和执行顺序与被包装的顾问相同，不改变顾问链。同步调用时记录顾问前后处理的耗时之和，
+ * 扣除其后的顾问和模型调用；流式调用时记录从订阅到把请求交给下一个顾问的耗时，
+ * 即记忆检索、RAG检索等前置处理。顾问没有继续调用链（如语义缓存命中）时记录其全部耗时。</p>
+ *
+ * <p>由 {@link ChatMetricsAdvisor#timed} 创建。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public final class TimedAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+    private final CallAroundAdvisor callDelegate;
+
+    private final StreamAroundAdvisor streamDelegate;
+
+    private final Timer callTimer;
+
+    private final Timer streamTimer;
+
+    /**
+     * 构造函数
+     *
+     * @param delegate 被包装的顾问，需同时支持同步和流式调用
+     * @param callTimer 同步调用的耗时统计
+     * @param streamTimer 流式调用的耗时统计
+     */
+    TimedAdvisor(CallAroundAdvisor delegate, Timer callTimer, Timer streamTimer) {
+        if (!(delegate instanceof StreamAroundAdvisor stream)) {
+            throw new IllegalArgumentException("顾问需同时支持同步和流式调用：" + delegate.getName());
+        }
+        this.callDelegate = delegate;
+        this.streamDelegate = stream;
+        this.callTimer = callTimer;
+        this.streamTimer = streamTimer;
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest request, CallAroundAdvisorChain chain) {
+        long start = System.nanoTime();
+        long[] downstream = new long[1];
+        try {
+            return callDelegate.aroundCall(request, next -> {
+                long nextStart = System.nanoTime();
+                try {
+                    return chain.nextAroundCall(next);
+                } finally {
+                    downstream[0] += System.nanoTime() - nextStart;
+                }
+            });
+        } finally {
+            callTimer.record(System.nanoTime() - start - downstream[0], TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest request, StreamAroundAdvisorChain chain) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            boolean[] recorded = new boolean[1];
+            return streamDelegate.aroundStream(request, next -> {
+                        if (!recorded[0]) {
+                            recorded[0] = true;
+                            streamTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                        return chain.nextAroundStream(next);
+                    })
+                    .doFinally(signal -> {
+                        if (!recorded[0]) {
+                            recorded[0] = true;
+                            streamTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public String getName() {
+        return callDelegate.getName();
+    }
+
+    @Override
+    public int getOrder() {
+        return callDelegate.getOrder();
+    }
+}
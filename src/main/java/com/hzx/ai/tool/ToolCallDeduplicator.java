@@ -0,0 +1,218 @@
+package com.hzx.ai.tool;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 函数调用去重器
+ *
+ * <p>大模型经常在同一轮回复中或重试时重复发出相同的函数调用。去重器按（会话、函数、规范化后的参数）
+ * 缓存函数结果，在较短的存活时间内：</p>
+ * <ul>
+ *   <li>重复的查询直接返回缓存的结果，不再查询预订</li>
+ *   <li>重复的修改、取消返回第一次执行的结果，不会重复修改预订；执行中的重复调用等待第一次执行完成，共用其结果</li>
+ * </ul>
+ *
+ * <p>只缓存成功的结果，抛出异常的调用不缓存，重复调用时重新执行。某个预订修改或取消成功后，
+ * 立即清除本会话的全部查询结果、其他会话中涉及该预订的查询结果，以及涉及该预订的其他修改、取消结果：
+ * 修改后再查询能看到新数据，先改到A、再改到B、再改回A时第三次修改照常执行，只有连续相同的修改才会合并。</p>
+ *
+ * <p>参数规范化只去掉首尾空白、合并连续空白，不改变大小写；失效按调用方给出的预订号匹配，
+ * 调用方应传入归一化后的预订号。没有会话ID的调用不去重。</p>
+ *
+ * @author xushu
+ * @version 1.0.0
+ * @since 2024-01-01
+ */
+public class ToolCallDeduplicator {
+
+    private final Cache<Key, Entry> reads;
+
+    private final Cache<Key, Entry> writes;
+
+    /**
+     * 修改、取消成功的次数，查询期间发生过修改时不缓存查询结果
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 构造函数
+     *
+     * @param readTtl 查询结果的存活时间
+     * @param writeTtl 修改、取消结果的存活时间
+     * @param maxEntries 查询结果和修改、取消结果各自的条目上限
+     */
+    public ToolCallDeduplicator(Duration readTtl, Duration writeTtl, long maxEntries) {
+        this(readTtl, writeTtl, maxEntries, Ticker.systemTicker());
+    }
+
+    /**
+     * 构造函数，可指定时钟，便于测试过期
+     */
+    ToolCallDeduplicator(Duration readTtl, Duration writeTtl, long maxEntries, Ticker ticker) {
+        this.reads = newCache(readTtl, maxEntries, ticker);
+        this.writes = newCache(writeTtl, maxEntries, ticker);
+    }
+
+    /**
+     * 执行查询类函数，相同的查询在存活时间内只执行一次
+     *
+     * @param conversationId 会话ID，为null时不去重
+     * @param function 函数名
+     * @param arguments 函数参数
+     * @param bookingNumbers 查询涉及的预订号，已归一化
+     * @param call 实际执行的查询
+     * @return T 查询结果
+     */
+    public <T> T read(String conversationId, String function, List<String> arguments,
+                      Set<String> bookingNumbers, Supplier<T> call) {
+        if (conversationId == null) {
+            return call.get();
+        }
+        Key key = new Key(conversationId, function, normalize(arguments));
+        Entry entry = new Entry(new CompletableFuture<>(), bookingNumbers);
+        Entry existing = reads.asMap().putIfAbsent(key, entry);
+        if (existing != null) {
+            count(function, "hit");
+            return join(existing);
+        }
+        count(function, "miss");
+        long generation = invalidations.get();
+        T result = execute(reads, key, entry, call);
+        if (invalidations.get() != generation) {
+            // 查询期间有预订被修改，结果可能已过期，只返回给本次和已在等待的调用
+            reads.asMap().remove(key, entry);
+        }
+        return result;
+    }
+
+    /**
+     * 执行修改、取消类函数，相同的调用在存活时间内只执行一次
+     *
+     * @param conversationId 会话ID，为null时不去重
+     * @param function 函数名
+     * @param arguments 函数参数
+     * @param bookingNumbers 修改、取消的预订号，已归一化
+     * @param call 实际执行的修改、取消
+     * @return T 第一次执行的结果
+     */
+    public <T> T write(String conversationId, String function, List<String> arguments,
+                       Set<String> bookingNumbers, Supplier<T> call) {
+        if (conversationId == null) {
+            return call.get();
+        }
+        Key key = new Key(conversationId, function, normalize(arguments));
+        Entry entry = new Entry(new CompletableFuture<>(), bookingNumbers);
+        Entry existing = writes.asMap().putIfAbsent(key, entry);
+        if (existing != null) {
+            count(function, "hit");
+            return join(existing);
+        }
+        count(function, "miss");
+        T result = execute(writes, key, entry, call);
+        invalidations.incrementAndGet();
+        reads.asMap().entrySet().removeIf(e ->
+                e.getKey().conversationId().equals(conversationId) || e.getValue().touches(bookingNumbers));
+        writes.asMap().entrySet().removeIf(e -> e.getValue() != entry && e.getValue().touches(bookingNumbers));
+        return result;
+    }
+
+    /**
+     * 注册监控指标：chat.tool.dedup（按 function 和 outcome 区分，hit 为被合并的重复调用，miss 为实际执行的调用）
+     *
+     * @param registry 指标注册表
+     */
+    public void bindTo(MeterRegistry registry) {
+        this.meterRegistry = registry;
+    }
+
+    private <T> T execute(Cache<Key, Entry> cache, Key key, Entry entry, Supplier<T> call) {
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            // 失败的调用不缓存，等待中的重复调用得到同样的异常
+            cache.asMap().remove(key, entry);
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+        entry.result().complete(result);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T join(Entry entry) {
+        try {
+            return (T) entry.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void count(String function, String outcome) {
+        MeterRegistry registry = meterRegistry;
+        if (registry == null) {
+            return;
+        }
+        counters.computeIfAbsent(function + '\u0000' + outcome, k -> Counter.builder("chat.tool.dedup")
+                .description("函数调用去重次数")
+                .tag("function", function)
+                .tag("outcome", outcome)
+                .register(registry)).increment();
+    }
+
+    /**
+     * 去掉首尾空白、合并连续空白，null视为空串
+     */
+    static List<String> normalize(List<String> arguments) {
+        return arguments.stream()
+                .map(argument -> argument == null ? "" : argument.strip().replaceAll("\\s+", " "))
+                .toList();
+    }
+
+    private static Cache<Key, Entry> newCache(Duration ttl, long maxEntries, Ticker ticker) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * 去重键
+     */
+    private record Key(String conversationId, String function, List<String> arguments) {
+    }
+
+    /**
+     * 缓存的调用结果及其涉及的预订号
+     */
+    private record Entry(CompletableFuture<Object> result, Set<String> bookingNumbers) {
+
+        boolean touches(Set<String> others) {
+            return !Collections.disjoint(bookingNumbers, others);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.hzx.ai.airport;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 机场目录测试
+ *
+ * <p>校验随应用发布的目录的精确解析、大模型常见输出的模糊匹配，以及目录文件的格式校验。</p>
+ */
+class AirportCatalogTest {
+
+    private final AirportCatalog catalog = AirportCatalog.defaults();
+
+    @Test
+    void resolvesCodesAndNamesExactly() {
+        assertThat(city("PEK")).isEqualTo("北京");
+        assertThat(city("pkx")).isEqualTo("北京");
+        assertThat(city("上海")).isEqualTo("上海");
+        assertThat(city("上海市")).isEqualTo("上海");
+        assertThat(city("Guangzhou")).isEqualTo("广州");
+        assertThat(city("xian")).isEqualTo("西安");
+        assertThat(city("成都天府国际机场")).isEqualTo("成都");
+        assertThat(city("Shenzhen Bao'an International Airport")).isEqualTo("深圳");
+        assertThat(city("ＳＨＡ")).isEqualTo("上海");
+
+        City beijing = catalog.resolve("北京").orElseThrow();
+        assertThat(catalog.city(beijing.id())).isSameAs(beijing);
+        assertThat(beijing.airports()).extracting(Airport::code).containsExactly("PEK", "PKX");
+        assertThat(catalog.findAirport("tfu").orElseThrow().cityId()).isEqualTo(catalog.resolve("成都").orElseThrow().id());
+    }
+
+    @Test
+    void resolvesNoisyModelOutput() {
+        assertThat(city("北京（PEK）")).isEqualTo("北京");
+        assertThat(city("Shanghai / 浦东")).isEqualTo("上海");
+        assertThat(city("飞往杭州")).isEqualTo("杭州");
+        assertThat(city("首都机场")).isEqualTo("北京");
+        assertThat(city("Bejing")).isEqualTo("北京");
+        assertThat(city("Shanghia")).isEqualTo("上海");
+        assertThat(city("Chongqing Jiangbei Airport")).isEqualTo("重庆");
+    }
+
+    @Test
+    void rejectsUnknownAndAmbiguousPlaces() {
+        assertThat(catalog.resolve("火星").isPresent()).isFalse();
+        assertThat(catalog.resolve("北京到上海").isPresent()).isFalse();
+        assertThat(catalog.resolve("PEX").isPresent()).isFalse();
+        assertThat(catalog.resolve("京").isPresent()).isFalse();
+        assertThat(catalog.resolve(" ").isPresent()).isFalse();
+        assertThat(catalog.resolve(null).isPresent()).isFalse();
+    }
+
+    @Test
+    void rejectsMalformedCatalogs() {
+        assertThatThrownBy(() -> AirportCatalog.load(new StringReader("PEK,北京,Beijing,首都机场\n")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("第 1 行");
+        assertThatThrownBy(() -> AirportCatalog.load(new StringReader("PE1,北京,Beijing,首都机场,Capital\n")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("三字码");
+        assertThatThrownBy(() -> AirportCatalog.load(new StringReader(
+                "PEK,北京,Beijing,首都机场,Capital\nPEK,天津,Tianjin,滨海机场,Binhai\n")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("重复");
+        assertThatThrownBy(() -> AirportCatalog.load(new StringReader(
+                "PEK,北京,Beijing,首都机场,Capital\nTSN,天津,Tianjin,首都机场,Binhai\n")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("同时指向");
+    }
+
+    private String city(String text) {
+        return catalog.resolve(text).map(City::name).orElse(null);
+    }
+}
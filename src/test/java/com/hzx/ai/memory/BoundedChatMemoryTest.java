@@ -0,0 +1,82 @@
+package com.hzx.ai.memory;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 有界会话记忆测试
+ *
+ * <p>校验单会话条数上限、总内存上限和空闲超时三种淘汰方式。</p>
+ */
+class BoundedChatMemoryTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final Ticker ticker = nanos::get;
+
+    @Test
+    void keepsOnlyTheMostRecentMessagesPerConversation() {
+        BoundedChatMemory memory = new BoundedChatMemory(4, Long.MAX_VALUE, Duration.ofHours(1), ticker);
+
+        for (int i = 0; i < 10; i++) {
+            memory.add("c1", List.of(new UserMessage("q" + i), new AssistantMessage("a" + i)));
+        }
+
+        assertThat(contents(memory.get("c1", 100))).containsExactly("q8", "a8", "q9", "a9");
+        assertThat(contents(memory.get("c1", 1))).containsExactly("a9");
+        assertThat(memory.get("unknown", 10)).isEmpty();
+    }
+
+    @Test
+    void expiresIdleConversations() {
+        BoundedChatMemory memory = new BoundedChatMemory(10, Long.MAX_VALUE, Duration.ofMinutes(30), ticker);
+        memory.add("idle", List.of(new UserMessage("hello")));
+        memory.add("active", List.of(new UserMessage("hello")));
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(20));
+        memory.get("active", 10);
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(20));
+
+        assertThat(memory.get("idle", 10)).isEmpty();
+        assertThat(contents(memory.get("active", 10))).containsExactly("hello");
+    }
+
+    @Test
+    void evictsConversationsWhenTheByteBudgetIsExceeded() {
+        String text = "x".repeat(1_000);
+        BoundedChatMemory memory = new BoundedChatMemory(10, 50_000, Duration.ofHours(1), ticker);
+
+        for (int i = 0; i < 100; i++) {
+            memory.add("c" + i, List.of(new UserMessage(text)));
+        }
+        memory.cleanUp();
+
+        assertThat(memory.residentBytes()).isLessThanOrEqualTo(50_000);
+        assertThat(memory.conversationCount()).isLessThan(100);
+    }
+
+    @Test
+    void clearRemovesTheConversation() {
+        BoundedChatMemory memory = new BoundedChatMemory(10, Long.MAX_VALUE, Duration.ofHours(1), ticker);
+        memory.add("c1", List.of(new UserMessage("hello")));
+
+        memory.clear("c1");
+
+        assertThat(memory.get("c1", 10)).isEmpty();
+        assertThat(memory.conversationCount()).isZero();
+    }
+
+    private static List<String> contents(List<Message> messages) {
+        return messages.stream().map(Message::getContent).toList();
+    }
+}
@@ -0,0 +1,138 @@
+package com.hzx.ai.memory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 会话记忆压缩测试
+ *
+ * <p>校验较早的对话合并进摘要、最近若干轮原样保留、摘要不超过令牌预算、压缩失败时保留原消息，
+ * 以及预订号和客户姓名的提取与保留。</p>
+ */
+class ChatMemoryCompactorTest {
+
+    private final BoundedChatMemory memory = new BoundedChatMemory(100, Long.MAX_VALUE, Duration.ofHours(1));
+
+    private final List<String> prompts = new ArrayList<>();
+
+    @Test
+    void foldsOlderTurnsIntoARollingSummary() {
+        ChatMemoryCompactor compactor = compactor(prompt -> "摘要" + prompts.size(), 300);
+        addTurns(0, 6);
+
+        compactor.compactIfNeeded("c1");
+
+        assertThat(contents(memory.get("c1", 100))).containsExactly("q4", "a4", "q5", "a5");
+        assertThat(compactor.summary("c1")).isEqualTo("摘要1");
+        assertThat(prompts.get(0)).contains("（无）").contains("客户：q0").contains("客服：a3").doesNotContain("q4");
+
+        addTurns(6, 7);
+        compactor.compactIfNeeded("c1");
+        assertThat(memory.get("c1", 100)).hasSize(6);
+        assertThat(prompts).hasSize(1);
+
+        addTurns(7, 8);
+        compactor.compactIfNeeded("c1");
+        assertThat(contents(memory.get("c1", 100))).containsExactly("q6", "a6", "q7", "a7");
+        assertThat(compactor.summary("c1")).isEqualTo("摘要2");
+        assertThat(prompts.get(1)).contains("摘要1").contains("客户：q4").contains("客服：a5").doesNotContain("q6");
+    }
+
+    @Test
+    void keepsMessagesAddedWhileSummarizing() {
+        ChatMemoryCompactor compactor = compactor(prompt -> {
+            memory.add("c1", List.of(new UserMessage("late")));
+            return "摘要";
+        }, 300);
+        addTurns(0, 4);
+
+        assertThat(compactor.compact("c1")).isTrue();
+
+        assertThat(contents(memory.get("c1", 100))).containsExactly("q2", "a2", "q3", "a3", "late");
+    }
+
+    @Test
+    void capsTheSummaryAtTheTokenBudget() {
+        JTokkitTokenCountEstimator estimator = new JTokkitTokenCountEstimator();
+        ChatMemoryCompactor compactor = compactor(prompt -> "客户徐庶要求改签到下周五的航班。".repeat(50), 40);
+        addTurns(0, 4);
+
+        compactor.compactIfNeeded("c1");
+
+        String summary = compactor.summary("c1");
+        assertThat(summary).startsWith("客户徐庶要求改签");
+        assertThat(estimator.estimate(summary)).isLessThanOrEqualTo(40);
+    }
+
+    @Test
+    void keepsMessagesWhenSummarizationFails() {
+        ChatMemoryCompactor compactor = compactor(prompt -> {
+            throw new IllegalStateException("模型不可用");
+        }, 300);
+        addTurns(0, 4);
+
+        compactor.compactIfNeeded("c1");
+
+        assertThat(memory.get("c1", 100)).hasSize(8);
+        assertThat(compactor.summary("c1")).isNull();
+    }
+
+    @Test
+    void remembersBookingNumberAndNameAcrossCompaction() {
+        ChatMemoryCompactor compactor = compactor(prompt -> "摘要", 300);
+
+        assertThat(compactor.customerContext("c1", "你好")).isNull();
+        assertThat(compactor.customerContext("c1", "我的预订号是101，想改签"))
+                .contains("预订号 101").doesNotContain("客户姓名");
+        addTurns(0, 4);
+        compactor.compactIfNeeded("c1");
+        assertThat(compactor.customerContext("c1", "姓名：徐庶。"))
+                .contains("预订号 101").contains("客户姓名 徐庶");
+        assertThat(memory.facts("c1")).isEqualTo(new ConversationFacts("101", "徐庶"));
+
+        assertThat(ConversationFacts.extract("我叫诸葛，订单号为 A-102")).isEqualTo(new ConversationFacts("A-102", "诸葛"));
+        assertThat(ConversationFacts.extract("我叫徐庶想改签")).isEqualTo(ConversationFacts.EMPTY);
+        assertThat(ConversationFacts.extract("预订号多少来着？")).isEqualTo(ConversationFacts.EMPTY);
+    }
+
+    private ChatMemoryCompactor compactor(Function<Prompt, String> summarizer, int maxTokens) {
+        ChatModel chatModel = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                prompts.add(prompt.getInstructions().get(1).getContent());
+                return new ChatResponse(List.of(new Generation(summarizer.apply(prompt))));
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return Flux.just(call(prompt));
+            }
+        };
+        return new ChatMemoryCompactor(memory, chatModel, Runnable::run, 4, 4, maxTokens, new JTokkitTokenCountEstimator());
+    }
+
+    private void addTurns(int from, int to) {
+        for (int i = from; i < to; i++) {
+            memory.add("c1", List.of(new UserMessage("q" + i), new AssistantMessage("a" + i)));
+        }
+    }
+
+    private static List<String> contents(List<Message> messages) {
+        return messages.stream().map(Message::getContent).toList();
+    }
+}
@@ -0,0 +1,44 @@
+package com.hzx.ai.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 会话ID签发与校验测试
+ */
+class ConversationIdsTest {
+
+    private final ConversationIds conversationIds = new ConversationIds("test-secret".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void acceptsOnlyIdsItIssued() {
+        String first = conversationIds.issue();
+        String second = conversationIds.issue();
+
+        assertThat(first).isNotEqualTo(second).hasSizeLessThanOrEqualTo(64).matches("[A-Za-z0-9_\\-.]+");
+        assertThat(conversationIds.isValid(first)).isTrue();
+        assertThat(conversationIds.isValid(second)).isTrue();
+        assertThat(new ConversationIds().isValid(first)).isFalse();
+    }
+
+    @Test
+    void rejectsGuessedOrTamperedIds() {
+        String issued = conversationIds.issue();
+        String body = issued.substring(0, issued.indexOf('.'));
+        String signature = issued.substring(issued.indexOf('.') + 1);
+        String tampered = body + '.' + (signature.charAt(0) == 'A' ? 'B' : 'A') + signature.substring(1);
+
+        assertThat(conversationIds.isValid(null)).isFalse();
+        assertThat(conversationIds.isValid("")).isFalse();
+        assertThat(conversationIds.isValid("customer-1")).isFalse();
+        assertThat(conversationIds.isValid(body)).isFalse();
+        assertThat(conversationIds.isValid(body + ".")).isFalse();
+        assertThat(conversationIds.isValid(body + ".!!")).isFalse();
+        assertThat(conversationIds.isValid(tampered)).isFalse();
+        assertThat(conversationIds.isValid("x" + issued)).isFalse();
+        assertThat(conversationIds.isValid(issued + ".x")).isFalse();
+    }
+}
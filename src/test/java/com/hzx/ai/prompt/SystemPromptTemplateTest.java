@@ -0,0 +1,76 @@
+package com.hzx.ai.prompt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 系统提示词模板测试
+ *
+ * <p>校验模板的编译和渲染、随应用发布的模板在不同请求间固定前缀逐字节相同，以及模板格式校验。</p>
+ */
+class SystemPromptTemplateTest {
+
+    @Test
+    void rendersVariablesInOrder() {
+        CompiledPromptTemplate template = CompiledPromptTemplate.compile("规则。\n日期 {date}，语言 {lang}，再次 {date}。");
+
+        assertThat(template.staticPrefix()).isEqualTo("规则。\n日期 ");
+        assertThat(template.variables()).containsExactly("date", "lang");
+        assertThat(template.render(Map.of("date", "2024-01-01", "lang", "中文")))
+                .isEqualTo("规则。\n日期 2024-01-01，语言 中文，再次 2024-01-01。");
+
+        Map<String, String> values = new HashMap<>();
+        values.put("date", "{x}今天}");
+        values.put("lang", null);
+        assertThat(template.render(values)).isEqualTo("规则。\n日期 x今天，语言 ，再次 x今天。");
+        assertThatThrownBy(() -> template.render(Map.of("date", "2024-01-01")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("lang");
+    }
+
+    @Test
+    void keepsTheRulesAsAByteIdenticalPrefix() throws IOException {
+        SystemPromptTemplate template;
+        try (Reader reader = new InputStreamReader(
+                SystemPromptTemplate.class.getResourceAsStream("/prompt/system.txt"), StandardCharsets.UTF_8)) {
+            template = SystemPromptTemplate.load(reader);
+        }
+
+        String today = template.render(new PromptContext(LocalDate.of(2024, 1, 1), Locale.SIMPLIFIED_CHINESE, null));
+        String tomorrow = template.render(new PromptContext(LocalDate.of(2024, 1, 2), Locale.ENGLISH, "预订号 101，客户姓名 徐庶"));
+
+        assertThat(template.staticPrefix()).contains("图灵航空").contains("预订号").contains("function-call");
+        assertThat(today).startsWith(template.staticPrefix());
+        assertThat(tomorrow).startsWith(template.staticPrefix());
+        assertThat(today).contains("请讲中文").contains("2024-01-01（星期一）").doesNotContain("{");
+        assertThat(tomorrow).contains("请讲英语").contains("2024-01-02（星期二）").contains("客户姓名 徐庶");
+    }
+
+    @Test
+    void rejectsMalformedTemplates() {
+        assertThatThrownBy(() -> CompiledPromptTemplate.compile("今天是 {date"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("没有对应的 }");
+        assertThatThrownBy(() -> CompiledPromptTemplate.compile("JSON：{\"a\": 1}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("变量名无效");
+        assertThatThrownBy(() -> CompiledPromptTemplate.compile("结尾 }"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("没有对应的 {");
+        assertThatThrownBy(() -> SystemPromptTemplate.load(new StringReader("今天是 {current_date}，天气 {weather}")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("weather");
+    }
+}
@@ -0,0 +1,110 @@
+package com.hzx.ai.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * HNSW索引测试
+ *
+ * <p>与暴力检索对比召回率，并校验增量插入和逻辑删除。</p>
+ */
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+
+    @Test
+    void recallIsCloseToBruteForce() {
+        Random random = new Random(42);
+        float[][] data = new float[5_000][];
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 200, 7);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = randomVector(random);
+            assertThat(index.add(data[i])).isEqualTo(i);
+        }
+
+        int k = 10;
+        int queries = 100;
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            int[] expected = bruteForce(data, query, k);
+            int[] actual = index.search(query, k, 100).nodes();
+            assertThat(actual).hasSize(k);
+            for (int node : actual) {
+                if (Arrays.stream(expected).anyMatch(e -> e == node)) {
+                    hits++;
+                }
+            }
+        }
+        assertThat((double) hits / (queries * k)).isGreaterThan(0.9);
+    }
+
+    @Test
+    void exactMatchIsReturnedFirstWithScoreOne() {
+        Random random = new Random(1);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 50, 1);
+        float[][] data = new float[500][];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = randomVector(random);
+            index.add(data[i]);
+        }
+
+        HnswIndex.Result result = index.search(data[123], 3, 32);
+
+        assertThat(result.nodes()[0]).isEqualTo(123);
+        assertThat(result.scores()[0]).isCloseTo(1f, within(1e-5f));
+        assertThat(result.scores()[1]).isLessThanOrEqualTo(result.scores()[0]);
+    }
+
+    @Test
+    void removedNodesAreNotReturned() {
+        Random random = new Random(3);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 50, 3);
+        float[][] data = new float[200][];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = randomVector(random);
+            index.add(data[i]);
+        }
+
+        index.remove(17);
+
+        assertThat(index.size()).isEqualTo(199);
+        assertThat(index.search(data[17], 5, 32).nodes()).doesNotContain(17);
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] v = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+
+    private static int[] bruteForce(float[][] data, float[] query, int k) {
+        Integer[] order = new Integer[data.length];
+        double[] scores = new double[data.length];
+        for (int i = 0; i < data.length; i++) {
+            order[i] = i;
+            scores[i] = cosine(data[i], query);
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        return Arrays.stream(order, 0, k).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double na = 0;
+        double nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+}
@@ -0,0 +1,141 @@
+package com.hzx.ai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 嵌入向量缓存测试
+ *
+ * <p>校验重启后从映射文件读取向量、尾部残缺记录截断以及清理不再使用的向量，清理失败时缓存仍可写入。</p>
+ */
+class PersistentEmbeddingCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void vectorsSurviveRestart() {
+        Path file = dir.resolve("embeddings.dat");
+        String a = PersistentEmbeddingCache.key("model", "退改规则");
+        String b = PersistentEmbeddingCache.key("model", "行李规定");
+
+        try (PersistentEmbeddingCache cache = PersistentEmbeddingCache.open(file)) {
+            assertThat(cache.get(a)).isNull();
+            cache.put(a, new float[]{0.1f, 0.2f, 0.3f});
+            cache.put(b, new float[]{1f, 2f});
+        }
+
+        try (PersistentEmbeddingCache cache = PersistentEmbeddingCache.open(file)) {
+            assertThat(cache.size()).isEqualTo(2);
+            assertThat(cache.get(a)).containsExactly(0.1f, 0.2f, 0.3f);
+            assertThat(cache.get(b)).containsExactly(1f, 2f);
+            assertThat(cache.get(PersistentEmbeddingCache.key("other-model", "退改规则"))).isNull();
+            assertThat(cache.hits()).isEqualTo(2);
+            assertThat(cache.misses()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void returnedVectorsAreCopies() {
+        String a = PersistentEmbeddingCache.key("model", "退改规则");
+
+        try (PersistentEmbeddingCache cache = PersistentEmbeddingCache.open(dir.resolve("embeddings.dat"))) {
+            cache.put(a, new float[]{3f, 4f});
+            // 调用方原地归一化不影响缓存中的向量
+            float[] vector = cache.get(a);
+            vector[0] = 0.6f;
+            vector[1] = 0.8f;
+            assertThat(cache.get(a)).containsExactly(3f, 4f);
+        }
+    }
+
+    @Test
+    void tornTailIsTruncatedBeforeNewAppends() throws Exception {
+        Path file = dir.resolve("embeddings.dat");
+        String a = PersistentEmbeddingCache.key("model", "a");
+        String b = PersistentEmbeddingCache.key("model", "b");
+
+        try (PersistentEmbeddingCache cache = PersistentEmbeddingCache.open(file)) {
+            cache.put(a, new float[]{1f, 2f, 3f});
+        }
+        // 模拟崩溃时写了一半的记录
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7}, StandardOpenOption.APPEND);
+
+        try (PersistentEmbeddingCache cache = PersistentEmbeddingCache.open(file)) {
+            assertThat(cache.get(a)).containsExactly(1f, 2f, 3f);
+            cache.put(b, new float[]{4f});
+        }
+
+        try (PersistentEmbeddingCache cache = PersistentEmbeddingCache.open(file)) {
+            assertThat(cache.size()).isEqualTo(2);
+            assertThat(cache.get(b)).containsExactly(4f);
+        }
+    }
+
+    @Test
+    void retainAccessedDropsUnusedVectors() {
+        Path file = dir.resolve("embeddings.dat");
+        String kept = PersistentEmbeddingCache.key("model", "kept");
+        String stale = PersistentEmbeddingCache.key("model", "stale");
+
+        try (PersistentEmbeddingCache cache = PersistentEmbeddingCache.open(file)) {
+            cache.put(kept, new float[]{1f});
+            cache.put(stale, new float[]{2f});
+        }
+
+        try (PersistentEmbeddingCache cache = PersistentEmbeddingCache.open(file)) {
+            cache.get(kept);
+            assertThat(cache.retainAccessed()).isEqualTo(1);
+            assertThat(cache.get(kept)).containsExactly(1f);
+            assertThat(cache.get(stale)).isNull();
+        }
+
+        try (PersistentEmbeddingCache cache = PersistentEmbeddingCache.open(file)) {
+            assertThat(cache.size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void failedCompactionKeepsTheCacheWritable() throws Exception {
+        Path file = dir.resolve("embeddings.dat");
+        String kept = PersistentEmbeddingCache.key("model", "kept");
+        String stale = PersistentEmbeddingCache.key("model", "stale");
+        String added = PersistentEmbeddingCache.key("model", "added");
+
+        try (PersistentEmbeddingCache cache = PersistentEmbeddingCache.open(file)) {
+            cache.put(kept, new float[]{1f});
+            cache.put(stale, new float[]{2f});
+        }
+
+        try (PersistentEmbeddingCache cache = PersistentEmbeddingCache.open(file)) {
+            cache.get(kept);
+            // 缓存文件的位置被非空目录占用，临时文件无法替换过去
+            Path moved = dir.resolve("embeddings.moved");
+            Files.move(file, moved);
+            Files.createDirectories(file.resolve("blocker"));
+
+            assertThat(cache.retainAccessed()).isZero();
+            assertThat(dir.resolve("embeddings.dat.tmp")).doesNotExist();
+
+            // 原文件通道仍然可用
+            cache.put(added, new float[]{3f});
+            assertThat(cache.get(added)).containsExactly(3f);
+            assertThat(cache.get(stale)).containsExactly(2f);
+
+            Files.delete(file.resolve("blocker"));
+            Files.delete(file);
+            Files.move(moved, file);
+        }
+
+        try (PersistentEmbeddingCache cache = PersistentEmbeddingCache.open(file)) {
+            assertThat(cache.size()).isEqualTo(3);
+            assertThat(cache.get(added)).containsExactly(3f);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.hzx.ai.repository;
+
+import com.hzx.ai.model.Booking;
+import com.hzx.ai.model.Customer;
+import com.hzx.ai.model.enums.BookingCategoryEnum;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 仓储测试共用的预订数据
+ *
+ * <p>{@link #saveSamples} 写入的五条预订：1、3、4 为北京到上海，2 为上海到广州，5 为北京到“上海人”；
+ * 航班日期依次为 {@link #BASE} 之后0、5、1、3、2天。</p>
+ */
+final class BookingFixtures {
+
+    static final LocalDate BASE = LocalDate.of(2026, 11, 1);
+
+    private BookingFixtures() {
+    }
+
+    static void saveSamples(BookingRepository repository) {
+        repository.save(booking("1", "徐庶", BASE, "北京", "上海"));
+        repository.save(booking("2", "徐庶", BASE.plusDays(5), "上海", "广州"));
+        repository.save(booking("3", "诸葛", BASE.plusDays(1), "北京", "上海"));
+        repository.save(booking("4", "Zhuge", BASE.plusDays(3), "北京", "上海"));
+        repository.save(booking("5", "徐庶人", BASE.plusDays(2), "北京", "上海人"));
+    }
+
+    static Booking booking(String bookingNumber, String name, LocalDate date, String from, String to) {
+        Customer customer = new Customer(name, new ArrayList<>());
+        return new Booking(bookingNumber, date, customer, BookingStatusEnum.CONFIRMED, from, to, BookingCategoryEnum.ECONOMY);
+    }
+
+    static List<String> numbers(Stream<Booking> bookings) {
+        try (bookings) {
+            return bookings.map(Booking::getBookingNumber).toList();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.hzx.ai.repository;
+
+import com.hzx.ai.model.Booking;
+import com.hzx.ai.model.Customer;
+import com.hzx.ai.model.enums.BookingCategoryEnum;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static com.hzx.ai.repository.BookingFixtures.BASE;
+import static com.hzx.ai.repository.BookingFixtures.booking;
+import static com.hzx.ai.repository.BookingFixtures.numbers;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 列式航班预订仓储测试
+ *
+ * <p>校验各列的编码往返、通过视图写列、扩容后的有序遍历和并发读取、城市字典写满时的失败语义，
+ * 以及与对象存储一致的二级查询结果。</p>
+ */
+class ColumnarBookingRepositoryTest {
+
+    private ColumnarBookingRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ColumnarBookingRepository();
+        BookingFixtures.saveSamples(repository);
+    }
+
+    @Test
+    void decodesEveryColumnOnRead() {
+        repository.save(new Booking("Ab-7", null, new Customer("庄周", new ArrayList<>()),
+                BookingStatusEnum.CANCELLED, "成都", null, BookingCategoryEnum.BUSINESS));
+
+        Booking booking = repository.findByBookingNumber("AB-7").orElseThrow();
+        assertThat(booking.getBookingNumber()).isEqualTo("Ab-7");
+        assertThat(booking.getDate()).isNull();
+        assertThat(booking.getCustomer().getName()).isEqualTo("庄周");
+        assertThat(booking.getFrom()).isEqualTo("成都");
+        assertThat(booking.getTo()).isNull();
+        assertThat(booking.getBookingStatus()).isEqualTo(BookingStatusEnum.CANCELLED);
+        assertThat(booking.getBookingClass()).isEqualTo(BookingCategoryEnum.BUSINESS);
+        assertThat(repository.findByBookingNumber("ab-8").isPresent()).isFalse();
+        assertThat(repository.count()).isEqualTo(6);
+    }
+
+    @Test
+    void viewsWriteThroughAfterTheColumnsGrow() {
+        Booking view = repository.findByBookingNumber("1").orElseThrow();
+        for (int i = 0; i < 3000; i++) {
+            repository.save(booking("G" + i, "客户" + i % 10, BASE, "北京", "上海"));
+        }
+
+        // 扩容前取得的视图仍然读写同一行
+        repository.update(view, b -> {
+            b.setDate(BASE.plusDays(10));
+            b.setTo("深圳");
+            b.setBookingStatus(BookingStatusEnum.COMPLETED);
+        });
+        assertThat(view.getFrom()).isEqualTo("北京");
+
+        Booking reloaded = repository.findByBookingNumber("1").orElseThrow();
+        assertThat(reloaded.getDate()).isEqualTo(BASE.plusDays(10));
+        assertThat(reloaded.getTo()).isEqualTo("深圳");
+        assertThat(reloaded.getBookingStatus()).isEqualTo(BookingStatusEnum.COMPLETED);
+        assertThat(reloaded.getBookingClass()).isEqualTo(BookingCategoryEnum.ECONOMY);
+        assertThat(numbers(repository.findByRoute("北京", "深圳", null, null))).containsExactly("1");
+        assertThatThrownBy(() -> reloaded.setBookingNumber("9"))
+                .isInstanceOf(UnsupportedOperationException.class);
+
+        // 不是本仓储视图的对象修改后整行覆盖
+        Booking detached = booking("2", "徐庶", BASE.plusDays(5), "上海", "广州");
+        repository.update(detached, b -> b.setFrom("杭州"));
+        assertThat(repository.findByBookingNumber("2").orElseThrow().getFrom()).isEqualTo("杭州");
+        assertThat(repository.count()).isEqualTo(3005);
+    }
+
+    @Test
+    void scansInBookingNumberOrderAcrossGrowth() {
+        List<String> scanned = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            repository.save(booking("N" + (i * 7919 % 3000), "客户" + i % 10, BASE, "北京", "上海"));
+        }
+        repository.findAll().forEach(b -> scanned.add(BookingRepository.normalize(b.getBookingNumber())));
+
+        assertThat(repository.count()).isEqualTo(3005);
+        assertThat(scanned).isSorted();
+        assertThat(scanned).hasSize(3005);
+        assertThat(numbers(repository.scanAfter("n998"))).containsExactly("N999");
+        assertThat(numbers(repository.scanAfter(null)).subList(0, 6)).containsExactly("1", "2", "3", "4", "5", "N0");
+        assertThat(repository.findByBookingNumber("n1234").orElseThrow().getCustomer().getName()).isNotNull();
+    }
+
+    @Test
+    void readersSeeCompleteRowsWhileTheColumnsGrow() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (writing.get()) {
+                    Booking booking = repository.findByBookingNumber("3").orElseThrow();
+                    assertThat(booking.getCustomer().getName()).isEqualTo("诸葛");
+                    assertThat(booking.getFrom()).isEqualTo("北京");
+                    assertThat(booking.getTo()).isEqualTo("上海");
+                    List<String> scanned = numbers(repository.scanAfter("4"));
+                    assertThat(scanned.get(0)).isEqualTo("5");
+                    assertThat(scanned).allSatisfy(number -> assertThat(number).isNotNull());
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 20_000; i++) {
+            repository.save(booking("R" + i, "客户" + i % 100, BASE.plusDays(i % 30), "城市" + i % 50, "上海"));
+        }
+        writing.set(false);
+        reader.join(10_000);
+
+        assertThat(failure.get()).isNull();
+        assertThat(repository.count()).isEqualTo(20_005);
+        assertThat(repository.findByBookingNumber("r19999").orElseThrow().getFrom()).isEqualTo("城市49");
+    }
+
+    @Test
+    void fullCityDictionaryRejectsTheSaveWithoutTouchingAnyRow() {
+        // 样例已占用4个城市编号，补满到上限 0xFFFF
+        int free = 0xFFFF - 4;
+        for (int i = 0; i < free / 2; i++) {
+            repository.save(booking("C" + i, "徐庶", BASE, "城" + (2 * i), "城" + (2 * i + 1)));
+        }
+        repository.save(booking("C-last", "徐庶", BASE, "城" + (free - 1), null));
+        long count = repository.count();
+
+        assertThatThrownBy(() -> repository.save(booking("X", "徐庶", BASE, "北京", "新城")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> repository.save(booking("1", "徐庶", BASE.plusDays(9), "新城", "上海")))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(repository.count()).isEqualTo(count);
+        assertThat(repository.findByBookingNumber("X")).isEmpty();
+        Booking first = repository.findByBookingNumber("1").orElseThrow();
+        assertThat(first.getDate()).isEqualTo(BASE);
+        assertThat(first.getFrom()).isEqualTo("北京");
+        assertThat(repository.findByBookingNumber("C-last").orElseThrow().getFrom()).isEqualTo("城" + (free - 1));
+
+        // 已有城市之间的预订仍然可以写入
+        repository.save(booking("Y", "诸葛", BASE, "城0", "北京"));
+        assertThat(numbers(repository.findByRoute("城0", "北京", null, null))).containsExactly("Y");
+    }
+
+    @Test
+    void secondaryQueriesMatchTheObjectEngine() {
+        InMemoryBookingRepository objects = new InMemoryBookingRepository();
+        BookingFixtures.saveSamples(objects);
+        Consumer<BookingRepository> changes = r -> {
+            r.save(booking("6", "徐庶", BASE.minusDays(3), "成都", "杭州"));
+            r.save(booking("3", "诸葛", BASE.plusDays(7), "西安", "重庆"));
+            r.update(r.findByBookingNumber("4").orElseThrow(), b -> b.setDate(BASE.plusDays(2)));
+        };
+        changes.accept(objects);
+        changes.accept(repository);
+
+        for (String name : List.of("徐庶", "ZHUGE", "诸葛", "庄周")) {
+            assertThat(numbers(repository.findByCustomerName(name)))
+                    .as(name).isEqualTo(numbers(objects.findByCustomerName(name)));
+        }
+        for (LocalDate[] range : new LocalDate[][]{{null, null}, {BASE.plusDays(1), BASE.plusDays(3)}, {BASE.plusDays(4), null}}) {
+            assertThat(numbers(repository.findByRoute("北京", "上海", range[0], range[1])))
+                    .isEqualTo(numbers(objects.findByRoute("北京", "上海", range[0], range[1])));
+            assertThat(numbers(repository.findByDateBetween(range[0], range[1])))
+                    .isEqualTo(numbers(objects.findByDateBetween(range[0], range[1])));
+        }
+        assertThat(numbers(repository.findByRoute("西安", "重庆", null, null))).containsExactly("3");
+        assertThat(numbers(repository.findByRoute("上海", "北京", null, null))).isEmpty();
+    }
+}
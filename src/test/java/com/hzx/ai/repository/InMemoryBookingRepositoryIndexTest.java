@@ -0,0 +1,76 @@
+package com.hzx.ai.repository;
+
+import com.hzx.ai.model.Booking;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.hzx.ai.repository.BookingFixtures.BASE;
+import static com.hzx.ai.repository.BookingFixtures.booking;
+import static com.hzx.ai.repository.BookingFixtures.numbers;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 内存航班预订仓储二级索引测试
+ *
+ * <p>校验客户、航线、日期三个索引的范围查询，以及修改和覆盖保存后索引与预订保持一致。</p>
+ */
+class InMemoryBookingRepositoryIndexTest {
+
+    private InMemoryBookingRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryBookingRepository();
+        BookingFixtures.saveSamples(repository);
+    }
+
+    @Test
+    void findsCustomerBookingsInDateOrder() {
+        repository.save(booking("6", "徐庶", BASE.minusDays(3), "成都", "杭州"));
+
+        assertThat(numbers(repository.findByCustomerName("徐庶"))).containsExactly("6", "1", "2");
+        assertThat(numbers(repository.findByCustomerName("ZHUGE"))).containsExactly("4");
+        assertThat(numbers(repository.findByCustomerName("庄周"))).isEmpty();
+    }
+
+    @Test
+    void findsRouteBookingsWithinDateRange() {
+        assertThat(numbers(repository.findByRoute("北京", "上海", null, null))).containsExactly("1", "3", "4");
+        assertThat(numbers(repository.findByRoute("北京", "上海", BASE.plusDays(1), BASE.plusDays(3)))).containsExactly("3", "4");
+        assertThat(numbers(repository.findByRoute("北京", "上海", BASE.plusDays(4), null))).isEmpty();
+        assertThat(numbers(repository.findByRoute("上海", "北京", null, null))).isEmpty();
+    }
+
+    @Test
+    void findsDeparturesWithinDateRange() {
+        assertThat(numbers(repository.findByDateBetween(BASE.plusDays(1), BASE.plusDays(3)))).containsExactly("3", "5", "4");
+        assertThat(numbers(repository.findByDateBetween(BASE.plusDays(3), null))).containsExactly("4", "2");
+        assertThat(numbers(repository.findByDateBetween(null, BASE))).containsExactly("1");
+    }
+
+    @Test
+    void updateMovesEveryIndexEntry() {
+        Booking booking = repository.findByBookingNumber("1").orElseThrow();
+        repository.update(booking, b -> {
+            b.setDate(BASE.plusDays(10));
+            b.setFrom("广州");
+            b.setTo("深圳");
+        });
+
+        assertThat(numbers(repository.findByRoute("北京", "上海", null, null))).containsExactly("3", "4");
+        assertThat(numbers(repository.findByRoute("广州", "深圳", null, null))).containsExactly("1");
+        assertThat(numbers(repository.findByDateBetween(null, BASE))).isEmpty();
+        assertThat(numbers(repository.findByDateBetween(BASE.plusDays(10), BASE.plusDays(10)))).containsExactly("1");
+        assertThat(numbers(repository.findByCustomerName("徐庶"))).containsExactly("2", "1");
+    }
+
+    @Test
+    void saveReplacesTheIndexEntriesOfThePreviousBooking() {
+        repository.save(booking("3", "诸葛", BASE.plusDays(7), "西安", "重庆"));
+
+        assertThat(numbers(repository.findByRoute("北京", "上海", null, null))).containsExactly("1", "4");
+        assertThat(numbers(repository.findByRoute("西安", "重庆", null, null))).containsExactly("3");
+        assertThat(numbers(repository.findByCustomerName("诸葛"))).containsExactly("3");
+        assertThat(numbers(repository.findByDateBetween(BASE.plusDays(1), BASE.plusDays(1)))).isEmpty();
+    }
+}
@@ -0,0 +1,430 @@
+package com.hzx.ai.repository.journal;
+
+import com.hzx.ai.model.enums.BookingCategoryEnum;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 预写日志存储测试：重启回放、组提交、快照压缩、残缺尾部恢复、快照与日志损坏、关闭竞争与写入失败后的失败停止
+ */
+class WalBookingStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysAppendedRecordsAfterRestart() {
+        WalBookingStore store = open();
+        store.replay(r -> { });
+        store.append(record("101", BookingStatusEnum.CONFIRMED, "北京")).join();
+        store.append(record("102", BookingStatusEnum.CONFIRMED, "上海")).join();
+        store.append(record("101", BookingStatusEnum.CANCELLED, "广州")).join();
+        store.close();
+
+        Map<String, BookingRecord> state = replay(open());
+        assertThat(state).hasSize(2);
+        assertThat(state.get("101").bookingStatus()).isEqualTo(BookingStatusEnum.CANCELLED);
+        assertThat(state.get("101").from()).isEqualTo("广州");
+        assertThat(state.get("102").from()).isEqualTo("上海");
+    }
+
+    @Test
+    void concurrentAppendsAreAllDurable() {
+        WalBookingStore store = open();
+        store.replay(r -> { });
+        List<CompletableFuture<Void>> commits = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int thread = t;
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    CompletableFuture<Void> commit = store.append(record("T" + thread + "-" + i, BookingStatusEnum.CONFIRMED, "北京"));
+                    synchronized (commits) {
+                        commits.add(commit);
+                    }
+                }
+            });
+            threads.add(writer);
+            writer.start();
+        }
+        threads.forEach(WalBookingStoreTest::join);
+        CompletableFuture.allOf(commits.toArray(new CompletableFuture[0])).join();
+        store.close();
+
+        assertThat(replay(open())).hasSize(4000);
+    }
+
+    @Test
+    void loneAppendDoesNotWaitForTheGroupCommitDelay() {
+        WalBookingStore store = new WalBookingStore(directory, 64, Duration.ofSeconds(5), Duration.ZERO);
+        store.replay(r -> { });
+        try {
+            for (int i = 0; i < 3; i++) {
+                long start = System.nanoTime();
+                store.append(record("10" + i, BookingStatusEnum.CONFIRMED, "北京")).join();
+                assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void checkpointCompactsOldSegments() throws IOException {
+        WalBookingStore store = open();
+        store.replay(r -> { });
+        for (int i = 0; i < 100; i++) {
+            store.append(record("101", BookingStatusEnum.CONFIRMED, "城市" + i)).join();
+        }
+        store.checkpoint(() -> Stream.of(record("101", BookingStatusEnum.CONFIRMED, "城市99")));
+        store.append(record("102", BookingStatusEnum.CONFIRMED, "上海")).join();
+        store.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(p -> p.getFileName().toString()).toList())
+                    .containsExactlyInAnyOrder("snapshot-0000000000000002.dat", "wal-0000000000000002.log");
+        }
+        Map<String, BookingRecord> state = replay(open());
+        assertThat(state).hasSize(2);
+        assertThat(state.get("101").from()).isEqualTo("城市99");
+    }
+
+    @Test
+    void truncatesTornTailWrittenByCrash() throws IOException {
+        WalBookingStore store = open();
+        store.replay(r -> { });
+        store.append(record("101", BookingStatusEnum.CONFIRMED, "北京")).join();
+        store.close();
+
+        // 模拟崩溃：在日志末尾写入半条记录
+        Path wal = directory.resolve("wal-0000000000000001.log");
+        long intact = Files.size(wal);
+        byte[] frame = BookingRecordCodec.encode(record("102", BookingStatusEnum.CONFIRMED, "上海"));
+        try (FileChannel ch = FileChannel.open(wal, StandardOpenOption.APPEND)) {
+            ch.write(java.nio.ByteBuffer.wrap(frame, 0, frame.length / 2));
+        }
+
+        Map<String, BookingRecord> state = replay(open());
+        assertThat(state).containsOnlyKeys("101");
+        assertThat(Files.size(wal)).isEqualTo(intact);
+    }
+
+    @Test
+    void corruptSnapshotWithoutOlderLogsFailsReplay() throws IOException {
+        WalBookingStore store = open();
+        store.replay(r -> { });
+        List<BookingRecord> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            records.add(record(String.valueOf(1000 + i), BookingStatusEnum.CONFIRMED, "北京"));
+            store.append(records.get(i)).join();
+        }
+        store.checkpoint(records::stream);
+        store.close();
+
+        Path snapshot = directory.resolve("snapshot-0000000000000002.dat");
+        flipByte(snapshot, Files.size(snapshot) / 3);
+        long walSize = Files.size(directory.resolve("wal-0000000000000002.log"));
+
+        // 快照之前的日志已被删除，只能恢复一部分预订，不能带着残缺的状态启动
+        assertThatThrownBy(() -> open().replay(r -> { }))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasStackTraceContaining("snapshot-0000000000000002.dat");
+        assertThat(Files.size(directory.resolve("wal-0000000000000002.log"))).isEqualTo(walSize);
+    }
+
+    @Test
+    void corruptSnapshotFallsBackToAnOlderSnapshotWhoseLogsRemain() throws IOException {
+        WalBookingStore store = open();
+        store.replay(r -> { });
+        store.append(record("101", BookingStatusEnum.CONFIRMED, "北京")).join();
+        store.checkpoint(() -> Stream.of(record("101", BookingStatusEnum.CONFIRMED, "北京")));
+        store.append(record("102", BookingStatusEnum.CONFIRMED, "上海")).join();
+        // 模拟新快照发布后、删除旧文件前崩溃：保留旧快照和之后的日志
+        Path backup = Files.createDirectory(directory.resolve("backup"));
+        Files.copy(directory.resolve("snapshot-0000000000000002.dat"), backup.resolve("snapshot-0000000000000002.dat"));
+        Files.copy(directory.resolve("wal-0000000000000002.log"), backup.resolve("wal-0000000000000002.log"));
+        store.checkpoint(() -> Stream.of(record("101", BookingStatusEnum.CONFIRMED, "北京"),
+                record("102", BookingStatusEnum.CONFIRMED, "上海")));
+        store.append(record("103", BookingStatusEnum.CONFIRMED, "广州")).join();
+        store.close();
+        try (Stream<Path> files = Files.list(backup)) {
+            for (Path file : files.toList()) {
+                Files.move(file, directory.resolve(file.getFileName()));
+            }
+        }
+        Files.delete(backup);
+
+        flipByte(directory.resolve("snapshot-0000000000000003.dat"), MappedRecordReader.MAGIC_BYTES + 2);
+
+        assertThat(replay(open())).containsOnlyKeys("101", "102", "103");
+    }
+
+    @Test
+    void corruptRecordInAnOlderLogFailsReplayWithoutTruncating() throws IOException {
+        WalBookingStore store = open();
+        store.replay(r -> { });
+        store.append(record("101", BookingStatusEnum.CONFIRMED, "北京")).join();
+        store.append(record("102", BookingStatusEnum.CONFIRMED, "上海")).join();
+        store.close();
+        store = open();
+        store.replay(r -> { });
+        store.append(record("101", BookingStatusEnum.CANCELLED, "北京")).join();
+        store.close();
+
+        Path wal = directory.resolve("wal-0000000000000001.log");
+        long size = Files.size(wal);
+        flipByte(wal, MappedRecordReader.MAGIC_BYTES + 2);
+
+        assertThatThrownBy(() -> open().replay(r -> { }))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasStackTraceContaining("wal-0000000000000001.log");
+        assertThat(Files.size(wal)).isEqualTo(size);
+    }
+
+    @Test
+    void failedCheckpointRemovesTheTemporarySnapshot() throws IOException {
+        WalBookingStore store = open();
+        store.replay(r -> { });
+        store.append(record("101", BookingStatusEnum.CONFIRMED, "北京")).join();
+
+        assertThatThrownBy(() -> store.checkpoint(() -> Stream.of(record("101", BookingStatusEnum.CONFIRMED, "北京"))
+                .peek(r -> {
+                    throw new IllegalStateException("读取预订失败");
+                })))
+                .isInstanceOf(IllegalStateException.class);
+        store.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(p -> p.getFileName().toString()).toList())
+                    .containsExactlyInAnyOrder("wal-0000000000000001.log", "wal-0000000000000002.log");
+        }
+        assertThat(replay(open())).containsOnlyKeys("101");
+    }
+
+    @Test
+    void appendRacingCloseAlwaysCompletes() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            WalBookingStore store = new WalBookingStore(directory.resolve("round-" + round), 64, Duration.ZERO, Duration.ZERO);
+            store.replay(r -> { });
+            List<CompletableFuture<Void>> commits = new ArrayList<>();
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                Thread writer = new Thread(() -> {
+                    started.countDown();
+                    // 持续追加，直到存储关闭后追加被直接拒绝
+                    for (int i = 0; ; i++) {
+                        CompletableFuture<Void> commit = store.append(record("T" + thread + "-" + i, BookingStatusEnum.CONFIRMED, "北京"));
+                        synchronized (commits) {
+                            commits.add(commit);
+                        }
+                        if (commit.isCompletedExceptionally()) {
+                            break;
+                        }
+                    }
+                });
+                threads.add(writer);
+                writer.start();
+            }
+            started.await();
+            store.close();
+            threads.forEach(WalBookingStoreTest::join);
+
+            // 与关闭竞争的追加要么落盘，要么失败，不能永远挂起
+            CompletableFuture<Void> all = CompletableFuture.allOf(commits.toArray(new CompletableFuture[0]));
+            assertThat(all.handle((v, e) -> true).get(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void writeFailureStopsStoreAndKeepsLogReplayable() throws IOException {
+        boolean[] broken = {false};
+        WalBookingStore store = new WalBookingStore(directory, 64, Duration.ZERO, Duration.ZERO) {
+            @Override
+            FileChannel openChannel(Path file) throws IOException {
+                return new FailingChannel(super.openChannel(file), broken);
+            }
+        };
+        store.replay(r -> { });
+        store.append(record("101", BookingStatusEnum.CONFIRMED, "北京")).join();
+        Path wal = directory.resolve("wal-0000000000000001.log");
+        long intact = Files.size(wal);
+
+        // 刷盘失败：本次记录失败，已写入的字节被截断，之后的追加直接失败
+        broken[0] = true;
+        assertThatThrownBy(() -> store.append(record("102", BookingStatusEnum.CONFIRMED, "上海")).join())
+                .hasCauseInstanceOf(IOException.class);
+        broken[0] = false;
+        assertThatThrownBy(() -> store.append(record("103", BookingStatusEnum.CONFIRMED, "广州")).join())
+                .hasCauseInstanceOf(IOException.class);
+        store.close();
+
+        assertThat(Files.size(wal)).isEqualTo(intact);
+        assertThat(replay(open())).containsOnlyKeys("101");
+    }
+
+    private WalBookingStore open() {
+        return new WalBookingStore(directory, 64, Duration.ZERO, Duration.ZERO);
+    }
+
+    private static Map<String, BookingRecord> replay(WalBookingStore store) {
+        Map<String, BookingRecord> state = new LinkedHashMap<>();
+        store.replay(r -> state.put(r.bookingNumber(), r));
+        store.close();
+        return state;
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            ch.read(buffer, position);
+            buffer.put(0, (byte) (buffer.get(0) ^ 0x5A));
+            ch.write(buffer.rewind(), position);
+        }
+    }
+
+    private static BookingRecord record(String bookingNumber, BookingStatusEnum status, String from) {
+        return new BookingRecord(bookingNumber, "徐庶", LocalDate.of(2030, 1, 1), from, "成都", status,
+                BookingCategoryEnum.ECONOMY);
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 在 {@code broken[0]} 为true时刷盘失败的日志通道
+     */
+    private static final class FailingChannel extends FileChannel {
+
+        private final FileChannel delegate;
+
+        private final boolean[] broken;
+
+        FailingChannel(FileChannel delegate, boolean[] broken) {
+            this.delegate = delegate;
+            this.broken = broken;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (broken[0]) {
+                throw new IOException("模拟磁盘故障");
+            }
+            delegate.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.hzx.ai.services;
+
+import com.hzx.ai.airport.AirportCatalog;
+import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+import com.hzx.ai.repository.InMemoryBookingRepository;
+import com.hzx.ai.repository.StripedBookingLocks;
+import com.hzx.ai.repository.journal.BookingRecord;
+import com.hzx.ai.repository.journal.NoopBookingStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 航班预订自动完成调度器测试
+ *
+ * <p>演示数据：101 徐庶、102 诸葛、103 百里、104 楼兰、105 庄周，航班日期依次为2、4、6、8、10天后。
+ * 调度器随服务启动时从仓储重建，随即停止后台推进，由测试推进时钟。</p>
+ */
+class BookingCompletionSchedulerTest {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private MutableClock clock;
+
+    private InMemoryBookingRepository repository;
+
+    private StripedBookingLocks locks;
+
+    private RecordingBookingStore store;
+
+    private BookingCompletionScheduler scheduler;
+
+    private FlightBookingService service;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(LocalDate.now(ZONE).atTime(9, 0).atZone(ZONE).toInstant());
+        repository = new InMemoryBookingRepository();
+        locks = new StripedBookingLocks();
+        store = new RecordingBookingStore();
+        scheduler = newScheduler();
+        service = new FlightBookingService(repository, locks, store, AirportCatalog.defaults(), scheduler);
+        scheduler.close();
+        store.appended.clear();
+    }
+
+    @Test
+    void completesBookingsTheDayAfterDeparture() {
+        clock.advance(Duration.ofDays(2));
+        assertThat(scheduler.advance()).isZero();
+        assertThat(status("101", "徐庶")).isEqualTo(BookingStatusEnum.CONFIRMED);
+
+        clock.advance(Duration.ofDays(3));
+        assertThat(scheduler.advance()).isEqualTo(2);
+        assertThat(status("101", "徐庶")).isEqualTo(BookingStatusEnum.COMPLETED);
+        assertThat(status("102", "诸葛")).isEqualTo(BookingStatusEnum.COMPLETED);
+        assertThat(status("103", "百里")).isEqualTo(BookingStatusEnum.CONFIRMED);
+        assertThat(store.appended).extracting(BookingRecord::bookingStatus)
+                .containsExactly(BookingStatusEnum.COMPLETED, BookingStatusEnum.COMPLETED);
+    }
+
+    @Test
+    void skipsCancelledBookings() {
+        service.cancelBooking("103", "百里");
+        store.appended.clear();
+
+        clock.advance(Duration.ofDays(7));
+        scheduler.advance();
+
+        assertThat(status("103", "百里")).isEqualTo(BookingStatusEnum.CANCELLED);
+        assertThat(store.appended).extracting(BookingRecord::bookingNumber).containsExactly("101", "102");
+    }
+
+    @Test
+    void followsRescheduledDepartureDates() {
+        LocalDate today = LocalDate.now(clock);
+        service.changeBooking("101", "徐庶", today.plusDays(20).toString(), "北京", "上海");
+        service.changeBooking("105", "庄周", today.plusDays(3).toString(), "北京", "上海");
+
+        clock.advance(Duration.ofDays(4));
+        scheduler.advance();
+        assertThat(status("101", "徐庶")).isEqualTo(BookingStatusEnum.CONFIRMED);
+        assertThat(status("105", "庄周")).isEqualTo(BookingStatusEnum.COMPLETED);
+
+        clock.advance(Duration.ofDays(17));
+        scheduler.advance();
+        assertThat(status("101", "徐庶")).isEqualTo(BookingStatusEnum.COMPLETED);
+    }
+
+    @Test
+    void rebuildsTheScheduleAfterRestart() {
+        clock.advance(Duration.ofDays(30));
+
+        // 重启后只剩仓储中的数据：停机期间到期的预订在第一次推进时补做
+        BookingCompletionScheduler restarted = newScheduler();
+        assertThat(restarted.rebuild()).isEqualTo(5);
+        assertThat(restarted.advance()).isEqualTo(5);
+        assertThat(restarted.pending()).isZero();
+        assertThat(service.getBookings()).extracting(BookingDetails::bookingStatus)
+                .containsOnly(BookingStatusEnum.COMPLETED);
+    }
+
+    private BookingCompletionScheduler newScheduler() {
+        return new BookingCompletionScheduler(repository, locks, store, clock,
+                Duration.ofMinutes(1), 64, Duration.ofDays(1), 2);
+    }
+
+    private BookingStatusEnum status(String bookingNumber, String name) {
+        return service.getBookingDetails(bookingNumber, name).bookingStatus();
+    }
+
+    /**
+     * 由测试推进的时钟
+     */
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+    /**
+     * 记录追加的预订记录，立即落盘
+     */
+    private static final class RecordingBookingStore extends NoopBookingStore {
+
+        private final List<BookingRecord> appended = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<Void> append(BookingRecord record) {
+            appended.add(record);
+            return super.append(record);
+        }
+    }
+}
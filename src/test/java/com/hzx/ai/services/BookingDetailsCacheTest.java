@@ -0,0 +1,188 @@
+package com.hzx.ai.services;
+
+import com.hzx.ai.airport.AirportCatalog;
+import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+import com.hzx.ai.repository.InMemoryBookingRepository;
+import com.hzx.ai.repository.StripedBookingLocks;
+import com.hzx.ai.repository.journal.NoopBookingStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 预订详情缓存测试
+ *
+ * <p>演示数据：101 徐庶、102 诸葛、103 百里、104 楼兰、105 庄周，航班日期依次为2、4、6、8、10天后。
+ * 校验命中时复用详情、姓名校验、修改/取消/自动完成后失效，以及加载期间失效时不缓存、不返回给其他查询旧快照。</p>
+ */
+class BookingDetailsCacheTest {
+
+    private final BookingDetailsCache cache = new BookingDetailsCache(100);
+
+    private final FlightBookingService service = new FlightBookingService(new InMemoryBookingRepository(),
+            new StripedBookingLocks(), new NoopBookingStore(), AirportCatalog.defaults(), null, cache);
+
+    @Test
+    void servesRepeatedLookupsFromTheCache() {
+        BookingDetails first = service.getBookingDetails("101", "徐庶");
+
+        assertThat(service.getBookingDetails("101", "徐庶")).isSameAs(first);
+        assertThat(cache.size()).isEqualTo(1L);
+        assertThatThrownBy(() -> service.getBookingDetails("101", "诸葛"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("未找到预订号为 101，客户姓名为 诸葛");
+        assertThatThrownBy(() -> service.getBookingDetails("999", "徐庶"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(cache.size()).isEqualTo(1L);
+    }
+
+    @Test
+    void changesAndCancellationsInvalidateTheBooking() {
+        BookingDetails before = service.getBookingDetails("105", "庄周");
+        BookingDetails other = service.getBookingDetails("104", "楼兰");
+        String newDate = LocalDate.now().plusDays(40).toString();
+
+        service.changeBooking("105", "庄周", newDate, "北京", "广州");
+
+        BookingDetails changed = service.getBookingDetails("105", "庄周");
+        assertThat(changed).isNotSameAs(before);
+        assertThat(changed.date()).isEqualTo(LocalDate.parse(newDate));
+        assertThat(changed.to()).isEqualTo("广州");
+        assertThat(service.getBookingDetails("104", "楼兰")).isSameAs(other);
+
+        service.cancelBooking("105", "庄周");
+        assertThat(service.getBookingDetails("105", "庄周").bookingStatus()).isEqualTo(BookingStatusEnum.CANCELLED);
+    }
+
+    @Test
+    void completedBookingsAreInvalidated() {
+        InMemoryBookingRepository repository = new InMemoryBookingRepository();
+        StripedBookingLocks locks = new StripedBookingLocks();
+        BookingDetailsCache completionCache = new BookingDetailsCache(100);
+        FlightBookingService completing = new FlightBookingService(repository, locks, new NoopBookingStore(),
+                AirportCatalog.defaults(), null, completionCache);
+        // 时钟在30天后，全部演示预订都已到期；不启动后台推进，由测试推进
+        BookingCompletionScheduler scheduler = new BookingCompletionScheduler(repository, locks, new NoopBookingStore(),
+                Clock.offset(Clock.systemDefaultZone(), Duration.ofDays(30)), Duration.ofMinutes(1), 64,
+                Duration.ofDays(1), 100, completionCache);
+        scheduler.rebuild();
+
+        assertThat(completing.getBookingDetails("101", "徐庶").bookingStatus()).isEqualTo(BookingStatusEnum.CONFIRMED);
+        assertThat(scheduler.advance()).isEqualTo(5);
+        assertThat(completing.getBookingDetails("101", "徐庶").bookingStatus()).isEqualTo(BookingStatusEnum.COMPLETED);
+    }
+
+    @Test
+    void doesNotKeepSnapshotsLoadedWhileTheBookingChanged() {
+        AtomicInteger loads = new AtomicInteger();
+        BookingDetails stale = service.getBookingDetails("103", "百里");
+        cache.invalidate("103");
+
+        BookingDetails loaded = cache.get("103", () -> {
+            loads.incrementAndGet();
+            cache.invalidate("103");
+            return stale;
+        });
+
+        assertThat(loaded).isSameAs(stale);
+        assertThat(cache.size()).isZero();
+        cache.get("103", () -> {
+            loads.incrementAndGet();
+            return stale;
+        });
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(1L);
+    }
+
+    @Test
+    void loadPausedAcrossAChangeDoesNotPublishTheOldSnapshot() throws Exception {
+        BookingDetails before = service.getBookingDetails("104", "楼兰");
+        cache.invalidate("104");
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch changed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 加载读到修改前的快照后暂停，修改完成后再继续写入缓存
+            Future<BookingDetails> slowLoad = executor.submit(() -> cache.get("104", () -> {
+                loaded.countDown();
+                await(changed);
+                return before;
+            }));
+            assertThat(loaded.await(5, TimeUnit.SECONDS)).isTrue();
+            service.changeBooking("104", "楼兰", LocalDate.now().plusDays(40).toString(), "北京", "广州");
+            changed.countDown();
+
+            assertThat(slowLoad.get(5, TimeUnit.SECONDS)).isSameAs(before);
+            assertThat(service.getBookingDetails("104", "楼兰").to()).isEqualTo("广州");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void readsAfterAChangeReturnsNeverSeeTheOldSnapshot() throws Exception {
+        String newDate = LocalDate.now().plusDays(40).toString();
+        List<String> destinations = List.of("广州", "成都");
+        // 奇数表示修改进行中，偶数n表示第n/2次修改已返回
+        AtomicLong sequence = new AtomicLong();
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<String> staleRead = new AtomicReference<>();
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(readers.submit(() -> {
+                    while (!stop.get()) {
+                        long seen = sequence.get();
+                        String to = service.getBookingDetails("105", "庄周").to();
+                        if (seen % 2 == 0 && seen > 0 && sequence.get() == seen
+                                && !to.equals(destinations.get((int) (seen / 2 - 1) % 2))) {
+                            staleRead.compareAndSet(null, "第" + seen / 2 + "次修改后读到" + to);
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < 2000 && staleRead.get() == null; i++) {
+                sequence.incrementAndGet();
+                service.changeBooking("105", "庄周", newDate, "北京", destinations.get(i % 2));
+                sequence.incrementAndGet();
+            }
+            stop.set(true);
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            stop.set(true);
+            readers.shutdownNow();
+        }
+        assertThat(staleRead.get()).isNull();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("等待修改超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.hzx.ai.services;
+
+import com.hzx.ai.model.dto.BookingBatchItem;
+import com.hzx.ai.model.dto.BookingBatchResult;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+import com.hzx.ai.model.request.BookingDetailsRequest;
+import com.hzx.ai.model.request.CancelBookingRequest;
+import com.hzx.ai.model.request.ChangeBookingDatesRequest;
+import com.hzx.ai.repository.InMemoryBookingRepository;
+import com.hzx.ai.repository.StripedBookingLocks;
+import com.hzx.ai.repository.journal.BookingRecord;
+import com.hzx.ai.repository.journal.NoopBookingStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 航班预订服务批量操作测试
+ *
+ * <p>演示数据：101 徐庶、102 诸葛、103 百里、104 楼兰、105 庄周，航班日期依次为2、4、6、8、10天后。</p>
+ */
+class FlightBookingServiceBatchTest {
+
+    private FailingBookingStore store;
+
+    private FlightBookingService service;
+
+    @BeforeEach
+    void setUp() {
+        store = new FailingBookingStore();
+        service = new FlightBookingService(new InMemoryBookingRepository(), new StripedBookingLocks(), store);
+    }
+
+    @Test
+    void lookupReportsMissingBookingsPerItem() {
+        BookingBatchResult result = service.getBookingDetails(List.of(
+                new BookingDetailsRequest("101", "徐庶"),
+                new BookingDetailsRequest("999", "徐庶"),
+                new BookingDetailsRequest("102", "诸葛")
+        ));
+
+        assertThat(result.succeeded()).isEqualTo(2);
+        assertThat(result.failed()).isEqualTo(1);
+        assertThat(result.items()).extracting(BookingBatchItem::bookingNumber).containsExactly("101", "999", "102");
+        assertThat(result.items().get(0).details().name()).isEqualTo("徐庶");
+        assertThat(result.items().get(1).success()).isFalse();
+        assertThat(result.items().get(1).error()).contains("999");
+    }
+
+    @Test
+    void changeAppliesValidItemsAndReportsTheRest() {
+        String newDate = LocalDate.now().plusDays(40).toString();
+        BookingBatchResult result = service.changeBookings(List.of(
+                new ChangeBookingDatesRequest("105", "庄周", newDate, "北京", "广州"),
+                new ChangeBookingDatesRequest("104", "不是楼兰", newDate, "北京", "广州"),
+                new ChangeBookingDatesRequest("103", "百里", "2026-13-01", "北京", "广州"),
+                new ChangeBookingDatesRequest("102", "诸葛", newDate, "上海", "成都")
+        ));
+
+        assertThat(result.succeeded()).isEqualTo(2);
+        assertThat(result.failed()).isEqualTo(2);
+        assertThat(result.items()).extracting(BookingBatchItem::success).containsExactly(true, false, false, true);
+        assertThat(result.items().get(0).details().date()).isEqualTo(LocalDate.parse(newDate));
+        assertThat(service.getBookingDetails("105", "庄周").to()).isEqualTo("广州");
+        assertThat(service.getBookingDetails("102", "诸葛").from()).isEqualTo("上海");
+        assertThat(service.getBookingDetails("104", "楼兰").date()).isNotEqualTo(LocalDate.parse(newDate));
+    }
+
+    @Test
+    void changeResolvesPlacesThroughTheAirportCatalog() {
+        String newDate = LocalDate.now().plusDays(40).toString();
+        BookingBatchResult result = service.changeBookings(List.of(
+                new ChangeBookingDatesRequest("105", "庄周", newDate, "PEK", "Shanghai Hongqiao"),
+                new ChangeBookingDatesRequest("104", "楼兰", newDate, "火星", "广州"),
+                new ChangeBookingDatesRequest("103", "百里", newDate, "浦东机场", "上海")
+        ));
+
+        assertThat(result.items()).extracting(BookingBatchItem::success).containsExactly(true, false, false);
+        assertThat(result.items().get(0).details().from()).isEqualTo("北京");
+        assertThat(result.items().get(0).details().to()).isEqualTo("上海");
+        assertThat(result.items().get(1).error()).contains("火星");
+        assertThat(result.items().get(2).error()).contains("同一城市");
+        assertThat(service.getBookingDetails("103", "百里").date()).isNotEqualTo(LocalDate.parse(newDate));
+    }
+
+    @Test
+    void cancelRespectsTheCancellationWindowPerItem() {
+        service.changeBookings(List.of(
+                new ChangeBookingDatesRequest("103", "百里", LocalDate.now().plusDays(1).toString(), "北京", "上海")
+        ));
+
+        BookingBatchResult result = service.cancelBookings(List.of(
+                new CancelBookingRequest("103", "百里"),
+                new CancelBookingRequest("104", "楼兰")
+        ));
+
+        assertThat(result.items()).extracting(BookingBatchItem::success).containsExactly(false, true);
+        assertThat(result.items().get(0).error()).contains("48小时");
+        assertThat(result.items().get(1).details().bookingStatus()).isEqualTo(BookingStatusEnum.CANCELLED);
+        assertThat(service.getBookingDetails("103", "百里").bookingStatus()).isEqualTo(BookingStatusEnum.CONFIRMED);
+    }
+
+    @Test
+    void durabilityFailureOnlyFailsTheAffectedItem() {
+        store.failFor("102");
+
+        BookingBatchResult result = service.cancelBookings(List.of(
+                new CancelBookingRequest("102", "诸葛"),
+                new CancelBookingRequest("104", "楼兰")
+        ));
+
+        assertThat(result.items()).extracting(BookingBatchItem::success).containsExactly(false, true);
+        assertThat(result.items().get(0).error()).contains("持久化失败");
+        assertThat(store.appended).contains("102", "104");
+        // 落盘失败的项被还原，查询不到未持久化的取消
+        assertThat(service.getBookingDetails("102", "诸葛").bookingStatus()).isEqualTo(BookingStatusEnum.CONFIRMED);
+        assertThat(service.getBookingDetails("104", "楼兰").bookingStatus()).isEqualTo(BookingStatusEnum.CANCELLED);
+        assertThatThrownBy(() -> service.cancelBooking("102", "诸葛"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(service.getBookingDetails("102", "诸葛").bookingStatus()).isEqualTo(BookingStatusEnum.CONFIRMED);
+    }
+
+    @Test
+    void nullItemsAreReportedAsFailedItems() {
+        BookingBatchResult lookup = service.getBookingDetails(Arrays.asList(
+                null, new BookingDetailsRequest("101", "徐庶")));
+        BookingBatchResult change = service.changeBookings(Arrays.asList(
+                new ChangeBookingDatesRequest("105", "庄周", LocalDate.now().plusDays(40).toString(), "北京", "广州"), null));
+        BookingBatchResult cancel = service.cancelBookings(Arrays.asList(
+                null, new CancelBookingRequest("104", "楼兰"), null));
+
+        assertThat(lookup.items()).extracting(BookingBatchItem::success).containsExactly(false, true);
+        assertThat(change.items()).extracting(BookingBatchItem::success).containsExactly(true, false);
+        assertThat(cancel.items()).extracting(BookingBatchItem::success).containsExactly(false, true, false);
+        assertThat(cancel.failed()).isEqualTo(2);
+        assertThat(cancel.items().get(0).bookingNumber()).isNull();
+        assertThat(cancel.items().get(0).error()).contains("不能为空");
+        assertThat(service.getBookingDetails("105", "庄周").to()).isEqualTo("广州");
+        assertThat(service.getBookingDetails("104", "楼兰").bookingStatus()).isEqualTo(BookingStatusEnum.CANCELLED);
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedBatches() {
+        assertThatThrownBy(() -> service.cancelBookings(List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        List<CancelBookingRequest> oversized = Collections.nCopies(FlightBookingService.MAX_BATCH_SIZE + 1,
+                new CancelBookingRequest("104", "楼兰"));
+        assertThatThrownBy(() -> service.cancelBookings(oversized))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(String.valueOf(FlightBookingService.MAX_BATCH_SIZE));
+        assertThat(service.getBookingDetails("104", "楼兰").bookingStatus()).isEqualTo(BookingStatusEnum.CONFIRMED);
+    }
+
+    /**
+     * 指定预订号的记录落盘失败，其余立即成功
+     */
+    private static final class FailingBookingStore extends NoopBookingStore {
+
+        private final List<String> appended = new ArrayList<>();
+
+        private String failingBookingNumber;
+
+        void failFor(String bookingNumber) {
+            failingBookingNumber = bookingNumber;
+        }
+
+        @Override
+        public CompletableFuture<Void> append(BookingRecord record) {
+            appended.add(record.bookingNumber());
+            if (record.bookingNumber().equals(failingBookingNumber)) {
+                return CompletableFuture.failedFuture(new IOException("磁盘已满"));
+            }
+            return super.append(record);
+        }
+    }
+}
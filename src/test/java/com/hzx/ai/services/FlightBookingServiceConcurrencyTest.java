@@ -0,0 +1,186 @@
+package com.hzx.ai.services;
+
+import com.hzx.ai.airport.AirportCatalog;
+import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+import com.hzx.ai.repository.InMemoryBookingRepository;
+import com.hzx.ai.repository.StripedBookingLocks;
+import com.hzx.ai.repository.journal.NoopBookingStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 航班预订服务并发压力测试
+ *
+ * <p>多线程同时修改、取消、查询同一预订，校验任何时刻读到的预订信息都来自同一次完整写入，
+ * 不会出现日期、出发地、目的地分别来自不同修改的情况。出发地、目的地使用测试专用的机场目录，
+ * 城市名 {@code F<k>}、{@code T<k>} 直接带出修改的序号。</p>
+ */
+class FlightBookingServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    private static final int ITERATIONS = 2_000;
+
+    /**
+     * 演示数据中的预订：105 / 庄周，航班日期为10天后
+     */
+    private static final String BOOKING_NUMBER = "105";
+
+    private static final String NAME = "庄周";
+
+    private FlightBookingService service;
+
+    private ExecutorService executor;
+
+    private LocalDate baseDate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        service = new FlightBookingService(new InMemoryBookingRepository(), new StripedBookingLocks(), new NoopBookingStore(),
+                sequenceCatalog());
+        executor = Executors.newFixedThreadPool(THREADS);
+        baseDate = LocalDate.now().plusDays(30);
+        // 演示数据的城市从同一目录随机选取，先写入序号0，避免被误当作测试的修改
+        service.changeBooking(BOOKING_NUMBER, NAME, baseDate.toString(), "F0", "T0");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentChangesAreNeverTorn() throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    if (thread % 2 == 0) {
+                        // 写线程：日期、出发地、目的地使用同一个序号，便于读线程校验
+                        int k = (thread * ITERATIONS + i) % 300;
+                        service.changeBooking(BOOKING_NUMBER, NAME, baseDate.plusDays(k).toString(), "F" + k, "T" + k);
+                    } else {
+                        assertConsistent(service.getBookingDetails(BOOKING_NUMBER, NAME.toLowerCase()));
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        assertConsistent(service.getBookingDetails(BOOKING_NUMBER, NAME));
+    }
+
+    @Test
+    void cancellationIsNotLostUnderConcurrentChanges() throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    int k = (thread * ITERATIONS + i) % 300;
+                    service.changeBooking(BOOKING_NUMBER, NAME, baseDate.plusDays(k).toString(), "F" + k, "T" + k);
+                    if (thread == 0 && i == ITERATIONS / 2) {
+                        service.cancelBooking(BOOKING_NUMBER, NAME);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        BookingDetails details = service.getBookingDetails(BOOKING_NUMBER, NAME);
+        assertThat(details.bookingStatus()).isEqualTo(BookingStatusEnum.CANCELLED);
+        assertConsistent(details);
+    }
+
+    @Test
+    void unrelatedBookingsKeepTheirOwnLastWrite() throws Exception {
+        List<String> bookingNumbers = List.of("101", "102", "103", "104", "105");
+        List<String> names = List.of("徐庶", "诸葛", "百里", "楼兰", "庄周");
+        List<Future<?>> futures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < bookingNumbers.size(); t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    service.changeBooking(bookingNumbers.get(thread), names.get(thread),
+                            baseDate.plusDays(i % 300).toString(), "F" + (i % 300), "T" + (i % 300));
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        int last = (ITERATIONS - 1) % 300;
+        for (int t = 0; t < bookingNumbers.size(); t++) {
+            BookingDetails details = service.getBookingDetails(bookingNumbers.get(t), names.get(t));
+            assertThat(details.date()).isEqualTo(baseDate.plusDays(last));
+            assertThat(details.from()).isEqualTo("F" + last);
+            assertThat(details.to()).isEqualTo("T" + last);
+        }
+    }
+
+    /**
+     * 校验出发地、目的地和日期来自同一次修改；尚未被测试修改过的初始数据直接跳过
+     */
+    private void assertConsistent(BookingDetails details) {
+        if (!details.from().startsWith("F")) {
+            return;
+        }
+        int k = Integer.parseInt(details.from().substring(1));
+        assertThat(details.to()).isEqualTo("T" + k);
+        assertThat(details.date()).isEqualTo(baseDate.plusDays(k));
+    }
+
+    /**
+     * 城市 F0~F299、T0~T299 的机场目录，三字码按序号生成
+     */
+    private static AirportCatalog sequenceCatalog() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        int code = 0;
+        for (String prefix : List.of("F", "T")) {
+            for (int k = 0; k < 300; k++, code++) {
+                String city = prefix + k;
+                String iata = "" + (char) ('A' + code / 676) + (char) ('A' + code / 26 % 26) + (char) ('A' + code % 26);
+                csv.append(String.join(",", iata, city, city, city + "机场", city + " Airport")).append('\n');
+            }
+        }
+        return AirportCatalog.load(new StringReader(csv.toString()));
+    }
+}
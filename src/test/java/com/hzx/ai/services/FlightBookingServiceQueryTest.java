@@ -0,0 +1,62 @@
+package com.hzx.ai.services;
+
+import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.model.dto.BookingPage;
+import com.hzx.ai.model.request.BookingQuery;
+import com.hzx.ai.model.request.ChangeBookingDatesRequest;
+import com.hzx.ai.repository.InMemoryBookingRepository;
+import com.hzx.ai.repository.StripedBookingLocks;
+import com.hzx.ai.repository.journal.NoopBookingStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 航班预订服务条件查询测试
+ *
+ * <p>演示数据的出发地和目的地随机生成，先把预订105改为北京到上海，再按不同写法的地点查询。</p>
+ */
+class FlightBookingServiceQueryTest {
+
+    private FlightBookingService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new FlightBookingService(new InMemoryBookingRepository(), new StripedBookingLocks(), new NoopBookingStore());
+        service.changeBookings(List.of(
+                new ChangeBookingDatesRequest("105", "庄周", LocalDate.now().plusDays(40).toString(), "北京", "上海")
+        ));
+    }
+
+    @Test
+    void listFilterResolvesPlacesThroughTheAirportCatalog() {
+        assertThat(bookingNumbers(new BookingQuery(null, null, "PEK", "Shanghai Hongqiao", null, null))).contains("105");
+        assertThat(bookingNumbers(new BookingQuery(null, null, "Beijing", null, null, null))).contains("105");
+        assertThat(bookingNumbers(new BookingQuery(null, null, null, "浦东机场", null, null))).contains("105");
+        assertThat(bookingNumbers(new BookingQuery(null, null, "上海", "北京", null, null))).doesNotContain("105");
+    }
+
+    @Test
+    void pageFilterResolvesPlacesThroughTheAirportCatalog() {
+        BookingPage page = service.getBookingPage(new BookingQuery(null, null, "pek", "SHA", null, null), null, 10);
+
+        assertThat(page.items()).extracting(BookingDetails::bookingNumber).contains("105");
+        assertThat(page.items()).allSatisfy(details -> {
+            assertThat(details.from()).isEqualTo("北京");
+            assertThat(details.to()).isEqualTo("上海");
+        });
+    }
+
+    @Test
+    void placesMissingFromTheCatalogAreMatchedAsGiven() {
+        assertThat(bookingNumbers(new BookingQuery(null, null, "火星", null, null, null))).isEmpty();
+    }
+
+    private List<String> bookingNumbers(BookingQuery query) {
+        return service.streamBookings(query, null).map(BookingDetails::bookingNumber).toList();
+    }
+}
@@ -0,0 +1,140 @@
+package com.hzx.ai.services;
+
+import com.hzx.ai.model.dto.BookingBatchResult;
+import com.hzx.ai.model.dto.BookingDetails;
+import com.hzx.ai.model.enums.BookingStatusEnum;
+import com.hzx.ai.model.request.BookingDetailsRequest;
+import com.hzx.ai.model.request.BookingQuery;
+import com.hzx.ai.repository.InMemoryBookingRepository;
+import com.hzx.ai.repository.StripedBookingLocks;
+import com.hzx.ai.repository.journal.NoopBookingStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 响应式航班预订服务测试
+ *
+ * <p>校验操作在有界弹性调度器上执行、业务异常原样传递、排队已满时拒绝，以及流式遍历的按需读取和取消。</p>
+ */
+class ReactiveFlightBookingServiceTest {
+
+    private final AtomicBoolean streamClosed = new AtomicBoolean();
+
+    private Scheduler scheduler;
+
+    private FlightBookingService service;
+
+    private ReactiveFlightBookingService reactiveService;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Schedulers.newBoundedElastic(1, 1, "booking");
+        service = new FlightBookingService(new InMemoryBookingRepository(), new StripedBookingLocks(), new NoopBookingStore()) {
+            @Override
+            public Stream<BookingDetails> streamBookings(BookingQuery query, String cursor) {
+                return super.streamBookings(query, cursor).onClose(() -> streamClosed.set(true));
+            }
+        };
+        reactiveService = new ReactiveFlightBookingService(service, scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    void runsOperationsOnTheBookingScheduler() {
+        String thread = reactiveService.getBookingDetails("101", "徐庶")
+                .map(details -> Thread.currentThread().getName())
+                .block();
+        assertThat(thread).startsWith("booking");
+
+        String newDate = LocalDate.now().plusDays(30).toString();
+        reactiveService.changeBooking("101", "徐庶", newDate, "北京", "广州").block();
+        assertThat(service.getBookingDetails("101", "徐庶").date()).isEqualTo(LocalDate.parse(newDate));
+
+        BookingBatchResult result = reactiveService.getBookingDetails(List.of(
+                new BookingDetailsRequest("101", "徐庶"),
+                new BookingDetailsRequest("999", "徐庶")
+        )).block();
+        assertThat(result.succeeded()).isEqualTo(1);
+        assertThat(result.failed()).isEqualTo(1);
+    }
+
+    @Test
+    void operationsAreDeferredAndErrorsPropagate() {
+        Mono<Void> cancel = reactiveService.cancelBooking("102", "诸葛");
+        assertThat(service.getBookingDetails("102", "诸葛").bookingStatus()).isEqualTo(BookingStatusEnum.CONFIRMED);
+        cancel.block();
+        assertThat(service.getBookingDetails("102", "诸葛").bookingStatus()).isEqualTo(BookingStatusEnum.CANCELLED);
+
+        assertThatThrownBy(() -> reactiveService.cancelBooking("999", "徐庶").block())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("999");
+        assertThatThrownBy(() -> reactiveService.getBookingDetails("101", "不是徐庶").block())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsOperationsWhenTheQueueIsFull() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch drained = new CountDownLatch(1);
+        // 占满唯一的线程和唯一的排队位置
+        scheduler.schedule(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        started.await();
+        scheduler.schedule(drained::countDown);
+
+        try {
+            assertThatThrownBy(() -> reactiveService.getBookingDetails("101", "徐庶").block())
+                    .isInstanceOf(RejectedExecutionException.class);
+        } finally {
+            release.countDown();
+        }
+        // 排队的任务开始执行后才有空位
+        assertThat(drained.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(reactiveService.getBookingDetails("101", "徐庶").block().name()).isEqualTo("徐庶");
+    }
+
+    @Test
+    void streamsOnDemandAndClosesOnCancel() {
+        List<BookingDetails> all = service.streamBookings(BookingQuery.ALL, null).toList();
+        streamClosed.set(false);
+
+        List<BookingDetails> firstTwo = reactiveService.streamBookings(BookingQuery.ALL, null)
+                .limitRate(1)
+                .take(2)
+                .collectList()
+                .block();
+
+        assertThat(firstTwo).isEqualTo(all.subList(0, 2));
+        assertThat(streamClosed).isTrue();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.hzx.ai.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 分层时间轮测试
+ *
+ * <p>校验条目不早于到期时刻取出、也不晚于到期后的第一格，跨层下沉后依然准确。</p>
+ */
+class TimingWheelTest {
+
+    private static final long TICK = 1_000;
+
+    @Test
+    void rejectsDeadlinesThatAreAlreadyDue() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, 10 * TICK);
+
+        assertThat(wheel.add("past", 5 * TICK)).isFalse();
+        assertThat(wheel.add("now", 10 * TICK)).isFalse();
+        assertThat(wheel.add("next", 10 * TICK + 1)).isTrue();
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+
+    @Test
+    void expiresEntriesAcrossLevelsInDeadlineOrder() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, 0);
+        wheel.add("level2", 100 * TICK);
+        wheel.add("level0", 3 * TICK);
+        wheel.add("level1", 20 * TICK);
+
+        List<String> expired = new ArrayList<>();
+        assertThat(wheel.advance(19 * TICK, expired::add)).isEqualTo(1);
+        assertThat(expired).containsExactly("level0");
+
+        wheel.advance(99 * TICK + 999, expired::add);
+        assertThat(expired).containsExactly("level0", "level1");
+
+        wheel.advance(100 * TICK, expired::add);
+        assertThat(expired).containsExactly("level0", "level1", "level2");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void neverExpiresEarlyOrLateUnderRandomWorkload() {
+        Random random = new Random(42);
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, 16, 0);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        long now = 0;
+        int next = 0;
+        for (int round = 0; round < 2_000; round++) {
+            for (int i = 0; i < 5; i++) {
+                // 到期时刻覆盖多层，偶尔远超当前层数
+                long deadline = now + 1 + (long) (Math.pow(random.nextDouble(), 4) * 200_000 * TICK);
+                if (wheel.add(next, deadline)) {
+                    deadlines.put(next, deadline);
+                }
+                next++;
+            }
+            now += random.nextInt(50) * TICK + random.nextInt((int) TICK);
+            long current = now;
+            wheel.advance(current, id -> {
+                long deadline = deadlines.remove(id);
+                assertThat(deadline).isLessThanOrEqualTo(current);
+            });
+            // 未取出的条目都在当前格的起点之后才到期
+            for (long deadline : deadlines.values()) {
+                assertThat(deadline).isGreaterThan(Math.floorDiv(current, TICK) * TICK);
+            }
+        }
+        assertThat(wheel.size()).isEqualTo(deadlines.size());
+    }
+}
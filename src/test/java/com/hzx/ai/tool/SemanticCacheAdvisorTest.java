@@ -0,0 +1,117 @@
+package com.hzx.ai.tool;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY;
+
+/**
+ * 语义缓存顾问测试
+ *
+ * <p>所有问题的向量相同，任何已写入的回答都会被命中；校验只有新会话中未调用函数的回答才会被其他会话复用。</p>
+ */
+class SemanticCacheAdvisorTest {
+
+    private static final String QUESTION = "可以改成明天吗？";
+
+    private final ChatModel chatModel = mock(ChatModel.class);
+
+    private final SemanticCacheAdvisor advisor = new SemanticCacheAdvisor(embeddingModel(), 0.9,
+            Duration.ofMinutes(10), 100, List.of());
+
+    private final AtomicInteger modelCalls = new AtomicInteger();
+
+    @Test
+    void answersGivenAfterAToolCallAreNeverReplayedInAnotherConversation() {
+        AdvisedResponse first = advisor.aroundCall(request("c1", ""), chain("已为徐庶把预订101改到明天", true));
+        assertThat(text(first)).isEqualTo("已为徐庶把预订101改到明天");
+
+        AdvisedResponse second = advisor.aroundCall(request("c2", ""), chain("请提供预订号和姓名", false));
+
+        assertThat(text(second)).isEqualTo("请提供预订号和姓名");
+        assertThat(second.adviseContext()).doesNotContainKey(SemanticCacheAdvisor.CACHE_HIT_KEY);
+        assertThat(modelCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void replaysToolFreeAnswersOnlyInFreshConversations() {
+        advisor.aroundCall(request("c1", ""), chain("请提供预订号和姓名", false));
+
+        AdvisedResponse replayed = advisor.aroundCall(request("c2", ""), chain("不应调用模型", false));
+        assertThat(text(replayed)).isEqualTo("请提供预订号和姓名");
+        assertThat(replayed.adviseContext()).containsEntry(SemanticCacheAdvisor.CACHE_HIT_KEY, true);
+
+        // 已有历史消息的会话中同一句话含义不同，不查缓存
+        AdvisedResponse withHistory = advisor.aroundCall(request("c3", "USER: 我的预订号是101"),
+                chain("已把预订101改到明天", false));
+        assertThat(text(withHistory)).isEqualTo("已把预订101改到明天");
+        assertThat(modelCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotStoreAnswersWithoutAToolCallMarker() {
+        AdvisedRequest unmarked = AdvisedRequest.from(request("c1", ""))
+                .withAdvisorParams(Map.of(CHAT_MEMORY_CONVERSATION_ID_KEY, "c1"))
+                .build();
+        advisor.aroundCall(unmarked, chain("已为徐庶把预订101改到明天", false));
+
+        AdvisedResponse second = advisor.aroundCall(request("c2", ""), chain("请提供预订号和姓名", false));
+
+        assertThat(text(second)).isEqualTo("请提供预订号和姓名");
+        assertThat(modelCalls.get()).isEqualTo(2);
+    }
+
+    private AdvisedRequest request(String conversationId, String memory) {
+        Map<String, Object> advisorParams = new HashMap<>();
+        advisorParams.put(CHAT_MEMORY_CONVERSATION_ID_KEY, conversationId);
+        advisorParams.put(SemanticCacheAdvisor.CUSTOMER_CONTEXT_KEY, false);
+        advisorParams.put(BookingTools.TOOL_CALLED, new AtomicBoolean());
+        return AdvisedRequest.builder()
+                .withChatModel(chatModel)
+                .withUserText(QUESTION)
+                .withSystemParams(Map.of("memory", memory))
+                .withAdvisorParams(advisorParams)
+                .withAdviseContext(Map.of())
+                .build();
+    }
+
+    /**
+     * 模拟后续的顾问和模型调用；callsTool为true时像预订函数一样置位请求中的函数调用标记
+     */
+    private CallAroundAdvisorChain chain(String answer, boolean callsTool) {
+        return request -> {
+            modelCalls.incrementAndGet();
+            if (callsTool) {
+                ((AtomicBoolean) request.advisorParams().get(BookingTools.TOOL_CALLED)).set(true);
+            }
+            return new AdvisedResponse(new ChatResponse(List.of(new Generation(answer))), request.adviseContext());
+        };
+    }
+
+    private static EmbeddingModel embeddingModel() {
+        EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+        when(embeddingModel.embed(anyString())).thenReturn(new float[]{1, 0, 0});
+        return embeddingModel;
+    }
+
+    private static String text(AdvisedResponse response) {
+        return response.response().getResult().getOutput().getContent();
+    }
+}
@@ -0,0 +1,138 @@
+package com.hzx.ai.tool;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 函数调用去重测试
+ *
+ * <p>校验重复查询直接返回结果、重复修改只执行一次、修改后查询结果失效、失败不缓存，以及去重指标。</p>
+ */
+class ToolCallDeduplicatorTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final Ticker ticker = nanos::get;
+
+    private final ToolCallDeduplicator deduplicator =
+            new ToolCallDeduplicator(Duration.ofSeconds(10), Duration.ofMinutes(2), 1000, ticker);
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    void returnsDuplicateReadsWithoutQueryingAgain() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        deduplicator.bindTo(registry);
+
+        assertThat(read("c1", "101", " 徐庶 ")).isEqualTo("详情1");
+        assertThat(read("c1", "101", "徐庶")).isEqualTo("详情1");
+        assertThat(read("c2", "101", "徐庶")).isEqualTo("详情2");
+        assertThat(read(null, "101", "徐庶")).isEqualTo("详情3");
+        assertThat(read(null, "101", "徐庶")).isEqualTo("详情4");
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        assertThat(read("c1", "101", "徐庶")).isEqualTo("详情5");
+
+        assertThat(registry.get("chat.tool.dedup").tag("function", "getBookingDetails").tag("outcome", "hit")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("chat.tool.dedup").tag("function", "getBookingDetails").tag("outcome", "miss")
+                .counter().count()).isEqualTo(3.0);
+    }
+
+    @Test
+    void collapsesOnlyConsecutiveIdenticalWrites() {
+        assertThat(change("c1", "101", "2024-02-01")).isEqualTo("修改1");
+        assertThat(change("c1", "101", "2024-02-01")).isEqualTo("修改1");
+        assertThat(change("c1", "101", "2024-02-02")).isEqualTo("修改2");
+        assertThat(change("c1", "101", "2024-02-01")).isEqualTo("修改3");
+        assertThat(change("c1", "102", "2024-02-01")).isEqualTo("修改4");
+        assertThat(change("c1", "101", "2024-02-01")).isEqualTo("修改3");
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(3));
+        assertThat(change("c1", "101", "2024-02-01")).isEqualTo("修改5");
+    }
+
+    @Test
+    void writesInvalidateReadsOfTheConversationAndTheBooking() {
+        assertThat(read("c1", "101", "徐庶")).isEqualTo("详情1");
+        assertThat(read("c1", "102", "诸葛")).isEqualTo("详情2");
+        assertThat(read("c2", "101", "徐庶")).isEqualTo("详情3");
+        assertThat(read("c3", "103", "孙权")).isEqualTo("详情4");
+
+        change("c1", "101", "2024-02-01");
+
+        assertThat(read("c1", "101", "徐庶")).isEqualTo("详情6");
+        assertThat(read("c1", "102", "诸葛")).isEqualTo("详情7");
+        assertThat(read("c2", "101", "徐庶")).isEqualTo("详情8");
+        assertThat(read("c3", "103", "孙权")).isEqualTo("详情4");
+    }
+
+    @Test
+    void doesNotCacheFailures() {
+        assertThatThrownBy(() -> deduplicator.write("c1", "cancelBooking", List.of("101", "徐庶"), Set.of("101"), () -> {
+            executions.incrementAndGet();
+            throw new IllegalArgumentException("航班起飞前48小时内不允许取消预订");
+        })).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(deduplicator.write("c1", "cancelBooking", List.of("101", "徐庶"), Set.of("101"),
+                () -> "取消" + executions.incrementAndGet())).isEqualTo("取消2");
+    }
+
+    @Test
+    void concurrentDuplicateWritesExecuteOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(() -> deduplicator.write("c1", "cancelBooking",
+                    List.of("101", "徐庶"), Set.of("101"), () -> {
+                        started.countDown();
+                        await(release);
+                        return "取消" + executions.incrementAndGet();
+                    }));
+            started.await();
+            Future<String> second = executor.submit(() -> deduplicator.write("c1", "cancelBooking",
+                    List.of("101", "徐庶"), Set.of("101"), () -> "取消" + executions.incrementAndGet()));
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("取消1");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("取消1");
+            assertThat(executions.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String read(String conversationId, String bookingNumber, String name) {
+        return deduplicator.read(conversationId, "getBookingDetails", List.of(bookingNumber, name), Set.of(bookingNumber),
+                () -> "详情" + executions.incrementAndGet());
+    }
+
+    private String change(String conversationId, String bookingNumber, String date) {
+        return deduplicator.write(conversationId, "changeBooking", List.of(bookingNumber, "徐庶", date, "北京", "上海"),
+                Set.of(bookingNumber), () -> "修改" + executions.incrementAndGet());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}